@@ -0,0 +1,221 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* JMH benchmark of the primitive int tables against the boxed tables they     *
+* replace: IntTable2Set against Table2Set<Integer,Integer> and                *
+* IntIntDoubleTable against Table2Map<Integer,Integer,Double>, on the         *
+* operations of the matchers and the RelationshipMap (building a table from   *
+* a list of pairs, iterating over all its entries and looking up pairs).      *
+* Run with: mvn -Pbenchmark test-compile exec:exec                            *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.util;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IntTableBenchmark
+{
+
+//Attributes
+
+	//The number of pairs in the tables
+	@Param({"100000", "1000000"})
+	private int size;
+	//The average number of values per key (as in the candidate tables of the matchers)
+	@Param({"8"})
+	private int valuesPerKey;
+	//The pairs (and similarities) to add to the tables
+	private int[] keys;
+	private int[] values;
+	private double[] sims;
+	//The pairs to look up, half of which are in the tables
+	private int[] probeKeys;
+	private int[] probeValues;
+	//The tables built from the pairs, for the iteration and lookup benchmarks
+	private Table2Set<Integer,Integer> table2Set;
+	private IntTable2Set intTable2Set;
+	private Table2Map<Integer,Integer,Double> table2Map;
+	private IntIntDoubleTable intIntDoubleTable;
+
+//Public Methods
+
+	@Setup
+	public void setup()
+	{
+		Random r = new Random(42);
+		int keyRange = Math.max(1, size / valuesPerKey);
+		keys = new int[size];
+		values = new int[size];
+		sims = new double[size];
+		for(int i = 0; i < size; i++)
+		{
+			keys[i] = r.nextInt(keyRange);
+			values[i] = r.nextInt(4 * keyRange);
+			sims[i] = Math.round(r.nextDouble() * 10000) / 10000.0;
+		}
+		probeKeys = new int[size];
+		probeValues = new int[size];
+		for(int i = 0; i < size; i++)
+		{
+			if(i % 2 == 0)
+			{
+				probeKeys[i] = keys[i];
+				probeValues[i] = values[i];
+			}
+			else
+			{
+				probeKeys[i] = r.nextInt(keyRange);
+				probeValues[i] = r.nextInt(4 * keyRange);
+			}
+		}
+		table2Set = buildTable2Set();
+		intTable2Set = buildIntTable2Set();
+		table2Map = buildTable2Map();
+		intIntDoubleTable = buildIntIntDoubleTable();
+	}
+
+	@Benchmark
+	public Table2Set<Integer,Integer> buildTable2Set()
+	{
+		Table2Set<Integer,Integer> t = new Table2Set<Integer,Integer>();
+		for(int i = 0; i < size; i++)
+			t.add(keys[i], values[i]);
+		return t;
+	}
+
+	@Benchmark
+	public IntTable2Set buildIntTable2Set()
+	{
+		IntTable2Set t = new IntTable2Set();
+		for(int i = 0; i < size; i++)
+			t.add(keys[i], values[i]);
+		return t;
+	}
+
+	@Benchmark
+	public Table2Map<Integer,Integer,Double> buildTable2Map()
+	{
+		Table2Map<Integer,Integer,Double> t = new Table2Map<Integer,Integer,Double>();
+		for(int i = 0; i < size; i++)
+			t.add(keys[i], values[i], sims[i]);
+		return t;
+	}
+
+	@Benchmark
+	public IntIntDoubleTable buildIntIntDoubleTable()
+	{
+		IntIntDoubleTable t = new IntIntDoubleTable();
+		for(int i = 0; i < size; i++)
+			t.add(keys[i], values[i], sims[i]);
+		return t;
+	}
+
+	@Benchmark
+	public long iterateTable2Set()
+	{
+		long sum = 0;
+		for(Integer i : table2Set.keySet())
+			for(Integer j : table2Set.get(i))
+				sum += i + j;
+		return sum;
+	}
+
+	@Benchmark
+	public long iterateIntTable2Set()
+	{
+		long sum = 0;
+		for(IntIterator k = intTable2Set.keys(); k.hasNext(); )
+		{
+			int i = k.next();
+			for(IntIterator v = intTable2Set.values(i); v.hasNext(); )
+				sum += i + v.next();
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public double iterateTable2Map()
+	{
+		double sum = 0;
+		for(Integer i : table2Map.keySet())
+			for(Integer j : table2Map.keySet(i))
+				sum += table2Map.get(i, j);
+		return sum;
+	}
+
+	@Benchmark
+	public double iterateIntIntDoubleTable()
+	{
+		double sum = 0;
+		for(IntIterator k = intIntDoubleTable.keys(); k.hasNext(); )
+		{
+			int i = k.next();
+			for(IntIterator v = intIntDoubleTable.keys(i); v.hasNext(); )
+				sum += intIntDoubleTable.get(i, v.next());
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public void containsTable2Set(Blackhole b)
+	{
+		for(int i = 0; i < size; i++)
+			b.consume(table2Set.contains(probeKeys[i], probeValues[i]));
+	}
+
+	@Benchmark
+	public void containsIntTable2Set(Blackhole b)
+	{
+		for(int i = 0; i < size; i++)
+			b.consume(intTable2Set.contains(probeKeys[i], probeValues[i]));
+	}
+
+	@Benchmark
+	public void getTable2Map(Blackhole b)
+	{
+		for(int i = 0; i < size; i++)
+		{
+			Double sim = table2Map.get(probeKeys[i], probeValues[i]);
+			b.consume(sim == null ? 0.0 : sim);
+		}
+	}
+
+	@Benchmark
+	public void getIntIntDoubleTable(Blackhole b)
+	{
+		for(int i = 0; i < size; i++)
+			b.consume(intIntDoubleTable.get(probeKeys[i], probeValues[i]));
+	}
+}
\ No newline at end of file
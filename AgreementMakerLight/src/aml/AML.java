@@ -25,6 +25,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileReader;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.HashSet;
@@ -50,7 +51,9 @@ import aml.match.Mapping;
 import aml.match.UnsupportedEntityTypeException;
 import aml.match.Alignment;
 import aml.match.AutomaticMatcher;
+import aml.ontology.NameDictionary;
 import aml.ontology.Ontology;
+import aml.ontology.OntologySnapshot;
 import aml.ontology.RelationshipMap;
 import aml.ontology.URIMap;
 import aml.settings.Problem;
@@ -65,7 +68,9 @@ import aml.settings.SizeCategory;
 import aml.settings.StringSimMeasure;
 import aml.settings.WordMatchStrategy;
 import aml.util.ExtensionFilter;
+import aml.util.IndexFunction;
 import aml.util.InteractionManager;
+import aml.util.ParallelExecutor;
 import aml.util.Similarity;
 
 public class AML
@@ -79,6 +84,7 @@ public class AML
 	private String dir;
 	//The ontology and alignment data structures
 	private URIMap uris;
+	private NameDictionary names;
 	private RelationshipMap rels;
 	private Ontology source;
 	private Ontology target;
@@ -87,6 +93,9 @@ public class AML
 	private Alignment ref;
 	private RepairMap rep;
 	private QualityFlagger qf;
+	//The shared execution service for parallel matching and filtering
+	private ParallelExecutor exec;
+	private int threads = Runtime.getRuntime().availableProcessors();
 	//The user interaction manager
 	//(for handling simulated interactions)
 	private InteractionManager im;
@@ -97,6 +106,9 @@ public class AML
 	private double fMeasure;
 	//General matching settings
 	private boolean useReasoner = false;
+	private boolean lazyClosure = false;
+	private boolean snapshots = false;
+	private boolean streaming = false;
 	private boolean matchSameURI = false;
 	private boolean matchClasses;
 	private boolean matchIndividuals;
@@ -119,6 +131,7 @@ public class AML
     private Vector<String> selectedSources; //The selected files under the BK_PATH
     private WordMatchStrategy wms;
     private StringSimMeasure ssm;
+    private double stringBlocking; //The minimum n-gram overlap for String Matcher candidates (negative to disable)
     private boolean primaryStringMatcher; //Whether to use the String Matcher globally (TRUE) or locally (FALSE)
     private NeighborSimilarityStrategy nss;
     private boolean directNeighbors = false;
@@ -138,8 +151,9 @@ public class AML
 	//It's private so that no other instances can be created 
 	private AML()
 	{
-        //Initialize the URIMap and RelationshipMap
+        //Initialize the URIMap, NameDictionary and RelationshipMap
 		uris = new URIMap();
+		names = new NameDictionary();
 		rels = new RelationshipMap();
 		dir = "";
 		try
@@ -177,6 +191,37 @@ public class AML
 		return rep;
     }
 	
+	/**
+	 * Builds the snapshot of an ontology file (if it doesn't have one) so
+	 * that it is restored from the snapshot when it is opened with snapshots
+	 * enabled (this closes the active ontologies)
+	 * @param file: the ontology file
+	 */
+	public void buildSnapshot(File file) throws OWLOntologyCreationException, IOException
+	{
+		closeOntologies();
+		File snapshot = OntologySnapshot.getSnapshotFile(file);
+		if(snapshot.exists())
+		{
+			System.out.println(file + " already has a snapshot");
+			return;
+		}
+        //Initialize the URIMap, NameDictionary and RelationshipMap
+		uris = new URIMap();
+		names = new NameDictionary();
+		rels = new RelationshipMap();
+		if(useReasoner)
+			PropertyConfigurator.configure(dir + LOG);
+		long time = System.currentTimeMillis()/1000;
+		System.out.println("Loading " + file);
+		source = new Ontology(file.toURI());
+		rels.transitiveClosure();
+		OntologySnapshot.write(source, snapshot);
+		time = System.currentTimeMillis()/1000 - time;
+		System.out.println("Snapshot " + snapshot.getName() + " built in " + time + " seconds");
+		closeOntologies();
+	}
+	
 	/**
 	 * Closes the active alignment (GUI)
 	 */
@@ -198,6 +243,7 @@ public class AML
     	target = null;
     	bk = null;
     	uris = null;
+    	names = null;
     	rels = null;
     	closeAlignment();
     }
@@ -274,6 +320,12 @@ public class AML
 			language = languages.iterator().next();
 		wms = WordMatchStrategy.AVERAGE;
 		ssm = StringSimMeasure.ISUB;
+		if(size.equals(SizeCategory.SMALL))
+			stringBlocking = -1.0;
+		else if(size.equals(SizeCategory.MEDIUM))
+			stringBlocking = 0.2;
+		else
+			stringBlocking = 0.4;
 		nss = NeighborSimilarityStrategy.DESCENDANTS;
 		directNeighbors = false;
 		sType = SelectionType.getSelectionType();
@@ -320,6 +372,17 @@ public class AML
 					"\t" + rec + "\t" + fms + "\t" + found + "\t" + correct + "\t" + total;
 	}
 	
+	//Extends the Lexicons of the source and target ontologies, one at a time
+	//(since the extenders add names to the shared NameDictionary, and their
+	//ids must not depend on thread timing)
+	private void extendLexicons()
+	{
+		StopWordExtender sw = new StopWordExtender();
+		sw.extendLexicons();
+		ParenthesisExtender p = new ParenthesisExtender();
+		p.extendLexicons();
+	}
+	
     /**
      * Filters problem mappings in the active alignment
      */
@@ -392,6 +455,17 @@ public class AML
     	return evaluation;
     }
     
+	/**
+	 * @return the shared ParallelExecutor, which is created on first
+	 * request with the configured number of threads
+	 */
+	public synchronized ParallelExecutor getExecutor()
+	{
+		if(exec == null)
+			exec = new ParallelExecutor(threads);
+		return exec;
+	}
+	
 	/**
 	 * @return the selected flagging steps
 	 */
@@ -472,6 +546,14 @@ public class AML
 		return matchSteps;
 	}
 	
+	/**
+	 * @return the NameDictionary
+	 */
+	public NameDictionary getNameDictionary()
+	{
+		return names;
+	}
+	
 	/**
      * @return the active NeighborSimilarityStrategy 
      */
@@ -545,6 +627,26 @@ public class AML
 		return size;
 	}
 	
+	//Gets the snapshot of an ontology, if snapshots are enabled and it
+	//is a local file with a snapshot (otherwise returns null)
+	private File getSnapshot(URI u)
+	{
+		if(!snapshots || !"file".equals(u.getScheme()))
+			return null;
+		try
+		{
+			File snapshot = OntologySnapshot.getSnapshotFile(new File(u));
+			if(snapshot.exists())
+				return snapshot;
+		}
+		catch(IOException e)
+		{
+			System.out.println("Warning: could not read snapshot of " + u);
+			e.printStackTrace();
+		}
+		return null;
+	}
+	
 	/**
 	 * @return the current source ontology
 	 */
@@ -561,6 +663,15 @@ public class AML
 		return sourceIndividualsToMatch;
 	}
 	
+	/**
+	 * @return the minimum n-gram overlap for String Matcher candidates
+	 * (or a negative value if blocking is disabled)
+	 */
+	public double getStringBlocking()
+	{
+		return stringBlocking;
+	}
+	
 	/**
 	 * @return the active StringSimMeasure
 	 */
@@ -669,6 +780,27 @@ public class AML
    			(source.getReferenceMap().size() > 0 || target.getReferenceMap().size() > 0);
     }
     
+	//Checks whether the class relationships of the active ontologies are
+	//independent, i.e., whether no class is related to classes of both
+	//ontologies (in which case they can be closed independently)
+	private boolean independentClasses()
+	{
+		for(Integer i : source.getEntities(EntityType.CLASS))
+		{
+			if(target.contains(i) && (rels.getAncestors(i).size() > 0 ||
+					rels.getDescendants(i).size() > 0))
+				return false;
+			for(Integer j : rels.getAncestors(i))
+				if(target.contains(j))
+					return false;
+		}
+		for(Integer i : target.getEntities(EntityType.CLASS))
+			for(Integer j : rels.getAncestors(i))
+				if(source.contains(j))
+					return false;
+		return true;
+	}
+	
     public boolean isHierarchic()
     {
 		return hierarchic;
@@ -684,6 +816,79 @@ public class AML
     	return targetIndividualsToMatch.contains(index);
 	}
     
+    /**
+     * @return whether the transitive closure of the RelationshipMap is
+     * computed lazily (for each class on request) instead of on opening
+     */
+    public boolean lazyClosure()
+    {
+    	return lazyClosure;
+    }
+    
+    //Loads an ontology, restoring it from its snapshot if snapshots are
+    //enabled and it is a local file with a snapshot
+    private Ontology loadOntology(URI u) throws OWLOntologyCreationException
+    {
+    	File snapshot = getSnapshot(u);
+    	if(snapshot != null)
+    	{
+    		try
+    		{
+    			System.out.println("Restoring from snapshot " + snapshot.getName());
+    			return OntologySnapshot.read(snapshot);
+    		}
+    		catch(IOException e)
+    		{
+    			System.out.println("Warning: could not read snapshot of " + u);
+    			e.printStackTrace();
+    		}
+    	}
+    	return new Ontology(u);
+    }
+    
+	//Loads the source and target ontologies, parsing them concurrently but
+	//adding their entities to AML in order (the source as soon as it is parsed,
+	//then the target) so that their indexes are the same as if they were
+	//loaded one after the other
+	private void loadOntologies(final URI src, final URI tgt) throws OWLOntologyCreationException
+	{
+		final Ontology[] parsed = new Ontology[1];
+		final OWLOntologyCreationException[] errors = new OWLOntologyCreationException[2];
+		Vector<Integer> tasks = new Vector<Integer>();
+		tasks.add(0);
+		tasks.add(1);
+		getExecutor().map(tasks, new IndexFunction<Void>()
+		{
+			@Override
+			public Void compute(int i)
+			{
+				try
+				{
+					if(i == 0)
+						source = loadOntology(src);
+					//Targets restored from snapshots aren't parsed
+					else if(getSnapshot(tgt) == null)
+						parsed[0] = Ontology.parse(tgt);
+				}
+				catch(OWLOntologyCreationException e)
+				{
+					errors[i] = e;
+				}
+				return null;
+			}
+		});
+		for(OWLOntologyCreationException e : errors)
+			if(e != null)
+				throw e;
+		if(parsed[0] == null)
+			target = loadOntology(tgt);
+		else
+		{
+			target = parsed[0];
+			target.build();
+		}
+	}
+	
     /**
      * Matches the active ontologies using the default configuration
      */
@@ -843,83 +1048,59 @@ public class AML
 		System.out.println(bk.getURI() + " loaded in " + time + " seconds");
 	}
 
-	public void openOntologies(String src, String tgt) throws OWLOntologyCreationException, URISyntaxException {
-		closeOntologies();
-        //Initialize the URIMap and RelationshipMap
-		uris = new URIMap();
-		rels = new RelationshipMap();
-		if(useReasoner)
-			PropertyConfigurator.configure(dir + LOG);
-		long time = System.currentTimeMillis()/1000;
-		System.out.println("Loading source ontology");
-		source = new Ontology(new URI(src));
-		time = System.currentTimeMillis()/1000 - time;
-		System.out.println(source.getURI() + " loaded in " + time + " seconds");
-		System.out.println("Classes: " + source.count(EntityType.CLASS));
-		System.out.println("Individuals: " + source.count(EntityType.INDIVIDUAL));
-		System.out.println("Properties: " + (source.count(EntityType.DATA)+source.count(EntityType.OBJECT)));
-		time = System.currentTimeMillis()/1000;
-		System.out.println("Loading target ontology");
-		target = new Ontology(new URI(src));
-		time = System.currentTimeMillis()/1000 - time;
-		System.out.println(target.getURI() + " loaded in " + time + " seconds");
-		System.out.println("Classes: " + target.count(EntityType.CLASS));
-		System.out.println("Individuals: " + target.count(EntityType.INDIVIDUAL));
-		System.out.println("Properties: " + (target.count(EntityType.DATA)+target.count(EntityType.OBJECT)));
-		System.out.println("Direct Relationships: " + rels.relationshipCount());
-		time = System.currentTimeMillis()/1000;
-		System.out.println("Running transitive closure on RelationshipMap");
-		rels.transitiveClosure();
-		time = System.currentTimeMillis()/1000 - time;
-		System.out.println("Transitive closure finished in " + time + " seconds");	
-		System.out.println("Extended Relationships: " + rels.relationshipCount());
-		System.out.println("Disjoints: " + rels.disjointCount());
-    	//Reset the alignment, mapping, and evaluation
-    	a = null;
-    	activeMapping = -1;
-    	evaluation = null;
-    	//Refresh the user interface
-
-    	defaultConfig();
-    	StopWordExtender sw = new StopWordExtender();
-    	sw.extendLexicons();
-    	ParenthesisExtender p = new ParenthesisExtender();
-    	p.extendLexicons();
-    	System.out.println("Finished!");	
+	public void openOntologies(String src, String tgt) throws OWLOntologyCreationException, URISyntaxException
+	{
+		openOntologies(new URI(src), new URI(tgt));
 	}
 	
 	public void openOntologies(URI src, URI tgt) throws OWLOntologyCreationException
 	{
 		closeOntologies();
-        //Initialize the URIMap and RelationshipMap
+        //Initialize the URIMap, NameDictionary and RelationshipMap
 		uris = new URIMap();
+		names = new NameDictionary();
 		rels = new RelationshipMap();
 		if(useReasoner)
 			PropertyConfigurator.configure(dir + LOG);
 		long time = System.currentTimeMillis()/1000;
-		System.out.println("Loading source ontology");	
-		source = new Ontology(src);
+		System.out.println("Loading source and target ontologies");	
+		loadOntologies(src, tgt);
 		time = System.currentTimeMillis()/1000 - time;
-		System.out.println(source.getURI() + " loaded in " + time + " seconds");
+		System.out.println("Ontologies loaded in " + time + " seconds");
+		System.out.println(source.getURI());
 		System.out.println("Classes: " + source.count(EntityType.CLASS));
 		System.out.println("Individuals: " + source.count(EntityType.INDIVIDUAL));
 		System.out.println("Properties: " + (source.count(EntityType.DATA)+source.count(EntityType.OBJECT)));
-		time = System.currentTimeMillis()/1000;
-		System.out.println("Loading target ontology");
-		target = new Ontology(tgt);
-		time = System.currentTimeMillis()/1000 - time;
-		System.out.println(target.getURI() + " loaded in " + time + " seconds");
+		System.out.println(target.getURI());
 		System.out.println("Classes: " + target.count(EntityType.CLASS));
 		System.out.println("Individuals: " + target.count(EntityType.INDIVIDUAL));
 		System.out.println("Properties: " + (target.count(EntityType.DATA)+target.count(EntityType.OBJECT)));
 		System.out.println("Direct Relationships: " + rels.relationshipCount());
-		time = System.currentTimeMillis()/1000;
-		System.out.println("Running transitive closure on RelationshipMap");
-		rels.transitiveClosure();
-		time = System.currentTimeMillis()/1000 - time;
-		System.out.println("Transitive closure finished in " + time + " seconds");	
-		System.out.println("Extended Relationships: " + rels.relationshipCount());
+		if(source.isClosed() && target.isClosed() && independentClasses())
+		{
+			System.out.println("Transitive closure of RelationshipMap restored from snapshots");
+			rels.setClosed();
+		}
+		else if(lazyClosure)
+		{
+			System.out.println("Transitive closure of RelationshipMap will be computed on request");
+			rels.lazyClosure();
+		}
+		else
+		{
+			time = System.currentTimeMillis()/1000;
+			System.out.println("Running transitive closure on RelationshipMap");
+			rels.transitiveClosure();
+			time = System.currentTimeMillis()/1000 - time;
+			System.out.println("Transitive closure finished in " + time + " seconds");	
+			System.out.println("Extended Relationships: " + rels.relationshipCount());
+		}
 		System.out.println("Disjoints: " + rels.disjointCount());
+		if(snapshots)
+		{
+			saveSnapshot(source, src);
+			saveSnapshot(target, tgt);
+		}
     	//Reset the alignment, mapping, and evaluation
     	a = null;
     	activeMapping = -1;
@@ -927,10 +1108,7 @@ public class AML
     	//Refresh the user interface
 
     	defaultConfig();
-    	StopWordExtender sw = new StopWordExtender();
-    	sw.extendLexicons();
-    	ParenthesisExtender p = new ParenthesisExtender();
-    	p.extendLexicons();
+    	extendLexicons();
     	System.out.println("Finished!");	
     }
     
@@ -979,6 +1157,12 @@ public class AML
 						if(option[1].equalsIgnoreCase("true"))
 							inst = InstanceMatchingCategory.SAME_CLASSES;
 					}
+					else if(option[0].equals("string_blocking"))
+						stringBlocking = Double.parseDouble(option[1]);
+					else if(option[0].equals("selection_type"))
+						setSelectionType(SelectionType.parseSelector(option[1]));
+					else if(option[0].equals("threads"))
+						setThreads(Integer.parseInt(option[1]));
 					else if(option[0].equals("use_reasoner"))
 						useReasoner = option[1].equalsIgnoreCase("true");
 					else if(option[0].equals("match_same_uri"))
@@ -1059,6 +1243,29 @@ public class AML
     	needSave = false;
     }
     
+	//Saves the snapshot of an open ontology (if it doesn't have one), which
+	//requires its class relationships to be independent of those of the
+	//other ontology
+	private void saveSnapshot(Ontology o, URI u)
+	{
+		if(o.isClosed() || !"file".equals(u.getScheme()) || !independentClasses())
+			return;
+		try
+		{
+			File snapshot = OntologySnapshot.getSnapshotFile(new File(u));
+			if(!snapshot.exists())
+			{
+				OntologySnapshot.write(o, snapshot);
+				System.out.println("Saved snapshot " + snapshot.getName());
+			}
+		}
+		catch(IOException e)
+		{
+			System.out.println("Warning: could not save snapshot of " + u);
+			e.printStackTrace();
+		}
+	}
+	
 	public void setAlignment(Alignment maps)
 	{
 		a = maps;
@@ -1095,6 +1302,17 @@ public class AML
 		lang = LanguageSetting.getLanguageSetting();
 	}
 	
+	/**
+	 * Sets whether the transitive closure of the RelationshipMap is computed
+	 * lazily (for each class on request) instead of when opening ontologies,
+	 * for pipelines that only need the closure of some classes
+	 * @param lazy: whether to compute the transitive closure lazily
+	 */
+	public void setLazyClosure(boolean lazy)
+	{
+		lazyClosure = lazy;
+	}
+	
 	public void setMatchSteps(Vector<MatchStep> steps)
 	{
 		matchSteps = steps;
@@ -1135,6 +1353,17 @@ public class AML
 			sType = s;
 	}
 	
+	/**
+	 * Sets whether ontologies are restored from their snapshots (if they have
+	 * them) and whether snapshots are saved for those that don't, when opening
+	 * local ontology files
+	 * @param b: whether to use snapshots
+	 */
+	public void setSnapshots(boolean b)
+	{
+		snapshots = b;
+	}
+	
 	/**
 	 * Sets the set of classes of the source ontology to which the individuals
 	 * to match belong to
@@ -1163,6 +1392,22 @@ public class AML
 		}
 	}
 	
+	/**
+	 * Sets whether local ontology files are streamed into AML (without
+	 * building their OWL API model) when they are in RDF/XML, Turtle or OBO
+	 * and have no constructs that require the OWL API
+	 * @param b: whether to stream ontology files
+	 */
+	public void setStreaming(boolean b)
+	{
+		streaming = b;
+	}
+	
+	public void setStringBlocking(double blocking)
+	{
+		stringBlocking = blocking;
+	}
+	
 	public void setStringSimMeasure(StringSimMeasure ssm)
 	{
 		this.ssm = ssm;
@@ -1201,6 +1446,20 @@ public class AML
 		}
 	}
 	
+	/**
+	 * Sets the number of threads used for parallel matching and filtering
+	 * @param t: the number of threads
+	 */
+	public synchronized void setThreads(int t)
+	{
+		if(t < 1 || t == threads)
+			return;
+		threads = t;
+		if(exec != null)
+			exec.shutdown();
+		exec = null;
+	}
+	
 	public void setThreshold(double thresh)
 	{
 		threshold = thresh;
@@ -1223,6 +1482,7 @@ public class AML
 	{
 		this.wms = wms;
 	}
+	
 
 	public boolean showAncestors()
 	{
@@ -1318,4 +1578,20 @@ public class AML
 	{
 		return useReasoner;
 	}
+	
+	/**
+	 * @return whether ontologies are restored from and saved to snapshots
+	 */
+	public boolean useSnapshots()
+	{
+		return snapshots;
+	}
+	
+	/**
+	 * @return whether ontology files are streamed into AML
+	 */
+	public boolean useStreaming()
+	{
+		return streaming;
+	}
 }
\ No newline at end of file
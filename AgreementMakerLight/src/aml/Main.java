@@ -78,6 +78,16 @@ public class Main
 	public static void main(String[] args) throws OWLOntologyCreationException, IOException, URISyntaxException {
 
 
+		//Build the snapshots of the given ontology files, so that they don't
+		//need to be parsed when they are matched with -snapshots
+		if(args.length > 0 && args[0].startsWith("-snapshot="))
+		{
+			for(String a : args)
+				if(a.startsWith("-snapshot="))
+					AML.getInstance().buildSnapshot(new File(a.replaceAll("-snapshot=","")));
+			return;
+		}
+
 		//String ontFromIRI = "file:///home/noor/Downloads/dogont.owl";
 		//String ontToIRI = "https://www.w3.org/ns/ssn/ssn.rdf";
 
@@ -88,6 +98,13 @@ public class Main
 		System.out.println("Ontology to:"+ontToIRI);
 
 		AML aml = AML.getInstance();
+		for(int i = 2; i < args.length; i++)
+			if(args[i].equals("-snapshots"))
+				aml.setSnapshots(true);
+			else if(args[i].equals("-streaming"))
+				aml.setStreaming(true);
+			else if(args[i].equals("-lazyClosure"))
+				aml.setLazyClosure(true);
 		aml.openOntologies(ontFromIRI, ontToIRI);
 		aml.matchAuto();
 		System.out.println("Number of Alignment:"+aml.getAlignment().size());
@@ -30,17 +30,13 @@ import aml.util.StringParser;
 
 public class ParenthesisExtender implements LexiconExtender
 {
-	@Override
-	public void extendLexicons()
-	{
-		AML aml = AML.getInstance();
-		Lexicon source = aml.getSource().getLexicon();
-		extend(source);
-		Lexicon target = aml.getTarget().getLexicon();
-		extend(target);
-	}
-	
-	private void extend(Lexicon l)
+	/**
+	 * Extends a Lexicon by removing or unwrapping the parenthetical parts
+	 * of its names (the Lexicons of different ontologies can be extended
+	 * in parallel)
+	 * @param l: the Lexicon to extend
+	 */
+	public void extendLexicon(Lexicon l)
 	{
 		for(EntityType e : EntityType.values())
 		{
@@ -86,4 +82,14 @@ public class ParenthesisExtender implements LexiconExtender
 			}
 		}
 	}
+	
+	@Override
+	public void extendLexicons()
+	{
+		AML aml = AML.getInstance();
+		Lexicon source = aml.getSource().getLexicon();
+		extendLexicon(source);
+		Lexicon target = aml.getTarget().getLexicon();
+		extendLexicon(target);
+	}
 }
\ No newline at end of file
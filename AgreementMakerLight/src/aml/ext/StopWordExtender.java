@@ -40,23 +40,26 @@ public class StopWordExtender implements LexiconExtender
 	private Set<String> stopList;
 	private final double WEIGHT = 0.98;
 	
-//Public Methods
+//Constructors
 	
-	@Override
-	public void extendLexicons()
+	/**
+	 * Constructs a new StopWordExtender for the size category of the
+	 * open ontologies
+	 */
+	public StopWordExtender()
 	{
 		stopList = StopList.read();
-		AML aml = AML.getInstance();
-		s = aml.getSizeCategory();
-		Lexicon source = aml.getSource().getLexicon();
-		extend(source);
-		Lexicon target = aml.getTarget().getLexicon();
-		extend(target);
+		s = AML.getInstance().getSizeCategory();
 	}
 	
-//Private Methods
+//Public Methods
 	
-	private void extend(Lexicon l)
+	/**
+	 * Extends a Lexicon by removing stop words from its names (the
+	 * Lexicons of different ontologies can be extended in parallel)
+	 * @param l: the Lexicon to extend
+	 */
+	public void extendLexicon(Lexicon l)
 	{
 		//Process Classes (remove only leading and trailing stop words)
 		Vector<String> nm = new Vector<String>(l.getNames(EntityType.CLASS));
@@ -143,4 +146,14 @@ public class StopWordExtender implements LexiconExtender
 			}
 		}
 	}
+	
+	@Override
+	public void extendLexicons()
+	{
+		AML aml = AML.getInstance();
+		Lexicon source = aml.getSource().getLexicon();
+		extendLexicon(source);
+		Lexicon target = aml.getTarget().getLexicon();
+		extendLexicon(target);
+	}
 }
\ No newline at end of file
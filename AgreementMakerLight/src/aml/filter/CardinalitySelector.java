@@ -130,26 +130,9 @@ public class CardinalitySelector implements Filterer, Flagger
 	 */
 	public Alignment filter(Alignment a)
 	{
-		Alignment selected = new Alignment();
-		a.sortDescending();
-		for(Mapping m : a)
-		{
-			boolean toAdd = false;
-			if(m.getStatus().equals(MappingStatus.CORRECT))
-				toAdd = true;
-			else if(m.getSimilarity() >= thresh && !m.getStatus().equals(MappingStatus.INCORRECT))
-			{
-				int sourceCard = selected.getSourceMappings(m.getSourceId()).size();
-				int targetCard = selected.getTargetMappings(m.getTargetId()).size();
-				if((sourceCard < card && targetCard < card) ||
-						(!type.equals(SelectionType.STRICT) && !selected.containsBetterMapping(m)) ||
-						(type.equals(SelectionType.HYBRID) && m.getSimilarity() > 0.75 && sourceCard <= card && targetCard <= card))
-					toAdd = true;
-			}
-			if(toAdd)
-				selected.add(new Mapping(m));
-		}
-		return selected;
+		SelectionBuffer b = new SelectionBuffer(thresh, card, type);
+		b.addAll(a);
+		return b.select();
 	}
 
 	@Override
@@ -166,6 +149,10 @@ public class CardinalitySelector implements Filterer, Flagger
 
 	private Alignment filterNormal()
 	{
+		//If the task isn't interactive, the selection can be done in bulk
+		//(as can OPTIMAL selection, which isn't done in ranking order)
+		if(!im.isInteractive() || type.equals(SelectionType.OPTIMAL))
+			return filter(a);
 		//The alignment to store selected mappings
 		Alignment selected = new Alignment();
 		//Sort the active alignment
@@ -197,8 +184,30 @@ public class CardinalitySelector implements Filterer, Flagger
 		return selected;
 	}
 
+	private Alignment filterOptimalWithAux()
+	{
+		//The candidates are the Mappings of the active alignment that can be
+		//selected and are in the auxiliary alignment, with its similarity
+		SelectionBuffer b = new SelectionBuffer(Double.NEGATIVE_INFINITY, card, type);
+		for(Mapping n : aux)
+		{
+			Mapping m = a.get(n.getSourceId(), n.getTargetId());
+			if(m != null && (m.getStatus().equals(MappingStatus.CORRECT) ||
+					m.getSimilarity() >= thresh))
+				b.add(n.getSourceId(), n.getTargetId(), n.getSimilarity(), m.getRelationship(), m.getStatus());
+		}
+		Alignment selected = new Alignment();
+		for(Mapping n : b.select())
+			selected.add(a.get(n.getSourceId(), n.getTargetId()));
+		return selected;
+	}
+	
 	private Alignment filterWithAux()
 	{
+		//In OPTIMAL selection, the selected Mappings are those that maximize
+		//the similarity in the auxiliary alignment
+		if(type.equals(SelectionType.OPTIMAL))
+			return filterOptimalWithAux();
 		//The alignment to store selected mappings
 		Alignment selected = new Alignment();
 		//Sort the auxiliary alignment
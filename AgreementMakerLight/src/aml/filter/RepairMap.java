@@ -22,19 +22,14 @@ package aml.filter;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.PrintWriter;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Set;
 import java.util.Vector;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
 import aml.AML;
+import aml.util.IndexFunction;
 import aml.util.Table2Set;
 import aml.util.Table3List;
 import aml.util.Table3Set;
@@ -68,8 +63,6 @@ public class RepairMap implements Iterable<Integer>
 	//The table of conflicts per mapping
 	private Table2Set<Integer,Integer> conflictMappings;
 	private Table2Set<Integer,Integer> mappingConflicts;
-	//The available CPU threads
-	private int threads;
 	
 //Constructors
 	
@@ -87,7 +80,6 @@ public class RepairMap implements Iterable<Integer>
 		for(Mapping m : a)
 			if(m.getStatus().equals(MappingStatus.FLAGGED))
 				m.setStatus(MappingStatus.UNKNOWN);
-		threads = Runtime.getRuntime().availableProcessors();
 		init();
 	}
 	
@@ -577,7 +569,7 @@ public class RepairMap implements Iterable<Integer>
 	private void buildConflictSets()
 	{
 		//If there is only one CPU thread available, then process in series
-		if(threads == 1)
+		if(aml.getExecutor().getParallelism() == 1)
 		{
 			//For each checkList class
 			for(Integer i : checkList)
@@ -592,37 +584,21 @@ public class RepairMap implements Iterable<Integer>
 		//Otherwise process in parallel
 		else
 		{
-			//Create a task for each checkList class
-			ArrayList<ClassConflicts> tasks = new ArrayList<ClassConflicts>();
-			for(Integer i : checkList)
-				tasks.add(new ClassConflicts(i));
-			//Then execute all tasks using the available threads
-	        List<Future<Vector<Path>>> results;
-			ExecutorService exec = Executors.newFixedThreadPool(threads);
-			try
-			{
-				results = exec.invokeAll(tasks);
-			}
-			catch (InterruptedException e)
+			//Compute the minimal conflict sets of each checkList class
+			//using the shared ParallelExecutor
+			Vector<Vector<Path>> results = aml.getExecutor().map(checkList,
+					new IndexFunction<Vector<Path>>()
 			{
-				e.printStackTrace();
-		        results = new ArrayList<Future<Vector<Path>>>();
-			}
-			exec.shutdown();
-			//Finally, combine all minimal class conflict sets
-			Vector<Path> allConflicts = new Vector<Path>();
-			for(Future<Vector<Path>> conf : results)
-			{
-				try
-				{
-					for(Path p : conf.get())
-						allConflicts.add(p);
-				}
-				catch(Exception e)
+				@Override
+				public Vector<Path> compute(int classId)
 				{
-					e.printStackTrace();
+					return buildClassConflicts(classId);
 				}
-			}
+			});
+			//Then combine all minimal class conflict sets
+			Vector<Path> allConflicts = new Vector<Path>();
+			for(Vector<Path> conf : results)
+				allConflicts.addAll(conf);
 			//Sort them
 			Collections.sort(allConflicts);
 			//And turn them into the final minimal list of conflict sets
@@ -695,21 +671,4 @@ public class RepairMap implements Iterable<Integer>
 				return;
 		paths.add(p);
 	}
-	
-	//Callable class for computing minimal conflict sets
-	private class ClassConflicts implements Callable<Vector<Path>>
-	{
-		private int term;
-		
-		ClassConflicts(int t)
-	    {
-	        term = t;
-	    }
-	        
-	    @Override
-	    public Vector<Path> call()
-	    {
-       		return buildClassConflicts(term);
-        }
-	}
 }
\ No newline at end of file
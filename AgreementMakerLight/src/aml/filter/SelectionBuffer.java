@@ -0,0 +1,595 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Buffer of candidate mappings for greedy selection, which keeps only the     *
+* candidates that can be selected, in primitive arrays, ranks them with a     *
+* counting sort on their status and (4-decimal) similarity, and selects them  *
+* in ranking order with primitive cardinality counters, so that only the      *
+* selected mappings are added to an Alignment. In OPTIMAL selection, the      *
+* candidates are instead selected by solving a maximum-weight b-matching on   *
+* each connected component of the candidate graph, in parallel.               *
+* The selectors fill the buffer from the candidate Alignment, which is still  *
+* held while they select: the buffer replaces the sorted copy of the          *
+* Alignment and the Mapping objects of the selection, not the Alignment.      *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.filter;
+
+import java.util.Arrays;
+import java.util.Vector;
+
+import aml.AML;
+import aml.match.Alignment;
+import aml.match.Mapping;
+import aml.settings.MappingRelation;
+import aml.settings.MappingStatus;
+import aml.settings.SelectionType;
+import aml.util.IndexFunction;
+import aml.util.IntSet;
+
+public class SelectionBuffer
+{
+
+//Attributes
+
+	//The MappingRelations and MappingStatuses, by ordinal
+	private static final MappingRelation[] RELATIONS = MappingRelation.values();
+	private static final MappingStatus[] STATUSES = MappingStatus.values();
+	//The number of similarity levels per unit (as similarities are rounded
+	//to 4 decimals, each level corresponds to a single similarity)
+	private static final int LEVELS = 10000;
+	//The similarity above which HYBRID selection allows an extra mapping
+	private static final double HYBRID_SIM = 0.75;
+	//The similarity threshold, maximum cardinality and SelectionType
+	private double thresh;
+	private int card;
+	private SelectionType type;
+	//The columns of the candidate mappings
+	private int[] sources;
+	private int[] targets;
+	private double[] sims;
+	private byte[] rels;
+	private byte[] statuses;
+	private int size;
+	//The highest source and target indexes of the candidates
+	private int maxSource;
+	private int maxTarget;
+
+//Constructors
+
+	/**
+	 * Constructs a new empty SelectionBuffer
+	 * @param thresh: the similarity threshold
+	 * @param card: the cardinality up to which mappings are selected
+	 * regardless of the SelectionType
+	 * @param type: the SelectionType
+	 */
+	public SelectionBuffer(double thresh, int card, SelectionType type)
+	{
+		this.thresh = thresh;
+		this.card = card;
+		this.type = type;
+		sources = new int[16];
+		targets = new int[16];
+		sims = new double[16];
+		rels = new byte[16];
+		statuses = new byte[16];
+		size = 0;
+		maxSource = -1;
+		maxTarget = -1;
+	}
+
+//Public Methods
+
+	/**
+	 * Adds a candidate mapping to the buffer, unless it can't be selected
+	 * (i.e., it is INCORRECT, or it is below the threshold and not CORRECT)
+	 * Note that candidates should be distinct (as in an Alignment)
+	 * @param sourceId: the index of the source entity
+	 * @param targetId: the index of the target entity
+	 * @param sim: the similarity between the entities
+	 * @param r: the mapping relationship between the entities
+	 * @param s: the mapping status
+	 */
+	public void add(int sourceId, int targetId, double sim, MappingRelation r, MappingStatus s)
+	{
+		if(!s.equals(MappingStatus.CORRECT) && (sim < thresh || s.equals(MappingStatus.INCORRECT)))
+			return;
+		if(size == sources.length)
+		{
+			int capacity = 2 * size;
+			sources = Arrays.copyOf(sources, capacity);
+			targets = Arrays.copyOf(targets, capacity);
+			sims = Arrays.copyOf(sims, capacity);
+			rels = Arrays.copyOf(rels, capacity);
+			statuses = Arrays.copyOf(statuses, capacity);
+		}
+		sources[size] = sourceId;
+		targets[size] = targetId;
+		sims[size] = sim;
+		rels[size] = (byte)r.ordinal();
+		statuses[size] = (byte)s.ordinal();
+		size++;
+		maxSource = Math.max(maxSource, sourceId);
+		maxTarget = Math.max(maxTarget, targetId);
+	}
+
+	/**
+	 * Adds all Mappings in the given Alignment to the buffer, in its order,
+	 * unless they can't be selected (the Alignment itself is left unchanged,
+	 * so it remains in memory for as long as the caller holds it)
+	 * @param a: the Alignment to add
+	 */
+	public void addAll(Alignment a)
+	{
+		for(Mapping m : a)
+			add(m.getSourceId(), m.getTargetId(), m.getSimilarity(), m.getRelationship(), m.getStatus());
+	}
+
+	/**
+	 * Selects the candidates in descending order of status and similarity
+	 * (as the Alignment sorts them, keeping the order of the candidates with
+	 * the same status and similarity): CORRECT candidates are always selected,
+	 * and the others are selected if they don't exceed the cardinality or, if
+	 * the SelectionType isn't STRICT, if no better mapping was selected for
+	 * either entity, or if the SelectionType is HYBRID and they have a high
+	 * similarity and exceed the cardinality by at most one. If the SelectionType
+	 * is OPTIMAL, the candidates are instead selected so that the sum of their
+	 * similarities is maximal (and then, so that their number is maximal), with
+	 * CORRECT candidates always selected and no entity exceeding the cardinality
+	 * @return the Alignment with the selected candidates, in ranking order
+	 */
+	public Alignment select()
+	{
+		Alignment selected = new Alignment();
+		if(size == 0)
+			return selected;
+		int[] order = rank();
+		if(type.equals(SelectionType.OPTIMAL))
+		{
+			boolean[] optimal = selectOptimal();
+			for(int k = 0; k < size; k++)
+			{
+				int i = order[k];
+				if(optimal[i])
+					selected.add(sources[i], targets[i], sims[i], RELATIONS[rels[i]], STATUSES[statuses[i]]);
+			}
+			return selected;
+		}
+		//The number of selected mappings and the maximum selected similarity
+		//of each source and target entity
+		int[] sourceCard = new int[maxSource + 1];
+		int[] targetCard = new int[maxTarget + 1];
+		double[] sourceMax = new double[maxSource + 1];
+		double[] targetMax = new double[maxTarget + 1];
+		boolean strict = type.equals(SelectionType.STRICT);
+		boolean hybrid = type.equals(SelectionType.HYBRID);
+		for(int k = 0; k < size; k++)
+		{
+			int i = order[k];
+			int s = sources[i];
+			int t = targets[i];
+			double sim = sims[i];
+			if(statuses[i] != MappingStatus.CORRECT.ordinal())
+			{
+				int sc = sourceCard[s];
+				int tc = targetCard[t];
+				boolean better = sourceMax[s] > sim || targetMax[t] > sim;
+				if(!((sc < card && tc < card) || (!strict && !better) ||
+						(hybrid && sim > HYBRID_SIM && sc <= card && tc <= card)))
+					continue;
+			}
+			if(!selected.add(s, t, sim, RELATIONS[rels[i]], STATUSES[statuses[i]]))
+				continue;
+			sourceCard[s]++;
+			targetCard[t]++;
+			sourceMax[s] = Math.max(sourceMax[s], sim);
+			targetMax[t] = Math.max(targetMax[t], sim);
+		}
+		return selected;
+	}
+
+	/**
+	 * @return the number of candidates in the buffer
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+//Private Methods
+
+	//Finds the root of an entity in a union-find forest (halving its path)
+	private static int find(int[] parent, int x)
+	{
+		while(parent[x] != x)
+		{
+			parent[x] = parent[parent[x]];
+			x = parent[x];
+		}
+		return x;
+	}
+
+	//Ranks the candidates in descending order of status and similarity, with
+	//a (stable) counting sort on the status and the similarity level
+	private int[] rank()
+	{
+		int[] keys = new int[size];
+		int min = Integer.MAX_VALUE;
+		int max = Integer.MIN_VALUE;
+		for(int i = 0; i < size; i++)
+		{
+			keys[i] = (int)Math.round(sims[i] * LEVELS);
+			min = Math.min(min, keys[i]);
+			max = Math.max(max, keys[i]);
+		}
+		//The key of each candidate is its position in descending order
+		int levels = max - min + 1;
+		int[] start = new int[STATUSES.length * levels + 1];
+		for(int i = 0; i < size; i++)
+		{
+			keys[i] = (STATUSES.length - 1 - statuses[i]) * levels + (max - keys[i]);
+			start[keys[i] + 1]++;
+		}
+		for(int j = 1; j < start.length; j++)
+			start[j] += start[j - 1];
+		int[] order = new int[size];
+		for(int i = 0; i < size; i++)
+			order[start[keys[i]]++] = i;
+		return order;
+	}
+
+	//Selects the candidates of maximum total similarity, with the CORRECT
+	//candidates fixed, by finding a maximum-weight b-matching (where each entity
+	//can be in up to card mappings) on each connected component of the other
+	//candidates, solving the components with more than one candidate in parallel
+	private boolean[] selectOptimal()
+	{
+		boolean[] chosen = new boolean[size];
+		//The cardinality that is left for each entity after the CORRECT candidates
+		final int[] sourceCap = new int[maxSource + 1];
+		final int[] targetCap = new int[maxTarget + 1];
+		Arrays.fill(sourceCap, card);
+		Arrays.fill(targetCap, card);
+		for(int i = 0; i < size; i++)
+		{
+			if(statuses[i] == MappingStatus.CORRECT.ordinal())
+			{
+				chosen[i] = true;
+				sourceCap[sources[i]]--;
+				targetCap[targets[i]]--;
+			}
+		}
+		//Join the entities of each candidate that can still be selected (with
+		//targets placed after sources) to find the connected components
+		int[] parent = new int[maxSource + maxTarget + 2];
+		for(int x = 0; x < parent.length; x++)
+			parent[x] = x;
+		boolean[] open = new boolean[size];
+		for(int i = 0; i < size; i++)
+		{
+			open[i] = !chosen[i] && sourceCap[sources[i]] > 0 && targetCap[targets[i]] > 0;
+			if(open[i])
+				parent[find(parent, sources[i])] = find(parent, maxSource + 1 + targets[i]);
+		}
+		//List the candidates of each component, in their order
+		int[] component = new int[parent.length];
+		Arrays.fill(component, -1);
+		int[] componentOf = new int[size];
+		int count = 0;
+		for(int i = 0; i < size; i++)
+		{
+			if(!open[i])
+				continue;
+			int root = find(parent, sources[i]);
+			if(component[root] == -1)
+				component[root] = count++;
+			componentOf[i] = component[root];
+		}
+		final int[] start = new int[count + 1];
+		for(int i = 0; i < size; i++)
+			if(open[i])
+				start[componentOf[i] + 1]++;
+		for(int c = 1; c <= count; c++)
+			start[c] += start[c - 1];
+		final int[] members = new int[start[count]];
+		int[] next = Arrays.copyOf(start, count);
+		for(int i = 0; i < size; i++)
+			if(open[i])
+				members[next[componentOf[i]]++] = i;
+		//A component with a single candidate is always selected whole
+		Vector<Integer> toSolve = new Vector<Integer>();
+		for(int c = 0; c < count; c++)
+		{
+			if(start[c + 1] - start[c] == 1)
+				chosen[members[start[c]]] = true;
+			else
+				toSolve.add(c);
+		}
+		Vector<int[]> solutions = AML.getInstance().getExecutor().map(toSolve, new IndexFunction<int[]>()
+		{
+			@Override
+			public int[] compute(int c)
+			{
+				return solve(members, start[c], start[c + 1], sourceCap, targetCap);
+			}
+		});
+		for(int[] solution : solutions)
+			for(int i : solution)
+				chosen[i] = true;
+		return chosen;
+	}
+
+	//Finds a maximum-weight b-matching on a connected component of candidates
+	//by successive shortest augmenting paths (with Dijkstra on the costs reduced
+	//by node potentials), adding the units of cardinality of each source in turn.
+	//A unit of a source that isn't mapped is left in a dummy target of the source
+	//(with weight 0), and both the dummy targets and the targets with cardinality
+	//left lead to the sink. The weights are the similarity levels scaled so that
+	//ties are broken in favor of more mappings, which keeps the solution exact.
+	private int[] solve(int[] members, int from, int to, int[] sourceCap, int[] targetCap)
+	{
+		int e = to - from;
+		//The nodes are the sources (0 to m-1), the targets (m to m+n-1) and the sink
+		IntSet sourceSet = new IntSet();
+		IntSet targetSet = new IntSet();
+		for(int k = from; k < to; k++)
+		{
+			sourceSet.add(sources[members[k]]);
+			targetSet.add(targets[members[k]]);
+		}
+		int m = sourceSet.size();
+		int nodes = m + targetSet.size();
+		int sink = nodes;
+		int[] head = new int[e];
+		int[] tail = new int[e];
+		long[] weight = new long[e];
+		int[] cap = new int[nodes];
+		for(int k = 0; k < e; k++)
+		{
+			int i = members[from + k];
+			head[k] = sourceSet.position(sources[i]);
+			tail[k] = m + targetSet.position(targets[i]);
+			weight[k] = Math.round(sims[i] * LEVELS) * (e + 1) + 1;
+			cap[head[k]] = sourceCap[sources[i]];
+			cap[tail[k]] = targetCap[targets[i]];
+		}
+		//The edges of each node, by node
+		int[] adjStart = new int[nodes + 1];
+		for(int k = 0; k < e; k++)
+		{
+			adjStart[head[k] + 1]++;
+			adjStart[tail[k] + 1]++;
+		}
+		for(int x = 1; x <= nodes; x++)
+			adjStart[x] += adjStart[x - 1];
+		int[] adj = new int[2 * e];
+		int[] fill = Arrays.copyOf(adjStart, nodes);
+		for(int k = 0; k < e; k++)
+		{
+			adj[fill[head[k]]++] = k;
+			adj[fill[tail[k]]++] = k;
+		}
+		boolean[] matched = new boolean[e];
+		int[] used = new int[nodes];
+		long[] potential = new long[nodes];
+		long[] dist = new long[nodes];
+		Arrays.fill(dist, Long.MAX_VALUE);
+		int[] pred = new int[nodes];
+		boolean[] settled = new boolean[nodes];
+		int[] touched = new int[nodes];
+		Heap heap = new Heap();
+		for(int s = 0; s < m; s++)
+		{
+			//The potential of a new source must keep its reduced costs non-negative
+			potential[s] = 0;
+			for(int a = adjStart[s]; a < adjStart[s + 1]; a++)
+				potential[s] = Math.max(potential[s], weight[adj[a]] + potential[tail[adj[a]]]);
+			int units = Math.min(cap[s], adjStart[s + 1] - adjStart[s]);
+			for(int u = 0; u < units; u++)
+			{
+				//Find the shortest path from the source to the sink
+				int touchedCount = 0;
+				int settledCount = 0;
+				long sinkDist = Long.MAX_VALUE;
+				int sinkPred = -1;
+				dist[s] = 0;
+				touched[touchedCount++] = s;
+				heap.push(0, s);
+				while(!heap.isEmpty())
+				{
+					long d = heap.peekKey();
+					int x = heap.pop();
+					if(settled[x] || d > dist[x])
+						continue;
+					if(d >= sinkDist)
+						break;
+					settled[x] = true;
+					settledCount++;
+					if(x < m)
+					{
+						//Sources lead to their dummy target and to their unmatched edges
+						if(d + potential[x] < sinkDist)
+						{
+							sinkDist = d + potential[x];
+							sinkPred = x;
+						}
+						for(int a = adjStart[x]; a < adjStart[x + 1]; a++)
+						{
+							int k = adj[a];
+							if(matched[k])
+								continue;
+							int y = tail[k];
+							long nd = d + potential[x] - weight[k] - potential[y];
+							if(nd < dist[y])
+							{
+								if(dist[y] == Long.MAX_VALUE)
+									touched[touchedCount++] = y;
+								dist[y] = nd;
+								pred[y] = k;
+								heap.push(nd, y);
+							}
+						}
+					}
+					else
+					{
+						//Targets lead to the sink if they have cardinality left,
+						//and back to their matched sources
+						if(used[x] < cap[x] && d + potential[x] < sinkDist)
+						{
+							sinkDist = d + potential[x];
+							sinkPred = x;
+						}
+						for(int a = adjStart[x]; a < adjStart[x + 1]; a++)
+						{
+							int k = adj[a];
+							if(!matched[k])
+								continue;
+							int y = head[k];
+							long nd = d + potential[x] + weight[k] - potential[y];
+							if(nd < dist[y])
+							{
+								if(dist[y] == Long.MAX_VALUE)
+									touched[touchedCount++] = y;
+								dist[y] = nd;
+								pred[y] = k;
+								heap.push(nd, y);
+							}
+						}
+					}
+				}
+				heap.clear();
+				//Update the potentials of the settled nodes, so that the reduced
+				//costs stay non-negative (and are 0 along the path)
+				for(int t = 0; t < touchedCount; t++)
+				{
+					int x = touched[t];
+					if(settled[x])
+						potential[x] += dist[x] - sinkDist;
+				}
+				//Augment the path (unless it goes straight to the dummy target
+				//of the source, in which case the source is done)
+				boolean done = sinkPred == s;
+				int x = sinkPred;
+				if(x >= m)
+					used[x]++;
+				while(x != s)
+				{
+					int k = pred[x];
+					if(x >= m)
+					{
+						matched[k] = true;
+						x = head[k];
+					}
+					else
+					{
+						matched[k] = false;
+						x = tail[k];
+					}
+				}
+				for(int t = 0; t < touchedCount; t++)
+				{
+					dist[touched[t]] = Long.MAX_VALUE;
+					settled[touched[t]] = false;
+				}
+				if(done)
+					break;
+			}
+		}
+		int selected = 0;
+		for(int k = 0; k < e; k++)
+			if(matched[k])
+				selected++;
+		int[] solution = new int[selected];
+		selected = 0;
+		for(int k = 0; k < e; k++)
+			if(matched[k])
+				solution[selected++] = members[from + k];
+		return solution;
+	}
+
+	//Binary min-heap of nodes keyed by their distance (with ties broken by node,
+	//so that the solutions are reproducible), which may hold outdated entries
+	private static class Heap
+	{
+		private long[] keys = new long[16];
+		private int[] nodes = new int[16];
+		private int size = 0;
+
+		public void clear()
+		{
+			size = 0;
+		}
+
+		public boolean isEmpty()
+		{
+			return size == 0;
+		}
+
+		public long peekKey()
+		{
+			return keys[0];
+		}
+
+		public int pop()
+		{
+			int top = nodes[0];
+			size--;
+			long key = keys[size];
+			int node = nodes[size];
+			int i = 0;
+			while(2 * i + 1 < size)
+			{
+				int c = 2 * i + 1;
+				if(c + 1 < size && less(keys[c + 1], nodes[c + 1], keys[c], nodes[c]))
+					c++;
+				if(!less(keys[c], nodes[c], key, node))
+					break;
+				keys[i] = keys[c];
+				nodes[i] = nodes[c];
+				i = c;
+			}
+			keys[i] = key;
+			nodes[i] = node;
+			return top;
+		}
+
+		public void push(long key, int node)
+		{
+			if(size == keys.length)
+			{
+				keys = Arrays.copyOf(keys, 2 * size);
+				nodes = Arrays.copyOf(nodes, 2 * size);
+			}
+			int i = size++;
+			while(i > 0)
+			{
+				int p = (i - 1) / 2;
+				if(!less(key, node, keys[p], nodes[p]))
+					break;
+				keys[i] = keys[p];
+				nodes[i] = nodes[p];
+				i = p;
+			}
+			keys[i] = key;
+			nodes[i] = node;
+		}
+
+		private static boolean less(long key1, int node1, long key2, int node2)
+		{
+			return key1 < key2 || (key1 == key2 && node1 < node2);
+		}
+	}
+}
@@ -128,27 +128,9 @@ public class Selector implements Filterer, Flagger
 	 */
 	public Alignment filter(Alignment a)
 	{
-		Alignment selected = new Alignment();
-		a.sortDescending();
-		for(Mapping m : a)
-		{
-			if(m.getStatus().equals(MappingStatus.CORRECT))
-				selected.add(m);
-			else if(m.getSimilarity() < thresh || m.getStatus().equals(MappingStatus.INCORRECT))
-				continue;
-			else if((type.equals(SelectionType.STRICT) && !selected.containsConflict(m)) ||
-					(type.equals(SelectionType.PERMISSIVE) && !selected.containsBetterMapping(m)))
-				selected.add(new Mapping(m));
-			else if(type.equals(SelectionType.HYBRID))
-			{
-				int sourceCard = selected.getSourceMappings(m.getSourceId()).size();
-				int targetCard = selected.getTargetMappings(m.getTargetId()).size();
-				if((sourceCard < 2 && targetCard < 2 && m.getSimilarity() > 0.75) ||
-						!selected.containsBetterMapping(m))
-					selected.add(m);
-			}
-		}
-		return selected;
+		SelectionBuffer b = new SelectionBuffer(thresh, 1, type);
+		b.addAll(a);
+		return b.select();
 	}
 	
 	@Override
@@ -165,6 +147,10 @@ public class Selector implements Filterer, Flagger
 	
 	private Alignment filterNormal()
 	{
+		//If the task isn't interactive, the selection can be done in bulk
+		//(as can OPTIMAL selection, which isn't done in ranking order)
+		if(!im.isInteractive() || type.equals(SelectionType.OPTIMAL))
+			return filter(a);
 		//The alignment to store selected mappings
 		Alignment selected = new Alignment();
 		//Sort the active alignment
@@ -200,8 +186,30 @@ public class Selector implements Filterer, Flagger
 		return selected;
 	}
 	
+	private Alignment filterOptimalWithAux()
+	{
+		//The candidates are the Mappings of the active alignment that can be
+		//selected and are in the auxiliary alignment, with its similarity
+		SelectionBuffer b = new SelectionBuffer(Double.NEGATIVE_INFINITY, 1, type);
+		for(Mapping n : aux)
+		{
+			Mapping m = a.get(n.getSourceId(), n.getTargetId());
+			if(m != null && (m.getStatus().equals(MappingStatus.CORRECT) ||
+					m.getSimilarity() >= thresh))
+				b.add(n.getSourceId(), n.getTargetId(), n.getSimilarity(), m.getRelationship(), m.getStatus());
+		}
+		Alignment selected = new Alignment();
+		for(Mapping n : b.select())
+			selected.add(a.get(n.getSourceId(), n.getTargetId()));
+		return selected;
+	}
+	
 	private Alignment filterWithAux()
 	{
+		//In OPTIMAL selection, the selected Mappings are those that maximize
+		//the similarity in the auxiliary alignment
+		if(type.equals(SelectionType.OPTIMAL))
+			return filterOptimalWithAux();
 		//The alignment to store selected mappings
 		Alignment selected = new Alignment();
 		//Sort the auxiliary alignment
@@ -12,8 +12,10 @@
 * limitations under the License.                                              *
 *                                                                             *
 *******************************************************************************
-* An alignment between two Ontologies, stored both as a list of Mappings and  *
-* as a Table of indexes, and including methods for input and output.          *
+* An alignment between two Ontologies, stored as columns of primitive arrays  *
+* (one row per Mapping) indexed by (source,target) pair and by source and     *
+* target entity, and including methods for input and output. The Mappings     *
+* returned by the Alignment are views of its rows, created on demand.         *
 *                                                                             *
 * @author Daniel Faria                                                        *
 ******************************************************************************/
@@ -25,12 +27,13 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.PrintWriter;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.Vector;
 
@@ -47,26 +50,48 @@ import aml.ontology.URIMap;
 import aml.settings.EntityType;
 import aml.settings.MappingRelation;
 import aml.settings.MappingStatus;
-import aml.util.Table2Map;
+import aml.util.IndexFunction;
+import aml.util.IntIterator;
+import aml.util.IntSet;
+import aml.util.ParallelExecutor;
 
 public class Alignment implements Collection<Mapping>
 {
 
 //Attributes
 
-	//Term mappings organized in list
-	private Vector<Mapping> maps;
-	//Term mappings organized by source class (Source Id, Target Id, Mapping)
-	private Table2Map<Integer,Integer,Mapping> sourceMaps;
-	//Term mappings organized by target class (Target Id, Source Id, Mapping)
-	private Table2Map<Integer,Integer,Mapping> targetMaps;
+	//The MappingRelations and MappingStatuses, by ordinal
+	protected static final MappingRelation[] RELATIONS = MappingRelation.values();
+	protected static final MappingStatus[] STATUSES = MappingStatus.values();
+	//The maximum fraction of used slots in the pair index before it is resized
+	private static final double LOAD_FACTOR = 0.5;
+	//The minimum number of rows probed by a single task in bulk merges
+	private static final int MIN_CHUNK = 4096;
+	//The row found by a probe for a Mapping that can't be added to the Alignment
+	private static final int SKIP = -2;
+	//The columns of the Mappings, by row (rows are in list order, but removed
+	//rows are only dropped when the Alignment is compacted)
+	protected int[] sources;
+	protected int[] targets;
+	protected double[] sims;
+	protected byte[] rels;
+	protected byte[] statuses;
+	protected boolean[] removed;
+	//The number of rows and the number of removed rows
+	protected int rowCount;
+	private int removedCount;
+	//The hash table with the row of each (source,target) pair plus one (0 if the slot is empty)
+	private int[] pairs;
+	//The rows of the Mappings organized by source entity and by target entity
+	private EntityIndex sourceIndex;
+	private EntityIndex targetIndex;
 	//Link to AML and the Ontologies
 	private AML aml;
 	private Ontology source;
 	private Ontology target;
 	//Link to the URIMap
 	private URIMap uris;
-	
+
 //Constructors
 
 	/**
@@ -74,9 +99,7 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public Alignment()
 	{
-		maps = new Vector<Mapping>(0,1);
-		sourceMaps = new Table2Map<Integer,Integer,Mapping>();
-		targetMaps = new Table2Map<Integer,Integer,Mapping>();
+		init();
 		aml = AML.getInstance();
 		source = aml.getSource();
 		target = aml.getTarget();
@@ -97,7 +120,7 @@ public class Alignment implements Collection<Mapping>
 		else
 			throw new Exception("Unrecognized alignment format!");
 	}
-	
+
 	/**
 	 * Creates a new Alignment that contains the input collection of mappings
 	 * @param a: the collection of mappings to include in this Alignment
@@ -107,7 +130,7 @@ public class Alignment implements Collection<Mapping>
 		this();
 		addAll(a);
 	}
-	
+
 //Public Methods
 
 	/**
@@ -122,7 +145,7 @@ public class Alignment implements Collection<Mapping>
 	{
 		add(sourceId,targetId,sim,MappingRelation.EQUIVALENCE,MappingStatus.UNKNOWN);
 	}
-	
+
 	/**
 	 * Adds a new Mapping to the Alignment if it is non-redundant
 	 * Otherwise, updates the similarity of the already present Mapping
@@ -136,7 +159,7 @@ public class Alignment implements Collection<Mapping>
 	{
 		return add(sourceId,targetId,sim,r,MappingStatus.UNKNOWN);
 	}
-	
+
 	/**
 	 * Adds a new Mapping to the Alignment if it is non-redundant
 	 * Otherwise, updates the similarity of the already present Mapping
@@ -155,42 +178,19 @@ public class Alignment implements Collection<Mapping>
 		//same URI matching is turned on
 		if(!aml.matchSameURI() && (source.contains(targetId) || target.contains(sourceId)))
 			return false;
-		
-		//Construct the Mapping
-		Mapping m = new Mapping(sourceId, targetId, sim, r);
-		m.setStatus(s);
+
+		int slot = findPair(sourceId, targetId);
 		//If it isn't listed yet, add it
-		if(!sourceMaps.contains(sourceId,targetId))
+		if(pairs[slot] == 0)
 		{
-			maps.add(m);
-			sourceMaps.add(sourceId, targetId, m);
-			targetMaps.add(targetId, sourceId, m);
+			addRow(slot, sourceId, targetId, Mapping.round(sim), r, s);
 			return true;
 		}
 		//Otherwise update the similarity
 		else
-		{
-			m = sourceMaps.get(sourceId,targetId);
-			boolean check = false;
-			if(m.getSimilarity() < sim)
-			{
-				m.setSimilarity(sim);
-				check = true;
-			}
-			if(!m.getRelationship().equals(r))
-			{
-				m.setRelationship(r);
-				check = true;
-			}
-			if(!m.getStatus().equals(s))
-			{
-				m.setStatus(s);
-				check = true;
-			}
-			return check;
-		}
+			return put(pairs[slot] - 1, sourceId, targetId, sim, (byte)r.ordinal(), (byte)s.ordinal());
 	}
-	
+
 	/**
 	 * Adds a new Mapping to the Alignment if it is non-redundant
 	 * Otherwise, updates the similarity of the already present Mapping
@@ -203,7 +203,7 @@ public class Alignment implements Collection<Mapping>
 	{
 		return add(sourceURI,targetURI,sim,MappingRelation.EQUIVALENCE,MappingStatus.UNKNOWN);
 	}
-	
+
 	/**
 	 * Adds a new Mapping to the Alignment if it is non-redundant
 	 * Otherwise, updates the similarity of the already present Mapping
@@ -226,7 +226,7 @@ public class Alignment implements Collection<Mapping>
 			return add(id2,id1,sim,r,s);
 		return false;
 	}
-	
+
 	@Override
 	public boolean add(Mapping m)
 	{
@@ -236,79 +236,115 @@ public class Alignment implements Collection<Mapping>
 	@Override
 	public boolean addAll(Collection<? extends Mapping> a)
 	{
+		//Alignments are merged in bulk
+		if(a instanceof Alignment)
+			return merge((Alignment)a, false);
 		boolean check = false;
 		for(Mapping m : a)
 			check = add(m) || check;
 		return check;
 	}
-	
+
 	/**
 	 * Adds all Mappings in a to this Alignment as long as
-	 * they don't conflict with any Mapping in a
+	 * they don't conflict with any Mapping in this Alignment
+	 * (before any Mapping in a is added)
 	 * @param a: the Alignment to add to this Alignment
 	 */
 	public void addAllNonConflicting(Alignment a)
 	{
-		Vector<Mapping> nonConflicting = new Vector<Mapping>();
-		for(Mapping m : a.maps)
-			if(!this.containsConflict(m))
-				nonConflicting.add(m);
-		addAll(nonConflicting);
+		merge(a, true);
 	}
-	
+
 	/**
-	 * Adds all Mappings in a to this Alignment as long as
-	 * they don't conflict with any Mapping in a
+	 * Adds the Mappings in a to this Alignment, in descending order of
+	 * similarity, as long as they don't conflict with any Mapping in this
+	 * Alignment (including the Mappings from a added before them)
 	 * @param a: the Alignment to add to this Alignment
 	 */
 	public void addAllOneToOne(Alignment a)
 	{
 		a.sortDescending();
-		for(Mapping m : a.maps)
-			if(!this.containsConflict(m))
-				add(m);
+		//The rows found for the Mappings of a stay valid as they are added,
+		//since a has no repeated pairs (and no rows are removed)
+		int[] found = probe(a, false);
+		for(int k = 0; k < a.rowCount; k++)
+		{
+			if(found[k] == SKIP)
+				continue;
+			int own = found[k] > -1 ? 1 : 0;
+			if(sourceIndex.count(a.sources[k]) > own || targetIndex.count(a.targets[k]) > own)
+				continue;
+			put(found[k], a.sources[k], a.targets[k], a.sims[k], a.rels[k], a.statuses[k]);
+		}
 	}
-	
+
 	/**
 	 * @return the average cardinality of this Alignment
 	 */
 	public double cardinality()
 	{
-		double cardinality = 0.0;
-		
-		Set<Integer> sources = sourceMaps.keySet();
-		for(Integer i : sources)
-			cardinality += sourceMaps.keySet(i).size();
-		
-		Set<Integer> targets = targetMaps.keySet();
-		for(Integer i : targets)
-			cardinality += targetMaps.keySet(i).size();
-		cardinality /= sources.size() + targets.size();
-		
-		return cardinality;		
-	}
-	
+		//Each Mapping counts once for its source and once for its target
+		double cardinality = 2.0 * size();
+		cardinality /= sourceCount() + targetCount();
+		return cardinality;
+	}
+
 	/**
 	 * @param id: the index of the entity to check in the Alignment
 	 * @return the cardinality of the entity in the Alignment
 	 */
 	public int cardinality(int id)
 	{
-		if(sourceMaps.contains(id))
-			return sourceMaps.get(id).size();
-		if(targetMaps.contains(id))
-			return targetMaps.get(id).size();
-		return 0;
+		if(sourceIndex.contains(id))
+			return sourceIndex.count(id);
+		return targetIndex.count(id);
 	}
-	
+
 	@Override
 	public void clear()
 	{
-		maps = new Vector<Mapping>(0,1);
-		sourceMaps = new Table2Map<Integer,Integer,Mapping>();
-		targetMaps = new Table2Map<Integer,Integer,Mapping>();		
+		init();
 	}
-	
+
+	/**
+	 * Computes the linear weighted combination between this Alignment and a,
+	 * which includes all Mappings in either Alignment (with the similarity of
+	 * a Mapping being 0 in the Alignment that doesn't contain it)
+	 * @param a: the Alignment to combine with this Alignment
+	 * @param weight: the weight to use in combining the Alignments
+	 * (similarities from this Alignment are multiplied by weight and
+	 * similarities from a are multiplied by 1-weight)
+	 * @return the combined Alignment
+	 */
+	public Alignment combine(Alignment a, double weight)
+	{
+		int[] inA = a.probe(this, false);
+		int[] inThis = probe(a, false);
+		Alignment combine = new Alignment();
+		combine.ensureCapacity(rowCount + a.rowCount);
+		//The combined Alignment can't have repeated pairs, so the rows
+		//are added directly (in the same order as they would be by add)
+		for(int k = 0; k < rowCount; k++)
+		{
+			if(inA[k] == SKIP)
+				continue;
+			double sim = inA[k] > -1 ? a.sims[inA[k]] : 0.0;
+			sim = sims[k]*weight + sim*(1-weight);
+			combine.addRow(combine.findPair(sources[k], targets[k]), sources[k], targets[k],
+					Mapping.round(sim), MappingRelation.EQUIVALENCE, MappingStatus.UNKNOWN);
+		}
+		for(int k = 0; k < a.rowCount; k++)
+		{
+			if(inThis[k] != -1)
+				continue;
+			double sim = a.sims[k]*(1-weight);
+			combine.addRow(combine.findPair(a.sources[k], a.targets[k]), a.sources[k], a.targets[k],
+					Mapping.round(sim), MappingRelation.EQUIVALENCE, MappingStatus.UNKNOWN);
+		}
+		return combine;
+	}
+
 	/**
 	 * @param sourceId: the index of the source class to check in the Alignment
  	 * @param targetId: the index of the target class to check in the Alignment
@@ -318,8 +354,8 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public boolean contains(int sourceId, int targetId, MappingRelation r)
 	{
-		return sourceMaps.contains(sourceId, targetId) &&
-				getRelationship(sourceId,targetId).equals(r);
+		int row = getRow(sourceId, targetId);
+		return row > -1 && rels[row] == r.ordinal();
 	}
 
 	@Override
@@ -328,7 +364,7 @@ public class Alignment implements Collection<Mapping>
 		return o instanceof Mapping && contains(((Mapping)o).getSourceId(),
 				((Mapping)o).getTargetId(), ((Mapping)o).getRelationship());
 	}
-	
+
 	@Override
 	public boolean containsAll(Collection<?> c)
 	{
@@ -337,60 +373,44 @@ public class Alignment implements Collection<Mapping>
 				return false;
 		return true;
 	}
-	
+
 	/**
 	 * @param sourceId: the index of the source class to check in the Alignment
- 	 * @param targetId: the index of the target class to check in the Alignment 
+ 	 * @param targetId: the index of the target class to check in the Alignment
 	 * @return whether the Alignment contains a Mapping that is ancestral to the given pair of classes
 	 * (i.e. includes one ancestor of sourceId and one ancestor of targetId)
 	 */
 	public boolean containsAncestralMapping(int sourceId, int targetId)
 	{
 		RelationshipMap rels = aml.getRelationshipMap();
-		
+
 		Set<Integer> sourceAncestors = rels.getAncestors(sourceId);
 		Set<Integer> targetAncestors = rels.getAncestors(targetId);
-		
+
 		for(Integer sa : sourceAncestors)
 		{
-			Set<Integer> over = getSourceMappings(sa);
+			if(!containsSource(sa))
+				continue;
 			for(Integer ta : targetAncestors)
-				if(over.contains(ta))
+				if(containsMapping(sa,ta))
 					return true;
 		}
 		return false;
 	}
 
 	/**
- 	 * @param m: the Mapping to check in the Alignment 
+ 	 * @param m: the Mapping to check in the Alignment
 	 * @return whether the Alignment contains a Mapping that conflicts with the given
 	 * Mapping and has a higher similarity
 	 */
 	public boolean containsBetterMapping(Mapping m)
 	{
-		int source = m.getSourceId();
-		int target = m.getTargetId();
 		double sim = m.getSimilarity();
-		
-		if(containsSource(source))
-		{
-			Set<Integer> targets = sourceMaps.keySet(source);
-			for(Integer i : targets)
-				if(getSimilarity(source,i) > sim)
-					return true;
-		}
-		if(containsTarget(target))
-		{
-			Set<Integer> sources = targetMaps.keySet(target);
-			for(Integer i : sources)
-				if(getSimilarity(i,target) > sim)
-					return true;
-		}
-		return false;
+		return sourceIndex.max(m.getSourceId()) > sim || targetIndex.max(m.getTargetId()) > sim;
 	}
-	
+
 	/**
- 	 * @param classId: the index of the class to check in the Alignment 
+ 	 * @param classId: the index of the class to check in the Alignment
 	 * @return whether the Alignment contains a Mapping with that class
 	 * (either as a source or as a target class)
 	 */
@@ -398,55 +418,53 @@ public class Alignment implements Collection<Mapping>
 	{
 		return containsSource(classId) || containsTarget(classId);
 	}
-	
+
 	/**
 	 * @param sourceId: the index of the source class to check in the Alignment
- 	 * @param targetId: the index of the target class to check in the Alignment 
+ 	 * @param targetId: the index of the target class to check in the Alignment
 	 * @return whether the Alignment contains another Mapping for sourceId or for targetId
 	 */
 	public boolean containsConflict(int sourceId, int targetId)
 	{
-		for(int s : getTargetMappings(targetId))
-			if(s != sourceId)
-				return true;
-		for(int t : getSourceMappings(sourceId))
-			if(t != targetId)
-				return true;
-		return false;
+		//The Mapping between sourceId and targetId (if it exists) is
+		//the only one for either class that isn't a conflict
+		int own = containsMapping(sourceId, targetId) ? 1 : 0;
+		return sourceIndex.count(sourceId) > own || targetIndex.count(targetId) > own;
 	}
-	
+
 	/**
- 	 * @param m: the Mapping to check in the Alignment 
+ 	 * @param m: the Mapping to check in the Alignment
 	 * @return whether the Alignment contains another Mapping involving either class in m
 	 */
 	public boolean containsConflict(Mapping m)
 	{
 		return containsConflict(m.getSourceId(),m.getTargetId());
 	}
-	
+
 	/**
 	 * @param sourceId: the index of the source class to check in the Alignment
- 	 * @param targetId: the index of the target class to check in the Alignment 
+ 	 * @param targetId: the index of the target class to check in the Alignment
 	 * @return whether the Alignment contains a Mapping that is descendant of the given pair of classes
 	 * (i.e. includes one descendant of sourceId and one descendant of targetId)
 	 */
 	public boolean containsDescendantMapping(int sourceId, int targetId)
 	{
 		RelationshipMap rels = aml.getRelationshipMap();
-		
+
 		Set<Integer> sourceDescendants = rels.getDescendants(sourceId);
 		Set<Integer> targetDescendants = rels.getDescendants(targetId);
-		
+
 		for(Integer sa : sourceDescendants)
 		{
-			Set<Integer> over = getSourceMappings(sa);
+			if(!containsSource(sa))
+				continue;
 			for(Integer ta : targetDescendants)
-				if(over.contains(ta))
+				if(containsMapping(sa,ta))
 					return true;
 		}
 		return false;
 	}
-	
+
 	/**
 	 * @param sourceId: the index of the source class to check in the Alignment
 	 * @param targetId: the index of the target class to check in the Alignment
@@ -454,9 +472,9 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public boolean containsMapping(int sourceId, int targetId)
 	{
-		return sourceMaps.contains(sourceId, targetId);
+		return pairs[findPair(sourceId, targetId)] > 0;
 	}
-	
+
 	/**
 	 * @param m: the Mapping to check in the Alignment
 	 * @return whether the Alignment contains a Mapping with the same sourceId
@@ -464,9 +482,9 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public boolean containsMapping(Mapping m)
 	{
-		return sourceMaps.contains(m.getSourceId(), m.getTargetId());
+		return containsMapping(m.getSourceId(), m.getTargetId());
 	}
-	
+
 	/**
 	 * @param lm: the List of Mapping to check in the Alignment
 	 * @return whether the Alignment contains all the Mapping listed in m
@@ -478,20 +496,20 @@ public class Alignment implements Collection<Mapping>
 				return false;
 		return true;
 	}
-	
+
 	/**
 	 * @param sourceId: the index of the source class to check in the Alignment
- 	 * @param targetId: the index of the target class to check in the Alignment 
+ 	 * @param targetId: the index of the target class to check in the Alignment
 	 * @return whether the Alignment contains a Mapping that is parent to the
 	 * given pair of classes on one side only
 	 */
 	public boolean containsParentMapping(int sourceId, int targetId)
 	{
 		RelationshipMap rels = aml.getRelationshipMap();
-		
+
 		Set<Integer> sourceAncestors = rels.getParents(sourceId);
 		Set<Integer> targetAncestors = rels.getParents(targetId);
-		
+
 		for(Integer sa : sourceAncestors)
 			if(containsMapping(sa,targetId))
 				return true;
@@ -500,14 +518,14 @@ public class Alignment implements Collection<Mapping>
 				return true;
 		return false;
 	}
-	
+
 	/**
 	 * @param sourceId: the index of the source class to check in the Alignment
  	 * @return whether the Alignment contains a Mapping for sourceId
 	 */
 	public boolean containsSource(int sourceId)
 	{
-		return sourceMaps.contains(sourceId);
+		return sourceIndex.contains(sourceId);
 	}
 
 	/**
@@ -516,40 +534,40 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public boolean containsTarget(int targetId)
 	{
-		return targetMaps.contains(targetId);
+		return targetIndex.contains(targetId);
 	}
-	
+
 	/**
  	 * @return the number of conflict mappings in this alignment
 	 */
 	public int countConflicts()
 	{
 		int count = 0;
-		for(Mapping m : maps)
-			if(m.getRelationship().equals(MappingRelation.UNKNOWN))
+		for(int row = 0; row < rowCount; row++)
+			if(!removed[row] && rels[row] == MappingRelation.UNKNOWN.ordinal())
 				count++;
 		return count;
 	}
-	
+
 	/**
-	 * @param a: the Alignment to subtract from this Alignment 
+	 * @param a: the Alignment to subtract from this Alignment
 	 * @return the Alignment corresponding to the difference between this Alignment and a
 	 */
 	public Alignment difference(Alignment a)
 	{
 		Alignment diff = new Alignment();
-		for(Mapping m : maps)
-			if(!a.contains(m))
-				diff.add(m);
+		for(int row = 0; row < rowCount; row++)
+			if(!removed[row] && !a.contains(sources[row], targets[row], RELATIONS[rels[row]]))
+				diff.add(sources[row], targets[row], sims[row], RELATIONS[rels[row]], STATUSES[statuses[row]]);
 		return diff;
 	}
-	
+
 	@Override
 	public boolean equals(Object o)
 	{
 		return o instanceof Alignment && containsAll((Alignment)o);
 	}
-	
+
 	/**
 	 * @param ref: the reference Alignment to evaluate this Alignment
 	 * @return the evaluation of this Alignment {# correct mappings, # conflict mappings}
@@ -557,61 +575,61 @@ public class Alignment implements Collection<Mapping>
 	public int[] evaluate(Alignment ref)
 	{
 		int[] count = new int[2];
-		for(Mapping m : maps)
+		for(int row = 0; row < rowCount; row++)
 		{
-			if(ref.contains(m))
+			if(removed[row])
+				continue;
+			if(ref.contains(sources[row], targets[row], RELATIONS[rels[row]]))
 			{
 				count[0]++;
-				m.setStatus(MappingStatus.CORRECT);
+				statuses[row] = (byte)MappingStatus.CORRECT.ordinal();
 			}
-			else if(ref.contains(m.getSourceId(),m.getTargetId(),MappingRelation.UNKNOWN))
+			else if(ref.contains(sources[row], targets[row], MappingRelation.UNKNOWN))
 			{
 				count[1]++;
-				m.setStatus(MappingStatus.UNKNOWN);
+				statuses[row] = (byte)MappingStatus.UNKNOWN.ordinal();
 			}
 			else
-				m.setStatus(MappingStatus.INCORRECT);
+				statuses[row] = (byte)MappingStatus.INCORRECT.ordinal();
 		}
 		return count;
 	}
 
 	/**
-	 * @param a: the base Alignment to which this Alignment will be compared 
+	 * @param a: the base Alignment to which this Alignment will be compared
 	 * @return the gain (i.e. the fraction of new Mappings) of this Alignment
 	 * in comparison with the base Alignment
 	 */
 	public double gain(Alignment a)
 	{
 		double gain = 0.0;
-		for(Mapping m : maps)
-			if(!a.containsMapping(m))
+		for(int row = 0; row < rowCount; row++)
+			if(!removed[row] && !a.containsMapping(sources[row], targets[row]))
 				gain++;
 		gain /= a.size();
 		return gain;
 	}
-	
+
 	/**
-	 * @param a: the base Alignment to which this Alignment will be compared 
+	 * @param a: the base Alignment to which this Alignment will be compared
 	 * @return the gain (i.e. the fraction of new Mappings) of this Alignment
 	 * in comparison with the base Alignment
 	 */
 	public double gainOneToOne(Alignment a)
 	{
 		double sourceGain = 0.0;
-		Set<Integer> sources = sourceMaps.keySet();
-		for(Integer i : sources)
-			if(!a.containsSource(i))
+		for(IntIterator it = sourceIndex.entities(); it.hasNext(); )
+			if(!a.containsSource(it.next()))
 				sourceGain++;
 		sourceGain /= a.sourceCount();
 		double targetGain = 0.0;
-		Set<Integer> targets = targetMaps.keySet();
-		for(Integer i : targets)
-			if(!a.containsTarget(i))
+		for(IntIterator it = targetIndex.entities(); it.hasNext(); )
+			if(!a.containsTarget(it.next()))
 				targetGain++;
 		targetGain /= a.targetCount();
 		return Math.min(sourceGain, targetGain);
 	}
-	
+
 	/**
 	 * @param index: the index of the Mapping to return in the list of Mappings
  	 * @return the Mapping at the input index (note that the index will change
@@ -619,11 +637,12 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public Mapping get(int index)
 	{
-		if(index < 0 || index >= maps.size())
+		compact();
+		if(index < 0 || index >= rowCount)
 			return null;
-		return maps.get(index);
+		return new Mapping(this, index);
 	}
-	
+
 	/**
 	 * @param sourceId: the index of the source class to check in the Alignment
 	 * @param targetId: the index of the target class to check in the Alignment
@@ -632,9 +651,12 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public Mapping get(int sourceId, int targetId)
 	{
-		return sourceMaps.get(sourceId, targetId);
+		int row = getRow(sourceId, targetId);
+		if(row == -1)
+			return null;
+		return new Mapping(this, row);
 	}
-	
+
 	/**
 	 * @param id1: the index of the first class to check in the Alignment
 	 * @param targetId: the index of the second class to check in the Alignment
@@ -643,56 +665,40 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public Mapping getBidirectional(int id1, int id2)
 	{
-		if(sourceMaps.contains(id1, id2))
-			return sourceMaps.get(id1, id2);
-		else if(sourceMaps.contains(id2, id1))
-			return  sourceMaps.get(id2, id1);
-		else
-			return null;
+		Mapping m = get(id1, id2);
+		if(m == null)
+			m = get(id2, id1);
+		return m;
 	}
-	
+
 	/**
 	 * @param sourceId: the index of the source class to check in the Alignment
- 	 * @return the index of the target class that best matches source
+ 	 * @return the index of the target class that best matches source (on ties,
+ 	 * the target of the Mapping added first - previously, ties went to the
+ 	 * first target in the hash order of the target indexes)
 	 */
 	public int getBestSourceMatch(int sourceId)
 	{
-		double max = 0;
-		int target = -1;
-		Set<Integer> targets = sourceMaps.keySet(sourceId);
-		for(Integer i : targets)
-		{
-			double sim = getSimilarity(sourceId,i);
-			if(sim > max)
-			{
-				max = sim;
-				target = i;
-			}
-		}
-		return target;
+		int row = sourceIndex.best(sourceId);
+		if(row == -1)
+			return -1;
+		return targets[row];
 	}
 
 	/**
 	 * @param targetId: the index of the target class to check in the Alignment
- 	 * @return the index of the source class that best matches target
+ 	 * @return the index of the source class that best matches target (on ties,
+ 	 * the source of the Mapping added first - previously, ties went to the
+ 	 * first source in the hash order of the source indexes)
 	 */
 	public int getBestTargetMatch(int targetId)
 	{
-		double max = 0;
-		int source = -1;
-		Set<Integer> sources = sourceMaps.keySet(targetId);
-		for(Integer i : sources)
-		{
-			double sim = getSimilarity(i,targetId);
-			if(sim > max)
-			{
-				max = sim;
-				source = i;
-			}
-		}
-		return source;
+		int row = targetIndex.best(targetId);
+		if(row == -1)
+			return -1;
+		return sources[row];
 	}
-	
+
 	/**
 	 * @param m: the Mapping to check on the Alignment
 	 * @return the list of all Mappings that have a cardinality conflict with the given Mapping
@@ -700,15 +706,15 @@ public class Alignment implements Collection<Mapping>
 	public Vector<Mapping> getConflicts(Mapping m)
 	{
 		Vector<Mapping> conflicts = new Vector<Mapping>();
-		for(Integer t : sourceMaps.keySet(m.getSourceId()))
-			if(t != m.getTargetId())
-				conflicts.add(sourceMaps.get(m.getSourceId(),t));
-		for(Integer s : targetMaps.keySet(m.getTargetId()))
-			if(s != m.getSourceId())
-				conflicts.add(sourceMaps.get(s,m.getTargetId()));
+		for(int row = sourceIndex.first(m.getSourceId()); row > -1; row = sourceIndex.next(row))
+			if(targets[row] != m.getTargetId())
+				conflicts.add(new Mapping(this, row));
+		for(int row = targetIndex.first(m.getTargetId()); row > -1; row = targetIndex.next(row))
+			if(sources[row] != m.getSourceId())
+				conflicts.add(new Mapping(this, row));
 		return conflicts;
 	}
-	
+
 	/**
 	 * @return the high level Alignment induced from this Alignment
 	 * (the similarity between high level classes is given by the
@@ -717,13 +723,15 @@ public class Alignment implements Collection<Mapping>
 	public Alignment getHighLevelAlignment()
 	{
 		RelationshipMap rels = aml.getRelationshipMap();
-		
+
 		Alignment a = new Alignment();
-		int total = maps.size();
-		for(Mapping m : maps)
+		int total = size();
+		for(int row = 0; row < rowCount; row++)
 		{
-			Set<Integer> sourceAncestors = rels.getHighLevelAncestors(m.getSourceId());
-			Set<Integer> targetAncestors = rels.getHighLevelAncestors(m.getTargetId());
+			if(removed[row])
+				continue;
+			Set<Integer> sourceAncestors = rels.getHighLevelAncestors(sources[row]);
+			Set<Integer> targetAncestors = rels.getHighLevelAncestors(targets[row]);
 			for(int i : sourceAncestors)
 			{
 				for(int j : targetAncestors)
@@ -739,7 +747,7 @@ public class Alignment implements Collection<Mapping>
 				b.add(m);
 		return b;
 	}
-	
+
 	/**
 	 * @param sourceId: the index of the source class
 	 * @param targetId: the index of the target class
@@ -748,12 +756,10 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public int getIndex(int sourceId, int targetId)
 	{
-		if(sourceMaps.contains(sourceId, targetId))
-			return maps.indexOf(sourceMaps.get(sourceId, targetId));
-		else
-			return -1;
+		compact();
+		return getRow(sourceId, targetId);
 	}
-	
+
 	/**
 	 * @param id1: the index of the first class
 	 * @param id2: the index of the second class
@@ -762,14 +768,12 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public int getIndexBidirectional(int id1, int id2)
 	{
-		if(sourceMaps.contains(id1, id2))
-			return maps.indexOf(sourceMaps.get(id1, id2));
-		else if(targetMaps.contains(id1, id2))
-			return maps.indexOf(targetMaps.get(id1, id2));
-		else
-			return -1;
+		int index = getIndex(id1, id2);
+		if(index == -1)
+			index = getIndex(id2, id1);
+		return index;
 	}
-	
+
 	/**
 	 * @param id: the index of the class to check in the Alignment
  	 * @return the list of all classes mapped to the given class
@@ -777,28 +781,20 @@ public class Alignment implements Collection<Mapping>
 	public Set<Integer> getMappingsBidirectional(int id)
 	{
 		HashSet<Integer> mappings = new HashSet<Integer>();
-		if(sourceMaps.contains(id))
-			mappings.addAll(sourceMaps.keySet(id));
-		if(targetMaps.contains(id))
-			mappings.addAll(targetMaps.keySet(id));
+		for(int row = sourceIndex.first(id); row > -1; row = sourceIndex.next(row))
+			mappings.add(targets[row]);
+		for(int row = targetIndex.first(id); row > -1; row = targetIndex.next(row))
+			mappings.add(sources[row]);
 		return mappings;
 	}
-	
+
 	/**
 	 * @param sourceId: the index of the source class to check in the Alignment
  	 * @return the index of the target class that best matches source
 	 */
 	public double getMaxSourceSim(int sourceId)
 	{
-		double max = 0;
-		Set<Integer> targets = sourceMaps.keySet(sourceId);
-		for(Integer i : targets)
-		{
-			double sim = getSimilarity(sourceId,i);
-			if(sim > max)
-				max = sim;
-		}
-		return max;
+		return sourceIndex.max(sourceId);
 	}
 
 	/**
@@ -807,17 +803,9 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public double getMaxTargetSim(int targetId)
 	{
-		double max = 0;
-		Set<Integer> sources = targetMaps.keySet(targetId);
-		for(Integer i : sources)
-		{
-			double sim = getSimilarity(i,targetId);
-			if(sim > max)
-				max = sim;
-		}
-		return max;
+		return targetIndex.max(targetId);
 	}
-	
+
 	/**
 	 * @param sourceId: the index of the source class in the Alignment
 	 * @param targetId: the index of the target class in the Alignment
@@ -825,12 +813,12 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public MappingRelation getRelationship(int sourceId, int targetId)
 	{
-		Mapping m = sourceMaps.get(sourceId, targetId);
-		if(m == null)
+		int row = getRow(sourceId, targetId);
+		if(row == -1)
 			return null;
-		return m.getRelationship();
+		return RELATIONS[rels[row]];
 	}
-	
+
 	/**
 	 * @param sourceId: the index of the source class in the Alignment
 	 * @param targetId: the index of the target class in the Alignment
@@ -838,12 +826,12 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public double getSimilarity(int sourceId, int targetId)
 	{
-		Mapping m = sourceMaps.get(sourceId, targetId);
-		if(m == null)
+		int row = getRow(sourceId, targetId);
+		if(row == -1)
 			return 0.0;
-		return m.getSimilarity();
+		return sims[row];
 	}
-	
+
 	/**
 	 * @param sourceId: the index of the source class in the Alignment
 	 * @param targetId: the index of the target class in the Alignment
@@ -851,128 +839,138 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public String getSimilarityPercent(int sourceId, int targetId)
 	{
-		Mapping m = sourceMaps.get(sourceId, targetId);
+		Mapping m = get(sourceId, targetId);
 		if(m == null)
 			return "0%";
 		return m.getSimilarityPercent();
 	}
-	
+
 	/**
 	 * @param sourceId: the index of the source class to check in the Alignment
  	 * @return the list of all target classes mapped to the source class
 	 */
 	public Set<Integer> getSourceMappings(int sourceId)
 	{
-		if(sourceMaps.contains(sourceId))
-			return sourceMaps.keySet(sourceId);
-		return new HashSet<Integer>();
+		return new EntitySet(sourceId, true);
 	}
-	
+
 	/**
  	 * @return the list of all source classes that have mappings
 	 */
 	public Set<Integer> getSources()
 	{
 		HashSet<Integer> sMaps = new HashSet<Integer>();
-		sMaps.addAll(sourceMaps.keySet());
+		for(IntIterator it = sourceIndex.entities(); it.hasNext(); )
+			sMaps.add(it.next());
 		return sMaps;
 	}
-	
+
 	/**
 	 * @param targetId: the index of the target class to check in the Alignment
  	 * @return the list of all source classes mapped to the target class
 	 */
 	public Set<Integer> getTargetMappings(int targetId)
 	{
-		if(targetMaps.contains(targetId))
-			return targetMaps.keySet(targetId);
-		return new HashSet<Integer>();
+		return new EntitySet(targetId, false);
 	}
-	
+
 	/**
  	 * @return the list of all target classes that have mappings
 	 */
 	public Set<Integer> getTargets()
 	{
 		HashSet<Integer> tMaps = new HashSet<Integer>();
-		tMaps.addAll(targetMaps.keySet());
+		for(IntIterator it = targetIndex.entities(); it.hasNext(); )
+			tMaps.add(it.next());
 		return tMaps;
 	}
 
 	@Override
 	public int hashCode()
 	{
-		return maps.hashCode();
+		int hash = 1;
+		for(int row = 0; row < rowCount; row++)
+			if(!removed[row])
+				hash = 31 * hash + Mapping.hashCode(sources[row], targets[row]);
+		return hash;
 	}
-	
+
 	/**
-	 * @param a: the Alignment to intersect with this Alignment 
+	 * @param a: the Alignment to intersect with this Alignment
 	 * @return the Alignment corresponding to the intersection between this Alignment and a
 	 */
 	public Alignment intersection(Alignment a)
 	{
 		//Otherwise, compute the intersection
 		Alignment intersection = new Alignment();
-		for(Mapping m : maps)
-			if(a.contains(m))
-				intersection.add(m);
+		for(int row = 0; row < rowCount; row++)
+			if(!removed[row] && a.contains(sources[row], targets[row], RELATIONS[rels[row]]))
+				intersection.add(sources[row], targets[row], sims[row], RELATIONS[rels[row]], STATUSES[statuses[row]]);
 		return intersection;
 	}
-	
+
 	@Override
 	public boolean isEmpty()
 	{
-		return maps.isEmpty();
+		return size() == 0;
 	}
-	
+
 	@Override
 	public Iterator<Mapping> iterator()
 	{
-		return maps.iterator();
+		return new Iterator<Mapping>()
+		{
+			private int next = skipRemoved(0);
+			private int last = -1;
+
+			@Override
+			public boolean hasNext()
+			{
+				return next < rowCount;
+			}
+
+			@Override
+			public Mapping next()
+			{
+				if(next >= rowCount)
+					throw new NoSuchElementException();
+				last = next;
+				next = skipRemoved(next + 1);
+				return new Mapping(Alignment.this, last);
+			}
+
+			@Override
+			public void remove()
+			{
+				if(last == -1 || removed[last])
+					throw new IllegalStateException();
+				removeRow(last);
+				last = -1;
+			}
+		};
 	}
-	
+
 	/**
 	 * @return the maximum cardinality of this Alignment
 	 */
 	public double maxCardinality()
 	{
-		double cardinality;
-		double max = 0.0;
-		
-		Set<Integer> sources = sourceMaps.keySet();
-		for(Integer i : sources)
-		{
-			cardinality = sourceMaps.keySet(i).size();
-			if(cardinality > max)
-				max = cardinality;
-		}
-		Set<Integer> targets = targetMaps.keySet();
-		for(Integer i : targets)
-		{
-			cardinality = targetMaps.keySet(i).size();
-			if(cardinality > max)
-				max = cardinality;
-		}
-		return max;		
+		return Math.max(sourceIndex.maxCount(), targetIndex.maxCount());
 	}
-	
+
 	@Override
 	public boolean remove(Object o)
 	{
 		if(o instanceof Mapping && contains(o))
 		{
 			Mapping m = (Mapping)o;
-			int sourceId = m.getSourceId();
-			int targetId = m.getTargetId();
-			sourceMaps.remove(sourceId, targetId);
-			targetMaps.remove(targetId, sourceId);
-			maps.remove(m);
+			removeRow(getRow(m.getSourceId(), m.getTargetId()));
 			return true;
 		}
 		else
 			return false;
 	}
-	
+
 	/**
 	 * Removes the Mapping between the given classes from the Alignment
 	 * @param sourceId: the source class to remove from the Alignment
@@ -983,7 +981,7 @@ public class Alignment implements Collection<Mapping>
 		Mapping m = new Mapping(sourceId, targetId, 1.0);
 		return remove(m);
 	}
-	
+
 	@Override
 	public boolean removeAll(Collection<?> c)
 	{
@@ -992,17 +990,22 @@ public class Alignment implements Collection<Mapping>
 			check = remove(o) || check;
 		return check;
 	}
-	
+
 	@Override
 	public boolean retainAll(Collection<?> c)
 	{
 		boolean check = false;
-		for(Mapping m : this)
-			if(!c.contains(m))
-				check = remove(m) || check;
+		for(int row = 0; row < rowCount; row++)
+		{
+			if(!removed[row] && !c.contains(new Mapping(this, row)))
+			{
+				removeRow(row);
+				check = true;
+			}
+		}
 		return check;
 	}
-	
+
 	/**
 	 * Saves the Alignment into a text file as a list of douples
 	 * @param file: the output file
@@ -1010,8 +1013,9 @@ public class Alignment implements Collection<Mapping>
 	public void saveDoubles(String file) throws FileNotFoundException
 	{
 		PrintWriter outStream = new PrintWriter(new FileOutputStream(file));
-		for(Mapping m : maps)
-			outStream.println("<" + m.getSourceURI() + "> <" + m.getTargetURI() + ">");
+		for(int row = 0; row < rowCount; row++)
+			if(!removed[row])
+				outStream.println("<" + uris.getURI(sources[row]) + "> <" + uris.getURI(targets[row]) + ">");
 		outStream.close();
 	}
 
@@ -1026,8 +1030,8 @@ public class Alignment implements Collection<Mapping>
 
 		PrintWriter outStream = new PrintWriter(new FileOutputStream(file));
 		outStream.println("<?xml version='1.0' encoding='utf-8'?>");
-		outStream.println("<rdf:RDF xmlns='http://knowledgeweb.semanticweb.org/heterogeneity/alignment'"); 
-		outStream.println("\t xmlns:rdf='http://www.w3.org/1999/02/22-rdf-syntax-ns#' "); 
+		outStream.println("<rdf:RDF xmlns='http://knowledgeweb.semanticweb.org/heterogeneity/alignment'");
+		outStream.println("\t xmlns:rdf='http://www.w3.org/1999/02/22-rdf-syntax-ns#' ");
 		outStream.println("\t xmlns:xsd='http://www.w3.org/2001/XMLSchema#' ");
 		outStream.println("\t alignmentSource='AgreementMakerLight'>\n");
 		outStream.println("<Alignment>");
@@ -1042,13 +1046,13 @@ public class Alignment implements Collection<Mapping>
 		outStream.println("\t<onto2>" + targetURI + "</onto2>");
 		outStream.println("\t<uri1>" + sourceURI + "</uri1>");
 		outStream.println("\t<uri2>" + targetURI + "</uri2>");
-		for(Mapping m : maps)
+		for(Mapping m : this)
 			outStream.println(m.toRDF());
 		outStream.println("</Alignment>");
-		outStream.println("</rdf:RDF>");		
+		outStream.println("</rdf:RDF>");
 		outStream.close();
 	}
-	
+
 	/**
 	 * Saves the Alignment into a .tsv file in AML format
 	 * @param file: the output file
@@ -1060,7 +1064,7 @@ public class Alignment implements Collection<Mapping>
 		outStream.println("#Source ontology:\t" + source.getURI());
 		outStream.println("#Target ontology:\t" + target.getURI());
 		outStream.println("Source URI\tSource Label\tTarget URI\tTarget Label\tSimilarity\tRelationship\tStatus");
-		for(Mapping m : maps)
+		for(Mapping m : this)
 			outStream.println(m.toString());
 		outStream.close();
 	}
@@ -1068,7 +1072,7 @@ public class Alignment implements Collection<Mapping>
 	@Override
 	public int size()
 	{
-		return maps.size();
+		return rowCount - removedCount;
 	}
 
 	/**
@@ -1076,41 +1080,33 @@ public class Alignment implements Collection<Mapping>
 	 */
 	public void sortAscending()
 	{
-		Collections.sort(maps);
+		sort(false);
 	}
-	
+
 	/**
 	 * Sorts the Alignment descendingly
 	 */
 	public void sortDescending()
 	{
-		Collections.sort(maps,new Comparator<Mapping>()
-        {
-			//Sorting in descending order can be done simply by
-			//reversing the order of the elements in the comparison
-            public int compare(Mapping m1, Mapping m2)
-            {
-        		return m2.compareTo(m1);
-            }
-        } );
+		sort(true);
 	}
-	
+
 	/**
 	 * @return the number of source entities mapped in this Alignment
 	 */
 	public int sourceCount()
 	{
-		return sourceMaps.keyCount();
+		return sourceIndex.size();
 	}
-	
+
 	/**
 	 * @return the fraction of source classes mapped in this Alignment
 	 */
 	public double sourceCoverage(EntityType e)
 	{
 		double coverage = 0.0;
-		for(Integer i : sourceMaps.keySet())
-			if(uris.getType(i).equals(e))
+		for(IntIterator it = sourceIndex.entities(); it.hasNext(); )
+			if(uris.getType(it.next()).equals(e))
 				coverage++;
 		int count;
 		if(e.equals(EntityType.INDIVIDUAL))
@@ -1119,23 +1115,23 @@ public class Alignment implements Collection<Mapping>
 			count = aml.getSource().count(e);
 		return coverage / count;
 	}
-	
+
 	/**
 	 * @return the number of target entities mapped in this Alignment
 	 */
 	public int targetCount()
 	{
-		return targetMaps.keyCount();
+		return targetIndex.size();
 	}
-	
+
 	/**
 	 * @return the fraction of target classes mapped in this Alignment
 	 */
 	public double targetCoverage(EntityType e)
 	{
 		double coverage = 0.0;
-		for(Integer i : targetMaps.keySet())
-			if(uris.getType(i).equals(e))
+		for(IntIterator it = targetIndex.entities(); it.hasNext(); )
+			if(uris.getType(it.next()).equals(e))
 				coverage++;
 		int count;
 		if(e.equals(EntityType.INDIVIDUAL))
@@ -1144,21 +1140,400 @@ public class Alignment implements Collection<Mapping>
 			count = aml.getTarget().count(e);
 		return coverage / count;
 	}
-	
+
 	@Override
 	public Object[] toArray()
 	{
-		return maps.toArray();
+		return toVector().toArray();
 	}
-	
+
 	@Override
 	public <T> T[] toArray(T[] a)
 	{
-		return maps.toArray(a);
+		return toVector().toArray(a);
 	}
-	
+
 //Private Methods
 
+	//Adds a new row to the Alignment, given the empty slot of its pair
+	private void addRow(int slot, int sourceId, int targetId, double sim, MappingRelation r, MappingStatus s)
+	{
+		if(removedCount > rowCount / 2)
+		{
+			compact();
+			slot = findPair(sourceId, targetId);
+		}
+		if(rowCount == sources.length)
+			grow(2 * rowCount);
+		int row = rowCount++;
+		sources[row] = sourceId;
+		targets[row] = targetId;
+		sims[row] = sim;
+		rels[row] = (byte)r.ordinal();
+		statuses[row] = (byte)s.ordinal();
+		removed[row] = false;
+		pairs[slot] = row + 1;
+		sourceIndex.add(sourceId, row);
+		targetIndex.add(targetId, row);
+		if(size() > pairs.length * LOAD_FACTOR)
+			rebuildPairs(2 * pairs.length);
+	}
+
+	//Drops the removed rows, so that rows are again the positions
+	//of the Mappings in the list of Mappings
+	private void compact()
+	{
+		if(removedCount == 0)
+			return;
+		int n = 0;
+		for(int row = 0; row < rowCount; row++)
+		{
+			if(removed[row])
+				continue;
+			sources[n] = sources[row];
+			targets[n] = targets[row];
+			sims[n] = sims[row];
+			rels[n] = rels[row];
+			statuses[n] = statuses[row];
+			removed[n] = false;
+			n++;
+		}
+		rowCount = n;
+		removedCount = 0;
+		rebuildIndexes();
+	}
+
+	//Compares two rows as Mapping.compareTo compares their Mappings
+	private int compare(int row1, int row2)
+	{
+		if(statuses[row1] != statuses[row2])
+			return statuses[row1] - statuses[row2];
+		double diff = sims[row1] - sims[row2];
+		if(diff < 0)
+			return -1;
+		if(diff > 0)
+			return 1;
+		return 0;
+	}
+
+	//Empties a slot of the pair index, shifting back the slots that follow
+	//it so that all pairs remain reachable from their home slot
+	private void deletePair(int slot)
+	{
+		int mask = pairs.length - 1;
+		int free = slot;
+		int next = slot;
+		while(true)
+		{
+			next = (next + 1) & mask;
+			if(pairs[next] == 0)
+				break;
+			int row = pairs[next] - 1;
+			int home = hash(sources[row], targets[row]) & mask;
+			//The pair can be moved to the free slot unless its home slot
+			//lies (cyclically) between the free slot and its current slot
+			if((next > free && (home <= free || home > next)) ||
+					(next < free && home <= free && home > next))
+			{
+				pairs[free] = pairs[next];
+				free = next;
+			}
+		}
+		pairs[free] = 0;
+	}
+
+	//Makes room for the given number of rows in the columns and in the pair
+	//index, so that they aren't resized repeatedly while the rows are added
+	private void ensureCapacity(int rows)
+	{
+		if(rows > sources.length)
+			grow(Math.max(2 * sources.length, rows));
+		int slots = pairs.length;
+		while(rows > slots * LOAD_FACTOR)
+			slots *= 2;
+		if(slots > pairs.length)
+			rebuildPairs(slots);
+	}
+
+	//Finds the slot of a pair in the pair index, or the empty slot where it should be
+	private int findPair(int sourceId, int targetId)
+	{
+		int mask = pairs.length - 1;
+		int slot = hash(sourceId, targetId) & mask;
+		while(pairs[slot] > 0 && (sources[pairs[slot] - 1] != sourceId ||
+				targets[pairs[slot] - 1] != targetId))
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	//Gets the row of the Mapping between the given classes, or -1 if the
+	//Mapping doesn't exist (used by the Mappings that are views of the rows)
+	protected int getRow(int sourceId, int targetId)
+	{
+		return pairs[findPair(sourceId, targetId)] - 1;
+	}
+
+	//Grows the columns to the given capacity
+	private void grow(int capacity)
+	{
+		sources = Arrays.copyOf(sources, capacity);
+		targets = Arrays.copyOf(targets, capacity);
+		sims = Arrays.copyOf(sims, capacity);
+		rels = Arrays.copyOf(rels, capacity);
+		statuses = Arrays.copyOf(statuses, capacity);
+		removed = Arrays.copyOf(removed, capacity);
+	}
+
+	//Initializes the (empty) columns and indexes
+	private void init()
+	{
+		sources = new int[16];
+		targets = new int[16];
+		sims = new double[16];
+		rels = new byte[16];
+		statuses = new byte[16];
+		removed = new boolean[16];
+		rowCount = 0;
+		removedCount = 0;
+		pairs = new int[32];
+		sourceIndex = new EntityIndex();
+		targetIndex = new EntityIndex();
+	}
+
+	//Adds all Mappings in a to this Alignment, as addAll or (if nonConflicting)
+	//addAllNonConflicting would add them one by one, but finding their rows
+	//in bulk and making room for the new rows at once
+	private boolean merge(Alignment a, boolean nonConflicting)
+	{
+		int[] found = probe(a, nonConflicting);
+		int count = rowCount;
+		for(int k = 0; k < a.rowCount; k++)
+			if(found[k] == -1)
+				count++;
+		ensureCapacity(count);
+		boolean check = false;
+		for(int k = 0; k < a.rowCount; k++)
+			if(found[k] != SKIP)
+				check = put(found[k], a.sources[k], a.targets[k], a.sims[k], a.rels[k], a.statuses[k]) || check;
+		return check;
+	}
+
+	//Finds the row in this Alignment of the pair of each row of a, which is
+	//-1 if the pair is new, or SKIP if it can't be added (because it has an
+	//entity of both ontologies, as in add, or if nonConflicting, because it
+	//conflicts with a Mapping in this Alignment). The rows are found in
+	//parallel chunks if a is large enough to make up for the overhead.
+	private int[] probe(final Alignment a, final boolean nonConflicting)
+	{
+		//The rows found are only valid while neither Alignment is compacted
+		compact();
+		a.compact();
+		final int[] found = new int[a.rowCount];
+		final boolean sameURI = aml.matchSameURI();
+		ParallelExecutor exec = aml.getExecutor();
+		if(a.rowCount <= MIN_CHUNK || exec.getParallelism() == 1)
+		{
+			probe(a, found, 0, a.rowCount, sameURI, nonConflicting);
+			return found;
+		}
+		final int chunk = Math.max(MIN_CHUNK, a.rowCount / (4 * exec.getParallelism()));
+		Vector<Integer> starts = new Vector<Integer>();
+		for(int i = 0; i < a.rowCount; i += chunk)
+			starts.add(i);
+		exec.map(starts, new IndexFunction<Void>()
+		{
+			@Override
+			public Void compute(int start)
+			{
+				probe(a, found, start, Math.min(start + chunk, a.rowCount), sameURI, nonConflicting);
+				return null;
+			}
+		});
+		return found;
+	}
+
+	//Finds the rows in this Alignment of a range of rows of a
+	private void probe(Alignment a, int[] found, int start, int end, boolean sameURI, boolean nonConflicting)
+	{
+		for(int k = start; k < end; k++)
+		{
+			int sourceId = a.sources[k];
+			int targetId = a.targets[k];
+			if(!sameURI && (source.contains(targetId) || target.contains(sourceId)))
+			{
+				found[k] = SKIP;
+				continue;
+			}
+			found[k] = getRow(sourceId, targetId);
+			if(nonConflicting)
+			{
+				int own = found[k] > -1 ? 1 : 0;
+				if(sourceIndex.count(sourceId) > own || targetIndex.count(targetId) > own)
+					found[k] = SKIP;
+			}
+		}
+	}
+
+	//Adds a Mapping as a new row, or updates its row to the maximum similarity
+	//and to its relation and status, as add does once the pair is found
+	//(given the row of the pair, or -1 if it is new)
+	private boolean put(int row, int sourceId, int targetId, double sim, byte r, byte s)
+	{
+		if(row == -1)
+		{
+			addRow(findPair(sourceId, targetId), sourceId, targetId, Mapping.round(sim), RELATIONS[r], STATUSES[s]);
+			return true;
+		}
+		boolean check = false;
+		if(sims[row] < sim)
+		{
+			updateSimilarity(row, Mapping.round(sim));
+			check = true;
+		}
+		if(rels[row] != r)
+		{
+			rels[row] = r;
+			check = true;
+		}
+		if(statuses[row] != s)
+		{
+			statuses[row] = s;
+			check = true;
+		}
+		return check;
+	}
+
+	//Builds the pair index anew with the given number of slots
+	private void rebuildPairs(int slots)
+	{
+		while(size() > slots * LOAD_FACTOR)
+			slots *= 2;
+		pairs = new int[slots];
+		int mask = slots - 1;
+		for(int row = 0; row < rowCount; row++)
+		{
+			if(removed[row])
+				continue;
+			int slot = hash(sources[row], targets[row]) & mask;
+			while(pairs[slot] > 0)
+				slot = (slot + 1) & mask;
+			pairs[slot] = row + 1;
+		}
+	}
+
+	//Builds all indexes anew after the rows are moved
+	private void rebuildIndexes()
+	{
+		rebuildPairs(pairs.length);
+		sourceIndex = new EntityIndex();
+		targetIndex = new EntityIndex();
+		for(int row = 0; row < rowCount; row++)
+		{
+			if(removed[row])
+				continue;
+			sourceIndex.add(sources[row], row);
+			targetIndex.add(targets[row], row);
+		}
+	}
+
+	//Removes a row from the indexes and flags it as removed (the row is
+	//kept until the Alignment is compacted, so the views that point to it
+	//can still read its final values)
+	private void removeRow(int row)
+	{
+		deletePair(findPair(sources[row], targets[row]));
+		sourceIndex.remove(sources[row], row);
+		targetIndex.remove(targets[row], row);
+		removed[row] = true;
+		removedCount++;
+	}
+
+	//Gets the first row from the given row onward that wasn't removed
+	private int skipRemoved(int row)
+	{
+		while(row < rowCount && removed[row])
+			row++;
+		return row;
+	}
+
+	//Sorts the rows with a stable merge sort (as Collections.sort would sort
+	//the Mappings) and rebuilds the indexes
+	private void sort(boolean descending)
+	{
+		compact();
+		int[] order = new int[rowCount];
+		for(int row = 0; row < rowCount; row++)
+			order[row] = row;
+		sort(order, new int[rowCount], 0, rowCount, descending);
+		int[] newSources = new int[sources.length];
+		int[] newTargets = new int[targets.length];
+		double[] newSims = new double[sims.length];
+		byte[] newRels = new byte[rels.length];
+		byte[] newStatuses = new byte[statuses.length];
+		for(int row = 0; row < rowCount; row++)
+		{
+			newSources[row] = sources[order[row]];
+			newTargets[row] = targets[order[row]];
+			newSims[row] = sims[order[row]];
+			newRels[row] = rels[order[row]];
+			newStatuses[row] = statuses[order[row]];
+		}
+		sources = newSources;
+		targets = newTargets;
+		sims = newSims;
+		rels = newRels;
+		statuses = newStatuses;
+		rebuildIndexes();
+	}
+
+	//Sorts a range of the given rows
+	private void sort(int[] order, int[] aux, int start, int end, boolean descending)
+	{
+		if(end - start < 2)
+			return;
+		int mid = (start + end) >>> 1;
+		sort(order, aux, start, mid, descending);
+		sort(order, aux, mid, end, descending);
+		System.arraycopy(order, start, aux, start, end - start);
+		int i = start;
+		int j = mid;
+		for(int k = start; k < end; k++)
+		{
+			//Rows of the second half only go first if they are strictly
+			//smaller (or greater, if descending), so the sort is stable
+			boolean second = j < end && (i == mid ||
+					(descending ? compare(aux[i], aux[j]) < 0 : compare(aux[j], aux[i]) < 0));
+			order[k] = second ? aux[j++] : aux[i++];
+		}
+	}
+
+	//Gets the list of Mappings in this Alignment
+	private Vector<Mapping> toVector()
+	{
+		Vector<Mapping> list = new Vector<Mapping>(size());
+		for(Mapping m : this)
+			list.add(m);
+		return list;
+	}
+
+	//Sets the similarity of a row, keeping the maximum similarities of its
+	//entities up to date (used by the Mappings that are views of the rows)
+	protected void updateSimilarity(int row, double sim)
+	{
+		sims[row] = sim;
+		if(removed[row])
+			return;
+		sourceIndex.update(sources[row], row);
+		targetIndex.update(targets[row], row);
+	}
+
+	//Mixes the bits of a pair of indexes (to spread consecutive pairs)
+	private static int hash(int sourceId, int targetId)
+	{
+		long h = (((long)sourceId << 32) | (targetId & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32));
+	}
+
 	private void loadMappingsRDF(String file) throws DocumentException
 	{
 		//Open the Alignment file using SAXReader
@@ -1207,7 +1582,7 @@ public class Alignment implements Collection<Mapping>
 			add(sourceURI, targetURI, similarity, rel, st);
 		}
 	}
-	
+
 	private void loadMappingsTSV(String file) throws Exception
 	{
 		BufferedReader inStream = new BufferedReader(new FileReader(file));
@@ -1260,4 +1635,274 @@ public class Alignment implements Collection<Mapping>
 		}
 		inStream.close();
 	}
-}
\ No newline at end of file
+
+	//Index of the rows of the Alignment by entity (source or target), where
+	//the rows of each entity form a doubly linked list in insertion order
+	//(which is also the order of the rows), and the maximum similarity of
+	//each entity is kept up to date as rows are added and updated
+	private class EntityIndex
+	{
+		//The best row of an entity that must be found anew, because the
+		//previous best row was removed or its similarity decreased
+		private static final int STALE = -2;
+		//The entities, and the first row, last row and number of rows of
+		//each entity (by the position of the entity in the IntSet)
+		private IntSet entities;
+		private int[] first;
+		private int[] last;
+		private int[] count;
+		//The maximum similarity of each entity (or 0 if it has no rows with
+		//similarity above 0) and the first row with that similarity (or -1)
+		private double[] max;
+		private int[] best;
+		//The next and previous rows of each row in the list of its entity
+		private int[] next;
+		private int[] prev;
+
+		public EntityIndex()
+		{
+			entities = new IntSet();
+			first = new int[4];
+			last = new int[4];
+			count = new int[4];
+			max = new double[4];
+			best = new int[4];
+			next = new int[16];
+			prev = new int[16];
+		}
+
+		//Adds a row to the end of the list of an entity
+		public void add(int id, int row)
+		{
+			if(row >= next.length)
+			{
+				next = Arrays.copyOf(next, Math.max(2 * next.length, row + 1));
+				prev = Arrays.copyOf(prev, next.length);
+			}
+			int pos = entities.position(id);
+			if(pos == -1)
+			{
+				entities.add(id);
+				pos = entities.size() - 1;
+				if(pos == first.length)
+				{
+					first = Arrays.copyOf(first, 2 * pos);
+					last = Arrays.copyOf(last, 2 * pos);
+					count = Arrays.copyOf(count, 2 * pos);
+					max = Arrays.copyOf(max, 2 * pos);
+					best = Arrays.copyOf(best, 2 * pos);
+				}
+				first[pos] = row;
+				count[pos] = 0;
+				max[pos] = 0;
+				best[pos] = -1;
+				prev[row] = -1;
+			}
+			else
+			{
+				next[last[pos]] = row;
+				prev[row] = last[pos];
+			}
+			last[pos] = row;
+			next[row] = -1;
+			count[pos]++;
+			check(pos, row);
+		}
+
+		//Gets the first row with the maximum similarity of an entity, or -1
+		//if it has no rows with similarity above 0
+		public int best(int id)
+		{
+			int pos = entities.position(id);
+			if(pos == -1)
+				return -1;
+			if(best[pos] == STALE)
+			{
+				max[pos] = 0;
+				best[pos] = -1;
+				for(int row = first[pos]; row > -1; row = next[row])
+					check(pos, row);
+			}
+			return best[pos];
+		}
+
+		public boolean contains(int id)
+		{
+			return entities.contains(id);
+		}
+
+		public int count(int id)
+		{
+			int pos = entities.position(id);
+			if(pos == -1)
+				return 0;
+			return count[pos];
+		}
+
+		public IntIterator entities()
+		{
+			return entities.iterator();
+		}
+
+		//Gets the first row of an entity, or -1 if it has none
+		public int first(int id)
+		{
+			int pos = entities.position(id);
+			if(pos == -1)
+				return -1;
+			return first[pos];
+		}
+
+		//Gets the maximum similarity of an entity (or 0 if it has no rows)
+		public double max(int id)
+		{
+			if(best(id) == -1)
+				return 0;
+			return max[entities.position(id)];
+		}
+
+		public int maxCount()
+		{
+			int max = 0;
+			for(int pos = 0; pos < entities.size(); pos++)
+				if(count[pos] > max)
+					max = count[pos];
+			return max;
+		}
+
+		//Gets the row after the given row in the list of its entity, or -1
+		public int next(int row)
+		{
+			return next[row];
+		}
+
+		//Removes a row from the list of an entity (the next row of the
+		//removed row is kept, so that iterations over the list can go on)
+		public void remove(int id, int row)
+		{
+			int pos = entities.position(id);
+			if(--count[pos] == 0)
+			{
+				//The IntSet moves its last entity to the removed position
+				entities.remove(id);
+				int size = entities.size();
+				if(pos < size)
+				{
+					first[pos] = first[size];
+					last[pos] = last[size];
+					count[pos] = count[size];
+					max[pos] = max[size];
+					best[pos] = best[size];
+				}
+				return;
+			}
+			if(prev[row] == -1)
+				first[pos] = next[row];
+			else
+				next[prev[row]] = next[row];
+			if(next[row] == -1)
+				last[pos] = prev[row];
+			else
+				prev[next[row]] = prev[row];
+			if(best[pos] == row)
+				best[pos] = STALE;
+		}
+
+		public int size()
+		{
+			return entities.size();
+		}
+
+		//Updates the maximum similarity of an entity after the similarity
+		//of one of its rows was changed
+		public void update(int id, int row)
+		{
+			int pos = entities.position(id);
+			if(best[pos] == STALE)
+				return;
+			if(best[pos] == row)
+			{
+				//The row is still the first with the maximum similarity if
+				//its similarity didn't decrease
+				if(sims[row] >= max[pos])
+					max[pos] = sims[row];
+				else
+					best[pos] = STALE;
+			}
+			else
+				check(pos, row);
+		}
+
+		//Checks whether a row is the best of its entity (at the given position)
+		private void check(int pos, int row)
+		{
+			if(best[pos] != STALE && (sims[row] > max[pos] ||
+					(sims[row] == max[pos] && best[pos] > row)))
+			{
+				max[pos] = sims[row];
+				best[pos] = row;
+			}
+		}
+	}
+
+	//Read-only view of the entities mapped to an entity in the Alignment
+	private class EntitySet extends AbstractSet<Integer>
+	{
+		private int id;
+		private boolean isSource;
+
+		public EntitySet(int id, boolean isSource)
+		{
+			this.id = id;
+			this.isSource = isSource;
+		}
+
+		@Override
+		public boolean contains(Object o)
+		{
+			if(!(o instanceof Integer))
+				return false;
+			if(isSource)
+				return containsMapping(id, (Integer)o);
+			return containsMapping((Integer)o, id);
+		}
+
+		@Override
+		public Iterator<Integer> iterator()
+		{
+			final EntityIndex index = isSource ? sourceIndex : targetIndex;
+			return new Iterator<Integer>()
+			{
+				private int row = index.first(id);
+
+				@Override
+				public boolean hasNext()
+				{
+					return row > -1;
+				}
+
+				@Override
+				public Integer next()
+				{
+					if(row == -1)
+						throw new NoSuchElementException();
+					int entity = isSource ? targets[row] : sources[row];
+					row = index.next(row);
+					return entity;
+				}
+
+				@Override
+				public void remove()
+				{
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		@Override
+		public int size()
+		{
+			return (isSource ? sourceIndex : targetIndex).count(id);
+		}
+	}
+}
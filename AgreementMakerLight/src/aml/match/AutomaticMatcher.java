@@ -245,6 +245,13 @@ public class AutomaticMatcher
 			else
 				a.addAll(psm.match(EntityType.CLASS, thresh));
 		}
+		//If the task is medium or large, we can use it in (blocked) match mode
+		//for the high confidence mappings, and in extendAlignment mode for the rest
+		else if(!size.equals(SizeCategory.HUGE) && lang.equals(LanguageSetting.SINGLE))
+		{
+			a.addAllOneToOne(psm.match(EntityType.CLASS, thresh + PSM_MOD));
+			a.addAllOneToOne(psm.extendAlignment(a,EntityType.CLASS,thresh));
+		}
 		//Otherwise we use it in extendAlignment mode
 		else
 			a.addAllOneToOne(psm.extendAlignment(a,EntityType.CLASS,thresh));
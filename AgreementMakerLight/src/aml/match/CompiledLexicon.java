@@ -0,0 +1,164 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Read-only view of a Lexicon for the StringMatcher, which holds for each     *
+* entity a packed array of its non-formula names, with their corrected        *
+* weights already resolved, so that name pairs can be scored without any      *
+* Lexicon lookups. Entities are compiled on demand (in a thread-safe way) and *
+* the view should be discarded if the Lexicon changes.                        *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.match;
+
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+
+import aml.ontology.Lexicon;
+import aml.settings.LexicalType;
+
+public class CompiledLexicon
+{
+
+//Attributes
+
+	//The compiled Lexicon
+	private Lexicon lex;
+	//The languages of the names to compile (or null to ignore languages)
+	private String[] languages;
+	//The compiled entries of each entity
+	private ConcurrentHashMap<Integer,Entry> entries;
+
+//Constructors
+
+	/**
+	 * Constructs a new CompiledLexicon over the given Lexicon
+	 * @param l: the Lexicon to compile
+	 * @param langs: the languages of the names to compile, or null to compile
+	 * all names with their language-independent weights (names will only be
+	 * comparable between two CompiledLexicons built with the same Set)
+	 */
+	public CompiledLexicon(Lexicon l, Set<String> langs)
+	{
+		lex = l;
+		if(langs != null)
+			languages = langs.toArray(new String[langs.size()]);
+		entries = new ConcurrentHashMap<Integer,Entry>();
+	}
+
+//Public Methods
+
+	/**
+	 * @param id: the index of the entity to get
+	 * @return the compiled entry of the entity
+	 */
+	public Entry get(int id)
+	{
+		Entry e = entries.get(id);
+		if(e == null)
+		{
+			e = compile(id);
+			Entry previous = entries.putIfAbsent(id, e);
+			if(previous != null)
+				e = previous;
+		}
+		return e;
+	}
+
+//Private Methods
+
+	//Compiles the names of an entity
+	private Entry compile(int id)
+	{
+		Vector<String> names = new Vector<String>();
+		Vector<Double> weights = new Vector<Double>();
+		Vector<Integer> langs = new Vector<Integer>();
+		if(languages == null)
+		{
+			for(String n : lex.getNames(id))
+			{
+				if(lex.getTypes(n,id).contains(LexicalType.FORMULA))
+					continue;
+				names.add(n);
+				weights.add(lex.getCorrectedWeight(n, id));
+				langs.add(0);
+			}
+		}
+		else
+		{
+			for(int i = 0; i < languages.length; i++)
+			{
+				for(String n : lex.getNamesWithLanguage(id, languages[i]))
+				{
+					if(lex.getTypes(n,id).contains(LexicalType.FORMULA))
+						continue;
+					names.add(n);
+					weights.add(lex.getCorrectedWeight(n, id, languages[i]));
+					langs.add(i);
+				}
+			}
+		}
+		Entry e = new Entry(names.size());
+		for(int i = 0; i < e.names.length; i++)
+		{
+			e.names[i] = names.get(i);
+			e.weights[i] = weights.get(i);
+			e.languages[i] = langs.get(i);
+		}
+		return e;
+	}
+
+	/**
+	 * The compiled names of an entity
+	 */
+	public static class Entry
+	{
+		private String[] names;
+		private double[] weights;
+		private int[] languages;
+
+		private Entry(int size)
+		{
+			names = new String[size];
+			weights = new double[size];
+			languages = new int[size];
+		}
+
+		/**
+		 * @return the non-formula names of the entity
+		 */
+		public String[] getNames()
+		{
+			return names;
+		}
+
+		/**
+		 * @return the corrected weights of the names of the entity
+		 */
+		public double[] getWeights()
+		{
+			return weights;
+		}
+
+		/**
+		 * @return the indexes of the languages of the names of the entity
+		 * (all 0 if languages are ignored)
+		 */
+		public int[] getLanguages()
+		{
+			return languages;
+		}
+	}
+}
\ No newline at end of file
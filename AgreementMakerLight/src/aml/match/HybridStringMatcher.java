@@ -20,13 +20,8 @@
 ******************************************************************************/
 package aml.match;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
 import aml.AML;
 import aml.match.Alignment;
@@ -36,8 +31,9 @@ import aml.ontology.Ontology;
 import aml.settings.EntityType;
 import aml.settings.InstanceMatchingCategory;
 import aml.settings.LanguageSetting;
+import aml.util.IntTable2Set;
 import aml.util.NameSimilarity;
-import aml.util.Table2Set;
+import aml.util.PairFunction;
 
 public class HybridStringMatcher implements PrimaryMatcher, Rematcher
 {
@@ -58,14 +54,14 @@ public class HybridStringMatcher implements PrimaryMatcher, Rematcher
 	private LanguageSetting lSet;
 	private Set<String> languages;
 	private NameSimilarity ns = null;
-	//The available CPU threads
-	private int threads;
+	private boolean useWordNet;
 	
 //Constructors
 	
 	public HybridStringMatcher(boolean useWordNet)
 	{
 		ns = new NameSimilarity(useWordNet);
+		this.useWordNet = useWordNet;
 		aml = AML.getInstance();
 		source = aml.getSource();
 		target = aml.getTarget();
@@ -73,7 +69,6 @@ public class HybridStringMatcher implements PrimaryMatcher, Rematcher
 		tLex = target.getLexicon();
 		lSet = AML.getInstance().getLanguageSetting();
 		languages = aml.getLanguages();
-		threads = Runtime.getRuntime().availableProcessors();
 	}
 	
 //Public Methods
@@ -106,14 +101,33 @@ public class HybridStringMatcher implements PrimaryMatcher, Rematcher
 		Set<Integer> targets = tLex.getEntities(e);
 		if(e.equals(EntityType.INDIVIDUAL))
 		{
+			//The Lexicon's sets are read-only views, so they are copied before filtering
+			sources = new HashSet<Integer>(sources);
+			targets = new HashSet<Integer>(targets);
 			sources.retainAll(aml.getSourceIndividualsToMatch());
 			targets.retainAll(aml.getTargetIndividualsToMatch());
 		}
+		//Without WordNet, only entities with names that share a word or a
+		//trigram can be similar, so we can use a NameIndex to find them
+		NameIndex index = null;
+		if(!useWordNet && thresh > 0)
+			index = new NameIndex(tLex, e);
 		Alignment a = new Alignment();
 		for(Integer i : sources)
 		{
-			Table2Set<Integer,Integer> toMap = new Table2Set<Integer,Integer>();
-			for(Integer j : targets)
+			IntTable2Set toMap = new IntTable2Set();
+			Set<Integer> candidates = targets;
+			if(index != null)
+			{
+				candidates = new HashSet<Integer>();
+				for(String n : sLex.getNames(i))
+					if(n.length() > 2)
+						candidates.addAll(index.getEntities(n, 1));
+				candidates.retainAll(targets);
+				if(targets.contains(i))
+					candidates.add(i);
+			}
+			for(Integer j : candidates)
 			{
 				if(i == j)
 				{
@@ -140,7 +154,7 @@ public class HybridStringMatcher implements PrimaryMatcher, Rematcher
 		System.out.println("Computing Hybrid String Similarity");
 		long time = System.currentTimeMillis()/1000;
 		Alignment maps = new Alignment();
-		Table2Set<Integer,Integer> toMap = new Table2Set<Integer,Integer>();
+		IntTable2Set toMap = new IntTable2Set();
 		for(Mapping m : a)
 		{
 			if(aml.getURIMap().getType(m.getSourceId()).equals(e))
@@ -169,40 +183,17 @@ public class HybridStringMatcher implements PrimaryMatcher, Rematcher
 			throw new UnsupportedEntityTypeException(e.toString());
 	}
 	
-	//Maps a table of classes in parallel, using all available threads
-	private Alignment mapInParallel(Table2Set<Integer,Integer> toMap, double thresh)
+	//Maps a table of classes in parallel, using the shared ParallelExecutor
+	private Alignment mapInParallel(IntTable2Set toMap, final double thresh)
 	{
-		Alignment maps = new Alignment();
-		ArrayList<MappingTask> tasks = new ArrayList<MappingTask>();
-		for(Integer i : toMap.keySet())
-			for(Integer j : toMap.get(i))
-				tasks.add(new MappingTask(i,j,thresh));
-        List<Future<Mapping>> results;
-		ExecutorService exec = Executors.newFixedThreadPool(threads);
-		try
-		{
-			results = exec.invokeAll(tasks);
-		}
-		catch (InterruptedException e)
-		{
-			e.printStackTrace();
-	        results = new ArrayList<Future<Mapping>>();
-		}
-		exec.shutdown();
-		for(Future<Mapping> fm : results)
+		return aml.getExecutor().map(toMap, new PairFunction()
 		{
-			try
+			@Override
+			public double compute(int sourceId, int targetId)
 			{
-				Mapping m = fm.get();
-				if(m.getSimilarity() >= thresh)
-					maps.add(m);
+				return mapTwoEntities(sourceId,targetId,thresh);
 			}
-			catch(Exception e)
-			{
-				e.printStackTrace();
-			}
-		}
-		return maps;
+		}, thresh);
 	}
 	
 	//Computes the maximum String similarity between two Classes by doing a
@@ -236,25 +227,4 @@ public class HybridStringMatcher implements PrimaryMatcher, Rematcher
 		}
 		return maxSim;
 	}
-	
-	//Callable class for mapping two classes
-	private class MappingTask implements Callable<Mapping>
-	{
-		private int source;
-		private int target;
-		private double threshold;
-		
-		MappingTask(int s, int t, double thresh)
-	    {
-			source = s;
-	        target = t;
-	        threshold = thresh;
-	    }
-	        
-	    @Override
-	    public Mapping call()
-	    {
-       		return new Mapping(source,target,mapTwoEntities(source,target,threshold));
-        }
-	}
 }
\ No newline at end of file
@@ -26,8 +26,8 @@ import aml.AML;
 import aml.ontology.Ontology;
 import aml.ontology.RelationshipMap;
 import aml.settings.EntityType;
+import aml.util.IntTable2Set;
 import aml.util.Similarity;
-import aml.util.Table2Set;
 
 public class InstanceBasedClassMatcher implements PrimaryMatcher
 {
@@ -74,7 +74,7 @@ public class InstanceBasedClassMatcher implements PrimaryMatcher
 		RelationshipMap rm = aml.getRelationshipMap();
 		System.out.println(rm.instanceCount());
 		
-		Table2Set<Integer,Integer> pairs = new Table2Set<Integer,Integer>();
+		IntTable2Set pairs = new IntTable2Set();
 		for(int i : source.getEntities(EntityType.INDIVIDUAL))
 		{
 			Set<Integer> classes = rm.getIndividualClasses(i);
@@ -38,22 +38,6 @@ public class LWC
 	 */
 	public static Alignment combine(Alignment a, Alignment b, double weight)
 	{
-		Alignment combine = new Alignment();
-	
-		for(Mapping m: a)
-		{
-			double similarity = m.getSimilarity()*weight + 
-					b.getSimilarity(m.getSourceId(), m.getTargetId())*(1-weight);
-			combine.add(m.getSourceId(), m.getTargetId(), similarity);
-		}
-		for(Mapping m : b)
-		{
-			if(!a.containsMapping(m))
-			{
-				double similarity = m.getSimilarity()*(1-weight);
-				combine.add(m.getSourceId(), m.getTargetId(), similarity);
-			}
-		}
-		return combine;
+		return a.combine(b, weight);
 	}	
 }
\ No newline at end of file
@@ -21,12 +21,16 @@ package aml.match;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.Vector;
 
 import aml.AML;
 import aml.ontology.Lexicon;
+import aml.ontology.NameDictionary;
 import aml.settings.EntityType;
 import aml.settings.InstanceMatchingCategory;
 import aml.settings.LanguageSetting;
+import aml.util.IndexFunction;
+import aml.util.ParallelExecutor;
 import aml.util.StringParser;
 
 public class LexicalMatcher implements PrimaryMatcher
@@ -38,6 +42,8 @@ public class LexicalMatcher implements PrimaryMatcher
 											  "String matches between their Lexicon entries";
 	private static final String NAME = "Lexical Matcher";
 	private static final EntityType[] SUPPORT = {EntityType.CLASS,EntityType.INDIVIDUAL,EntityType.DATA,EntityType.OBJECT};
+	//The minimum number of names matched by a single parallel task
+	private static final int MIN_CHUNK = 1000;
 		
 //Constructors
 
@@ -70,25 +76,66 @@ public class LexicalMatcher implements PrimaryMatcher
 		System.out.println("Running Lexical Matcher");
 		long time = System.currentTimeMillis()/1000;
 		//Get the lexicons of the source and target Ontologies
-		AML aml = AML.getInstance();
-		Lexicon sLex = aml.getSource().getLexicon();
-		Lexicon tLex = aml.getTarget().getLexicon();
+		final AML aml = AML.getInstance();
+		final Lexicon sLex = aml.getSource().getLexicon();
+		final Lexicon tLex = aml.getTarget().getLexicon();
 		//Initialize the alignment
 		Alignment maps = new Alignment();
 		//To minimize iterations, we want to iterate through the
 		//Ontology with the smallest Lexicon
 		boolean sourceIsSmaller = (sLex.nameCount(e) <= tLex.nameCount(e));
-		Set<String> names;
+		final int[] nameArray;
 		if(sourceIsSmaller)
-			names = sLex.getNames(e);
+			nameArray = sLex.getNameIds(e);
 		else
-			names = tLex.getNames(e);
+			nameArray = tLex.getNameIds(e);
 		
+		//And match them, split into chunks that are matched in parallel into
+		//separate buffers, which are then added to the alignment in the
+		//original order of the names (so the result is the same as when
+		//matching them sequentially)
+		ParallelExecutor exec = aml.getExecutor();
+		final int chunk = Math.max(MIN_CHUNK, nameArray.length / (4 * exec.getParallelism()));
+		if(exec.getParallelism() == 1 || nameArray.length <= chunk)
+			matchNames(aml, sLex, tLex, nameArray, 0, nameArray.length, e, thresh).addTo(maps);
+		else
+		{
+			Vector<Integer> starts = new Vector<Integer>();
+			for(int i = 0; i < nameArray.length; i += chunk)
+				starts.add(i);
+			final EntityType type = e;
+			final double threshold = thresh;
+			Vector<MappingBuffer> buffers = exec.map(starts, new IndexFunction<MappingBuffer>()
+			{
+				@Override
+				public MappingBuffer compute(int start)
+				{
+					return matchNames(aml, sLex, tLex, nameArray, start,
+							Math.min(start + chunk, nameArray.length), type, threshold);
+				}
+			});
+			for(MappingBuffer b : buffers)
+				b.addTo(maps);
+		}
+		time = System.currentTimeMillis()/1000 - time;
+		System.out.println("Finished in " + time + " seconds");
+		return maps;
+	}
+	
+//Private Methods
+	
+	//Matches a range of names of the given Lexicons into a new MappingBuffer
+	private MappingBuffer matchNames(AML aml, Lexicon sLex, Lexicon tLex, int[] names,
+			int from, int to, EntityType e, double thresh)
+	{
+		MappingBuffer buffer = new MappingBuffer();
+		NameDictionary dictionary = sLex.getNameDictionary();
 		//If we have a multi-language Lexicon, we must match language by language
 		if(aml.getLanguageSetting().equals(LanguageSetting.MULTI))
 		{
-			for(String s : names)
+			for(int k = from; k < to; k++)
 			{
+				String s = dictionary.getName(names[k]);
 				HashSet<String> languages = new HashSet<String>();
 				for(String l : sLex.getLanguages(e,s))
 					if(tLex.getLanguages().contains(l))
@@ -121,7 +168,7 @@ public class LexicalMatcher implements PrimaryMatcher
 							similarity *= weight;
 							//If the similarity is above threshold
 							if(similarity >= thresh)
-								maps.add(i, j, similarity);
+								buffer.add(i, j, similarity);
 						}
 					}
 				}
@@ -130,24 +177,27 @@ public class LexicalMatcher implements PrimaryMatcher
 		//Otherwise we can just match everything
 		else
 		{
-			for(String s : names)
+			for(int k = from; k < to; k++)
 			{
+				//Both Lexicons share the NameDictionary, so names can be matched by id
+				int n = names[k];
+				String s = dictionary.getName(n);
 				boolean isSmallFormula = StringParser.isFormula(s) && s.length() < 10;
-				Set<Integer> sourceIndexes = sLex.getEntities(e,s);
-				Set<Integer> targetIndexes = tLex.getEntities(e,s);
+				int[] sourceIndexes = sLex.getEntityIds(e,n);
+				int[] targetIndexes = tLex.getEntityIds(e,n);
 				//If the name doesn't exist in either ontology, skip it
 				if(sourceIndexes == null || targetIndexes == null)
 					continue;
 				//Otherwise, match all indexes
-				for(Integer i : sourceIndexes)
+				for(int i : sourceIndexes)
 				{
 					if(e.equals(EntityType.INDIVIDUAL) && !aml.isToMatchSource(i))
 						continue;
 					if(isSmallFormula && sLex.containsNonSmallFormula(i))
 						continue;
 					//Get the weight of the name for the term in the smaller lexicon
-					double weight = sLex.getCorrectedWeight(s, i);
-					for(Integer j : targetIndexes)
+					double weight = sLex.getCorrectedWeight(n, i);
+					for(int j : targetIndexes)
 					{
 						if(e.equals(EntityType.INDIVIDUAL) && (!aml.isToMatchTarget(j) ||
 								(aml.getInstanceMatchingCategory().equals(InstanceMatchingCategory.SAME_CLASSES) &&
@@ -156,24 +206,19 @@ public class LexicalMatcher implements PrimaryMatcher
 						if(isSmallFormula && tLex.containsNonSmallFormula(j))
 							continue;
 						//Get the weight of the name for the term in the larger lexicon
-						double similarity = tLex.getCorrectedWeight(s, j);
+						double similarity = tLex.getCorrectedWeight(n, j);
 						//Then compute the similarity, by multiplying the two weights
 						similarity *= weight;
 						//If the similarity is above threshold
 						if(similarity >= thresh)
-							maps.add(i, j, similarity);
+							buffer.add(i, j, similarity);
 					}
 				}
 			}
 		}
-		//And match them
-		time = System.currentTimeMillis()/1000 - time;
-		System.out.println("Finished in " + time + " seconds");
-		return maps;
+		return buffer;
 	}
 	
-//Private Methods
-	
 	private void checkEntityType(EntityType e) throws UnsupportedEntityTypeException
 	{
 		boolean check = false;
@@ -14,7 +14,8 @@
 *******************************************************************************
 * A mapping between terms or properties of two Ontologies, including the      *
 * similarity and type of relationship between them.                           *
-* An element in an Alignment.                                                 *
+* An element in an Alignment: Mappings returned by an Alignment are views of  *
+* its rows, so changes to them are written to the Alignment.                  *
 *                                                                             *
 * @author Daniel Faria                                                        *
 ******************************************************************************/
@@ -43,6 +44,10 @@ public class Mapping implements Comparable<Mapping>
 	private MappingRelation rel;
 	//The status of the Mapping
 	private MappingStatus s;
+	//The Alignment of which this Mapping is a view, and its row in the Alignment
+	//(the Alignment is null if the Mapping is independent)
+	private Alignment a;
+	private int row;
 	
 //Constructors
 
@@ -70,7 +75,7 @@ public class Mapping implements Comparable<Mapping>
 	{
 		sourceId = sId;
 		targetId = tId;
-		similarity = Math.round(sim*10000)/10000.0;
+		similarity = round(sim);
 		rel = MappingRelation.EQUIVALENCE;
 		s = MappingStatus.UNKNOWN;
 	}
@@ -86,7 +91,7 @@ public class Mapping implements Comparable<Mapping>
 	{
 		sourceId = sId;
 		targetId = tId;
-		similarity = Math.round(sim*10000)/10000.0;
+		similarity = round(sim);
 		rel = r;
 		s = MappingStatus.UNKNOWN;
 	}
@@ -97,12 +102,27 @@ public class Mapping implements Comparable<Mapping>
 	 */
 	public Mapping(Mapping m)
 	{
+		m.sync();
 		sourceId = m.sourceId;
 		targetId = m.targetId;
 		similarity = m.similarity;
 		rel = m.rel;
 		s = m.s;
 	}
+	
+	/**
+	 * Creates a mapping that is a view of a row of an Alignment
+	 * @param a: the Alignment of the mapping
+	 * @param row: the row of the mapping in the Alignment
+	 */
+	protected Mapping(Alignment a, int row)
+	{
+		this.a = a;
+		this.row = row;
+		sourceId = a.sources[row];
+		targetId = a.targets[row];
+		sync();
+	}
 
 //Public Methods
 
@@ -116,6 +136,8 @@ public class Mapping implements Comparable<Mapping>
 	 */
 	public int compareTo(Mapping o)
 	{
+		this.sync();
+		o.sync();
 		if(this.s.equals(o.s))
 		{
 			double diff = this.similarity - o.similarity;
@@ -146,6 +168,7 @@ public class Mapping implements Comparable<Mapping>
 	 */
 	public MappingRelation getRelationship()
 	{
+		sync();
 		return rel;
 	}
 	
@@ -154,6 +177,7 @@ public class Mapping implements Comparable<Mapping>
 	 */
 	public double getSimilarity()
 	{
+		sync();
 		return similarity;
 	}
 	
@@ -162,6 +186,7 @@ public class Mapping implements Comparable<Mapping>
 	 */
 	public String getSimilarityPercent()
 	{
+		sync();
 		return (Math.round(similarity*10000) * 1.0 / 100) + "%";
 	}
 	
@@ -186,6 +211,7 @@ public class Mapping implements Comparable<Mapping>
 	 */
 	public MappingStatus getStatus()
 	{
+		sync();
 		return s;
 	}
 	
@@ -205,12 +231,20 @@ public class Mapping implements Comparable<Mapping>
 		return AML.getInstance().getURIMap().getURI(targetId);
 	}
 
+	@Override
+	public int hashCode()
+	{
+		return hashCode(sourceId, targetId);
+	}
+	
 	/**
 	 * Sets the similarity of the Mapping to sim
 	 * @param r: the relationship between the mapped terms
 	 */
 	public void setRelationship(MappingRelation r)
 	{
+		if(sync())
+			a.rels[row] = (byte)r.ordinal();
 		rel = r;
 	}
 	
@@ -220,7 +254,9 @@ public class Mapping implements Comparable<Mapping>
 	 */
 	public void setSimilarity(double sim)
 	{
-		similarity = Math.round(sim*10000)/10000.0;
+		if(sync())
+			a.updateSimilarity(row, round(sim));
+		similarity = round(sim);
 	}
 	
 	/**
@@ -229,6 +265,8 @@ public class Mapping implements Comparable<Mapping>
 	 */
 	public void setStatus(MappingStatus s)
 	{
+		if(sync())
+			a.statuses[row] = (byte)s.ordinal();
 		this.s = s;
 	}
 	
@@ -237,6 +275,7 @@ public class Mapping implements Comparable<Mapping>
 	 */
 	public String toGUI()
 	{
+		sync();
 		return AML.getInstance().getSource().getName(sourceId) + " " +
 			rel.toString() + " " + AML.getInstance().getTarget().getName(targetId) +
 			" (" + getSimilarityPercent() + ") ";
@@ -244,6 +283,7 @@ public class Mapping implements Comparable<Mapping>
 	
 	public String toRDF()
 	{
+		sync();
 		URIMap uris = AML.getInstance().getURIMap();
 		String sourceURI = uris.getURI(sourceId);
 		String targetURI = uris.getURI(targetId);
@@ -261,6 +301,7 @@ public class Mapping implements Comparable<Mapping>
 	@Override
 	public String toString()
 	{
+		sync();
 		AML aml = AML.getInstance();
 		URIMap uris = aml.getURIMap();
 		Ontology source = aml.getSource();
@@ -272,4 +313,46 @@ public class Mapping implements Comparable<Mapping>
 			out += "\t" + s;
 		return out;
 	}
+	
+//Private Methods
+	
+	//Gets the hash code of the Mapping between the given terms (consistent with equals)
+	protected static int hashCode(int sourceId, int targetId)
+	{
+		return 31 * sourceId + targetId;
+	}
+	
+	//Rounds a similarity to four decimal places
+	protected static double round(double sim)
+	{
+		return Math.round(sim*10000)/10000.0;
+	}
+	
+	//Updates the values of a Mapping that is a view of a row of an Alignment
+	//and returns whether it is still a view (i.e., the Mapping wasn't removed)
+	private boolean sync()
+	{
+		if(a == null)
+			return false;
+		//The row of the Mapping changes when the Alignment is sorted or compacted
+		if(row >= a.rowCount || a.sources[row] != sourceId || a.targets[row] != targetId)
+			row = a.getRow(sourceId, targetId);
+		if(row == -1)
+		{
+			//The Mapping keeps the values it had when it was last synchronized
+			a = null;
+			return false;
+		}
+		similarity = a.sims[row];
+		rel = Alignment.RELATIONS[a.rels[row]];
+		s = Alignment.STATUSES[a.statuses[row]];
+		if(a.removed[row])
+		{
+			//The row of a removed Mapping keeps its final values until the
+			//Alignment is compacted
+			a = null;
+			return false;
+		}
+		return true;
+	}
 }
@@ -0,0 +1,154 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Growable buffer of (source, target, similarity) triples stored in primitive *
+* arrays, which parallel matching tasks can fill independently, and which can *
+* then be added to an Alignment in order, so that results are reproducible.   *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.match;
+
+import java.util.Arrays;
+
+public class MappingBuffer
+{
+
+//Attributes
+
+	private int[] sources;
+	private int[] targets;
+	private double[] sims;
+	private int size;
+
+//Constructors
+
+	/**
+	 * Constructs a new empty MappingBuffer
+	 */
+	public MappingBuffer()
+	{
+		this(16);
+	}
+
+	/**
+	 * Constructs a new empty MappingBuffer with the given initial capacity
+	 * @param capacity: the initial capacity of the buffer
+	 */
+	public MappingBuffer(int capacity)
+	{
+		capacity = Math.max(1, capacity);
+		sources = new int[capacity];
+		targets = new int[capacity];
+		sims = new double[capacity];
+		size = 0;
+	}
+
+//Public Methods
+
+	/**
+	 * Adds a new triple to the buffer
+	 * @param sourceId: the index of the source entity
+	 * @param targetId: the index of the target entity
+	 * @param sim: the similarity between the entities
+	 */
+	public void add(int sourceId, int targetId, double sim)
+	{
+		if(size == sources.length)
+		{
+			int capacity = 2 * size;
+			sources = Arrays.copyOf(sources, capacity);
+			targets = Arrays.copyOf(targets, capacity);
+			sims = Arrays.copyOf(sims, capacity);
+		}
+		sources[size] = sourceId;
+		targets[size] = targetId;
+		sims[size] = sim;
+		size++;
+	}
+
+	/**
+	 * Adds all triples in the given buffer to this buffer, after the
+	 * triples already in it
+	 * @param b: the MappingBuffer to add
+	 */
+	public void addAll(MappingBuffer b)
+	{
+		if(size + b.size > sources.length)
+		{
+			int capacity = Math.max(2 * sources.length, size + b.size);
+			sources = Arrays.copyOf(sources, capacity);
+			targets = Arrays.copyOf(targets, capacity);
+			sims = Arrays.copyOf(sims, capacity);
+		}
+		System.arraycopy(b.sources, 0, sources, size, b.size);
+		System.arraycopy(b.targets, 0, targets, size, b.size);
+		System.arraycopy(b.sims, 0, sims, size, b.size);
+		size += b.size;
+	}
+
+	/**
+	 * Adds all triples in the buffer to the given Alignment, in the order
+	 * in which they were added to the buffer
+	 * @param a: the Alignment to add to
+	 */
+	public void addTo(Alignment a)
+	{
+		for(int i = 0; i < size; i++)
+			a.add(sources[i], targets[i], sims[i]);
+	}
+
+	/**
+	 * Empties the buffer (keeping its capacity)
+	 */
+	public void clear()
+	{
+		size = 0;
+	}
+
+	/**
+	 * @param index: the position of the triple in the buffer
+	 * @return the similarity of the triple at the given position
+	 */
+	public double getSimilarity(int index)
+	{
+		return sims[index];
+	}
+
+	/**
+	 * @param index: the position of the triple in the buffer
+	 * @return the source entity of the triple at the given position
+	 */
+	public int getSourceId(int index)
+	{
+		return sources[index];
+	}
+
+	/**
+	 * @param index: the position of the triple in the buffer
+	 * @return the target entity of the triple at the given position
+	 */
+	public int getTargetId(int index)
+	{
+		return targets[index];
+	}
+
+	/**
+	 * @return the number of triples in the buffer
+	 */
+	public int size()
+	{
+		return size;
+	}
+}
\ No newline at end of file
@@ -29,10 +29,11 @@ import aml.ext.LexiconExtender;
 import aml.knowledge.MediatorLexicon;
 import aml.knowledge.MediatorOntology;
 import aml.ontology.Lexicon;
+import aml.ontology.NameDictionary;
 import aml.settings.EntityType;
 import aml.settings.LexicalType;
+import aml.util.IntIntDoubleTable;
 import aml.util.MapSorter;
-import aml.util.Table2Map;
 
 public class MediatingMatcher implements LexiconExtender, PrimaryMatcher
 {
@@ -83,7 +84,7 @@ public class MediatingMatcher implements LexiconExtender, PrimaryMatcher
 		long time = System.currentTimeMillis()/1000;
 		AML aml = AML.getInstance();
 		Lexicon source = aml.getSource().getLexicon();
-		Table2Map<Integer,Integer,Double> maps = match(source,0.0);
+		IntIntDoubleTable maps = match(source,0.0);
 		for(Integer s : maps.keySet())
 		{
 			int hit;
@@ -163,10 +164,10 @@ public class MediatingMatcher implements LexiconExtender, PrimaryMatcher
 		AML aml = AML.getInstance();
 		Lexicon source = aml.getSource().getLexicon();
 		Lexicon target = aml.getTarget().getLexicon();
-		Table2Map<Integer,Integer,Double> src = match(source,thresh);
-		Table2Map<Integer,Integer,Double> tgt = match(target,thresh);
+		IntIntDoubleTable src = match(source,thresh);
+		IntIntDoubleTable tgt = match(target,thresh);
 		//Reverse the target alignment table
-		Table2Map<Integer,Integer,Double> rev = new Table2Map<Integer,Integer,Double>();
+		IntIntDoubleTable rev = new IntIntDoubleTable();
 		for(Integer s : tgt.keySet())
 			for(Integer t : tgt.keySet(s))
 				rev.add(t, s, tgt.get(s, t));
@@ -206,21 +207,23 @@ public class MediatingMatcher implements LexiconExtender, PrimaryMatcher
 			throw new UnsupportedEntityTypeException(e.toString());
 	}
 	
-	protected Table2Map<Integer,Integer,Double> match(Lexicon source, double thresh)
+	protected IntIntDoubleTable match(Lexicon source, double thresh)
 	{
-		Table2Map<Integer,Integer,Double> maps = new Table2Map<Integer,Integer,Double>();
-		for(String s : source.getNames(EntityType.CLASS))
+		IntIntDoubleTable maps = new IntIntDoubleTable();
+		NameDictionary dictionary = source.getNameDictionary();
+		for(int n : source.getNameIds(EntityType.CLASS))
 		{
-			Set<Integer> sourceIndexes = source.getEntities(EntityType.CLASS,s);
+			String s = dictionary.getName(n);
+			int[] sourceIndexes = source.getEntityIds(EntityType.CLASS,n);
 			Set<Integer> targetIndexes = ext.getEntities(s);
 			//If the name doesn't exist in either ontology, skip it
 			if(sourceIndexes == null || targetIndexes == null)
 				continue;
 			//count += sourceIndexes.size()*targetIndexes.size();
 			//Otherwise, match all indexes
-			for(Integer i : sourceIndexes)
+			for(int i : sourceIndexes)
 			{
-				double weight = source.getCorrectedWeight(s, i);
+				double weight = source.getCorrectedWeight(n, i);
 				for(Integer j : targetIndexes)
 				{
 					//Get the weight of the name for the term in the larger lexicon
@@ -27,7 +27,7 @@ import aml.knowledge.MediatorOntology;
 import aml.ontology.Ontology;
 import aml.ontology.ReferenceMap;
 import aml.settings.EntityType;
-import aml.util.Table2Map;
+import aml.util.IntIntDoubleTable;
 
 public class MediatingXRefMatcher extends MediatingMatcher
 {
@@ -44,8 +44,8 @@ public class MediatingXRefMatcher extends MediatingMatcher
 	//The weight used for matching and Lexicon extension
 	private final double WEIGHT = 0.95;
 	//The source and target alignments
-	Table2Map<Integer,Integer,Double> src;
-	Table2Map<Integer,Integer,Double> tgt;
+	IntIntDoubleTable src;
+	IntIntDoubleTable tgt;
 	
 //Constructors
 
@@ -131,7 +131,7 @@ public class MediatingXRefMatcher extends MediatingMatcher
 		src = match(source,thresh);
 		tgt = match(target,thresh);
 		//Reverse the target alignment table
-		Table2Map<Integer,Integer,Double> rev = new Table2Map<Integer,Integer,Double>();
+		IntIntDoubleTable rev = new IntIntDoubleTable();
 		for(Integer s : tgt.keySet())
 			for(Integer t : tgt.keySet(s))
 				rev.add(t, s, tgt.get(s, t));
@@ -157,9 +157,9 @@ public class MediatingXRefMatcher extends MediatingMatcher
 	
 //Private Methods
 	
-	private Table2Map<Integer,Integer,Double> match(Ontology o, double thresh)
+	private IntIntDoubleTable match(Ontology o, double thresh)
 	{
-		Table2Map<Integer,Integer,Double> maps = new Table2Map<Integer,Integer,Double>();
+		IntIntDoubleTable maps = new IntIntDoubleTable();
 		if(rm != null)
 		{
 			Set<String> refs = rm.getReferences();
@@ -181,7 +181,7 @@ public class MediatingXRefMatcher extends MediatingMatcher
 			}
 		}
 		//Step 2 - Do a lexical match
-		Table2Map<Integer,Integer,Double> lex = match(o.getLexicon(),thresh);
+		IntIntDoubleTable lex = match(o.getLexicon(),thresh);
 		
 		//Step 3 - Compare the two
 		//If the coverage of the lexical match is at least double
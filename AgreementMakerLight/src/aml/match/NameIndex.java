@@ -0,0 +1,286 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Inverted index of the character trigrams of a set of names (from a Lexicon  *
+* or a ValueMap) to the entities that have them, which answers which entities *
+* have a name sharing at least a given number of trigrams (or a given Dice    *
+* overlap of trigrams) with a query name, in time proportional to the number  *
+* of postings of the query's trigrams.                                        *
+* By default, names are padded with a space at each end, so that two names    *
+* that share a word (of any length) or a substring of 3 or more characters    *
+* always share a trigram. Thus, a minimum of 1 shared trigram is lossless for *
+* the ISub and the word-based similarity measures.                            *
+* Unpadded names shorter than a trigram can't be indexed, so in the overlap   *
+* query (used for blocking by the StringMatcher) they are candidates for      *
+* every entity. With a minimum overlap of 0, a single shared trigram then     *
+* suffices, and the blocking is lossless for the ISub measure (which only     *
+* counts substrings longer than 2 characters). Higher overlaps trade recall   *
+* for speed.                                                                  *
+* The index can be queried concurrently once it is built.                     *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.match;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.Vector;
+
+import aml.ontology.Lexicon;
+import aml.ontology.ValueMap;
+import aml.settings.EntityType;
+import aml.settings.LexicalType;
+
+public class NameIndex
+{
+
+//Attributes
+
+	//The size of the n-grams
+	private static final int N = 3;
+	//Whether names are padded with a space at each end
+	private boolean padded;
+	//The indexed names, by index
+	private Vector<String> names;
+	//The index of each name
+	private HashMap<String,Integer> nameIds;
+	//The entities of each name (while building, and then compacted)
+	private Vector<Set<Integer>> entityList;
+	private int[][] nameEntities;
+	//The number of distinct n-grams of each name
+	private int[] gramCounts;
+	//The inverted index of n-grams (String) to names (int)
+	private HashMap<String,int[]> index;
+	//The entities with names that have no n-grams
+	private HashSet<Integer> shortEntities;
+	//All indexed entities, which are the candidates of names that have no n-grams
+	private HashSet<Integer> allEntities;
+	//The reusable shared n-gram counters of each thread (one per name)
+	private ThreadLocal<int[]> counts = new ThreadLocal<int[]>()
+	{
+		@Override
+		protected int[] initialValue()
+		{
+			return new int[names.size()];
+		}
+	};
+
+//Constructors
+
+	/**
+	 * Constructs a new NameIndex over the names of the given Lexicon
+	 * @param lex: the Lexicon to index
+	 * @param e: the EntityType to index
+	 */
+	public NameIndex(Lexicon lex, EntityType e)
+	{
+		this(lex, e, true, true);
+	}
+
+	/**
+	 * Constructs a new NameIndex over the names of the given Lexicon
+	 * @param lex: the Lexicon to index
+	 * @param e: the EntityType to index
+	 * @param padded: whether to pad the names with a space at each end
+	 * @param formulas: whether to index formula names
+	 */
+	public NameIndex(Lexicon lex, EntityType e, boolean padded, boolean formulas)
+	{
+		init(padded);
+		for(String n : lex.getNames(e))
+			for(Integer i : lex.getEntities(e, n))
+				if(formulas || !lex.getTypes(n,i).contains(LexicalType.FORMULA))
+					add(n, i);
+		build();
+	}
+
+	/**
+	 * Constructs a new NameIndex over the values of the given individuals in a ValueMap
+	 * @param vMap: the ValueMap to index
+	 * @param individuals: the individuals whose values to index
+	 */
+	public NameIndex(ValueMap vMap, Set<Integer> individuals)
+	{
+		init(true);
+		for(Integer i : individuals)
+			for(Integer p : vMap.getProperties(i))
+				for(String v : vMap.getValues(i, p))
+					add(v, i);
+		build();
+	}
+
+//Public Methods
+
+	/**
+	 * @param name: the name to query
+	 * @param minShared: the minimum number of trigrams shared with the name (at least 1)
+	 * @return the set of entities with an indexed name that shares at least
+	 * minShared trigrams with the given name
+	 */
+	public Set<Integer> getEntities(String name, int minShared)
+	{
+		HashSet<Integer> hits = new HashSet<Integer>();
+		int[] c = counts.get();
+		Vector<Integer> touched = count(nGrams(name), c);
+		for(Integer t : touched)
+		{
+			if(c[t] >= minShared)
+				for(int j : nameEntities[t])
+					hits.add(j);
+			c[t] = 0;
+		}
+		return hits;
+	}
+
+	/**
+	 * @param source: the Lexicon of the entity to query
+	 * @param id: the index of the entity to query
+	 * @param minOverlap: the minimum Dice overlap between the n-grams of a
+	 * (non-formula) name of the entity and an indexed name, in [0.0,1.0]
+	 * @return the set of entities that are candidates for matching with
+	 * the given entity
+	 */
+	public Set<Integer> getCandidates(Lexicon source, int id, double minOverlap)
+	{
+		HashSet<Integer> candidates = new HashSet<Integer>(shortEntities);
+		int[] c = counts.get();
+		for(String s : source.getNames(id))
+		{
+			if(source.getTypes(s,id).contains(LexicalType.FORMULA))
+				continue;
+			Set<String> grams = nGrams(s);
+			if(grams.isEmpty())
+				return new HashSet<Integer>(allEntities);
+			Vector<Integer> touched = count(grams, c);
+			for(Integer t : touched)
+			{
+				double overlap = 2.0 * c[t] / (grams.size() + gramCounts[t]);
+				if(overlap >= minOverlap)
+					for(int j : nameEntities[t])
+						candidates.add(j);
+				c[t] = 0;
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * @return the number of names in this NameIndex
+	 */
+	public int size()
+	{
+		return names.size();
+	}
+
+//Private Methods
+
+	//Initializes the auxiliary data structures
+	private void init(boolean pad)
+	{
+		padded = pad;
+		names = new Vector<String>();
+		nameIds = new HashMap<String,Integer>();
+		entityList = new Vector<Set<Integer>>();
+	}
+
+	//Adds a name of an entity to the auxiliary data structures
+	private void add(String name, int id)
+	{
+		Integer n = nameIds.get(name);
+		if(n == null)
+		{
+			n = names.size();
+			names.add(name);
+			nameIds.put(name, n);
+			entityList.add(new HashSet<Integer>());
+		}
+		entityList.get(n).add(id);
+	}
+
+	//Counts the n-grams each indexed name shares with the given set of n-grams
+	//and returns the list of names that share at least one
+	private Vector<Integer> count(Set<String> grams, int[] c)
+	{
+		Vector<Integer> touched = new Vector<Integer>();
+		for(String g : grams)
+		{
+			int[] ids = index.get(g);
+			if(ids == null)
+				continue;
+			for(int t : ids)
+			{
+				if(c[t] == 0)
+					touched.add(t);
+				c[t]++;
+			}
+		}
+		return touched;
+	}
+	
+	//Builds the inverted index and compacts the entities of each name
+	private void build()
+	{
+		HashMap<String,Vector<Integer>> postings = new HashMap<String,Vector<Integer>>();
+		gramCounts = new int[names.size()];
+		nameEntities = new int[names.size()][];
+		shortEntities = new HashSet<Integer>();
+		allEntities = new HashSet<Integer>();
+		for(int i = 0; i < names.size(); i++)
+		{
+			Set<String> grams = nGrams(names.get(i));
+			gramCounts[i] = grams.size();
+			for(String g : grams)
+			{
+				Vector<Integer> p = postings.get(g);
+				if(p == null)
+				{
+					p = new Vector<Integer>();
+					postings.put(g, p);
+				}
+				p.add(i);
+			}
+			Set<Integer> ents = entityList.get(i);
+			allEntities.addAll(ents);
+			if(grams.isEmpty())
+				shortEntities.addAll(ents);
+			nameEntities[i] = new int[ents.size()];
+			int j = 0;
+			for(Integer e : ents)
+				nameEntities[i][j++] = e;
+		}
+		index = new HashMap<String,int[]>();
+		for(String g : postings.keySet())
+		{
+			Vector<Integer> p = postings.get(g);
+			int[] ids = new int[p.size()];
+			for(int i = 0; i < ids.length; i++)
+				ids[i] = p.get(i);
+			index.put(g, ids);
+		}
+		entityList = null;
+		nameIds = null;
+	}
+
+	//Gets the set of n-grams of a name (padded with a space at each end, if set)
+	private Set<String> nGrams(String name)
+	{
+		if(padded)
+			name = " " + name + " ";
+		HashSet<String> grams = new HashSet<String>();
+		for(int i = 0; i + N <= name.length(); i++)
+			grams.add(name.substring(i, i + N));
+		return grams;
+	}
+}
\ No newline at end of file
@@ -19,19 +19,14 @@
 ******************************************************************************/
 package aml.match;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
 import aml.AML;
 import aml.ontology.RelationshipMap;
 import aml.settings.EntityType;
 import aml.settings.NeighborSimilarityStrategy;
-import aml.util.Table2Set;
+import aml.util.IntTable2Set;
+import aml.util.PairFunction;
 
 public class NeighborSimilarityMatcher implements SecondaryMatcher, Rematcher
 {
@@ -49,8 +44,6 @@ public class NeighborSimilarityMatcher implements SecondaryMatcher, Rematcher
 	private Alignment input;
 	private NeighborSimilarityStrategy strat;
 	private boolean direct;
-	//The available CPU threads
-	private int threads;
 	
 //Constructors
 	
@@ -60,7 +53,6 @@ public class NeighborSimilarityMatcher implements SecondaryMatcher, Rematcher
 		rels = aml.getRelationshipMap();
 		strat = NeighborSimilarityStrategy.MINIMUM;
 		direct = aml.directNeighbors();
-		threads = Runtime.getRuntime().availableProcessors();
 	}
 	
 	public NeighborSimilarityMatcher(NeighborSimilarityStrategy s, boolean direct)
@@ -79,7 +71,7 @@ public class NeighborSimilarityMatcher implements SecondaryMatcher, Rematcher
 		System.out.println("Extending Alignment with Neighbor Similarity Matcher");
 		long time = System.currentTimeMillis()/1000;
 		input = a;
-		Table2Set<Integer,Integer> toMap = new Table2Set<Integer,Integer>();
+		IntTable2Set toMap = new IntTable2Set();
 		for(int i = 0; i < input.size(); i++)
 		{
 			Mapping m = input.get(i);
@@ -144,7 +136,7 @@ public class NeighborSimilarityMatcher implements SecondaryMatcher, Rematcher
 		long time = System.currentTimeMillis()/1000;
 		input = a;
 		Alignment maps = new Alignment();
-		Table2Set<Integer,Integer> toMap = new Table2Set<Integer,Integer>();
+		IntTable2Set toMap = new IntTable2Set();
 		for(Mapping m : a)
 		{
 			int sId = m.getSourceId();
@@ -179,40 +171,17 @@ public class NeighborSimilarityMatcher implements SecondaryMatcher, Rematcher
 			throw new UnsupportedEntityTypeException(e.toString());
 	}
 	
-	//Maps a table of classes in parallel, using all available threads
-	private Alignment mapInParallel(Table2Set<Integer,Integer> toMap, double thresh)
+	//Maps a table of classes in parallel, using the shared ParallelExecutor
+	private Alignment mapInParallel(IntTable2Set toMap, final double thresh)
 	{
-		Alignment maps = new Alignment();
-		ArrayList<MappingTask> tasks = new ArrayList<MappingTask>();
-		for(Integer i : toMap.keySet())
-			for(Integer j : toMap.get(i))
-				tasks.add(new MappingTask(i,j));
-        List<Future<Mapping>> results;
-		ExecutorService exec = Executors.newFixedThreadPool(threads);
-		try
-		{
-			results = exec.invokeAll(tasks);
-		}
-		catch (InterruptedException e)
+		return aml.getExecutor().map(toMap, new PairFunction()
 		{
-			e.printStackTrace();
-	        results = new ArrayList<Future<Mapping>>();
-		}
-		exec.shutdown();
-		for(Future<Mapping> fm : results)
-		{
-			try
-			{
-				Mapping m = fm.get();
-				if(m.getSimilarity() >= thresh)
-					maps.add(m);
-			}
-			catch(Exception e)
+			@Override
+			public double compute(int sourceId, int targetId)
 			{
-				e.printStackTrace();
+				return mapTwoTerms(sourceId,targetId);
 			}
-		}
-		return maps;
+		}, thresh);
 	}
 	
 	//Computes the neighbor structural similarity between two terms by
@@ -264,23 +233,4 @@ public class NeighborSimilarityMatcher implements SecondaryMatcher, Rematcher
 		else
 			return (parentSim + childrenSim)*0.5;
 	}
-	
-	//Callable class for mapping two classes
-	private class MappingTask implements Callable<Mapping>
-	{
-		private int source;
-		private int target;
-		
-		MappingTask(int s, int t)
-	    {
-			source = s;
-	        target = t;
-	    }
-	        
-	    @Override
-	    public Mapping call()
-	    {
-       		return new Mapping(source,target,mapTwoTerms(source,target));
-        }
-	}
 }
\ No newline at end of file
@@ -140,7 +140,9 @@ public class ProcessMatcher implements PrimaryMatcher
 			n1S = n1S.replace(s, "").trim();
 			n2S = n2S.replace(s, "").trim();
 		}
-		stringSim = Math.max(stringSim, ISub.stringSimilarity(n1S,n2S)*0.95);
+		//(which we only need to compute fully if it can exceed the former)
+		double min = Math.max(stringSim/0.95 - 0.000001, 0.0);
+		stringSim = Math.max(stringSim, ISub.stringSimilarity(n1S,n2S,min)*0.95);
 		stringSim *= 0.8;
 		
 		//Compute the Word similarity (ignoring stop words)
@@ -22,6 +22,7 @@ package aml.match;
 
 import aml.AML;
 import aml.ontology.Lexicon;
+import aml.ontology.NameDictionary;
 import aml.settings.EntityType;
 import aml.settings.InstanceMatchingCategory;
 import aml.util.Table2Set;
@@ -72,13 +73,14 @@ public class SpacelessLexicalMatcher implements PrimaryMatcher
 		AML aml = AML.getInstance();
 		Lexicon sLex = aml.getSource().getLexicon();
 		Lexicon tLex = aml.getTarget().getLexicon();
-		//Create spaceless lexicons
-		Table2Set<String,String> sourceConv = new Table2Set<String,String>();
-		for(String n : sLex.getNames(e))
-			sourceConv.add(n.replace(" ", ""), n);
-		Table2Set<String,String> targetConv = new Table2Set<String,String>();
-		for(String n : tLex.getNames(e))
-			targetConv.add(n.replace(" ", ""), n);
+		NameDictionary dictionary = sLex.getNameDictionary();
+		//Create spaceless lexicons, mapping to the ids of the original names
+		Table2Set<String,Integer> sourceConv = new Table2Set<String,Integer>();
+		for(int n : sLex.getNameIds(e))
+			sourceConv.add(dictionary.getName(n).replace(" ", ""), n);
+		Table2Set<String,Integer> targetConv = new Table2Set<String,Integer>();
+		for(int n : tLex.getNameIds(e))
+			targetConv.add(dictionary.getName(n).replace(" ", ""), n);
 		
 		//Initialize the alignment
 		Alignment maps = new Alignment();
@@ -86,16 +88,16 @@ public class SpacelessLexicalMatcher implements PrimaryMatcher
 		{
 			if(!targetConv.contains(c))
 				continue;
-			for(String s : sourceConv.get(c))
+			for(Integer s : sourceConv.get(c))
 			{
-				for(Integer i : sLex.getEntities(e,s))
+				for(int i : sLex.getEntityIds(e,s))
 				{
 					if(e.equals(EntityType.INDIVIDUAL) && !aml.isToMatchSource(i))
 						continue;
 					double weight = sLex.getCorrectedWeight(s, i) * WEIGHT;
-					for(String t : targetConv.get(c))
+					for(Integer t : targetConv.get(c))
 					{
-						for(Integer j : tLex.getEntities(e,t))
+						for(int j : tLex.getEntityIds(e,t))
 						{
 							if(e.equals(EntityType.INDIVIDUAL) && (!aml.isToMatchTarget(j) ||
 									(aml.getInstanceMatchingCategory().equals(InstanceMatchingCategory.SAME_CLASSES) &&
@@ -13,26 +13,19 @@
 *                                                                             *
 *******************************************************************************
 * Matches Ontologies by measuring the maximum String similarity between their *
-* classes, using one of the four available String similarity measures.        *
+* classes, using one of the available String similarity kernels.              *
 *                                                                             *
-* WARNING: This matching algorithm takes O(N^2) time, and thus should be used *
-* either to match small ontologies or as a SecondaryMatcher.                  *
+* WARNING: Without blocking, this matching algorithm takes O(N^2) time, and   *
+* thus should be used either to match small ontologies or as a                *
+* SecondaryMatcher. With blocking, only the target entities that share name   *
+* trigrams with each source entity are compared (see NameIndex).              *
 *                                                                             *
 * @authors Daniel Faria, Cosmin Stroe                                         *
 ******************************************************************************/
 package aml.match;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
-import uk.ac.shef.wit.simmetrics.similaritymetrics.JaroWinkler;
-import uk.ac.shef.wit.simmetrics.similaritymetrics.Levenshtein;
-import uk.ac.shef.wit.simmetrics.similaritymetrics.QGramsDistance;
 import aml.AML;
 import aml.ontology.Ontology;
 import aml.ontology.Lexicon;
@@ -40,10 +33,11 @@ import aml.ontology.RelationshipMap;
 import aml.settings.EntityType;
 import aml.settings.InstanceMatchingCategory;
 import aml.settings.LanguageSetting;
-import aml.settings.LexicalType;
 import aml.settings.StringSimMeasure;
-import aml.util.ISub;
-import aml.util.Table2Set;
+import aml.util.IntTable2Set;
+import aml.util.PairFunction;
+import aml.util.SimilarityKernel;
+import aml.util.SimilarityKernels;
 
 public class StringMatcher implements PrimaryMatcher, Rematcher, SecondaryMatcher
 {
@@ -65,12 +59,15 @@ public class StringMatcher implements PrimaryMatcher, Rematcher, SecondaryMatche
 	private LanguageSetting lSet;
 	private Set<String> languages;
 	//Similarity measure
-	private StringSimMeasure measure = StringSimMeasure.ISUB;
+	private SimilarityKernel kernel = SimilarityKernels.get(StringSimMeasure.ISUB);
 	//Correction factor (to make string similarity values comparable to word similarity values
 	//and thus enable their combination and proper selection; 0.8 is optimized for the ISub measure)
 	private final double CORRECTION = 0.80;
-	//The available CPU threads
-	private int threads;
+	//The minimum n-gram overlap for candidate pairs in match mode (negative to disable blocking)
+	private double blocking;
+	//The compiled views of the source and target Lexicons for the current run
+	private CompiledLexicon sComp;
+	private CompiledLexicon tComp;
 
 //Constructors
 	
@@ -80,7 +77,6 @@ public class StringMatcher implements PrimaryMatcher, Rematcher, SecondaryMatche
 	 */
 	public StringMatcher()
 	{
-		threads = Runtime.getRuntime().availableProcessors();
 		aml = AML.getInstance();
 		source = aml.getSource();
 		target = aml.getTarget();
@@ -88,6 +84,7 @@ public class StringMatcher implements PrimaryMatcher, Rematcher, SecondaryMatche
 		tLex = target.getLexicon();
 		lSet = AML.getInstance().getLanguageSetting();
 		languages = aml.getLanguages();
+		blocking = aml.getStringBlocking();
 	}
 
 	/**
@@ -97,7 +94,31 @@ public class StringMatcher implements PrimaryMatcher, Rematcher, SecondaryMatche
 	public StringMatcher(StringSimMeasure m)
 	{
 		this();
-		measure = m;
+		kernel = SimilarityKernels.get(m);
+	}
+	
+	/**
+	 * Constructs a new ParametricStringMatcher with the given String similarity kernel
+	 * (e.g., one registered in SimilarityKernels)
+	 * @args k: the string similarity kernel
+	 */
+	public StringMatcher(SimilarityKernel k)
+	{
+		this();
+		kernel = k;
+	}
+	
+	/**
+	 * Constructs a new ParametricStringMatcher with the given String similarity measure
+	 * and blocking level
+	 * @args m: the string similarity measure
+	 * @args overlap: the minimum n-gram overlap between the names of candidate entities
+	 * in match mode, in [0.0,1.0] (0.0 is lossless for ISub) or negative to disable blocking
+	 */
+	public StringMatcher(StringSimMeasure m, double overlap)
+	{
+		this(m);
+		blocking = overlap;
 	}
 
 //Public Methods
@@ -126,6 +147,7 @@ public class StringMatcher implements PrimaryMatcher, Rematcher, SecondaryMatche
 		checkEntityType(e);
 		System.out.println("Extending Alignment with String Matcher");
 		long time = System.currentTimeMillis()/1000;
+		compileLexicons();
 		Alignment ext;
 		if(e.equals(EntityType.CLASS))
 		{
@@ -160,14 +182,23 @@ public class StringMatcher implements PrimaryMatcher, Rematcher, SecondaryMatche
 		checkEntityType(e);
 		System.out.println("Running String Matcher");
 		long time = System.currentTimeMillis()/1000;
+		compileLexicons();
 		Set<Integer> sources = sLex.getEntities(e);
 		Set<Integer> targets = tLex.getEntities(e);
+		NameIndex index = null;
+		if(blocking >= 0)
+			index = new NameIndex(tLex, e, false, false);
 		Alignment a = new Alignment();
+		//Candidate pairs are accumulated across source entities and
+		//flushed to the executor whenever they fill a block
+		int block = aml.getExecutor().getBlockSize();
+		IntTable2Set toMap = new IntTable2Set();
 		for(Integer i : sources)
 		{
 			if(e.equals(EntityType.INDIVIDUAL) && !aml.isToMatchSource(i))
 				continue;
-			Table2Set<Integer,Integer> toMap = new Table2Set<Integer,Integer>();
+			if(index != null)
+				targets = index.getCandidates(sLex, i, blocking);
 			for(Integer j : targets)
 			{
 				if(e.equals(EntityType.INDIVIDUAL) && (!aml.isToMatchTarget(j) ||
@@ -176,8 +207,13 @@ public class StringMatcher implements PrimaryMatcher, Rematcher, SecondaryMatche
 					continue;
 				toMap.add(i,j);
 			}
-			a.addAll(mapInParallel(toMap,thresh));
+			if(toMap.size() >= block)
+			{
+				mapInParallel(toMap,thresh,a);
+				toMap = new IntTable2Set();
+			}
 		}
+		mapInParallel(toMap,thresh,a);
 		time = System.currentTimeMillis()/1000 - time;
 		System.out.println("Finished in " + time + " seconds");
 		return a;
@@ -189,8 +225,9 @@ public class StringMatcher implements PrimaryMatcher, Rematcher, SecondaryMatche
 		checkEntityType(e);
 		System.out.println("Computing String Similarity");
 		long time = System.currentTimeMillis()/1000;
+		compileLexicons();
 		Alignment maps = new Alignment();
-		Table2Set<Integer,Integer> toMap = new Table2Set<Integer,Integer>();
+		IntTable2Set toMap = new IntTable2Set();
 		for(Mapping m : a)
 		{
 			if(aml.getURIMap().getType(m.getSourceId()).equals(e))
@@ -219,10 +256,20 @@ public class StringMatcher implements PrimaryMatcher, Rematcher, SecondaryMatche
 			throw new UnsupportedEntityTypeException(e.toString());
 	}
 	
+	//Builds fresh compiled views of the Lexicons (which may have changed since the last run)
+	private void compileLexicons()
+	{
+		Set<String> langs = null;
+		if(lSet.equals(LanguageSetting.MULTI))
+			langs = languages;
+		sComp = new CompiledLexicon(sLex, langs);
+		tComp = new CompiledLexicon(tLex, langs);
+	}
+	
 	private Alignment extendChildrenAndParents(Alignment a, double thresh)
 	{
 		RelationshipMap rels = aml.getRelationshipMap();
-		Table2Set<Integer,Integer> toMap = new Table2Set<Integer,Integer>();
+		IntTable2Set toMap = new IntTable2Set();
 		for(int i = 0; i < a.size(); i++)
 		{
 			Mapping input = a.get(i);
@@ -259,7 +306,7 @@ public class StringMatcher implements PrimaryMatcher, Rematcher, SecondaryMatche
 	private Alignment extendSiblings(Alignment a, double thresh)
 	{		
 		RelationshipMap rels = aml.getRelationshipMap();
-		Table2Set<Integer,Integer> toMap = new Table2Set<Integer,Integer>();
+		IntTable2Set toMap = new IntTable2Set();
 		for(int i = 0; i < a.size(); i++)
 		{
 			Mapping input = a.get(i);
@@ -283,143 +330,80 @@ public class StringMatcher implements PrimaryMatcher, Rematcher, SecondaryMatche
 		return mapInParallel(toMap,thresh);
 	}
 	
-	//Maps a table of classes in parallel, using all available threads
-	private Alignment mapInParallel(Table2Set<Integer,Integer> toMap, double thresh)
+	//Maps a table of classes in parallel, using the shared ParallelExecutor
+	private Alignment mapInParallel(IntTable2Set toMap, double thresh)
 	{
 		Alignment maps = new Alignment();
-		ArrayList<MappingTask> tasks = new ArrayList<MappingTask>();
-		for(Integer i : toMap.keySet())
-			for(Integer j : toMap.get(i))
-				tasks.add(new MappingTask(i,j));
-        List<Future<Mapping>> results;
-		ExecutorService exec = Executors.newFixedThreadPool(threads);
-		try
-		{
-			results = exec.invokeAll(tasks);
-		}
-		catch (InterruptedException e)
-		{
-			e.printStackTrace();
-	        results = new ArrayList<Future<Mapping>>();
-		}
-		exec.shutdown();
-		for(Future<Mapping> fm : results)
+		mapInParallel(toMap,thresh,maps);
+		return maps;
+	}
+	
+	//Maps a table of classes in parallel, adding the results to the given Alignment
+	private void mapInParallel(IntTable2Set toMap, final double thresh, Alignment a)
+	{
+		aml.getExecutor().map(toMap, new PairFunction()
 		{
-			try
+			@Override
+			public double compute(int sourceId, int targetId)
 			{
-				Mapping m = fm.get();
-				if(m.getSimilarity() >= thresh)
-					maps.add(m);
+				return mapTwoEntities(sourceId,targetId,thresh);
 			}
-			catch(Exception e)
-			{
-				e.printStackTrace();
-			}
-		}
-		return maps;
+		}, thresh, a);
 	}
 	
 	//Computes the maximum String similarity between two Classes by doing a
-	//pairwise comparison of all their names
-	private double mapTwoEntities(int sId, int tId)
+	//pairwise comparison of all their names, scoring each source name against
+	//all target names in the same language in a single batch
+	private double mapTwoEntities(int sId, int tId, double thresh)
 	{
 		double maxSim = 0.0;
 		double sim, weight;
 		
-		if(lSet.equals(LanguageSetting.MULTI))
+		CompiledLexicon.Entry sEntry = sComp.get(sId);
+		CompiledLexicon.Entry tEntry = tComp.get(tId);
+		String[] sourceNames = sEntry.getNames();
+		String[] targetNames = tEntry.getNames();
+		double[] sourceWeights = sEntry.getWeights();
+		double[] targetWeights = tEntry.getWeights();
+		int[] sourceLangs = sEntry.getLanguages();
+		int[] targetLangs = tEntry.getLanguages();
+		double[] sims = new double[targetNames.length];
+		for(int i = 0; i < sourceNames.length; i++)
 		{
-			for(String l : languages)
+			weight = sourceWeights[i];
+			//The compiled names are grouped by language, so the target
+			//names in the language of the source name are contiguous
+			int from = 0;
+			while(from < targetNames.length && targetLangs[from] != sourceLangs[i])
+				from++;
+			int to = from;
+			double maxWeight = 0.0;
+			while(to < targetNames.length && targetLangs[to] == sourceLangs[i])
+				maxWeight = Math.max(maxWeight, targetWeights[to++]);
+			if(from == to)
+				continue;
+			//Names that can't reach the threshold or the current maximum
+			//with the highest target weight need not be fully scored
+			double min = minSimilarity(Math.max(thresh,maxSim), weight * maxWeight);
+			kernel.similarity(sourceNames[i], targetNames, from, to, min, sims);
+			for(int j = from; j < to; j++)
 			{
-				Set<String> sourceNames = sLex.getNamesWithLanguage(sId,l);
-				Set<String> targetNames = tLex.getNamesWithLanguage(tId,l);
-				if(sourceNames == null || targetNames == null)
-					continue;
-			
-				for(String s : sourceNames)
-				{
-					if(sLex.getTypes(s,sId).contains(LexicalType.FORMULA))
-						continue;
-					weight = sLex.getCorrectedWeight(s, sId, l);
-					
-					for(String t : targetNames)
-					{
-						if(tLex.getTypes(t,tId).contains(LexicalType.FORMULA))
-							continue;
-						sim = weight * tLex.getCorrectedWeight(t, tId, l);
-						sim *= stringSimilarity(s,t);
-						if(sim > maxSim)
-							maxSim = sim;
-					}
-				}
-			}
-		}
-		else
-		{
-			Set<String> sourceNames = sLex.getNames(sId);
-			Set<String> targetNames = tLex.getNames(tId);
-			if(sourceNames == null || targetNames == null)
-				return maxSim;
-			for(String s : sourceNames)
-			{
-				if(sLex.getTypes(s,sId).contains(LexicalType.FORMULA))
-					continue;
-				weight = sLex.getCorrectedWeight(s, sId);
-				
-				for(String t : targetNames)
-				{
-					if(tLex.getTypes(t,tId).contains(LexicalType.FORMULA))
-						continue;
-					sim = weight * tLex.getCorrectedWeight(t, tId);
-					sim *= stringSimilarity(s,t);
-					if(sim > maxSim)
-						maxSim = sim;
-				}
+				sim = weight * targetWeights[j];
+				sim *= sims[j] * CORRECTION;
+				if(sim > maxSim)
+					maxSim = sim;
 			}
 		}
 		return maxSim;
 	}
 	
-	// Computes the string the similarity between two Strings
-	private double stringSimilarity(String s, String t)
+	//Computes the minimum (uncorrected) String similarity two names with
+	//the given combined weight need to reach the given bound, minus a small
+	//margin so that rounding errors never exclude a valid pair
+	private double minSimilarity(double bound, double weight)
 	{
-		double sim = 0.0;
-		if(measure.equals(StringSimMeasure.ISUB))
-			sim = ISub.stringSimilarity(s,t);
-		else if(measure.equals(StringSimMeasure.EDIT))
-		{
-			Levenshtein lv = new Levenshtein();
-			sim = lv.getSimilarity(s, t);
-		}
-		else if(measure.equals(StringSimMeasure.JW))
-		{
-			JaroWinkler jv = new JaroWinkler();
-			sim = jv.getSimilarity(s, t);
-		}
-		else if(measure.equals(StringSimMeasure.QGRAM))
-		{
-			QGramsDistance q = new QGramsDistance();
-			sim = q.getSimilarity(s, t);
-		}
-		sim *= CORRECTION;
-		return sim;
-	}
-	
-	//Callable class for mapping two classes
-	private class MappingTask implements Callable<Mapping>
-	{
-		private int source;
-		private int target;
-		
-		MappingTask(int s, int t)
-	    {
-			source = s;
-	        target = t;
-	    }
-	        
-	    @Override
-	    public Mapping call()
-	    {
-       		return new Mapping(source,target,mapTwoEntities(source,target));
-        }
+		if(bound <= 0 || weight <= 0)
+			return 0.0;
+		return bound / (weight * CORRECTION) - 0.000001;
 	}
 }
\ No newline at end of file
@@ -20,13 +20,8 @@
 ******************************************************************************/
 package aml.match;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
 import aml.AML;
 import aml.match.Alignment;
@@ -36,8 +31,9 @@ import aml.ontology.Ontology;
 import aml.ontology.ValueMap;
 import aml.settings.EntityType;
 import aml.settings.InstanceMatchingCategory;
+import aml.util.IntTable2Set;
 import aml.util.NameSimilarity;
-import aml.util.Table2Set;
+import aml.util.PairFunction;
 
 public class Value2LexiconMatcher implements PrimaryMatcher, Rematcher
 {
@@ -58,14 +54,14 @@ public class Value2LexiconMatcher implements PrimaryMatcher, Rematcher
 	private ValueMap sVal;
 	private ValueMap tVal;
 	private NameSimilarity ns = null;
-	//The available CPU threads
-	private int threads;
+	private boolean useWordNet;
 	
 //Constructors
 	
 	public Value2LexiconMatcher(boolean useWordNet)
 	{
 		ns = new NameSimilarity(useWordNet);
+		this.useWordNet = useWordNet;
 		aml = AML.getInstance();
 		source = aml.getSource();
 		target = aml.getTarget();
@@ -73,7 +69,6 @@ public class Value2LexiconMatcher implements PrimaryMatcher, Rematcher
 		tLex = target.getLexicon();
 		sVal = source.getValueMap();
 		tVal = target.getValueMap();
-		threads = Runtime.getRuntime().availableProcessors();
 	}
 	
 //Public Methods
@@ -102,15 +97,37 @@ public class Value2LexiconMatcher implements PrimaryMatcher, Rematcher
 		checkEntityType(e);
 		System.out.println("Running Value-to-Lexicon Matcher");
 		long time = System.currentTimeMillis()/1000;
-		Set<Integer> sources = sLex.getEntities(e);
+		Set<Integer> sources = new HashSet<Integer>(sLex.getEntities(e));
 		sources.retainAll(aml.getSourceIndividualsToMatch());
-		Set<Integer> targets = tLex.getEntities(e);
+		Set<Integer> targets = new HashSet<Integer>(tLex.getEntities(e));
 		targets.retainAll(aml.getTargetIndividualsToMatch());
+		//Without WordNet, only names and values that share a word or a trigram
+		//can be similar, so we can index the target values and names to find them
+		NameIndex valueIndex = null;
+		NameIndex nameIndex = null;
+		if(!useWordNet && thresh > 0)
+		{
+			valueIndex = new NameIndex(tVal, targets);
+			nameIndex = new NameIndex(tLex, e);
+		}
 		Alignment a = new Alignment();
 		for(Integer i : sources)
 		{
-			Table2Set<Integer,Integer> toMap = new Table2Set<Integer,Integer>();
-			for(Integer j : targets)
+			IntTable2Set toMap = new IntTable2Set();
+			Set<Integer> candidates = targets;
+			if(valueIndex != null)
+			{
+				candidates = new HashSet<Integer>();
+				for(String n : sLex.getNames(i))
+					if(n.length() > 2)
+						candidates.addAll(valueIndex.getEntities(n, 1));
+				for(Integer sd : sVal.getProperties(i))
+					for(String sv : sVal.getValues(i,sd))
+						if(sv.length() > 2)
+							candidates.addAll(nameIndex.getEntities(sv, 1));
+				candidates.retainAll(targets);
+			}
+			for(Integer j : candidates)
 			{
 				if(aml.getInstanceMatchingCategory().equals(InstanceMatchingCategory.SAME_CLASSES) &&
 						!aml.getRelationshipMap().shareClass(i,j))
@@ -131,7 +148,7 @@ public class Value2LexiconMatcher implements PrimaryMatcher, Rematcher
 		System.out.println("Computing Value-To-Lexicon Similarity");
 		long time = System.currentTimeMillis()/1000;
 		Alignment maps = new Alignment();
-		Table2Set<Integer,Integer> toMap = new Table2Set<Integer,Integer>();
+		IntTable2Set toMap = new IntTable2Set();
 		for(Mapping m : a)
 		{
 			if(aml.getURIMap().getType(m.getSourceId()).equals(e))
@@ -160,40 +177,17 @@ public class Value2LexiconMatcher implements PrimaryMatcher, Rematcher
 			throw new UnsupportedEntityTypeException(e.toString());
 	}
 	
-	//Maps a table of classes in parallel, using all available threads
-	private Alignment mapInParallel(Table2Set<Integer,Integer> toMap, double thresh)
+	//Maps a table of classes in parallel, using the shared ParallelExecutor
+	private Alignment mapInParallel(IntTable2Set toMap, final double thresh)
 	{
-		Alignment maps = new Alignment();
-		ArrayList<MappingTask> tasks = new ArrayList<MappingTask>();
-		for(Integer i : toMap.keySet())
-			for(Integer j : toMap.get(i))
-				tasks.add(new MappingTask(i,j,thresh));
-        List<Future<Mapping>> results;
-		ExecutorService exec = Executors.newFixedThreadPool(threads);
-		try
-		{
-			results = exec.invokeAll(tasks);
-		}
-		catch (InterruptedException e)
-		{
-			e.printStackTrace();
-	        results = new ArrayList<Future<Mapping>>();
-		}
-		exec.shutdown();
-		for(Future<Mapping> fm : results)
+		return aml.getExecutor().map(toMap, new PairFunction()
 		{
-			try
+			@Override
+			public double compute(int sourceId, int targetId)
 			{
-				Mapping m = fm.get();
-				if(m.getSimilarity() >= thresh)
-					maps.add(m);
+				return mapTwoEntities(sourceId,targetId,thresh);
 			}
-			catch(Exception e)
-			{
-				e.printStackTrace();
-			}
-		}
-		return maps;
+		}, thresh);
 	}
 	
 	//Computes the maximum String similarity between two Classes by doing a
@@ -211,25 +205,4 @@ public class Value2LexiconMatcher implements PrimaryMatcher, Rematcher
 					crossSim = Math.max(crossSim,ns.nameSimilarity(n2,sv,thresh));
 		return crossSim;
 	}
-	
-	//Callable class for mapping two classes
-	private class MappingTask implements Callable<Mapping>
-	{
-		private int source;
-		private int target;
-		private double threshold;
-		
-		MappingTask(int s, int t, double thresh)
-	    {
-			source = s;
-	        target = t;
-	        threshold = thresh;
-	    }
-	        
-	    @Override
-	    public Mapping call()
-	    {
-       		return new Mapping(source,target,mapTwoEntities(source,target,threshold));
-        }
-	}
 }
\ No newline at end of file
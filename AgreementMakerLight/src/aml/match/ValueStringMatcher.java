@@ -19,13 +19,7 @@
 ******************************************************************************/
 package aml.match;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
 import aml.AML;
 import aml.match.Alignment;
@@ -34,8 +28,9 @@ import aml.ontology.Ontology;
 import aml.ontology.ValueMap;
 import aml.settings.EntityType;
 import aml.settings.InstanceMatchingCategory;
+import aml.util.IntTable2Set;
 import aml.util.NameSimilarity;
-import aml.util.Table2Set;
+import aml.util.PairFunction;
 
 public class ValueStringMatcher implements PrimaryMatcher, Rematcher
 {
@@ -52,8 +47,6 @@ public class ValueStringMatcher implements PrimaryMatcher, Rematcher
 	private ValueMap sVal;
 	private ValueMap tVal;
 	private NameSimilarity ns = null;
-	//The available CPU threads
-	private int threads;
 	
 //Constructors
 	
@@ -65,7 +58,6 @@ public class ValueStringMatcher implements PrimaryMatcher, Rematcher
 		target = aml.getTarget();
 		sVal = source.getValueMap();
 		tVal = target.getValueMap();
-		threads = Runtime.getRuntime().availableProcessors();
 	}
 	
 //Public Methods
@@ -101,7 +93,7 @@ public class ValueStringMatcher implements PrimaryMatcher, Rematcher
 		Alignment a = new Alignment();
 		for(Integer i : sources)
 		{
-			Table2Set<Integer,Integer> toMap = new Table2Set<Integer,Integer>();
+			IntTable2Set toMap = new IntTable2Set();
 			for(Integer j : targets)
 			{
 				if(aml.getInstanceMatchingCategory().equals(InstanceMatchingCategory.SAME_CLASSES) &&
@@ -123,7 +115,7 @@ public class ValueStringMatcher implements PrimaryMatcher, Rematcher
 		System.out.println("Computing Value String Similarity");
 		long time = System.currentTimeMillis()/1000;
 		Alignment maps = new Alignment();
-		Table2Set<Integer,Integer> toMap = new Table2Set<Integer,Integer>();
+		IntTable2Set toMap = new IntTable2Set();
 		for(Mapping m : a)
 		{
 			if(aml.getURIMap().getType(m.getSourceId()).equals(e))
@@ -152,40 +144,17 @@ public class ValueStringMatcher implements PrimaryMatcher, Rematcher
 			throw new UnsupportedEntityTypeException(e.toString());
 	}
 	
-	//Maps a table of classes in parallel, using all available threads
-	private Alignment mapInParallel(Table2Set<Integer,Integer> toMap, double thresh)
+	//Maps a table of classes in parallel, using the shared ParallelExecutor
+	private Alignment mapInParallel(IntTable2Set toMap, final double thresh)
 	{
-		Alignment maps = new Alignment();
-		ArrayList<MappingTask> tasks = new ArrayList<MappingTask>();
-		for(Integer i : toMap.keySet())
-			for(Integer j : toMap.get(i))
-				tasks.add(new MappingTask(i,j,thresh));
-        List<Future<Mapping>> results;
-		ExecutorService exec = Executors.newFixedThreadPool(threads);
-		try
-		{
-			results = exec.invokeAll(tasks);
-		}
-		catch (InterruptedException e)
+		return aml.getExecutor().map(toMap, new PairFunction()
 		{
-			e.printStackTrace();
-	        results = new ArrayList<Future<Mapping>>();
-		}
-		exec.shutdown();
-		for(Future<Mapping> fm : results)
-		{
-			try
-			{
-				Mapping m = fm.get();
-				if(m.getSimilarity() >= thresh)
-					maps.add(m);
-			}
-			catch(Exception e)
+			@Override
+			public double compute(int sourceId, int targetId)
 			{
-				e.printStackTrace();
+				return mapTwoEntities(sourceId,targetId,thresh);
 			}
-		}
-		return maps;
+		}, thresh);
 	}
 	
 	//Computes the maximum String similarity between two Classes by doing a
@@ -207,25 +176,4 @@ public class ValueStringMatcher implements PrimaryMatcher, Rematcher
 		}
 		return dataSim;
 	}
-	
-	//Callable class for mapping two classes
-	private class MappingTask implements Callable<Mapping>
-	{
-		private int source;
-		private int target;
-		private double threshold;
-		
-		MappingTask(int s, int t, double thresh)
-	    {
-			source = s;
-	        target = t;
-	        threshold = thresh;
-	    }
-	        
-	    @Override
-	    public Mapping call()
-	    {
-       		return new Mapping(source,target,mapTwoEntities(source,target,threshold));
-        }
-	}
 }
\ No newline at end of file
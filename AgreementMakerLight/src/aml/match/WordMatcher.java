@@ -25,10 +25,8 @@ import java.util.Vector;
 import aml.AML;
 import aml.ontology.WordLexicon;
 import aml.settings.EntityType;
-import aml.settings.InstanceMatchingCategory;
 import aml.settings.WordMatchStrategy;
-import aml.util.Table2Map;
-import aml.util.Table2Set;
+import aml.util.IndexFunction;
 
 public class WordMatcher implements PrimaryMatcher, Rematcher
 {
@@ -41,6 +39,8 @@ public class WordMatcher implements PrimaryMatcher, Rematcher
 			  								  "by entry, or combined";
 	private static final String NAME = "Word Matcher";
 	private static final EntityType[] SUPPORT = {EntityType.CLASS,EntityType.INDIVIDUAL,EntityType.DATA,EntityType.OBJECT};
+	//The minimum number of mappings updated by each task
+	private static final int MIN_CHUNK = 1000;
 	private WordLexicon sourceLex;
 	private WordLexicon targetLex;
 	private WordMatchStrategy strategy = WordMatchStrategy.AVERAGE;
@@ -134,46 +134,30 @@ public class WordMatcher implements PrimaryMatcher, Rematcher
 			t = thresh;
 		else
 			t = thresh * 0.5;
-		//Global matching is done by chunks so as not to overload the memory
-		System.out.println("Blocks to match: " + sourceLex.blockCount() +
-				"x" + targetLex.blockCount());
-		//Match each chunk of both WordLexicons
-		for(int i = 0; i < sourceLex.blockCount(); i++)
+		//The word similarity is computed globally as a sparse matrix product
+		final MappingBuffer temp = new WordMatrixProduct(sourceLex,targetLex).multiply(t);
+		//If the strategy is BY_CLASS, just add the alignment
+		if(strategy.equals(WordMatchStrategy.BY_CLASS))
+			temp.addTo(a);
+		//Otherwise, update the similarities according to the strategy, in
+		//parallel chunks that are then added to the alignment in order
+		else
 		{
-			//The word table (words->String, class indexes->Integer) for the current block
-			Table2Set<String,Integer> sWLex = sourceLex.getWordTable(i);
-			for(int j = 0; j < targetLex.blockCount(); j++)
+			final int chunk = Math.max(MIN_CHUNK, temp.size() / (4 * aml.getExecutor().getParallelism()));
+			Vector<Integer> starts = new Vector<Integer>();
+			for(int i = 0; i < temp.size(); i += chunk)
+				starts.add(i);
+			final double threshold = thresh;
+			Vector<MappingBuffer> buffers = aml.getExecutor().map(starts, new IndexFunction<MappingBuffer>()
 			{
-				//The word table (words->String, class indexes->Integer) for the current block
-				Table2Set<String,Integer> tWLex = targetLex.getWordTable(j);
-				Vector<Mapping> temp = matchBlocks(sWLex,tWLex,e,t);
-				//If the strategy is BY_CLASS, just add the alignment
-				if(strategy.equals(WordMatchStrategy.BY_CLASS))
-					a.addAll(temp);
-				//Otherwise, update the similarity according to the strategy
-				else
+				@Override
+				public MappingBuffer compute(int start)
 				{
-					for(Mapping m : temp)
-					{
-						//First compute the name similarity
-						double nameSim = nameSimilarity(m.getSourceId(),m.getTargetId());
-						//Then update the final similarity according to the strategy
-						double sim = m.getSimilarity();
-						if(strategy.equals(WordMatchStrategy.BY_NAME))
-							sim = nameSim;
-						else if(strategy.equals(WordMatchStrategy.AVERAGE))
-							sim = Math.sqrt(nameSim * sim);
-						else if(strategy.equals(WordMatchStrategy.MAXIMUM))
-							sim = Math.max(nameSim,sim);
-						else if(strategy.equals(WordMatchStrategy.MINIMUM))
-							sim = Math.min(nameSim,sim);
-						if(sim >= thresh)
-							a.add(m.getSourceId(),m.getTargetId(),sim);
-					}
+					return applyStrategy(temp, start, Math.min(start + chunk, temp.size()), threshold);
 				}
-				System.out.print(".");
-			}
-			System.out.println();
+			});
+			for(MappingBuffer b : buffers)
+				b.addTo(a);
 		}
 		time = System.currentTimeMillis()/1000 - time;
 		System.out.println("Finished in " + time + " seconds");
@@ -247,64 +231,31 @@ public class WordMatcher implements PrimaryMatcher, Rematcher
 		return intersection / union;
 	}
 	
-	//Matches two WordLexicon blocks by class.
-	//Used by match() method either to compute the final BY_CLASS alignment
-	//or to compute a preliminary alignment which is then refined according
-	//to the WordMatchStrategy.
-	private Vector<Mapping> matchBlocks(Table2Set<String,Integer> sWLex,
-			Table2Set<String,Integer> tWLex, EntityType e, double thresh)
+	//Updates the similarity of a range of the mappings in a buffer
+	//according to the strategy
+	private MappingBuffer applyStrategy(MappingBuffer temp, int from, int to, double thresh)
 	{
-		AML aml = AML.getInstance();
-		Table2Map<Integer,Integer,Double> maps = new Table2Map<Integer,Integer,Double>();
-		//To minimize iterations, we want to iterate through the smallest Lexicon
-		boolean sourceIsSmaller = (sWLex.keyCount() <= tWLex.keyCount());
-		Set<String> words;
-		if(sourceIsSmaller)
-			words = sWLex.keySet();
-		else
-			words = tWLex.keySet();
-		
-		for(String s : words)
-		{
-			Set<Integer> sourceIndexes = sWLex.get(s);
-			Set<Integer> targetIndexes = tWLex.get(s);
-			if(sourceIndexes == null || targetIndexes == null)
-				continue;
-			double ec = sourceLex.getWordEC(s) * targetLex.getWordEC(s);
-			for(Integer i : sourceIndexes)
-			{
-				if(e.equals(EntityType.INDIVIDUAL) && !aml.isToMatchSource(i))
-					continue;
-				double sim = ec * sourceLex.getWordWeight(s,i);
-				for(Integer j : targetIndexes)
-				{
-					if(e.equals(EntityType.INDIVIDUAL) && (!aml.isToMatchTarget(j) ||
-							(aml.getInstanceMatchingCategory().equals(InstanceMatchingCategory.SAME_CLASSES) &&
-							!aml.getRelationshipMap().shareClass(i,j))))
-						continue;
-					double finalSim = Math.sqrt(sim * targetLex.getWordWeight(s,j));
-					Double previousSim = maps.get(i,j);
-					if(previousSim == null)
-						previousSim = 0.0;
-					finalSim += previousSim;
-					maps.add(i,j,finalSim);
-				}
-			}
-		}
-		Set<Integer> sources = maps.keySet();
-		Vector<Mapping> a = new Vector<Mapping>();
-		for(Integer i : sources)
+		MappingBuffer maps = new MappingBuffer(to - from);
+		for(int k = from; k < to; k++)
 		{
-			Set<Integer> targets = maps.keySet(i);
-			for(Integer j : targets)
-			{
-				double sim = maps.get(i,j);
-				sim /= sourceLex.getEntityEC(i) + targetLex.getEntityEC(j) - sim;
-				if(sim >= thresh)
-					a.add(new Mapping(i, j, sim));
-			}
+			int sourceId = temp.getSourceId(k);
+			int targetId = temp.getTargetId(k);
+			//First compute the name similarity
+			double nameSim = nameSimilarity(sourceId,targetId);
+			//Then update the final similarity according to the strategy
+			double sim = temp.getSimilarity(k);
+			if(strategy.equals(WordMatchStrategy.BY_NAME))
+				sim = nameSim;
+			else if(strategy.equals(WordMatchStrategy.AVERAGE))
+				sim = Math.sqrt(nameSim * sim);
+			else if(strategy.equals(WordMatchStrategy.MAXIMUM))
+				sim = Math.max(nameSim,sim);
+			else if(strategy.equals(WordMatchStrategy.MINIMUM))
+				sim = Math.min(nameSim,sim);
+			if(sim >= thresh)
+				maps.add(sourceId,targetId,sim);
 		}
-		return a;
+		return maps;
 	}
 	
 	//Maps two classes according to the selected strategy.
@@ -0,0 +1,188 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Computes the word similarity between all entities of two WordLexicons as    *
+* a sparse matrix product: the source entity x word weights times the word    *
+* x target entity weights, normalized by the ECs of the entities. Rows are    *
+* multiplied in parallel with a dense accumulator, and targets that can no    *
+* longer reach the threshold with the remaining words of a row are pruned.    *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.match;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Vector;
+
+import aml.AML;
+import aml.ontology.WordLexicon;
+import aml.ontology.WordMatrix;
+import aml.settings.EntityType;
+import aml.settings.InstanceMatchingCategory;
+import aml.util.IndexFunction;
+import aml.util.ParallelExecutor;
+
+public class WordMatrixProduct
+{
+
+//Attributes
+
+	//The minimum number of rows multiplied by each task
+	private static final int MIN_CHUNK = 500;
+	//The relative tolerance of the pruning bound to rounding errors
+	private static final double SLACK = 1.0E-9;
+	private WordMatrix source;
+	private WordMatrix target;
+	private EntityType type;
+	//Whether each target row is to be matched
+	private boolean[] toMatch;
+
+//Constructors
+
+	/**
+	 * Constructs a new WordMatrixProduct between the given WordLexicons
+	 * @param sourceLex: the source WordLexicon
+	 * @param targetLex: the target WordLexicon
+	 */
+	public WordMatrixProduct(WordLexicon sourceLex, WordLexicon targetLex)
+	{
+		//Only the words of the source WordLexicon are relevant, so only those
+		//are added to the vocabulary
+		HashMap<String,Integer> vocabulary = new HashMap<String,Integer>();
+		source = new WordMatrix(sourceLex, vocabulary, true);
+		target = new WordMatrix(targetLex, vocabulary, false);
+		type = sourceLex.getType();
+		AML aml = AML.getInstance();
+		toMatch = new boolean[target.entityCount()];
+		for(int c = 0; c < toMatch.length; c++)
+			toMatch[c] = !type.equals(EntityType.INDIVIDUAL) ||
+				aml.isToMatchTarget(target.getEntity(c));
+	}
+
+//Public Methods
+
+	/**
+	 * Computes the pairs of source and target entities with word similarity
+	 * above the given threshold
+	 * @param thresh: the similarity threshold
+	 * @return the buffer with the pairs of entities and their similarity,
+	 * sorted by source and then by target entity
+	 */
+	public MappingBuffer multiply(double thresh)
+	{
+		//The rows are split into chunks that are multiplied in parallel
+		//into separate buffers, which are then merged in order
+		ParallelExecutor exec = AML.getInstance().getExecutor();
+		final int rows = source.entityCount();
+		final int chunk = Math.max(MIN_CHUNK, rows / (4 * exec.getParallelism()));
+		if(exec.getParallelism() == 1 || rows <= chunk)
+			return multiply(0, rows, thresh);
+		Vector<Integer> starts = new Vector<Integer>();
+		for(int i = 0; i < rows; i += chunk)
+			starts.add(i);
+		final double threshold = thresh;
+		Vector<MappingBuffer> buffers = exec.map(starts, new IndexFunction<MappingBuffer>()
+		{
+			@Override
+			public MappingBuffer compute(int start)
+			{
+				return multiply(start, Math.min(start + chunk, rows), threshold);
+			}
+		});
+		MappingBuffer result = new MappingBuffer();
+		for(MappingBuffer b : buffers)
+			result.addAll(b);
+		return result;
+	}
+
+//Private Methods
+
+	//Multiplies a range of rows of the source WordMatrix into a new MappingBuffer
+	private MappingBuffer multiply(int from, int to, double thresh)
+	{
+		AML aml = AML.getInstance();
+		boolean sameClasses = type.equals(EntityType.INDIVIDUAL) &&
+				aml.getInstanceMatchingCategory().equals(InstanceMatchingCategory.SAME_CLASSES);
+		MappingBuffer buffer = new MappingBuffer();
+		//The accumulated similarity of each target row with the current
+		//source row, and the list of target rows accumulated so far
+		double[] sums = new double[target.entityCount()];
+		boolean[] open = new boolean[target.entityCount()];
+		int[] touched = new int[target.entityCount()];
+		//The maximum similarity that the words of the current row from each
+		//position onward can add to that of any target
+		double[] bounds = new double[16];
+		for(int r = from; r < to; r++)
+		{
+			int i = source.getEntity(r);
+			if(type.equals(EntityType.INDIVIDUAL) && !aml.isToMatchSource(i))
+				continue;
+			int start = source.getRowStart(r);
+			int end = source.getRowEnd(r);
+			if(bounds.length <= end - start)
+				bounds = new double[2 * (end - start) + 1];
+			bounds[end - start] = 0.0;
+			for(int k = end - 1; k >= start; k--)
+			{
+				int w = source.getRowWord(k);
+				double bound = 0.0;
+				if(target.getWordEC(w) >= 0)
+					bound = Math.sqrt(source.getWordEC(w) * target.getWordEC(w) *
+							source.getRowWeight(k) * target.getMaxWeight(w));
+				bounds[k - start] = bounds[k - start + 1] + bound;
+			}
+			//Since the similarity is sum / (sourceEC + targetEC - sum), for
+			//a pair to reach the threshold its sum must be at least:
+			double minSum = thresh * source.getEntityEC(r) / (1 + thresh) * (1 - SLACK);
+			int count = 0;
+			for(int k = start; k < end; k++)
+			{
+				int w = source.getRowWord(k);
+				if(target.getWordEC(w) < 0)
+					continue;
+				//New targets can only be accumulated if the remaining words
+				//can still get them to the threshold
+				boolean canOpen = bounds[k - start] >= minSum;
+				double ec = source.getWordEC(w) * target.getWordEC(w);
+				double sim = ec * source.getRowWeight(k);
+				for(int p = target.getColumnStart(w); p < target.getColumnEnd(w); p++)
+				{
+					int c = target.getColumnRow(p);
+					if(!open[c])
+					{
+						if(!canOpen || !toMatch[c])
+							continue;
+						open[c] = true;
+						sums[c] = 0.0;
+						touched[count++] = c;
+					}
+					sums[c] += Math.sqrt(sim * target.getColumnWeight(p));
+				}
+			}
+			Arrays.sort(touched, 0, count);
+			for(int n = 0; n < count; n++)
+			{
+				int c = touched[n];
+				open[c] = false;
+				int j = target.getEntity(c);
+				double sim = sums[c];
+				sim /= source.getEntityEC(r) + target.getEntityEC(c) - sim;
+				if(sim >= thresh && (!sameClasses || aml.getRelationshipMap().shareClass(i,j)))
+					buffer.add(i, j, sim);
+			}
+		}
+		return buffer;
+	}
+}
\ No newline at end of file
@@ -14,21 +14,28 @@
 *******************************************************************************
 * The Lexicon of an Ontology, mapping each class and property to its names    *
 * and synonyms. Lexical entries are weighted according to their provenance.   *
+* Names are stored as ids of the global NameDictionary, and the provenances   *
+* of the entries are packed into primitive arrays.                            *
 *                                                                             *
 * @author Daniel Faria                                                        *
 ******************************************************************************/
 package aml.ontology;
 
+import java.io.IOException;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
+import java.util.regex.Pattern;
 
 import aml.AML;
-import aml.util.Table3List;
 import aml.settings.EntityType;
 import aml.settings.LexicalType;
+import aml.util.IntListMap;
 import aml.util.MapSorter;
 import aml.util.StringParser;
 
@@ -38,14 +45,42 @@ public class Lexicon
 
 //Attributes
 	
-	//The table of entity names (String) to indexes (Integer) organized by EntityType
-	private Table3List<String,Integer,Provenance>[] entityNames;
-	//The table of entity indexes (Integer) to names (String) organized by EntityType
-	private Table3List<Integer,String,Provenance>[] nameEntities;
+	//The LexicalTypes, by ordinal
+	private static final LexicalType[] TYPES = LexicalType.values();
+	//The pattern of names that contain Latin characters
+	private static final Pattern LATIN = Pattern.compile(".*[a-zA-Z].*");
+	//The dictionary of names (shared by all Lexicons)
+	private NameDictionary dictionary;
+	//The table of entity names (int) to (name,entity) pairs (int) organized by EntityType
+	private IntListMap[] entityNames;
+	//The table of entity indexes (int) to (name,entity) pairs (int) organized by EntityType
+	private IntListMap[] nameEntities;
+	//The name, entity and first provenance of each (name,entity) pair
+	private int[] pairNames;
+	private int[] pairEntities;
+	private int[] pairProvenances;
+	private int pairCount;
+	//The provenances of the (name,entity) pairs, with the type (ordinal), language
+	//(index), source (index), weight, and the next provenance of the same pair (or -1)
+	private byte[] provTypes;
+	private short[] provLanguages;
+	private int[] provSources;
+	private double[] provWeights;
+	private int[] provNext;
+	private int provCount;
+	//The number of provenances of each EntityType
+	private int[] sizes;
+	//The languages and sources of the provenances, by index
+	private Vector<String> languages;
+	private HashMap<String,Integer> languageIndexes;
+	private Vector<String> sources;
+	private HashMap<String,Integer> sourceIndexes;
 	//The language counts
 	private HashMap<String,Integer> langCount;
 	//The URIMap
 	private URIMap uris;
+	//The listeners to additions to the Lexicon
+	private Vector<LexiconListener> listeners;
 	
 //Constructors
 
@@ -53,34 +88,66 @@ public class Lexicon
 	 * Creates a new empty Lexicon, initializing the multimaps
 	 * and the list of provenances
 	 */
-	@SuppressWarnings("unchecked")
 	public Lexicon()
 	{
 		uris = AML.getInstance().getURIMap();
-		entityNames = new Table3List[EntityType.values().length];
+		dictionary = AML.getInstance().getNameDictionary();
+		entityNames = new IntListMap[EntityType.values().length];
 		for(int i = 0; i < entityNames.length; i++)
-			entityNames[i] = new Table3List<String,Integer,Provenance>();
-		nameEntities = new Table3List[EntityType.values().length];
+			entityNames[i] = new IntListMap();
+		nameEntities = new IntListMap[EntityType.values().length];
 		for(int i = 0; i < nameEntities.length; i++)
-			nameEntities[i] = new Table3List<Integer,String,Provenance>();
+			nameEntities[i] = new IntListMap();
+		pairNames = new int[16];
+		pairEntities = new int[16];
+		pairProvenances = new int[16];
+		pairCount = 0;
+		provTypes = new byte[16];
+		provLanguages = new short[16];
+		provSources = new int[16];
+		provWeights = new double[16];
+		provNext = new int[16];
+		provCount = 0;
+		sizes = new int[EntityType.values().length];
+		languages = new Vector<String>();
+		languageIndexes = new HashMap<String,Integer>();
+		sources = new Vector<String>();
+		sourceIndexes = new HashMap<String,Integer>();
 		langCount = new HashMap<String,Integer>();
+		listeners = new Vector<LexiconListener>();
 	}
 	
 	/**
 	 * Creates a new Lexicon that is a copy of the given Lexicon
 	 * @param l: the Lexicon to copy
 	 */
-	@SuppressWarnings("unchecked")
 	public Lexicon(Lexicon l)
 	{
 		uris = AML.getInstance().getURIMap();
-		entityNames = new Table3List[EntityType.values().length];
+		dictionary = l.dictionary;
+		entityNames = new IntListMap[EntityType.values().length];
 		for(int i = 0; i < entityNames.length; i++)
-			entityNames[i] = new Table3List<String,Integer,Provenance>(l.entityNames[i]);
-		nameEntities = new Table3List[EntityType.values().length];
+			entityNames[i] = new IntListMap(l.entityNames[i]);
+		nameEntities = new IntListMap[EntityType.values().length];
 		for(int i = 0; i < nameEntities.length; i++)
-			nameEntities[i] = new Table3List<Integer,String,Provenance>(l.nameEntities[i]);
+			nameEntities[i] = new IntListMap(l.nameEntities[i]);
+		pairNames = Arrays.copyOf(l.pairNames, l.pairNames.length);
+		pairEntities = Arrays.copyOf(l.pairEntities, l.pairEntities.length);
+		pairProvenances = Arrays.copyOf(l.pairProvenances, l.pairProvenances.length);
+		pairCount = l.pairCount;
+		provTypes = Arrays.copyOf(l.provTypes, l.provTypes.length);
+		provLanguages = Arrays.copyOf(l.provLanguages, l.provLanguages.length);
+		provSources = Arrays.copyOf(l.provSources, l.provSources.length);
+		provWeights = Arrays.copyOf(l.provWeights, l.provWeights.length);
+		provNext = Arrays.copyOf(l.provNext, l.provNext.length);
+		provCount = l.provCount;
+		sizes = Arrays.copyOf(l.sizes, l.sizes.length);
+		languages = new Vector<String>(l.languages);
+		languageIndexes = new HashMap<String,Integer>(l.languageIndexes);
+		sources = new Vector<String>(l.sources);
+		sourceIndexes = new HashMap<String,Integer>(l.sourceIndexes);
 		langCount = new HashMap<String,Integer>(l.langCount);
+		listeners = new Vector<LexiconListener>();
 	}
 	
 //Public Methods
@@ -96,59 +163,19 @@ public class Lexicon
 	 */
 	public void add(int id, String name, String language, LexicalType type, String source, double weight)
 	{
-		//First ensure that the name is not null or empty
-		if(name == null || name.equals(""))
-			return;
-		
-		if(language.length() > 2)
-			language = language.substring(0, 2);
-
-		String s;
-		Provenance p;
-
-		//Get the type of the entity
-		EntityType e = uris.getType(id);
-		int index = getIndex(e);
-
-		//If the name is not in english we parse it as a formula
-		if(!language.equals("en"))
-		{
-			s = StringParser.normalizeFormula(name);
-			p = new Provenance(type, source, language, weight);
-		}
-		//Otherwise
-		else
-		{
-			//If it doesn't contain Latin characters, don't add it
-			if(!name.matches(".*[a-zA-Z].*"))
-				return;
-			//If it is a formula, parse it and label it as such
-			else if(StringParser.isFormula(name))
-			{
-				s = StringParser.normalizeFormula(name);
-				p = new Provenance(LexicalType.FORMULA, source, language, weight);
-			}
-			//If it is a property, parse it as such
-			else if(e.equals(EntityType.DATA) || e.equals(EntityType.OBJECT))
-			{
-				s = StringParser.normalizeProperty(name);
-				p = new Provenance(type, source, language, weight);
-			}
-			//Otherwise, parse it normally
-			else
-			{
-				s = StringParser.normalizeName(name);
-				p = new Provenance(type, source, language, weight);
-			}
-		}
-		//Then update the tables
-		entityNames[index].add(s,id,p);
-		nameEntities[index].add(id,s,p);
-		Integer i = langCount.get(language);
-		if(i == null)
-			langCount.put(language, 1);
-		else
-			langCount.put(language, i+1);
+		Entry x = new Entry(id, name, language, type, source, weight);
+		x.entity = uris.getType(id);
+		if(normalize(x))
+			insert(x);
+	}
+	
+	/**
+	 * Adds a listener that is notified of each entry added to the Lexicon
+	 * @param l: the LexiconListener to add
+	 */
+	public void addListener(LexiconListener l)
+	{
+		listeners.add(l);
 	}
 	
 	/**
@@ -158,7 +185,8 @@ public class Lexicon
 	 */
 	public boolean contains(EntityType e, String name)
 	{
-		return entityNames[getIndex(e)].contains(name);
+		int n = dictionary.getId(name);
+		return n > -1 && entityNames[getIndex(e)].contains(n);
 	}
 	
 	/**
@@ -168,7 +196,8 @@ public class Lexicon
 	 */
 	public boolean contains(int id, String name)
 	{
-		return nameEntities[getIndex(uris.getType(id))].contains(id, name);
+		int n = dictionary.getId(name);
+		return n > -1 && getPair(getIndex(uris.getType(id)), n, id) > -1;
 	}
 	
 	/**
@@ -187,16 +216,17 @@ public class Lexicon
 	 */
 	public boolean containsNonSmallFormula(int id)
 	{
-		EntityType e = uris.getType(id);
-		int index = getIndex(e);
-		if(!nameEntities[index].contains(id))
+		int index = getIndex(uris.getType(id));
+		int pos = nameEntities[index].position(id);
+		if(pos < 0)
 			return false;
-		for(String n : nameEntities[index].keySet(id))
+		for(int k = 0; k < nameEntities[index].valueCount(pos); k++)
 		{
-			if(n.length() >= 10)
+			int pair = nameEntities[index].getValue(pos, k);
+			if(dictionary.getName(pairNames[pair]).length() >= 10)
 				return true;
-			for(Provenance p : nameEntities[index].get(id,n))
-				if(!p.getType().equals(LexicalType.FORMULA))
+			for(int p = pairProvenances[pair]; p > -1; p = provNext[p])
+				if(!TYPES[provTypes[p]].equals(LexicalType.FORMULA))
 					return true;
 		}
 		return false;
@@ -218,7 +248,16 @@ public class Lexicon
 	 */
 	public int entityCount(EntityType e, String name)
 	{
-		return entityNames[getIndex(e)].entryCount(name);
+		//Counts the entries (i.e., the provenances) of the name
+		int index = getIndex(e);
+		int pos = entityNames[index].position(dictionary.getId(name));
+		if(pos < 0)
+			return 0;
+		int count = 0;
+		for(int k = 0; k < entityNames[index].valueCount(pos); k++)
+			for(int p = pairProvenances[entityNames[index].getValue(pos, k)]; p > -1; p = provNext[p])
+				count++;
+		return count;
 	}
 	
 	/**
@@ -241,7 +280,16 @@ public class Lexicon
 	 */
 	public int entityCount(EntityType e, String name, Provenance p)
 	{
-		return entityNames[getIndex(e)].entryCount(name, p);
+		int index = getIndex(e);
+		int pos = entityNames[index].position(dictionary.getId(name));
+		if(pos < 0)
+			return 0;
+		int count = 0;
+		for(int k = 0; k < entityNames[index].valueCount(pos); k++)
+			for(int q = pairProvenances[entityNames[index].getValue(pos, k)]; q > -1; q = provNext[q])
+				if(languages.get(provLanguages[q]).equals(p.getLanguage()))
+					count++;
+		return count;
 	}
 	
 	/**
@@ -251,9 +299,9 @@ public class Lexicon
 	 */	
 	public Vector<Provenance> get(String name, int id)
 	{
-		int index = getIndex(uris.getType(id));
-		if(entityNames[index].contains(name, id))
-			return entityNames[index].get(name, id);
+		int pair = getPair(name, id);
+		if(pair > -1)
+			return getProvenances(pair);
 		return new Vector<Provenance>();
 	}
 	
@@ -307,25 +355,30 @@ public class Lexicon
 		int index = getIndex(uris.getType(id));
 		String lang = AML.getInstance().getLabelLanguage();
 		Map<String,Provenance> results = new HashMap<String,Provenance>();
-		if(!nameEntities[index].contains(id))
+		int pos = nameEntities[index].position(id);
+		if(pos < 0)
 			return "";
-
-		for(String n : nameEntities[index].keySet(id))
+		//The names are hashed first so that ties are broken as before
+		HashMap<String,Integer> pairs = new HashMap<String,Integer>();
+		for(int k = 0; k < nameEntities[index].valueCount(pos); k++)
 		{
-			for(Provenance p : nameEntities[index].get(id, n))
+			int pair = nameEntities[index].getValue(pos, k);
+			pairs.put(dictionary.getName(pairNames[pair]), pair);
+		}
+		for(String n : pairs.keySet())
+		{
+			for(int p = pairProvenances[pairs.get(n)]; p > -1; p = provNext[p])
 			{
-				if(p.getLanguage().equals(lang))
+				if(languages.get(provLanguages[p]).equals(lang))
 				{
-					results.put(n,p);
+					results.put(n,getProvenance(p));
 					break;
 				}
 			}
 		}
 		if(results.size() == 0)
-		{
-			for(String n : nameEntities[index].keySet(id))
-				results.put(n,nameEntities[index].get(id, n).iterator().next());
-		}
+			for(String n : pairs.keySet())
+				results.put(n,getProvenance(pairProvenances[pairs.get(n)]));
 		results = MapSorter.sortDescending(results);
 		return results.keySet().iterator().next();
 	}
@@ -338,18 +391,28 @@ public class Lexicon
 	 */
 	public double getCorrectedWeight(String name, int id)
 	{
-		EntityType e = uris.getType(id);
-		int index = getIndex(e);
-		if(!entityNames[index].contains(name, id))
+		return getCorrectedWeight(dictionary.getId(name), id);
+	}
+	
+	/**
+	 * @param name: the id of the name to search in the Lexicon
+	 * @param id: the index of the entity to search in the Lexicon
+	 * @return the weight corresponding to the provenance of the name for that class with a
+	 * correction factor depending on how many names of that provenance the the class has
+	 */
+	public double getCorrectedWeight(int name, int id)
+	{
+		int pair = getPair(getIndex(uris.getType(id)), name, id);
+		if(pair < 0)
 			return 0.0;
 		double weight = 0.0;
 		double correction = 0.0;
-		for(Provenance p : entityNames[index].get(name, id))
+		for(int p = pairProvenances[pair]; p > -1; p = provNext[p])
 		{
-			if(p.getWeight() > weight)
+			if(provWeights[p] > weight)
 			{
-				weight = p.getWeight();
-				correction = nameCount(id,p.getType())/100.0;
+				weight = provWeights[p];
+				correction = nameCount(id,TYPES[provTypes[p]])/100.0;
 			}
 		}
 		return weight - correction;
@@ -365,17 +428,15 @@ public class Lexicon
 	 */
 	public double getCorrectedWeight(String name, int id, String lang)
 	{
-		EntityType e = uris.getType(id);
-		int index = getIndex(e);
-		Vector<Provenance> provs = entityNames[index].get(name, id);
-		if(provs == null)
+		int pair = getPair(name, id);
+		if(pair < 0)
 			return 0.0;
-		for(Provenance p : provs)
+		for(int p = pairProvenances[pair]; p > -1; p = provNext[p])
 		{
-			if(p.getLanguage().equals(lang))
+			if(languages.get(provLanguages[p]).equals(lang))
 			{
-				double correction = nameCount(id,p.getType(),p.getLanguage())/100.0;
-				return p.getWeight() - correction;
+				double correction = nameCount(id,TYPES[provTypes[p]],lang)/100.0;
+				return provWeights[p] - correction;
 			}
 		}
 		return 0.0;
@@ -387,7 +448,7 @@ public class Lexicon
 	 */
 	public Set<Integer> getEntities(EntityType e)
 	{
-		return nameEntities[getIndex(e)].keySet();
+		return new KeySet(nameEntities[getIndex(e)]);
 	}
 	
 	/**
@@ -397,7 +458,14 @@ public class Lexicon
 	 */
 	public Set<Integer> getEntities(EntityType e, String name)
 	{
-		return entityNames[getIndex(e)].keySet(name);
+		int index = getIndex(e);
+		int pos = entityNames[index].position(dictionary.getId(name));
+		if(pos < 0)
+			return null;
+		HashSet<Integer> hits = new HashSet<Integer>();
+		for(int k = 0; k < entityNames[index].valueCount(pos); k++)
+			hits.add(pairEntities[entityNames[index].getValue(pos, k)]);
+		return hits;
 	}
 	
 	/**
@@ -409,14 +477,17 @@ public class Lexicon
 	public Set<Integer> getEntities(EntityType e, String name, String type)
 	{
 		int index = getIndex(e);
-		Set<Integer> hits = entityNames[index].keySet(name);
+		int pos = entityNames[index].position(dictionary.getId(name));
 		HashSet<Integer> entitiesType = new HashSet<Integer>();
-		if(hits == null)
+		if(pos < 0)
 			return entitiesType;
-		for(Integer i : hits)
-			for(Provenance p : entityNames[index].get(name,i))
-				if(p.getType().equals(type))
-					entitiesType.add(i);
+		for(int k = 0; k < entityNames[index].valueCount(pos); k++)
+		{
+			int pair = entityNames[index].getValue(pos, k);
+			for(int p = pairProvenances[pair]; p > -1; p = provNext[p])
+				if(TYPES[provTypes[p]].equals(type))
+					entitiesType.add(pairEntities[pair]);
+		}
 		return entitiesType;
 	}
 	
@@ -430,14 +501,17 @@ public class Lexicon
 	public Set<Integer> getEntitiesWithLanguage(EntityType e, String name, String lang)
 	{
 		int index = getIndex(e);
-		Set<Integer> hits = entityNames[index].keySet(name);
+		int pos = entityNames[index].position(dictionary.getId(name));
 		HashSet<Integer> classesLang = new HashSet<Integer>();
-		if(hits == null)
+		if(pos < 0)
 			return classesLang;
-		for(Integer i : hits)
-			for(Provenance p : entityNames[index].get(name,i))
-				if(p.getLanguage().equals(lang))
-					classesLang.add(i);
+		for(int k = 0; k < entityNames[index].valueCount(pos); k++)
+		{
+			int pair = entityNames[index].getValue(pos, k);
+			for(int p = pairProvenances[pair]; p > -1; p = provNext[p])
+				if(languages.get(provLanguages[p]).equals(lang))
+					classesLang.add(pairEntities[pair]);
+		}
 		return classesLang;
 	}
 	
@@ -449,13 +523,30 @@ public class Lexicon
 	public Vector<Integer> getEntitiesWithSource(EntityType e, String source)
 	{
 		Vector<Integer> entitiesWithSource = new Vector<Integer>(0,1);
-		Set<Integer> ts = nameEntities[getIndex(e)].keySet();
-		for(Integer i : ts)
+		for(Integer i : getEntities(e))
 			if(hasNameFromSource(i,source) && !entitiesWithSource.contains(i))
 				entitiesWithSource.add(i);
 		return entitiesWithSource;
 	}
 	
+	/**
+	 * @param e: the EntityType to get from the Lexicon
+	 * @param name: the id of the name to search in the Lexicon
+	 * @return the entities of the given EntityType associated with the name,
+	 * or null if there are none
+	 */
+	public int[] getEntityIds(EntityType e, int name)
+	{
+		int index = getIndex(e);
+		int pos = entityNames[index].position(name);
+		if(pos < 0)
+			return null;
+		int[] hits = new int[entityNames[index].valueCount(pos)];
+		for(int k = 0; k < hits.length; k++)
+			hits[k] = pairEntities[entityNames[index].getValue(pos, k)];
+		return hits;
+	}
+	
 	/**
 	 * @param e: the EntityType to get from the Lexicon
 	 * @return the list of entities of the given EntityType that have a name from an external source
@@ -463,8 +554,7 @@ public class Lexicon
 	public Set<Integer> getExtendedEntities(EntityType e)
 	{
 		HashSet<Integer> extendedEntities = new HashSet<Integer>(0,1);
-		Set<Integer> ts = nameEntities[getIndex(e)].keySet();
-		for(Integer i : ts)
+		for(Integer i : getEntities(e))
 			if(hasExternalName(i))
 				extendedEntities.add(i);
 		return extendedEntities;
@@ -476,15 +566,10 @@ public class Lexicon
 	 */
 	public Set<String> getInternalNames(int id)
 	{
-		int index = getIndex(uris.getType(id));
 		HashSet<String> localHits = new HashSet<String>();
-		if(nameEntities[index].contains(id))
-		{
-			Set<String> hits = nameEntities[index].keySet(id);
-			for(String s : hits)
-				if(!isExternal(s,id))
-					localHits.add(s);
-		}
+		for(String s : getNames(id))
+			if(!isExternal(s,id))
+				localHits.add(s);
 		return localHits;
 	}
 	
@@ -496,7 +581,7 @@ public class Lexicon
 	 */
 	public Set<Integer> getInternalEntities(EntityType e, String name)
 	{
-		Set<Integer> hits = entityNames[getIndex(e)].keySet(name);
+		Set<Integer> hits = getEntities(e,name);
 		HashSet<Integer> localHits = new HashSet<Integer>();
 		if(hits == null)
 			return localHits;
@@ -531,13 +616,13 @@ public class Lexicon
 	public Set<String> getLanguages(EntityType e, String name)
 	{
 		int index = getIndex(e);
-		Set<Integer> hits = entityNames[index].keySet(name);
+		int pos = entityNames[index].position(dictionary.getId(name));
 		HashSet<String> langs = new HashSet<String>();
-		if(hits == null)
+		if(pos < 0)
 			return langs;
-		for(Integer i : hits)
-			for(Provenance p : entityNames[index].get(name,i))
-				langs.add(p.getLanguage());
+		for(int k = 0; k < entityNames[index].valueCount(pos); k++)
+			for(int p = pairProvenances[entityNames[index].getValue(pos, k)]; p > -1; p = provNext[p])
+				langs.add(languages.get(provLanguages[p]));
 		return langs;
 	}
 	
@@ -548,23 +633,43 @@ public class Lexicon
 	 */
 	public Set<String> getLanguages(String name, int id)
 	{
-		int index = getIndex(uris.getType(id));
-		Vector<Provenance> hits = entityNames[index].get(name,id);
 		HashSet<String> langs = new HashSet<String>();
-		if(hits == null)
+		int pair = getPair(name, id);
+		if(pair < 0)
 			return langs;
-		for(Provenance p : hits)
-			langs.add(p.getLanguage());
+		for(int p = pairProvenances[pair]; p > -1; p = provNext[p])
+			langs.add(languages.get(provLanguages[p]));
 		return langs;
 	}
 	
+	/**
+	 * @return the global NameDictionary with the ids of the names in this Lexicon
+	 */
+	public NameDictionary getNameDictionary()
+	{
+		return dictionary;
+	}
+	
+	/**
+	 * @param e: the EntityType to get from the Lexicon
+	 * @return the ids of the names of the given EntityType in the Lexicon
+	 */
+	public int[] getNameIds(EntityType e)
+	{
+		IntListMap names = entityNames[getIndex(e)];
+		int[] ids = new int[names.keyCount()];
+		for(int k = 0; k < ids.length; k++)
+			ids[k] = names.getKey(k);
+		return ids;
+	}
+	
 	/**
 	 * @param e: the EntityType to get from the Lexicon
 	 * @return the set of names of the given EntityType in the Lexicon
 	 */
 	public Set<String> getNames(EntityType e)
 	{
-		return entityNames[getIndex(e)].keySet();
+		return new NameSet(entityNames[getIndex(e)]);
 	}
 
 	/**
@@ -574,9 +679,13 @@ public class Lexicon
 	public Set<String> getNames(int id)
 	{
 		int index = getIndex(uris.getType(id));
-		if(nameEntities[index].contains(id))
-			return nameEntities[index].keySet(id);
-		return new HashSet<String>();
+		int pos = nameEntities[index].position(id);
+		HashSet<String> names = new HashSet<String>();
+		if(pos < 0)
+			return names;
+		for(int k = 0; k < nameEntities[index].valueCount(pos); k++)
+			names.add(dictionary.getName(pairNames[nameEntities[index].getValue(pos, k)]));
+		return names;
 	}
 	
 	/**
@@ -587,13 +696,16 @@ public class Lexicon
 	public Set<String> getNames(int id, LexicalType type)
 	{
 		int index = getIndex(uris.getType(id));
+		int pos = nameEntities[index].position(id);
 		HashSet<String> namesType = new HashSet<String>();
-		if(nameEntities[index].contains(id))
+		if(pos < 0)
+			return namesType;
+		for(int k = 0; k < nameEntities[index].valueCount(pos); k++)
 		{
-			for(String n : nameEntities[index].keySet(id))
-				for(Provenance p : nameEntities[index].get(id,n))
-					if(p.getType().equals(type))
-						namesType.add(n);
+			int pair = nameEntities[index].getValue(pos, k);
+			for(int p = pairProvenances[pair]; p > -1; p = provNext[p])
+				if(TYPES[provTypes[p]].equals(type))
+					namesType.add(dictionary.getName(pairNames[pair]));
 		}
 		return namesType;
 	}
@@ -606,13 +718,16 @@ public class Lexicon
 	public Set<String> getNamesWithLanguage(int id, String lang)
 	{
 		int index = getIndex(uris.getType(id));
+		int pos = nameEntities[index].position(id);
 		HashSet<String> namesLang = new HashSet<String>();
-		if(nameEntities[index].contains(id))
+		if(pos < 0)
+			return namesLang;
+		for(int k = 0; k < nameEntities[index].valueCount(pos); k++)
 		{
-			for(String n : nameEntities[index].keySet(id))
-				for(Provenance p : nameEntities[index].get(id,n))
-					if(p.getLanguage().equals(lang))
-						namesLang.add(n);
+			int pair = nameEntities[index].getValue(pos, k);
+			for(int p = pairProvenances[pair]; p > -1; p = provNext[p])
+				if(languages.get(provLanguages[p]).equals(lang))
+					namesLang.add(dictionary.getName(pairNames[pair]));
 		}
 		return namesLang;
 	}
@@ -624,13 +739,12 @@ public class Lexicon
 	 */
 	public Set<String> getSources(String name, int id)
 	{
-		int index = getIndex(uris.getType(id));
-		Vector<Provenance> provs = entityNames[index].get(name, id);
 		HashSet<String> sources = new HashSet<String>();
-		if(provs == null)
+		int pair = getPair(name, id);
+		if(pair < 0)
 			return sources;
-		for(Provenance p : provs)
-			sources.add(p.getSource());
+		for(int p = pairProvenances[pair]; p > -1; p = provNext[p])
+			sources.add(this.sources.get(provSources[p]));
 		return sources;
 	}
 	
@@ -641,15 +755,17 @@ public class Lexicon
 	 */
 	public LexicalType getType(String name, int id)
 	{
-		int index = getIndex(uris.getType(id));
 		LexicalType type = null;
 		double weight = 0.0;
-		for(Provenance p : entityNames[index].get(name, id))
+		int pair = getPair(name, id);
+		if(pair < 0)
+			throw new NullPointerException();
+		for(int p = pairProvenances[pair]; p > -1; p = provNext[p])
 		{
-			if(p.getWeight() > weight)
+			if(provWeights[p] > weight)
 			{
-				weight = p.getWeight();
-				type = p.getType();
+				weight = provWeights[p];
+				type = TYPES[provTypes[p]];
 			}
 		}
 		return type;
@@ -662,13 +778,12 @@ public class Lexicon
 	 */
 	public Set<LexicalType> getTypes(String name, int id)
 	{
-		int index = getIndex(uris.getType(id));
-		Vector<Provenance> provs = entityNames[index].get(name, id);
 		HashSet<LexicalType> types = new HashSet<LexicalType>();
-		if(provs == null)
+		int pair = getPair(name, id);
+		if(pair < 0)
 			return types;
-		for(Provenance p : provs)
-			types.add(p.getType());
+		for(int p = pairProvenances[pair]; p > -1; p = provNext[p])
+			types.add(TYPES[provTypes[p]]);
 		return types;
 	}
 	
@@ -679,14 +794,13 @@ public class Lexicon
 	 */
 	public double getWeight(String name, int id)
 	{
-		int index = getIndex(uris.getType(id));
 		double weight = 0.0;
-		if(nameEntities[index].contains(id,name))
-		{
-			for(Provenance p : nameEntities[index].get(id,name))
-				if(p.getWeight() > weight)
-					weight = p.getWeight();
-		}
+		int pair = getPair(name, id);
+		if(pair < 0)
+			return weight;
+		for(int p = pairProvenances[pair]; p > -1; p = provNext[p])
+			if(provWeights[p] > weight)
+				weight = provWeights[p];
 		return weight;
 	}
 	
@@ -698,13 +812,12 @@ public class Lexicon
 	 */
 	public double getWeight(String name, int id, String lang)
 	{
-		int index = getIndex(uris.getType(id));
-		if(!entityNames[index].contains(name, id))
+		int pair = getPair(name, id);
+		if(pair < 0)
 			return 0.0;
-		Vector<Provenance> provs = entityNames[index].get(name, id);
-		for(Provenance p : provs)
-			if(p.getLanguage().equals(lang))
-				return p.getWeight();
+		for(int p = pairProvenances[pair]; p > -1; p = provNext[p])
+			if(languages.get(provLanguages[p]).equals(lang))
+				return provWeights[p];
 		return 0.0;
 	}
 
@@ -747,16 +860,13 @@ public class Lexicon
 	 */
 	public boolean isExternal(String name, int id)
 	{
-		int index = getIndex(uris.getType(id));
-		if(nameEntities[index].contains(id,name))
-		{
-			Vector<Provenance> provs = nameEntities[index].get(id, name);
-			for(Provenance p : provs)
-				if(!p.isExternal())
-					return false;
-			return true;
-		}
-		return false;
+		int pair = getPair(name, id);
+		if(pair < 0)
+			return false;
+		for(int p = pairProvenances[pair]; p > -1; p = provNext[p])
+			if(!isExternal(p))
+				return false;
+		return true;
 	}
 	
 	/**
@@ -768,12 +878,11 @@ public class Lexicon
 	 */
 	public boolean isExternal(String name, int id, String lang)
 	{
-		int index = getIndex(uris.getType(id));
-		if(!entityNames[index].contains(name,id))
+		int pair = getPair(name, id);
+		if(pair < 0)
 			return false;
-		Vector<Provenance> provs = entityNames[index].get(name, id);
-		for(Provenance p : provs)
-			if(p.getLanguage().equals(lang) && p.isExternal())
+		for(int p = pairProvenances[pair]; p > -1; p = provNext[p])
+			if(languages.get(provLanguages[p]).equals(lang) && isExternal(p))
 				return true;
 		return false;
 	}
@@ -802,8 +911,16 @@ public class Lexicon
 	 */
 	public int nameCount(int id)
 	{
+		//Counts the entries (i.e., the provenances) of the entity
 		int index = getIndex(uris.getType(id));
-		return nameEntities[index].entryCount(id);
+		int pos = nameEntities[index].position(id);
+		if(pos < 0)
+			return 0;
+		int count = 0;
+		for(int k = 0; k < nameEntities[index].valueCount(pos); k++)
+			for(int p = pairProvenances[nameEntities[index].getValue(pos, k)]; p > -1; p = provNext[p])
+				count++;
+		return count;
 	}
 	
 	/**
@@ -813,7 +930,23 @@ public class Lexicon
 	 */
 	public int nameCount(int id, LexicalType type)
 	{
-		return getNames(id,type).size();
+		int index = getIndex(uris.getType(id));
+		int pos = nameEntities[index].position(id);
+		if(pos < 0)
+			return 0;
+		int count = 0;
+		for(int k = 0; k < nameEntities[index].valueCount(pos); k++)
+		{
+			for(int p = pairProvenances[nameEntities[index].getValue(pos, k)]; p > -1; p = provNext[p])
+			{
+				if(TYPES[provTypes[p]].equals(type))
+				{
+					count++;
+					break;
+				}
+			}
+		}
+		return count;
 	}
 	
 	/**
@@ -826,31 +959,200 @@ public class Lexicon
 	public int nameCount(int id, LexicalType type, String lang)
 	{
 		int index = getIndex(uris.getType(id));
-		Set<String> hits = nameEntities[index].keySet(id);
+		int pos = nameEntities[index].position(id);
 		int count = 0;
-		if(hits == null)
+		if(pos < 0)
 			return count;
-		for(String n : hits)
-			for(Provenance p : nameEntities[index].get(id,n))
-				if(p.getLanguage().equals(lang) && p.getType().equals(type))
+		for(int k = 0; k < nameEntities[index].valueCount(pos); k++)
+			for(int p = pairProvenances[nameEntities[index].getValue(pos, k)]; p > -1; p = provNext[p])
+				if(languages.get(provLanguages[p]).equals(lang) && TYPES[provTypes[p]].equals(type))
 					count++;
 		return count;
 	}
 	
+	/**
+	 * Reads the contents of the Lexicon from a snapshot, replacing its
+	 * current contents, without normalizing the names (which were already
+	 * normalized when the snapshot was written)
+	 * @param in: the SnapshotReader of the snapshot
+	 */
+	public void read(SnapshotReader in)
+	{
+		String[] names = in.readStrings();
+		pairCount = names.length;
+		int capacity = Math.max(16, pairCount);
+		pairNames = new int[capacity];
+		pairEntities = Arrays.copyOf(in.readIds(), capacity);
+		pairProvenances = Arrays.copyOf(in.readInts(), capacity);
+		byte[] types = in.readBytes();
+		provCount = types.length;
+		capacity = Math.max(16, provCount);
+		provTypes = Arrays.copyOf(types, capacity);
+		int[] langs = in.readInts();
+		provLanguages = new short[capacity];
+		for(int p = 0; p < provCount; p++)
+			provLanguages[p] = (short)langs[p];
+		provSources = Arrays.copyOf(in.readInts(), capacity);
+		provWeights = Arrays.copyOf(in.readDoubles(), capacity);
+		provNext = Arrays.copyOf(in.readInts(), capacity);
+		languages = new Vector<String>();
+		languageIndexes = new HashMap<String,Integer>();
+		for(String l : in.readStrings())
+			getLanguageIndex(l);
+		sources = new Vector<String>();
+		sourceIndexes = new HashMap<String,Integer>();
+		for(String s : in.readStrings())
+			getSourceIndex(s);
+		langCount = new HashMap<String,Integer>();
+		String[] counted = in.readStrings();
+		int[] counts = in.readInts();
+		for(int i = 0; i < counted.length; i++)
+			langCount.put(counted[i], counts[i]);
+		//Rebuild the tables of (name,entity) pairs
+		for(int i = 0; i < entityNames.length; i++)
+		{
+			entityNames[i] = new IntListMap();
+			nameEntities[i] = new IntListMap();
+		}
+		sizes = new int[EntityType.values().length];
+		for(int pair = 0; pair < pairCount; pair++)
+		{
+			int index = getIndex(uris.getType(pairEntities[pair]));
+			pairNames[pair] = dictionary.add(names[pair]);
+			entityNames[index].add(pairNames[pair], pair);
+			nameEntities[index].add(pairEntities[pair], pair);
+			for(int p = pairProvenances[pair]; p > -1; p = provNext[p])
+				sizes[index]++;
+		}
+	}
+	
+	/**
+	 * Removes a listener from the Lexicon
+	 * @param l: the LexiconListener to remove
+	 */
+	public void removeListener(LexiconListener l)
+	{
+		listeners.remove(l);
+	}
+	
 	/**
 	 * @return the number of class name entries in the Lexicon
 	 */
 	public int size()
 	{
 		int size = 0;
-		for(Table3List<String,Integer,Provenance> t : entityNames)
-			size += t.size();
+		for(int s : sizes)
+			size += s;
 		return size;
 	}
 	
+	/**
+	 * Writes the contents of the Lexicon to a snapshot
+	 * @param out: the SnapshotWriter of the snapshot
+	 * @throws IOException
+	 */
+	public void write(SnapshotWriter out) throws IOException
+	{
+		String[] names = new String[pairCount];
+		for(int pair = 0; pair < pairCount; pair++)
+			names[pair] = dictionary.getName(pairNames[pair]);
+		out.writeStrings(names);
+		out.writeIds(pairEntities, pairCount);
+		out.writeInts(pairProvenances, pairCount);
+		out.writeBytes(provTypes, provCount);
+		int[] langs = new int[provCount];
+		for(int p = 0; p < provCount; p++)
+			langs[p] = provLanguages[p];
+		out.writeInts(langs, provCount);
+		out.writeInts(provSources, provCount);
+		out.writeDoubles(provWeights, provCount);
+		out.writeInts(provNext, provCount);
+		out.writeStrings(languages);
+		out.writeStrings(sources);
+		String[] counted = langCount.keySet().toArray(new String[langCount.size()]);
+		int[] counts = new int[counted.length];
+		for(int i = 0; i < counted.length; i++)
+			counts[i] = langCount.get(counted[i]);
+		out.writeStrings(counted);
+		out.writeInts(counts, counts.length);
+	}
+	
 	
 //Private Methods
 	
+	//Adds a new (name,entity) pair to the Lexicon
+	private int addPair(int index, int name, int id)
+	{
+		if(pairCount == pairNames.length)
+		{
+			pairNames = Arrays.copyOf(pairNames, 2 * pairCount);
+			pairEntities = Arrays.copyOf(pairEntities, 2 * pairCount);
+			pairProvenances = Arrays.copyOf(pairProvenances, 2 * pairCount);
+		}
+		pairNames[pairCount] = name;
+		pairEntities[pairCount] = id;
+		pairProvenances[pairCount] = -1;
+		entityNames[index].add(name, pairCount);
+		nameEntities[index].add(id, pairCount);
+		return pairCount++;
+	}
+	
+	//Adds a provenance to a (name,entity) pair; as a pair can have only one
+	//provenance per language, if the pair already has one with the same
+	//language, it is replaced (and moved to the end) if the new one is better
+	private void addProvenance(int index, int pair, LexicalType type, String source, String language, double weight)
+	{
+		int lang = getLanguageIndex(language);
+		boolean external = !source.equals("");
+		int previous = -1;
+		int p = pairProvenances[pair];
+		for(; p > -1; previous = p, p = provNext[p])
+			if(provLanguages[p] == lang)
+				break;
+		if(p > -1)
+		{
+			//Provenances are compared first with regard to whether
+			//they are internal or external, and then by weight
+			if(external && !isExternal(p))
+				return;
+			if(external == isExternal(p) && weight <= provWeights[p])
+				return;
+			//Unlink the old provenance, which is replaced by the new one
+			if(previous == -1)
+				pairProvenances[pair] = provNext[p];
+			else
+				provNext[previous] = provNext[p];
+		}
+		else
+		{
+			if(provCount == provTypes.length)
+			{
+				provTypes = Arrays.copyOf(provTypes, 2 * provCount);
+				provLanguages = Arrays.copyOf(provLanguages, 2 * provCount);
+				provSources = Arrays.copyOf(provSources, 2 * provCount);
+				provWeights = Arrays.copyOf(provWeights, 2 * provCount);
+				provNext = Arrays.copyOf(provNext, 2 * provCount);
+			}
+			p = provCount++;
+			sizes[index]++;
+		}
+		provTypes[p] = (byte)type.ordinal();
+		provLanguages[p] = (short)lang;
+		provSources[p] = getSourceIndex(source);
+		provWeights[p] = weight;
+		provNext[p] = -1;
+		//Append the provenance to the end of the list of the pair
+		if(pairProvenances[pair] == -1)
+			pairProvenances[pair] = p;
+		else
+		{
+			int last = pairProvenances[pair];
+			while(provNext[last] > -1)
+				last = provNext[last];
+			provNext[last] = p;
+		}
+	}
+	
 	private int getIndex(EntityType e)
 	{
 		EntityType[] types = EntityType.values();
@@ -859,4 +1161,259 @@ public class Lexicon
 				return i;
 		return -1;
 	}
-}
\ No newline at end of file
+	
+	//Gets the index of a language, adding it if it is new
+	private int getLanguageIndex(String language)
+	{
+		Integer i = languageIndexes.get(language);
+		if(i == null)
+		{
+			i = languages.size();
+			languages.add(language);
+			languageIndexes.put(language, i);
+		}
+		return i;
+	}
+	
+	//Gets the (name,entity) pair for a name and entity, or -1 if it doesn't exist
+	private int getPair(String name, int id)
+	{
+		int n = dictionary.getId(name);
+		if(n < 0)
+			return -1;
+		return getPair(getIndex(uris.getType(id)), n, id);
+	}
+	
+	//Gets the (name,entity) pair for a name id and entity, or -1 if it doesn't exist
+	private int getPair(int index, int name, int id)
+	{
+		int pos = nameEntities[index].position(id);
+		if(pos < 0)
+			return -1;
+		for(int k = 0; k < nameEntities[index].valueCount(pos); k++)
+		{
+			int pair = nameEntities[index].getValue(pos, k);
+			if(pairNames[pair] == name)
+				return pair;
+		}
+		return -1;
+	}
+	
+	//Gets a provenance as a Provenance object
+	private Provenance getProvenance(int p)
+	{
+		return new Provenance(TYPES[provTypes[p]], sources.get(provSources[p]),
+				languages.get(provLanguages[p]), provWeights[p]);
+	}
+	
+	//Gets the provenances of a (name,entity) pair as Provenance objects
+	private Vector<Provenance> getProvenances(int pair)
+	{
+		Vector<Provenance> provs = new Vector<Provenance>(0,1);
+		for(int p = pairProvenances[pair]; p > -1; p = provNext[p])
+			provs.add(getProvenance(p));
+		return provs;
+	}
+	
+	//Gets the index of a source, adding it if it is new
+	private int getSourceIndex(String source)
+	{
+		Integer i = sourceIndexes.get(source);
+		if(i == null)
+		{
+			i = sources.size();
+			sources.add(source);
+			sourceIndexes.put(source, i);
+		}
+		return i;
+	}
+	
+	//Inserts an entry normalized with normalize(Entry) into the Lexicon
+	//(entries must be inserted in the same order in which they would be
+	//added so that the Lexicon and NameDictionary don't depend on threads)
+	protected void insert(Entry x)
+	{
+		int index = getIndex(x.entity);
+		int n = dictionary.add(x.name);
+		int pair = getPair(index, n, x.id);
+		if(pair == -1)
+			pair = addPair(index, n, x.id);
+		addProvenance(index, pair, x.type, x.source, x.language, x.weight);
+		Integer i = langCount.get(x.language);
+		if(i == null)
+			langCount.put(x.language, 1);
+		else
+			langCount.put(x.language, i+1);
+		//And notify the listeners
+		for(LexiconListener l : listeners)
+			l.entryAdded(x.id, x.name, x.entity);
+	}
+	
+	//Checks whether a provenance is external
+	private boolean isExternal(int p)
+	{
+		return !sources.get(provSources[p]).equals("");
+	}
+	
+	//Normalizes the name of an entry according to its language and EntityType
+	//(which must be set) and returns whether it should be added to the Lexicon;
+	//this doesn't change the Lexicon, so it can be run in parallel
+	protected static boolean normalize(Entry x)
+	{
+		//First ensure that the name is not null or empty
+		if(x.name == null || x.name.equals(""))
+			return false;
+		
+		if(x.language.length() > 2)
+			x.language = x.language.substring(0, 2);
+
+		//If the name is not in english we parse it as a formula
+		if(!x.language.equals("en"))
+			x.name = StringParser.normalizeFormula(x.name);
+		//Otherwise
+		else
+		{
+			//If it doesn't contain Latin characters, don't add it
+			if(!LATIN.matcher(x.name).matches())
+				return false;
+			//If it is a formula, parse it and label it as such
+			else if(StringParser.isFormula(x.name))
+			{
+				x.name = StringParser.normalizeFormula(x.name);
+				x.type = LexicalType.FORMULA;
+			}
+			//If it is a property, parse it as such
+			else if(x.entity.equals(EntityType.DATA) || x.entity.equals(EntityType.OBJECT))
+				x.name = StringParser.normalizeProperty(x.name);
+			//Otherwise, parse it normally
+			else
+				x.name = StringParser.normalizeName(x.name);
+		}
+		return true;
+	}
+	
+	//Read-only view of the entities of an EntityType in the Lexicon
+	private class KeySet extends AbstractSet<Integer>
+	{
+		private IntListMap map;
+		
+		public KeySet(IntListMap m)
+		{
+			map = m;
+		}
+		
+		@Override
+		public boolean contains(Object o)
+		{
+			return o instanceof Integer && map.contains((Integer)o);
+		}
+		
+		@Override
+		public Iterator<Integer> iterator()
+		{
+			return new Iterator<Integer>()
+			{
+				private int next = 0;
+				
+				@Override
+				public boolean hasNext()
+				{
+					return next < map.keyCount();
+				}
+				
+				@Override
+				public Integer next()
+				{
+					return map.getKey(next++);
+				}
+				
+				@Override
+				public void remove()
+				{
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+		
+		@Override
+		public int size()
+		{
+			return map.keyCount();
+		}
+	}
+	
+	//Read-only view of the names of an EntityType in the Lexicon
+	private class NameSet extends AbstractSet<String>
+	{
+		private IntListMap map;
+		
+		public NameSet(IntListMap m)
+		{
+			map = m;
+		}
+		
+		@Override
+		public boolean contains(Object o)
+		{
+			if(!(o instanceof String))
+				return false;
+			int n = dictionary.getId((String)o);
+			return n > -1 && map.contains(n);
+		}
+		
+		@Override
+		public Iterator<String> iterator()
+		{
+			return new Iterator<String>()
+			{
+				private int next = 0;
+				
+				@Override
+				public boolean hasNext()
+				{
+					return next < map.keyCount();
+				}
+				
+				@Override
+				public String next()
+				{
+					return dictionary.getName(map.getKey(next++));
+				}
+				
+				@Override
+				public void remove()
+				{
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+		
+		@Override
+		public int size()
+		{
+			return map.keyCount();
+		}
+	}
+
+	//A lexical entry waiting to be normalized and inserted into the Lexicon
+	protected static class Entry
+	{
+		int id;
+		String name;
+		String language;
+		LexicalType type;
+		String source;
+		double weight;
+		EntityType entity;
+		
+		Entry(int id, String name, String language, LexicalType type, String source, double weight)
+		{
+			this.id = id;
+			this.name = name;
+			this.language = language;
+			this.type = type;
+			this.source = source;
+			this.weight = weight;
+		}
+	}
+}
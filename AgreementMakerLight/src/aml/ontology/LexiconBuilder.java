@@ -0,0 +1,155 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Builds a Lexicon in a pipeline while an ontology is loaded: entries are     *
+* buffered in batches, and each full batch is normalized in parallel while    *
+* the loader goes on reading the next one. Batches are inserted into the      *
+* Lexicon in the order in which their entries were added, so the Lexicon (and *
+* the NameDictionary) are the same as if the entries were added one by one.   *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import java.util.Vector;
+import java.util.concurrent.ForkJoinTask;
+
+import aml.AML;
+import aml.settings.LexicalType;
+import aml.util.IndexFunction;
+import aml.util.ParallelExecutor;
+
+public class LexiconBuilder
+{
+
+//Attributes
+
+	//The number of entries normalized by a single task
+	private static final int CHUNK_SIZE = 256;
+	//The number of entries in a batch
+	private static final int BATCH_SIZE = 8192;
+	//The Lexicon to build
+	private Lexicon lex;
+	//The URIMap, from which the EntityTypes of the entries are read
+	private URIMap uris;
+	//The executor that normalizes the batches
+	private ParallelExecutor exec;
+	//The batch that is being filled
+	private Vector<Lexicon.Entry> batch;
+	//The batch that is being normalized, whether each of its
+	//entries is to be inserted, and the task that normalizes it
+	private Vector<Lexicon.Entry> pending;
+	private boolean[] accepted;
+	private ForkJoinTask<Vector<Void>> task;
+
+//Constructors
+
+	/**
+	 * Constructs a new LexiconBuilder for the given Lexicon
+	 * @param l: the Lexicon to build
+	 */
+	public LexiconBuilder(Lexicon l)
+	{
+		lex = l;
+		uris = AML.getInstance().getURIMap();
+		exec = AML.getInstance().getExecutor();
+		batch = new Vector<Lexicon.Entry>(BATCH_SIZE);
+	}
+
+//Public Methods
+
+	/**
+	 * Adds a new entry to the Lexicon (the entry is only inserted once its
+	 * batch is normalized, so the Lexicon shouldn't be read before close())
+	 * @param id: the numerical index of the entry to add
+	 * @param name: the name of the entry to add
+	 * @param language: the language of the entry to add
+	 * @param type: the LexicalType of the entry to add (localName, label, etc)
+	 * @param source: the source of the entry (ontology URI, etc)
+	 * @param weight: the numeric weight of the entry, in [0.0,1.0]
+	 */
+	public void add(int id, String name, String language, LexicalType type, String source, double weight)
+	{
+		Lexicon.Entry x = new Lexicon.Entry(id, name, language, type, source, weight);
+		//The EntityType is read here, as the URIMap may be updated
+		//by the loader while the batch is normalized
+		x.entity = uris.getType(id);
+		batch.add(x);
+		if(batch.size() == BATCH_SIZE)
+			submit();
+	}
+
+	/**
+	 * Normalizes and inserts all remaining entries into the Lexicon, which is
+	 * complete once this method returns
+	 */
+	public void close()
+	{
+		submit();
+		join();
+	}
+
+//Private Methods
+
+	//Waits for the pending batch to be normalized and inserts it into the Lexicon
+	//(if normalizing failed, join rethrows the failure as an unchecked exception,
+	//rather than leaving the Lexicon with a partial batch)
+	private void join()
+	{
+		if(pending == null)
+			return;
+		if(task != null)
+			task.join();
+		for(int i = 0; i < pending.size(); i++)
+			if(accepted[i])
+				lex.insert(pending.get(i));
+		pending = null;
+		accepted = null;
+		task = null;
+	}
+
+	//Inserts the previous batch and starts normalizing the current one
+	private void submit()
+	{
+		join();
+		if(batch.isEmpty())
+			return;
+		pending = batch;
+		accepted = new boolean[pending.size()];
+		batch = new Vector<Lexicon.Entry>(BATCH_SIZE);
+		//Small batches (or a single thread) aren't worth the overhead
+		if(pending.size() <= CHUNK_SIZE || exec.getParallelism() == 1)
+		{
+			for(int i = 0; i < pending.size(); i++)
+				accepted[i] = Lexicon.normalize(pending.get(i));
+			return;
+		}
+		Vector<Integer> chunks = new Vector<Integer>();
+		for(int i = 0; i < pending.size(); i += CHUNK_SIZE)
+			chunks.add(i);
+		final Vector<Lexicon.Entry> entries = pending;
+		final boolean[] keep = accepted;
+		task = exec.submit(chunks, new IndexFunction<Void>()
+		{
+			@Override
+			public Void compute(int start)
+			{
+				int end = Math.min(start + CHUNK_SIZE, entries.size());
+				for(int i = start; i < end; i++)
+					keep[i] = Lexicon.normalize(entries.get(i));
+				return null;
+			}
+		});
+	}
+}
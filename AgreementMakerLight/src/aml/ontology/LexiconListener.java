@@ -0,0 +1,34 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Listener of the additions to a Lexicon, which is notified after each entry  *
+* is added, so that the data structures derived from the Lexicon (such as     *
+* the WordLexicon) can be kept up to date without being rebuilt.              *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import aml.settings.EntityType;
+
+public interface LexiconListener
+{
+	/**
+	 * Notifies the listener that an entry was added to the Lexicon
+	 * @param id: the index of the entity of the entry
+	 * @param name: the (normalized) name of the entry
+	 * @param e: the EntityType of the entity
+	 */
+	public void entryAdded(int id, String name, EntityType e);
+}
@@ -0,0 +1,102 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Global dictionary of the (normalized) names in the Lexicons, which assigns  *
+* each distinct name a unique int id, so that the Lexicons store each name    *
+* only once and can be compared by id. Names can be added concurrently.       *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class NameDictionary
+{
+
+//Attributes
+
+	//The id of each name
+	private ConcurrentHashMap<String,Integer> ids;
+	//The names, by id
+	private volatile String[] names;
+	private int size;
+
+//Constructors
+
+	/**
+	 * Constructs a new empty NameDictionary
+	 */
+	public NameDictionary()
+	{
+		ids = new ConcurrentHashMap<String,Integer>();
+		names = new String[1024];
+		size = 0;
+	}
+
+//Public Methods
+
+	/**
+	 * Adds a name to the NameDictionary if it isn't already in it
+	 * @param name: the name to add
+	 * @return the id of the name
+	 */
+	public int add(String name)
+	{
+		Integer id = ids.get(name);
+		if(id != null)
+			return id;
+		synchronized(this)
+		{
+			id = ids.get(name);
+			if(id != null)
+				return id;
+			if(size == names.length)
+				names = Arrays.copyOf(names, 2 * size);
+			names[size] = name;
+			ids.put(name, size);
+			return size++;
+		}
+	}
+
+	/**
+	 * @param name: the name to search in the NameDictionary
+	 * @return the id of the name, or -1 if the name is not in the NameDictionary
+	 */
+	public int getId(String name)
+	{
+		Integer id = ids.get(name);
+		if(id == null)
+			return -1;
+		return id;
+	}
+
+	/**
+	 * @param id: the id of the name to get
+	 * @return the name with the given id
+	 */
+	public String getName(int id)
+	{
+		return names[id];
+	}
+
+	/**
+	 * @return the number of names in the NameDictionary
+	 */
+	public int size()
+	{
+		return ids.size();
+	}
+}
\ No newline at end of file
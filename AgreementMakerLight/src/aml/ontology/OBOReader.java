@@ -0,0 +1,408 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Streaming reader of OBO ontology files, which translates each stanza into   *
+* the OWL triples the OWL API would produce for it, and passes them to a      *
+* TripleHandler as soon as the stanza is read. Only the tags that AML uses    *
+* are translated. Instances and imports are not supported.                    *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Vector;
+
+public class OBOReader
+{
+
+//Attributes
+
+	//The vocabulary used in the translation
+	private static final String OBO = "http://purl.obolibrary.org/obo/";
+	private static final String OBO_IN_OWL = "http://www.geneontology.org/formats/oboInOwl#";
+	private static final String RDF = "http://www.w3.org/1999/02/22-rdf-syntax-ns#";
+	private static final String RDFS = "http://www.w3.org/2000/01/rdf-schema#";
+	private static final String OWL = "http://www.w3.org/2002/07/owl#";
+	private static final String XSD = "http://www.w3.org/2001/XMLSchema#";
+	//The handler of the triples
+	private TripleHandler handler;
+	//The id of the ontology
+	private String ontologyId;
+	//The URIs of the relations with a shorthand id (e.g. part_of -> BFO_0000050)
+	private HashMap<String,String> relations;
+	//The number of anonymous blank nodes so far
+	private int blankNodes;
+
+//Constructors
+
+	/**
+	 * Constructs a new OBOReader
+	 * @param handler: the TripleHandler that will receive the triples
+	 */
+	public OBOReader(TripleHandler handler)
+	{
+		this.handler = handler;
+	}
+
+//Public Methods
+
+	/**
+	 * Reads an OBO file, passing the triples of its stanzas to the handler
+	 * @param file: the OBO file to read
+	 * @throws IOException if the file can't be read
+	 * @throws UnsupportedConstructException if the file has a stanza or tag
+	 * that can't be streamed
+	 */
+	public void read(File file) throws IOException, UnsupportedConstructException
+	{
+		ontologyId = null;
+		relations = new HashMap<String,String>();
+		blankNodes = 0;
+		//The relations must be known before the terms that use them, so the
+		//header and the Typedef stanzas are read in a first pass
+		BufferedReader in = open(file);
+		try
+		{
+			String stanza = "";
+			String id = null;
+			String line;
+			while((line = in.readLine()) != null)
+			{
+				line = line.trim();
+				if(line.startsWith("["))
+				{
+					stanza = line;
+					id = null;
+					continue;
+				}
+				String[] tag = splitTag(line);
+				if(tag == null)
+					continue;
+				if(stanza.equals("") && tag[0].equals("ontology"))
+					ontologyId = tag[1];
+				else if(stanza.equals("") && tag[0].equals("import"))
+					throw new UnsupportedConstructException("OBO import");
+				else if(stanza.equals("[Typedef]") && tag[0].equals("id"))
+					id = tag[1];
+				//A relation with a shorthand id is translated into the id of its xref
+				else if(stanza.equals("[Typedef]") && tag[0].equals("xref") && id != null &&
+						id.indexOf(':') < 0 && !relations.containsKey(id))
+				{
+					String xref = firstToken(tag[1]);
+					if(xref.indexOf(':') > 0 && !xref.contains("://"))
+						relations.put(id, getURI(xref));
+				}
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+		if(ontologyId != null)
+			handler.handleResource(getOntologyURI(), RDF + "type", OWL + "Ontology");
+		//Then the stanzas are translated in a second pass
+		in = open(file);
+		try
+		{
+			String stanza = "";
+			Vector<String[]> tags = new Vector<String[]>();
+			String line;
+			while((line = in.readLine()) != null)
+			{
+				line = line.trim();
+				if(line.startsWith("["))
+				{
+					readStanza(stanza, tags);
+					stanza = line;
+					tags.clear();
+					continue;
+				}
+				String[] tag = splitTag(line);
+				if(tag != null)
+					tags.add(tag);
+			}
+			readStanza(stanza, tags);
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+//Private Methods
+
+	//Gets the first token of a tag value (e.g. the id in an xref with a description)
+	private String firstToken(String value)
+	{
+		int space = value.indexOf(' ');
+		if(space < 0)
+			return value;
+		return value.substring(0, space);
+	}
+
+	//Gets the URI of the ontology
+	private String getOntologyURI()
+	{
+		if(ontologyId.contains("://"))
+			return ontologyId;
+		return OBO + ontologyId + ".owl";
+	}
+
+	//Gets the URI of an OBO id
+	private String getURI(String id)
+	{
+		if(id.contains("://"))
+			return id;
+		int colon = id.indexOf(':');
+		if(colon > 0)
+			return OBO + id.substring(0, colon) + "_" + id.substring(colon + 1);
+		String relation = relations.get(id);
+		if(relation != null)
+			return relation;
+		if(ontologyId == null)
+			return OBO + id;
+		return OBO + ontologyId + "#" + id;
+	}
+
+	//Gets a new blank node
+	private String newBlankNode()
+	{
+		return "_:a" + (++blankNodes);
+	}
+
+	//Opens an OBO file
+	private BufferedReader open(File file) throws IOException
+	{
+		return new BufferedReader(new InputStreamReader(new FileInputStream(file), OntologySnapshot.UTF8));
+	}
+
+	//Translates a class expression "relation filler" into a restriction
+	private String readRestriction(String value) throws UnsupportedConstructException
+	{
+		String[] words = value.split(" +");
+		if(words.length != 2)
+			throw new UnsupportedConstructException("OBO relationship " + value);
+		String restriction = newBlankNode();
+		handler.handleResource(restriction, RDF + "type", OWL + "Restriction");
+		handler.handleResource(restriction, OWL + "onProperty", getURI(words[0]));
+		handler.handleResource(restriction, OWL + "someValuesFrom", getURI(words[1]));
+		return restriction;
+	}
+
+	//Translates a stanza into triples
+	private void readStanza(String stanza, Vector<String[]> tags) throws UnsupportedConstructException
+	{
+		if(stanza.equals(""))
+			return;
+		if(!stanza.equals("[Term]") && !stanza.equals("[Typedef]"))
+			throw new UnsupportedConstructException("OBO stanza " + stanza);
+		String id = null;
+		for(String[] tag : tags)
+			if(tag[0].equals("id"))
+				id = getURI(tag[1]);
+		if(id == null)
+			return;
+		boolean term = stanza.equals("[Term]");
+		boolean metadata = false;
+		for(String[] tag : tags)
+			if(tag[0].equals("is_metadata_tag") && tag[1].equals("true"))
+				metadata = true;
+		if(term)
+			handler.handleResource(id, RDF + "type", OWL + "Class");
+		else if(metadata)
+			handler.handleResource(id, RDF + "type", OWL + "AnnotationProperty");
+		else
+			handler.handleResource(id, RDF + "type", OWL + "ObjectProperty");
+		Vector<String> intersection = new Vector<String>();
+		Vector<String> union = new Vector<String>();
+		for(String[] tag : tags)
+		{
+			String t = tag[0];
+			String value = tag[1];
+			if(t.equals("name"))
+				handler.handleLiteral(id, RDFS + "label", value, "", "");
+			else if(t.equals("synonym") || t.endsWith("_synonym"))
+			{
+				//synonym: "name" SCOPE [xrefs] (or the older scope_synonym: "name" [xrefs])
+				String[] synonym = splitQuoted(value);
+				if(synonym == null)
+					continue;
+				String scope = t.equals("synonym") ? firstToken(synonym[1]) :
+					t.substring(0, t.indexOf('_')).toUpperCase();
+				String property;
+				if(scope.equals("EXACT"))
+					property = "hasExactSynonym";
+				else if(scope.equals("BROAD"))
+					property = "hasBroadSynonym";
+				else if(scope.equals("NARROW"))
+					property = "hasNarrowSynonym";
+				else
+					property = "hasRelatedSynonym";
+				handler.handleLiteral(id, OBO_IN_OWL + property, synonym[0], "", "");
+			}
+			else if(t.equals("xref") && term)
+				handler.handleLiteral(id, OBO_IN_OWL + "hasDbXref", firstToken(value), "", "");
+			else if(t.equals("is_obsolete") && value.equals("true"))
+				handler.handleLiteral(id, OWL + "deprecated", "true", "", XSD + "boolean");
+			else if(t.equals("is_a"))
+			{
+				if(term)
+					handler.handleResource(id, RDFS + "subClassOf", getURI(value));
+				else
+					handler.handleResource(id, RDFS + "subPropertyOf", getURI(value));
+			}
+			else if(t.equals("relationship") && term)
+				handler.handleResource(id, RDFS + "subClassOf", readRestriction(value));
+			else if(t.equals("disjoint_from") && term)
+				handler.handleResource(id, OWL + "disjointWith", getURI(value));
+			else if(t.equals("equivalent_to") && term)
+				handler.handleResource(id, OWL + "equivalentClass", getURI(value));
+			else if(t.equals("intersection_of") && term)
+			{
+				if(value.indexOf(' ') < 0)
+					intersection.add(getURI(value));
+				else
+					intersection.add(readRestriction(value));
+			}
+			else if(t.equals("union_of") && term)
+				union.add(getURI(value));
+			else if(t.equals("is_transitive") && value.equals("true"))
+				handler.handleResource(id, RDF + "type", OWL + "TransitiveProperty");
+			else if(t.equals("is_symmetric") && value.equals("true"))
+				handler.handleResource(id, RDF + "type", OWL + "SymmetricProperty");
+			else if(t.equals("is_functional") && value.equals("true"))
+				handler.handleResource(id, RDF + "type", OWL + "FunctionalProperty");
+			else if(t.equals("inverse_of"))
+				handler.handleResource(id, OWL + "inverseOf", getURI(value));
+			else if(t.equals("domain"))
+				handler.handleResource(id, RDFS + "domain", getURI(value));
+			else if(t.equals("range"))
+				handler.handleResource(id, RDFS + "range", getURI(value));
+			//transitive_over and holds_over_chain are translated into property chains
+			else if(t.equals("transitive_over"))
+				readChain(id, new String[]{id, getURI(value)});
+			else if(t.equals("holds_over_chain"))
+			{
+				String[] words = value.split(" +");
+				if(words.length != 2)
+					throw new UnsupportedConstructException("OBO holds_over_chain " + value);
+				readChain(id, new String[]{getURI(words[0]), getURI(words[1])});
+			}
+		}
+		if(intersection.size() > 0)
+			handler.handleResource(id, OWL + "equivalentClass", readList(OWL + "intersectionOf", intersection));
+		if(union.size() > 0)
+			handler.handleResource(id, OWL + "equivalentClass", readList(OWL + "unionOf", union));
+	}
+
+	//Translates a property chain of a property
+	private void readChain(String property, String[] chain) throws UnsupportedConstructException
+	{
+		String previous = null;
+		for(String p : chain)
+		{
+			String list = newBlankNode();
+			if(previous == null)
+				handler.handleResource(property, OWL + "propertyChainAxiom", list);
+			else
+				handler.handleResource(previous, RDF + "rest", list);
+			handler.handleResource(list, RDF + "first", p);
+			previous = list;
+		}
+		handler.handleResource(previous, RDF + "rest", RDF + "nil");
+	}
+
+	//Translates a list of class expressions into an anonymous class
+	//(an intersection or union)
+	private String readList(String operator, Vector<String> items) throws UnsupportedConstructException
+	{
+		String expression = newBlankNode();
+		handler.handleResource(expression, RDF + "type", OWL + "Class");
+		String previous = null;
+		for(String item : items)
+		{
+			String list = newBlankNode();
+			if(previous == null)
+				handler.handleResource(expression, operator, list);
+			else
+				handler.handleResource(previous, RDF + "rest", list);
+			handler.handleResource(list, RDF + "first", item);
+			previous = list;
+		}
+		handler.handleResource(previous, RDF + "rest", RDF + "nil");
+		return expression;
+	}
+
+	//Splits a quoted value into the (unescaped) quoted text and the rest
+	private String[] splitQuoted(String value)
+	{
+		if(!value.startsWith("\""))
+			return null;
+		StringBuilder text = new StringBuilder();
+		int i = 1;
+		for(; i < value.length(); i++)
+		{
+			char c = value.charAt(i);
+			if(c == '\\' && i + 1 < value.length())
+			{
+				c = value.charAt(++i);
+				if(c == 'n')
+					c = '\n';
+				else if(c == 't')
+					c = '\t';
+				text.append(c);
+			}
+			else if(c == '"')
+				break;
+			else
+				text.append(c);
+		}
+		return new String[]{text.toString(), value.substring(Math.min(i + 1, value.length())).trim()};
+	}
+
+	//Splits a tag-value line into its tag and its value, without the
+	//trailing modifiers ("{...}") and comments ("! ...")
+	private String[] splitTag(String line)
+	{
+		if(line.equals("") || line.startsWith("!"))
+			return null;
+		int colon = line.indexOf(':');
+		if(colon < 1)
+			return null;
+		String value = line.substring(colon + 1).trim();
+		//Find the end of the value (outside quotes)
+		boolean quoted = false;
+		int end = value.length();
+		for(int i = 0; i < value.length(); i++)
+		{
+			char c = value.charAt(i);
+			if(c == '\\')
+				i++;
+			else if(c == '"')
+				quoted = !quoted;
+			else if(!quoted && (c == '!' || c == '{'))
+			{
+				end = i;
+				break;
+			}
+		}
+		return new String[]{line.substring(0, colon), value.substring(0, end).trim()};
+	}
+}
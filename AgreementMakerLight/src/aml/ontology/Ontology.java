@@ -59,7 +59,10 @@ public class Ontology
 	protected OWLOntologyManager manager;
 	protected OWLDataFactory factory;
 	//The entity expansion limit property
-	protected final String LIMIT = "entityExpansionLimit";
+	protected static final String LIMIT = "entityExpansionLimit";
+	//The number of ontologies being parsed (the entity expansion
+	//limit is increased while any ontology is being parsed)
+	private static int parsing = 0;
 	//The URI of the ontology
 	protected String uri;
 	//The set of entities in the ontology
@@ -70,8 +73,8 @@ public class Ontology
 	protected Lexicon lex;
 	//Its value map
 	protected ValueMap vMap;
-	//Its word lexicon
-	protected WordLexicon wLex;
+	//Its word lexicons, by EntityType and language
+	protected HashMap<EntityType,HashMap<String,WordLexicon>> wLex;
 	//Its reference map
 	protected ReferenceMap refs;
 	//The map of class names (String) -> indexes (Integer) in the ontology
@@ -79,6 +82,9 @@ public class Ontology
 	protected HashMap<String,Integer> classNames;
 	//Its set of obsolete classes
 	protected HashSet<Integer> obsolete;
+	//Whether its class relationships were restored already closed from a
+	//snapshot (and don't involve classes of other ontologies)
+	protected boolean closed;
 
 	//Global variables & data structures
 	protected AML aml;
@@ -86,11 +92,15 @@ public class Ontology
 	protected boolean isSKOS;
 	protected URIMap uris;
 	protected RelationshipMap rm;
+	//The ontology parsed with the OWL API or read by the StreamLoader,
+	//until its entities are added to AML
+	private OWLOntology parsed;
+	private StreamLoader streamed;
 
 	//Auxiliary data structures to capture semantic disjointness
-	private Table2Map<Integer,Integer,Integer> maxCard, minCard, card;
-	private Table2Map<Integer,Integer,String> dataAllValues, dataHasValue, dataSomeValues;
-	private Table2Map<Integer,Integer,Integer> objectAllValues, objectSomeValues;
+	protected Table2Map<Integer,Integer,Integer> maxCard, minCard, card;
+	protected Table2Map<Integer,Integer,String> dataAllValues, dataHasValue, dataSomeValues;
+	protected Table2Map<Integer,Integer,Integer> objectAllValues, objectSomeValues;
 
 //Constructors
 
@@ -99,8 +109,6 @@ public class Ontology
 	 */
 	protected Ontology()
 	{
-		//Increase the entity expansion limit to allow large ontologies
-		System.setProperty(LIMIT, "1000000");
 		//Get an Ontology Manager and Data Factory
 		manager = OWLManager.createOWLOntologyManager();
 
@@ -119,7 +127,7 @@ public class Ontology
 		refs = new ReferenceMap();
 		classNames = new HashMap<String,Integer>();
 		obsolete = new HashSet<Integer>();
-		wLex = null;
+		wLex = new HashMap<EntityType,HashMap<String,WordLexicon>>();
 		aml = AML.getInstance();
 		useReasoner = aml.useReasoner();
 		uris = aml.getURIMap();
@@ -136,17 +144,9 @@ public class Ontology
 		this();
 		//Load the local ontology
 		File f = new File(path);
-		OWLOntology o;
-
-
-
-		o = manager.loadOntologyFromOntologyDocument(f);
 		uri = f.getAbsolutePath();
-		init(o);
-		//Close the OntModel
-		manager.removeOntology(o);
-		//Reset the entity expansion limit
-		System.clearProperty(LIMIT);
+		read(f.toURI());
+		build();
 	}
 
 	/**
@@ -157,24 +157,9 @@ public class Ontology
 	public Ontology(URI uri) throws OWLOntologyCreationException
 	{
 		this();
-		OWLOntology o;
-		//Check if the URI is local
-		if(uri.toString().startsWith("file:"))
-		{
-			File f = new File(uri);
-			o = manager.loadOntologyFromOntologyDocument(f);
-		}
-		else
-		{
-			IRI i = IRI.create(uri);
-			o = manager.loadOntology(i);
-		}
 		this.uri = uri.toString();
-		init(o);
-		//Close the OntModel
-		manager.removeOntology(o);
-		//Reset the entity expansion limit
-		System.clearProperty(LIMIT);
+		read(uri);
+		build();
 	}
 
 	/**
@@ -185,8 +170,6 @@ public class Ontology
 	{
 		this();
 		init(o);
-		//Reset the entity expansion limit
-		System.clearProperty(LIMIT);
 	}
 
 	//Public Methods
@@ -201,6 +184,26 @@ public class Ontology
 		entityTypes.add(uris.getType(index), index);
 	}
 
+	/**
+	 * Adds the entities of a parsed Ontology to AML (ontologies must be built
+	 * one at a time, in the order in which their entities should be indexed)
+	 */
+	public void build()
+	{
+		if(streamed != null)
+		{
+			streamed.commit();
+			streamed = null;
+		}
+		else if(parsed != null)
+		{
+			init(parsed);
+			//Close the OntModel
+			manager.removeOntology(parsed);
+			parsed = null;
+		}
+	}
+
 	/**
 	 * Closes the Ontology data structures
 	 */
@@ -318,32 +321,51 @@ public class Ontology
 	}
 
 	/**
-	 * Build a new WordLexicon of the given EntityType and without
-	 * language restrictions for this Ontology, or returns the
-	 * current WordLexicon if it matches these specifications.
+	 * Gets the WordLexicon of the given EntityType and without
+	 * language restrictions for this Ontology, building it if
+	 * it wasn't built before. Once built, the WordLexicon is
+	 * kept up to date with the additions to the Lexicon.
 	 * @param e: the EntityType for which to build the WordLexicon
 	 * @return the WordLexicon of this Ontology
 	 */
 	public WordLexicon getWordLexicon(EntityType e)
 	{
-		if(wLex == null || !wLex.getType().equals(e) || !wLex.getLanguage().equals(""))
-			wLex = new WordLexicon(lex,e);
-		return wLex;
+		return getWordLexicon(e,"");
 	}
 
 	/**
-	 * Build a new WordLexicon of the given EntityType and language
-	 * for this Ontology, or returns the current WordLexicon if it
-	 * matches these specifications.
+	 * Gets the WordLexicon of the given EntityType and language
+	 * for this Ontology, building it if it wasn't built before.
+	 * Once built, the WordLexicon is kept up to date with the
+	 * additions to the Lexicon.
 	 * @param e: the EntityType for which to build the WordLexicon
 	 * @param lang: the language of the WordLexicon
 	 * @return the WordLexicon of this Ontology
 	 */
 	public WordLexicon getWordLexicon(EntityType e, String lang)
 	{
-		if(wLex == null || !wLex.getLanguage().equals(lang))
-			wLex = new WordLexicon(lex,e,lang);
-		return wLex;
+		HashMap<String,WordLexicon> byLang = wLex.get(e);
+		if(byLang == null)
+		{
+			byLang = new HashMap<String,WordLexicon>();
+			wLex.put(e, byLang);
+		}
+		WordLexicon w = byLang.get(lang);
+		if(w == null)
+		{
+			w = new WordLexicon(lex,e,lang);
+			byLang.put(lang, w);
+		}
+		return w;
+	}
+
+	/**
+	 * @return whether the class relationships of this ontology were restored
+	 * from a snapshot with their transitive closure
+	 */
+	public boolean isClosed()
+	{
+		return closed;
 	}
 
 	/**
@@ -363,8 +385,66 @@ public class Ontology
 		return isSKOS;
 	}
 
+	/**
+	 * Parses an Ontology from an URI without adding its entities to AML, so
+	 * that it can be parsed concurrently with other ontologies
+	 * @param uri: the URI of the input Ontology
+	 * @return the parsed Ontology, which is empty until it is built
+	 * @throws OWLOntologyCreationException
+	 */
+	public static Ontology parse(URI uri) throws OWLOntologyCreationException
+	{
+		Ontology o = new Ontology();
+		o.uri = uri.toString();
+		o.read(uri);
+		return o;
+	}
+
 //Private Methods
 
+	//Parses an ontology from an URI (streaming it if it is a local file and
+	//streaming is enabled), increasing the entity expansion limit meanwhile
+	private void read(URI uri) throws OWLOntologyCreationException
+	{
+		increaseLimit();
+		try
+		{
+			//Check if the URI is local
+			if(uri.toString().startsWith("file:"))
+			{
+				File f = new File(uri);
+				//Stream it if streaming is enabled (and it can be streamed)
+				if(aml.useStreaming() && !useReasoner)
+					streamed = StreamLoader.read(this, f);
+				if(streamed == null)
+					parsed = manager.loadOntologyFromOntologyDocument(f);
+			}
+			else
+			{
+				IRI i = IRI.create(uri);
+				parsed = manager.loadOntology(i);
+			}
+		}
+		finally
+		{
+			resetLimit();
+		}
+	}
+
+	//Increases the entity expansion limit to allow large ontologies
+	private static synchronized void increaseLimit()
+	{
+		if(parsing++ == 0)
+			System.setProperty(LIMIT, "1000000");
+	}
+
+	//Resets the entity expansion limit once no ontology is being parsed
+	private static synchronized void resetLimit()
+	{
+		if(--parsing == 0)
+			System.clearProperty(LIMIT);
+	}
+
 	//Builds the ontology data structures
 	private void init(OWLOntology o)
 	{
@@ -612,6 +692,8 @@ public class Ontology
 	//Processes the classes and their lexical information
 	private void getOWLClasses(OWLOntology o)
 	{
+		//The builder of the Lexicon (which normalizes the names in parallel)
+		LexiconBuilder builder = new LexiconBuilder(lex);
 		//The Lexical type and weight
 		LexicalType type;
 		double weight;
@@ -641,7 +723,7 @@ public class Ontology
 			{
 				type = LexicalType.LOCAL_NAME;
 				weight = type.getDefaultWeight();
-				lex.add(id, name, "en", type, "", weight);
+				builder.add(id, name, "en", type, "", weight);
 			}
 
 			//Now get the class's annotations (including imports)
@@ -663,7 +745,7 @@ public class Ontology
 						String lang = val.getLang();
 						if(lang.equals(""))
 							lang = "en";
-						lex.add(id, name, lang, type, "", weight);
+						builder.add(id, name, lang, type, "", weight);
 					}
 					else if(annotation.getValue() instanceof IRI)
 					{
@@ -677,7 +759,7 @@ public class Ontology
 								String lang = val.getLang();
 								if(lang.equals(""))
 									lang = "en";
-								lex.add(id, name, lang, type, "", weight);
+								builder.add(id, name, lang, type, "", weight);
 							}
 						}
 					}
@@ -751,6 +833,7 @@ public class Ontology
 					refs.add(id, e.toString());
 			}
 		}
+		builder.close();
 	}
 
 	//Reads the properties
@@ -952,6 +1035,8 @@ public class Ontology
 	//@author Catia Pesquita
 	private void getOWLNamedIndividuals(OWLOntology o)
 	{
+		//The builder of the Lexicon (which normalizes the names in parallel)
+		LexiconBuilder builder = new LexiconBuilder(lex);
 		Map<String,Integer> langCounts = new LinkedHashMap<String,Integer>();
 		LexicalType type;
 		double weight;
@@ -1004,7 +1089,7 @@ public class Ontology
 					}
 					type = LexicalType.LABEL;
 					weight = type.getDefaultWeight();
-					lex.add(id, name, lang, type, "", weight);
+					builder.add(id, name, lang, type, "", weight);
 				}
 			}
 			//If the local name is not an alphanumeric code, add it to the lexicon
@@ -1023,7 +1108,7 @@ public class Ontology
 						lang = langCounts.keySet().iterator().next();
 					}
 				}
-				lex.add(id, localName, lang, type, "", weight);
+				builder.add(id, localName, lang, type, "", weight);
 			}
 			//Get the annotations of the Individual
 			for(OWLAnnotation annotation : EntitySearcher.getAnnotations(i,o))
@@ -1044,14 +1129,14 @@ public class Ontology
 						String localLang = val.getLang();
 						if(localLang.equals(""))
 							localLang = lang;
-						lex.add(id, name, localLang, type, "", weight);
+						builder.add(id, name, localLang, type, "", weight);
 					}
 					else if(annotation.getValue() instanceof IRI)
 					{
 						String iri = ((IRI)annotation.getValue()).toString();
 						String name = getLocalName(iri);
 						if(!StringParser.isNumericId(name))
-							lex.add(id, name, lang, type, "", weight);
+							builder.add(id, name, lang, type, "", weight);
 						OWLNamedIndividual ni = factory.getOWLNamedIndividual((IRI) annotation.getValue());
 						for(OWLAnnotation a : EntitySearcher.getAnnotations(ni,o,label))
 						{
@@ -1062,7 +1147,7 @@ public class Ontology
 								String localLang = val.getLang();
 								if(localLang.equals(""))
 									localLang = lang;
-								lex.add(id, name, localLang, type, "", weight);
+								builder.add(id, name, localLang, type, "", weight);
 							}
 						}
 					}
@@ -1100,7 +1185,7 @@ public class Ontology
 				{
 					weight = type.getDefaultWeight();
 					for(OWLLiteral val : dataPropValues.get(prop))
-						lex.add(id, val.getLiteral(), "en", type, "", weight);
+						builder.add(id, val.getLiteral(), "en", type, "", weight);
 				}
 				//Otherwise, they go to the ValueMap
 				else
@@ -1115,6 +1200,7 @@ public class Ontology
 					rm.addInstance(id, rm.getDomains(propIndex).iterator().next());
 			}
 		}
+		builder.close();
 	}
 
 	//Reads all class relationships
@@ -1128,21 +1214,7 @@ public class Ontology
 			//reasoner = reasonerFactory.createReasoner(o);
 		}
 
-		//Auxiliary data structures to capture semantic disjointness
-		//Two classes are disjoint if they have:
-		//1) Incompatible cardinality restrictions for the same property
-		maxCard = new Table2Map<Integer,Integer,Integer>();
-		minCard = new Table2Map<Integer,Integer,Integer>();
-		card = new Table2Map<Integer,Integer,Integer>();
-		//2) Different values for the same functional data property or incompatible value
-		//restrictions on the same non-functional data property
-		dataAllValues = new Table2Map<Integer,Integer,String>();
-		dataHasValue = new Table2Map<Integer,Integer,String>();
-		dataSomeValues = new Table2Map<Integer,Integer,String>();
-		//3) Disjoint classes for the same functional object property or incompatible value
-		//restrictions on disjoint classes for the same non-functional object property
-		objectAllValues = new Table2Map<Integer,Integer,Integer>();
-		objectSomeValues = new Table2Map<Integer,Integer,Integer>();
+		initDisjointTables();
 
 		//I - Relationships involving classes
 		//Get an iterator over the ontology classes
@@ -1259,6 +1331,168 @@ public class Ontology
 		}
 
 		//Finally process the semantically disjoint classes
+		processSemanticDisjoints();
+
+		//II - Relationships between named individuals
+		//@author: Catia Pesquita
+		//Get an iterator over the named individuals
+		Set<OWLNamedIndividual> individuals = o.getIndividualsInSignature();
+		for(OWLNamedIndividual i : individuals)
+		{
+			//Get the numeric id for each individual
+			int namedIndivId = uris.getIndex(i.getIRI().toString());
+			if(namedIndivId == -1)
+				continue;
+
+
+
+
+			Map<OWLObjectPropertyExpression, Collection<OWLIndividual>> iProps = EntitySearcher.getObjectPropertyValues(i, o).asMap();
+
+			for(OWLObjectPropertyExpression prop : iProps.keySet())
+			{
+				if(prop.isAnonymous())
+					continue;
+
+				String propURI = prop.asOWLObjectProperty().getIRI().toString();
+				int propIndex = uris.getIndex(propURI);
+				if(propIndex == -1)
+					continue;
+
+				//FIX: Filling in missing types of individuals from object property restrictions
+				//(Sometimes ontologies fail to declare individual types)
+				if(rm.getIndividualClasses(namedIndivId).isEmpty() && rm.getDomains(propIndex).size() == 1)
+					rm.addInstance(namedIndivId, rm.getDomains(propIndex).iterator().next());
+
+				for(OWLIndividual rI : iProps.get(prop))
+				{
+					if(rI.isNamed())
+					{
+						int namedRelIndivId = uris.getIndex(rI.asOWLNamedIndividual().getIRI().toString());
+						rm.addIndividualRelationship(namedIndivId, namedRelIndivId, propIndex);
+						//If the individual is an alias of the related individual
+						//use the individual's lexical entries to extend those of
+						//the related individual
+						if(propURI.endsWith("isAliasOf"))
+						{
+							for(String name : lex.getNames(namedIndivId))
+							{
+								for(Provenance p : lex.get(name, namedIndivId))
+								{
+									LexicalType t = p.getType();
+									if(t.equals(LexicalType.LABEL) || t.equals(LexicalType.LOCAL_NAME))
+										t = LexicalType.EXACT_SYNONYM;
+									double weight = t.getDefaultWeight();
+									lex.add(namedRelIndivId,name,p.getLanguage(),t,"",weight);
+								}
+							}
+						}
+						//FIX: Filling in missing types of individuals from object property restrictions
+						//(Sometimes ontologies fail to declare individual types)
+						if(rm.getIndividualClasses(namedRelIndivId).isEmpty() && rm.getObjectRanges(propIndex).size() == 1)
+							rm.addInstance(namedRelIndivId, rm.getObjectRanges(propIndex).iterator().next());
+					}
+				}
+			}
+			//FIX: Relationships between individuals encoded by AnnotationProperties
+			//(Sometimes ontologies fail to declare object properties)
+			for(OWLAnnotation annotation : EntitySearcher.getAnnotations(i,o))
+			{
+				String propUri = annotation.getProperty().getIRI().toString();
+				//If the annotation doesn't have a LexicalType and is
+				//pointing to a URI rather than a literal, treat it as
+				//an object property
+				LexicalType type = LexicalType.getLexicalType(propUri);
+				if(type == null && annotation.getValue() instanceof IRI)
+				{
+					OWLNamedIndividual ni = factory.getOWLNamedIndividual((IRI) annotation.getValue());
+					//Check that the named individual is in the URIMap
+					int namedRelIndivId = uris.getIndex(ni.getIRI().toString());
+					if(namedRelIndivId == -1)
+						continue;
+					//Add the property to the URIMap and Ontology as an object property
+					int propId = uris.addURI(propUri, EntityType.OBJECT);
+					entities.add(propId);
+					entityTypes.add(EntityType.OBJECT, propId);
+					//And remove it as an annotation property
+					entityTypes.remove(EntityType.ANNOTATION, propId);
+					//Add its name to the Lexicon
+					lex.add(propId, getLocalName(propUri), "en", LexicalType.LOCAL_NAME,
+							"", LexicalType.LOCAL_NAME.getDefaultWeight());
+					//Add the relation to the RelationshipMap
+					rm.addIndividualRelationship(namedIndivId, namedRelIndivId, propId);
+				}
+			}
+		}
+
+
+		//III - Relationships between properties
+		//Data Properties
+		Set<OWLDataProperty> dProps = o.getDataPropertiesInSignature(true);
+		for(OWLDataProperty dp : dProps)
+		{
+			int propId = uris.getIndex(dp.getIRI().toString());
+			if(propId == -1)
+				continue;
+			Set<OWLDataPropertyExpression> sProps = new HashSet<OWLDataPropertyExpression>(EntitySearcher.getSuperProperties(dp,o));
+			for(OWLDataPropertyExpression de : sProps)
+			{
+				OWLDataProperty sProp = de.asOWLDataProperty();
+				int sId = uris.getIndex(sProp.getIRI().toString());
+				if(sId != -1)
+					rm.addSubProperty(propId,sId);
+			}
+		}
+		//Object Properties
+		Set<OWLObjectProperty> oProps = o.getObjectPropertiesInSignature(true);
+		for(OWLObjectProperty op : oProps)
+		{
+			int propId = uris.getIndex(op.getIRI().toString());
+			if(propId == -1)
+				continue;
+			Set<OWLObjectPropertyExpression> sProps = new HashSet<OWLObjectPropertyExpression>(EntitySearcher.getSuperProperties(op,o));
+			for(OWLObjectPropertyExpression oe : sProps)
+			{
+				OWLObjectProperty sProp = oe.asOWLObjectProperty();
+				int sId = uris.getIndex(sProp.getIRI().toString());
+				if(sId != -1)
+					rm.addSubProperty(propId,sId);
+			}
+			Set<OWLObjectPropertyExpression> iProps = new HashSet<OWLObjectPropertyExpression>(EntitySearcher.getInverses(op,o));
+			for(OWLObjectPropertyExpression oe : iProps)
+			{
+				OWLObjectProperty iProp = oe.asOWLObjectProperty();
+				int iId = uris.getIndex(iProp.getIRI().toString());
+				if(iId != -1)
+					rm.addInverseProp(propId,iId);
+			}
+		}
+	}
+
+	//Initializes the auxiliary data structures used to capture semantic disjointness
+	//(which are filled in while reading the class relationships)
+	protected void initDisjointTables()
+	{
+		//Two classes are disjoint if they have:
+		//1) Incompatible cardinality restrictions for the same property
+		maxCard = new Table2Map<Integer,Integer,Integer>();
+		minCard = new Table2Map<Integer,Integer,Integer>();
+		card = new Table2Map<Integer,Integer,Integer>();
+		//2) Different values for the same functional data property or incompatible value
+		//restrictions on the same non-functional data property
+		dataAllValues = new Table2Map<Integer,Integer,String>();
+		dataHasValue = new Table2Map<Integer,Integer,String>();
+		dataSomeValues = new Table2Map<Integer,Integer,String>();
+		//3) Disjoint classes for the same functional object property or incompatible value
+		//restrictions on disjoint classes for the same non-functional object property
+		objectAllValues = new Table2Map<Integer,Integer,Integer>();
+		objectSomeValues = new Table2Map<Integer,Integer,Integer>();
+	}
+
+	//Processes the semantically disjoint classes from the restrictions read with the
+	//class relationships, and cleans the auxiliary data structures
+	protected void processSemanticDisjoints()
+	{
 		//Classes that have incompatible cardinalities on the same property
 		//First exact cardinalities vs exact, min and max cardinalities
 		for(Integer prop : card.keySet())
@@ -1425,141 +1659,6 @@ public class Ontology
 		dataSomeValues = null;
 		objectAllValues = null;
 		objectSomeValues = null;
-
-		//II - Relationships between named individuals
-		//@author: Catia Pesquita
-		//Get an iterator over the named individuals
-		Set<OWLNamedIndividual> individuals = o.getIndividualsInSignature();
-		for(OWLNamedIndividual i : individuals)
-		{
-			//Get the numeric id for each individual
-			int namedIndivId = uris.getIndex(i.getIRI().toString());
-			if(namedIndivId == -1)
-				continue;
-
-
-
-
-			Map<OWLObjectPropertyExpression, Collection<OWLIndividual>> iProps = EntitySearcher.getObjectPropertyValues(i, o).asMap();
-
-			for(OWLObjectPropertyExpression prop : iProps.keySet())
-			{
-				if(prop.isAnonymous())
-					continue;
-
-				String propURI = prop.asOWLObjectProperty().getIRI().toString();
-				int propIndex = uris.getIndex(propURI);
-				if(propIndex == -1)
-					continue;
-
-				//FIX: Filling in missing types of individuals from object property restrictions
-				//(Sometimes ontologies fail to declare individual types)
-				if(rm.getIndividualClasses(namedIndivId).isEmpty() && rm.getDomains(propIndex).size() == 1)
-					rm.addInstance(namedIndivId, rm.getDomains(propIndex).iterator().next());
-
-				for(OWLIndividual rI : iProps.get(prop))
-				{
-					if(rI.isNamed())
-					{
-						int namedRelIndivId = uris.getIndex(rI.asOWLNamedIndividual().getIRI().toString());
-						rm.addIndividualRelationship(namedIndivId, namedRelIndivId, propIndex);
-						//If the individual is an alias of the related individual
-						//use the individual's lexical entries to extend those of
-						//the related individual
-						if(propURI.endsWith("isAliasOf"))
-						{
-							for(String name : lex.getNames(namedIndivId))
-							{
-								for(Provenance p : lex.get(name, namedIndivId))
-								{
-									LexicalType t = p.getType();
-									if(t.equals(LexicalType.LABEL) || t.equals(LexicalType.LOCAL_NAME))
-										t = LexicalType.EXACT_SYNONYM;
-									double weight = t.getDefaultWeight();
-									lex.add(namedRelIndivId,name,p.getLanguage(),t,"",weight);
-								}
-							}
-						}
-						//FIX: Filling in missing types of individuals from object property restrictions
-						//(Sometimes ontologies fail to declare individual types)
-						if(rm.getIndividualClasses(namedRelIndivId).isEmpty() && rm.getObjectRanges(propIndex).size() == 1)
-							rm.addInstance(namedRelIndivId, rm.getObjectRanges(propIndex).iterator().next());
-					}
-				}
-			}
-			//FIX: Relationships between individuals encoded by AnnotationProperties
-			//(Sometimes ontologies fail to declare object properties)
-			for(OWLAnnotation annotation : EntitySearcher.getAnnotations(i,o))
-			{
-				String propUri = annotation.getProperty().getIRI().toString();
-				//If the annotation doesn't have a LexicalType and is
-				//pointing to a URI rather than a literal, treat it as
-				//an object property
-				LexicalType type = LexicalType.getLexicalType(propUri);
-				if(type == null && annotation.getValue() instanceof IRI)
-				{
-					OWLNamedIndividual ni = factory.getOWLNamedIndividual((IRI) annotation.getValue());
-					//Check that the named individual is in the URIMap
-					int namedRelIndivId = uris.getIndex(ni.getIRI().toString());
-					if(namedRelIndivId == -1)
-						continue;
-					//Add the property to the URIMap and Ontology as an object property
-					int propId = uris.addURI(propUri, EntityType.OBJECT);
-					entities.add(propId);
-					entityTypes.add(EntityType.OBJECT, propId);
-					//And remove it as an annotation property
-					entityTypes.remove(EntityType.ANNOTATION, propId);
-					//Add its name to the Lexicon
-					lex.add(propId, getLocalName(propUri), "en", LexicalType.LOCAL_NAME,
-							"", LexicalType.LOCAL_NAME.getDefaultWeight());
-					//Add the relation to the RelationshipMap
-					rm.addIndividualRelationship(namedIndivId, namedRelIndivId, propId);
-				}
-			}
-		}
-
-
-		//III - Relationships between properties
-		//Data Properties
-		Set<OWLDataProperty> dProps = o.getDataPropertiesInSignature(true);
-		for(OWLDataProperty dp : dProps)
-		{
-			int propId = uris.getIndex(dp.getIRI().toString());
-			if(propId == -1)
-				continue;
-			Set<OWLDataPropertyExpression> sProps = new HashSet<OWLDataPropertyExpression>(EntitySearcher.getSuperProperties(dp,o));
-			for(OWLDataPropertyExpression de : sProps)
-			{
-				OWLDataProperty sProp = de.asOWLDataProperty();
-				int sId = uris.getIndex(sProp.getIRI().toString());
-				if(sId != -1)
-					rm.addSubProperty(propId,sId);
-			}
-		}
-		//Object Properties
-		Set<OWLObjectProperty> oProps = o.getObjectPropertiesInSignature(true);
-		for(OWLObjectProperty op : oProps)
-		{
-			int propId = uris.getIndex(op.getIRI().toString());
-			if(propId == -1)
-				continue;
-			Set<OWLObjectPropertyExpression> sProps = new HashSet<OWLObjectPropertyExpression>(EntitySearcher.getSuperProperties(op,o));
-			for(OWLObjectPropertyExpression oe : sProps)
-			{
-				OWLObjectProperty sProp = oe.asOWLObjectProperty();
-				int sId = uris.getIndex(sProp.getIRI().toString());
-				if(sId != -1)
-					rm.addSubProperty(propId,sId);
-			}
-			Set<OWLObjectPropertyExpression> iProps = new HashSet<OWLObjectPropertyExpression>(EntitySearcher.getInverses(op,o));
-			for(OWLObjectPropertyExpression oe : iProps)
-			{
-				OWLObjectProperty iProp = oe.asOWLObjectProperty();
-				int iId = uris.getIndex(iProp.getIRI().toString());
-				if(iId != -1)
-					rm.addInverseProp(propId,iId);
-			}
-		}
 	}
 
 	//Auxiliary Methods
@@ -0,0 +1,198 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Binary snapshot of a loaded Ontology, with its Lexicon, ValueMap,           *
+* ReferenceMap, the URIs of its entities and their relationships in the       *
+* RelationshipMap (with the transitive closure of the class relationships).   *
+* Snapshots are stored as columns that are read in bulk from a memory mapped  *
+* file, and are identified by the hash of the contents of the ontology file,  *
+* so that an ontology that didn't change doesn't need to be parsed again.     *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Vector;
+
+import aml.AML;
+import aml.util.IntIterator;
+
+public class OntologySnapshot
+{
+
+//Attributes
+
+	//The number at the start of every snapshot ("AMLS")
+	public static final int MAGIC = 0x414D4C53;
+	//The version of the snapshot format (snapshots with a different
+	//version are ignored, so it must be updated when the format changes)
+	public static final int VERSION = 1;
+	//The encoding of the strings in the snapshots
+	public static final Charset UTF8 = Charset.forName("UTF-8");
+	//The directory of the snapshots
+	private static final String SNAPSHOTS = "store/snapshots/";
+
+//Public Methods
+
+	/**
+	 * Gets the snapshot file of an ontology file, which is identified by the
+	 * SHA-256 hash of its contents (and by whether the reasoner is used,
+	 * as that changes the relationships of the ontology)
+	 * @param file: the ontology file
+	 * @return the snapshot file of the ontology file (which may not exist)
+	 * @throws IOException
+	 */
+	public static File getSnapshotFile(File file) throws IOException
+	{
+		MessageDigest digest;
+		try
+		{
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch(NoSuchAlgorithmException e)
+		{
+			throw new IOException(e);
+		}
+		FileInputStream in = new FileInputStream(file);
+		try
+		{
+			byte[] buffer = new byte[65536];
+			int n;
+			while((n = in.read(buffer)) > 0)
+				digest.update(buffer, 0, n);
+		}
+		finally
+		{
+			in.close();
+		}
+		StringBuilder key = new StringBuilder();
+		for(byte b : digest.digest())
+			key.append(String.format("%02x", b));
+		AML aml = AML.getInstance();
+		if(aml.useReasoner())
+			key.append("-reasoner");
+		return new File(aml.getPath() + SNAPSHOTS + key + ".snapshot");
+	}
+
+	/**
+	 * Reads an Ontology from a snapshot, adding its entities to the URIMap
+	 * and its relationships to the RelationshipMap
+	 * @param file: the snapshot file
+	 * @return the Ontology in the snapshot
+	 * @throws IOException if the file is not a snapshot of the current version
+	 */
+	public static Ontology read(File file) throws IOException
+	{
+		SnapshotReader in = new SnapshotReader(file);
+		Ontology o = new Ontology();
+		String[] uri = in.readStrings();
+		if(uri.length > 0)
+			o.uri = uri[0];
+		o.isSKOS = in.readBoolean();
+		for(int i : in.readIds())
+			o.add(i);
+		for(int i : in.readIds())
+			o.obsolete.add(i);
+		String[] names = in.readStrings();
+		int[] classes = in.readIds();
+		for(int i = 0; i < names.length; i++)
+			o.classNames.put(names[i], classes[i]);
+		o.lex.read(in);
+		int[] indivs = in.readIds();
+		int[] props = in.readIds();
+		String[] values = in.readStrings();
+		for(int i = 0; i < indivs.length; i++)
+			o.vMap.add(indivs[i], props[i], values[i]);
+		int[] terms = in.readIds();
+		String[] refs = in.readStrings();
+		for(int i = 0; i < terms.length; i++)
+			o.refs.add(terms[i], refs[i]);
+		o.rm.read(in);
+		o.closed = in.readBoolean();
+		return o;
+	}
+
+	/**
+	 * Writes an Ontology to a snapshot
+	 * @param o: the Ontology to write (whose class relationships in the
+	 * RelationshipMap must be closed)
+	 * @param file: the snapshot file
+	 * @throws IOException
+	 */
+	public static void write(Ontology o, File file) throws IOException
+	{
+		SnapshotWriter out = new SnapshotWriter();
+		if(o.uri == null)
+			out.writeStrings(new String[0]);
+		else
+			out.writeStrings(new String[]{o.uri});
+		out.writeBoolean(o.isSKOS);
+		out.writeIds(o.entities);
+		out.writeIds(o.obsolete);
+		Vector<String> names = new Vector<String>(o.classNames.keySet());
+		Vector<Integer> classes = new Vector<Integer>();
+		for(String n : names)
+			classes.add(o.classNames.get(n));
+		out.writeStrings(names);
+		out.writeIds(classes);
+		o.lex.write(out);
+		Vector<Integer> indivs = new Vector<Integer>();
+		Vector<Integer> props = new Vector<Integer>();
+		Vector<String> values = new Vector<String>();
+		for(Integer i : o.vMap.getIndividuals())
+		{
+			for(Integer p : o.vMap.getProperties(i))
+			{
+				for(String v : o.vMap.getValues(i, p))
+				{
+					indivs.add(i);
+					props.add(p);
+					values.add(v);
+				}
+			}
+		}
+		out.writeIds(indivs);
+		out.writeIds(props);
+		out.writeStrings(values);
+		Vector<Integer> terms = new Vector<Integer>();
+		Vector<String> refs = new Vector<String>();
+		for(Integer t : o.refs.getTerms())
+		{
+			for(String r : o.refs.get(t))
+			{
+				terms.add(t);
+				refs.add(r);
+			}
+		}
+		out.writeIds(terms);
+		out.writeStrings(refs);
+		o.rm.write(out, o.entities);
+		//The class relationships restored from the snapshot can be used as
+		//closed only if they don't involve classes from other ontologies
+		boolean selfContained = true;
+		for(IntIterator i = out.getIds().iterator(); i.hasNext() && selfContained; )
+		{
+			int id = i.next();
+			selfContained = !o.uris.isClass(id) || o.entities.contains(id);
+		}
+		out.writeBoolean(selfContained);
+		out.save(file, o.uris);
+	}
+}
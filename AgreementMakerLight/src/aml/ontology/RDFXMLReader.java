@@ -0,0 +1,377 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Streaming reader of RDF/XML ontology files, which passes each triple to a   *
+* TripleHandler as soon as it is parsed (with SAX), without building a model  *
+* of the file. XML literals (rdf:parseType="Literal") are not supported.      *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Vector;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+public class RDFXMLReader extends DefaultHandler
+{
+
+//Attributes
+
+	//The RDF and XML namespaces
+	public static final String RDF = "http://www.w3.org/1999/02/22-rdf-syntax-ns#";
+	private static final String XML = "http://www.w3.org/XML/1998/namespace";
+	//The kinds of elements
+	private static final int ROOT = 0;
+	private static final int NODE = 1;
+	private static final int PROPERTY = 2;
+	private static final int COLLECTION = 3;
+	private static final int EMPTY = 4;
+	//The handler of the triples
+	private TripleHandler handler;
+	//The stack of open elements
+	private Vector<Element> stack;
+	//The number of anonymous blank nodes so far
+	private int blankNodes;
+
+//Constructors
+
+	/**
+	 * Constructs a new RDFXMLReader
+	 * @param handler: the TripleHandler that will receive the triples
+	 */
+	public RDFXMLReader(TripleHandler handler)
+	{
+		this.handler = handler;
+	}
+
+//Public Methods
+
+	@Override
+	public void characters(char[] ch, int start, int length)
+	{
+		Element e = stack.lastElement();
+		if(e.kind == PROPERTY)
+			e.text.append(ch, start, length);
+	}
+
+	@Override
+	public void endElement(String uri, String localName, String qName) throws SAXException
+	{
+		Element e = stack.remove(stack.size() - 1);
+		try
+		{
+			//A property element without a node element is a literal
+			if(e.kind == PROPERTY)
+				handler.handleLiteral(e.subject, e.predicate, e.text.toString(),
+						e.datatype.equals("") ? e.lang : "", e.datatype);
+			//A collection is a list of the node elements it contains
+			else if(e.kind == COLLECTION)
+			{
+				String previous = null;
+				for(String item : e.items)
+				{
+					String list = newBlankNode();
+					if(previous == null)
+						handler.handleResource(e.subject, e.predicate, list);
+					else
+						handler.handleResource(previous, RDF + "rest", list);
+					handler.handleResource(list, RDF + "first", item);
+					previous = list;
+				}
+				if(previous == null)
+					handler.handleResource(e.subject, e.predicate, RDF + "nil");
+				else
+					handler.handleResource(previous, RDF + "rest", RDF + "nil");
+			}
+		}
+		catch(UnsupportedConstructException x)
+		{
+			throw new SAXException(x);
+		}
+	}
+
+	/**
+	 * Reads an RDF/XML file, passing its triples to the handler
+	 * @param file: the RDF/XML file to read
+	 * @throws IOException if the file can't be read or isn't valid RDF/XML
+	 * @throws UnsupportedConstructException if the handler can't stream a triple
+	 */
+	public void read(File file) throws IOException, UnsupportedConstructException
+	{
+		stack = new Vector<Element>();
+		blankNodes = 0;
+		Element document = new Element(ROOT);
+		document.base = file.toURI().toString();
+		document.lang = "";
+		stack.add(document);
+		try
+		{
+			SAXParserFactory factory = SAXParserFactory.newInstance();
+			factory.setNamespaceAware(true);
+			factory.newSAXParser().parse(file, this);
+		}
+		catch(ParserConfigurationException e)
+		{
+			throw new IOException(e);
+		}
+		catch(SAXException e)
+		{
+			if(e.getException() instanceof UnsupportedConstructException)
+				throw (UnsupportedConstructException)e.getException();
+			throw new IOException(e);
+		}
+		finally
+		{
+			stack = null;
+		}
+	}
+
+	@Override
+	public void startElement(String uri, String localName, String qName, Attributes attributes)
+			throws SAXException
+	{
+		String name = uri + localName;
+		Element parent = stack.lastElement();
+		try
+		{
+			if(parent.kind == EMPTY)
+				throw new SAXException("Unexpected element " + qName + " in empty property element");
+			//The base and language are inherited from the parent element
+			String base = parent.base;
+			String lang = parent.lang;
+			String value = attributes.getValue(XML, "base");
+			if(value != null)
+				base = resolve(base, value);
+			value = attributes.getValue(XML, "lang");
+			if(value != null)
+				lang = value;
+			//The first element must be rdf:RDF (otherwise the file isn't RDF/XML)
+			if(stack.size() == 1)
+			{
+				if(!name.equals(RDF + "RDF"))
+					throw new UnsupportedConstructException("root element " + qName + " (not RDF/XML)");
+				Element e = new Element(ROOT);
+				e.base = base;
+				e.lang = lang;
+				stack.add(e);
+			}
+			//Elements in the root, in collections and in property elements are node elements
+			else if(parent.kind == ROOT || parent.kind == COLLECTION || parent.kind == PROPERTY)
+			{
+				Element e = new Element(NODE);
+				e.base = base;
+				e.lang = lang;
+				if((value = attributes.getValue(RDF, "about")) != null)
+					e.subject = resolve(base, value);
+				else if((value = attributes.getValue(RDF, "ID")) != null)
+					e.subject = resolve(base, "#" + value);
+				else if((value = attributes.getValue(RDF, "nodeID")) != null)
+					e.subject = "_:n" + value;
+				else
+					e.subject = newBlankNode();
+				if(!name.equals(RDF + "Description"))
+					handler.handleResource(e.subject, RDF + "type", name);
+				addPropertyAttributes(e.subject, attributes, base, lang);
+				if(parent.kind == PROPERTY)
+				{
+					handler.handleResource(parent.subject, parent.predicate, e.subject);
+					//The property element has a node, so it isn't a literal
+					//(and can't have any other element)
+					parent.kind = EMPTY;
+				}
+				else if(parent.kind == COLLECTION)
+					parent.items.add(e.subject);
+				stack.add(e);
+			}
+			//Elements in node elements are property elements
+			else
+			{
+				Element e = new Element(PROPERTY);
+				e.base = base;
+				e.lang = lang;
+				e.subject = parent.subject;
+				if(name.equals(RDF + "li"))
+					e.predicate = RDF + "_" + (++parent.members);
+				else
+					e.predicate = name;
+				String parseType = attributes.getValue(RDF, "parseType");
+				String resource = attributes.getValue(RDF, "resource");
+				String node = attributes.getValue(RDF, "nodeID");
+				if(parseType != null && parseType.equals("Resource"))
+				{
+					//The property elements of the element describe a new blank node
+					String object = newBlankNode();
+					handler.handleResource(e.subject, e.predicate, object);
+					e.kind = NODE;
+					e.subject = object;
+				}
+				else if(parseType != null && parseType.equals("Collection"))
+				{
+					e.kind = COLLECTION;
+					e.items = new Vector<String>();
+				}
+				else if(parseType != null)
+					throw new UnsupportedConstructException("rdf:parseType=\"" + parseType + "\"");
+				else if(resource != null || node != null || hasPropertyAttributes(attributes))
+				{
+					//An empty property element points to a resource (which
+					//may be a new blank node described by its attributes)
+					String object;
+					if(resource != null)
+						object = resolve(base, resource);
+					else if(node != null)
+						object = "_:n" + node;
+					else
+						object = newBlankNode();
+					handler.handleResource(e.subject, e.predicate, object);
+					addPropertyAttributes(object, attributes, base, lang);
+					e.kind = EMPTY;
+				}
+				else
+				{
+					//Otherwise, the property element is a literal, unless it
+					//contains a node element
+					e.text = new StringBuilder();
+					value = attributes.getValue(RDF, "datatype");
+					if(value == null)
+						e.datatype = "";
+					else
+						e.datatype = resolve(base, value);
+				}
+				stack.add(e);
+			}
+		}
+		catch(UnsupportedConstructException x)
+		{
+			throw new SAXException(x);
+		}
+	}
+
+//Private Methods
+
+	//Passes the triples of the property attributes of an element to the handler
+	private void addPropertyAttributes(String subject, Attributes attributes, String base, String lang)
+			throws UnsupportedConstructException
+	{
+		for(int i = 0; i < attributes.getLength(); i++)
+		{
+			if(!isPropertyAttribute(attributes, i))
+				continue;
+			String predicate = attributes.getURI(i) + attributes.getLocalName(i);
+			if(predicate.equals(RDF + "type"))
+				handler.handleResource(subject, predicate, resolve(base, attributes.getValue(i)));
+			else
+				handler.handleLiteral(subject, predicate, attributes.getValue(i), lang, "");
+		}
+	}
+
+	//Checks whether an element has property attributes
+	private boolean hasPropertyAttributes(Attributes attributes)
+	{
+		for(int i = 0; i < attributes.getLength(); i++)
+			if(isPropertyAttribute(attributes, i))
+				return true;
+		return false;
+	}
+
+	//Checks whether an attribute is a property attribute (i.e., isn't an
+	//RDF syntax attribute or an XML attribute)
+	private boolean isPropertyAttribute(Attributes attributes, int i)
+	{
+		String ns = attributes.getURI(i);
+		if(ns.equals("") || ns.equals(XML))
+			return false;
+		if(!ns.equals(RDF))
+			return true;
+		String name = attributes.getLocalName(i);
+		return !name.equals("about") && !name.equals("ID") && !name.equals("nodeID") &&
+				!name.equals("resource") && !name.equals("parseType") &&
+				!name.equals("datatype") && !name.equals("bagID") && !name.equals("aboutEach");
+	}
+
+	//Gets a new blank node
+	private String newBlankNode()
+	{
+		return "_:a" + (++blankNodes);
+	}
+
+	//Resolves a (possibly relative) URI against a base URI
+	private String resolve(String base, String ref)
+	{
+		//Absolute URIs are returned as they are
+		int colon = ref.indexOf(':');
+		if(colon > 0 && Character.isLetter(ref.charAt(0)))
+		{
+			boolean scheme = true;
+			for(int i = 1; i < colon && scheme; i++)
+			{
+				char c = ref.charAt(i);
+				scheme = Character.isLetterOrDigit(c) || c == '+' || c == '-' || c == '.';
+			}
+			if(scheme)
+				return ref;
+		}
+		int hash = base.indexOf('#');
+		if(hash > -1)
+			base = base.substring(0, hash);
+		if(ref.equals(""))
+			return base;
+		if(ref.startsWith("#"))
+			return base + ref;
+		try
+		{
+			return URI.create(base).resolve(ref).toString();
+		}
+		catch(IllegalArgumentException e)
+		{
+			return base + ref;
+		}
+	}
+
+	//An open element of the file
+	private static class Element
+	{
+		//The kind of element
+		int kind;
+		//The base URI and the language of the element
+		String base;
+		String lang;
+		//The subject of the element (for node elements) or of its
+		//parent (for property elements)
+		String subject;
+		//The predicate of a property element
+		String predicate;
+		//The datatype and the text of a property element that may be a literal
+		String datatype;
+		StringBuilder text;
+		//The node elements in a collection
+		Vector<String> items;
+		//The number of rdf:li members of a node element
+		int members;
+
+		Element(int kind)
+		{
+			this.kind = kind;
+		}
+	}
+}
@@ -0,0 +1,396 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Reachability index of a class hierarchy, which answers subsumption queries  *
+* without the explicit transitive closure. The strongly connected components  *
+* of the hierarchy are labelled by a post-order traversal of a spanning       *
+* forest, and each component stores the (merged) intervals of post-order      *
+* numbers of its descendants, so that subsumption is checked by a binary      *
+* search. Ancestors are listed by traversing the direct parents.              *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import aml.util.IntIterator;
+import aml.util.IntSet;
+import aml.util.IntTable2Set;
+
+public class ReachabilityIndex
+{
+
+//Attributes
+
+	//The classes in the index (each class is represented by its position)
+	private IntSet classes;
+	//The direct parents of each class, stored from parentStart[class]
+	//(inclusive) to parentStart[class+1] (exclusive)
+	private int[] parentStart;
+	private int[] parents;
+	//The strongly connected component of each class
+	private int[] component;
+	//Whether each component is cyclic (i.e., its classes are their own ancestors)
+	private boolean[] cyclic;
+	//The classes of each component, stored from memberStart[component]
+	//(inclusive) to memberStart[component+1] (exclusive)
+	private int[] memberStart;
+	private int[] members;
+	//The post-order number of each component, and the component of each number
+	private int[] post;
+	private int[] order;
+	//The merged intervals of post-order numbers of the descendants of each
+	//component (including itself), as consecutive pairs of start and end
+	private int[][] intervals;
+
+//Constructors
+
+	/**
+	 * Builds a new ReachabilityIndex from the direct relationships of a hierarchy
+	 * @param directParents: the map of each class to its direct parents
+	 */
+	public ReachabilityIndex(IntTable2Set directParents)
+	{
+		//Number the classes
+		classes = new IntSet();
+		for(IntIterator i = directParents.keys(); i.hasNext(); )
+		{
+			int child = i.next();
+			classes.add(child);
+			for(IntIterator j = directParents.values(child); j.hasNext(); )
+				classes.add(j.next());
+		}
+		int n = classes.size();
+		//Store the parents of each class
+		parentStart = new int[n + 1];
+		parents = new int[directParents.size()];
+		int size = 0;
+		for(int c = 0; c < n; c++)
+		{
+			parentStart[c] = size;
+			if(directParents.contains(classes.get(c)))
+				for(IntIterator j = directParents.values(classes.get(c)); j.hasNext(); )
+					parents[size++] = classes.position(j.next());
+		}
+		parentStart[n] = size;
+		int count = findComponents();
+		labelComponents(count);
+	}
+
+//Public Methods
+
+	/**
+	 * @param classId: the id of the class to search in the index
+	 * @return the set of ancestors of the given class
+	 */
+	public Set<Integer> getAncestors(int classId)
+	{
+		HashSet<Integer> ancestors = new HashSet<Integer>();
+		int c = classes.position(classId);
+		if(c < 0)
+			return ancestors;
+		IntSet visited = new IntSet();
+		int[] stack = new int[16];
+		int top = 0;
+		stack[top++] = c;
+		while(top > 0)
+		{
+			int d = stack[--top];
+			for(int k = parentStart[d]; k < parentStart[d + 1]; k++)
+			{
+				int p = parents[k];
+				if(!visited.add(p))
+					continue;
+				ancestors.add(classes.get(p));
+				if(top == stack.length)
+					stack = Arrays.copyOf(stack, 2 * top);
+				stack[top++] = p;
+			}
+		}
+		return ancestors;
+	}
+
+	/**
+	 * @param classId: the id of the class to search in the index
+	 * @return the set of descendants of the given class
+	 */
+	public Set<Integer> getDescendants(int classId)
+	{
+		HashSet<Integer> descendants = new HashSet<Integer>();
+		int c = classes.position(classId);
+		if(c < 0)
+			return descendants;
+		int comp = component[c];
+		int[] in = intervals[comp];
+		for(int k = 0; k < in.length; k += 2)
+		{
+			for(int p = in[k]; p <= in[k + 1]; p++)
+			{
+				int d = order[p];
+				for(int m = memberStart[d]; m < memberStart[d + 1]; m++)
+					if(d != comp || cyclic[comp])
+						descendants.add(classes.get(members[m]));
+			}
+		}
+		return descendants;
+	}
+
+	/**
+	 * @param child: the id of the child class
+	 * @param parent: the id of the parent class
+	 * @return whether the child is a descendant of the parent
+	 */
+	public boolean isDescendant(int child, int parent)
+	{
+		int c = classes.position(child);
+		int p = classes.position(parent);
+		if(c < 0 || p < 0)
+			return false;
+		if(component[c] == component[p])
+			return cyclic[component[p]];
+		//Find the last interval of the parent starting at or before the
+		//post-order number of the child
+		int[] in = intervals[component[p]];
+		int number = post[component[c]];
+		int low = 0;
+		int high = in.length / 2 - 1;
+		while(low <= high)
+		{
+			int mid = (low + high) >>> 1;
+			if(in[2 * mid] <= number)
+				low = mid + 1;
+			else
+				high = mid - 1;
+		}
+		return high >= 0 && number <= in[2 * high + 1];
+	}
+
+	/**
+	 * @return the number of intervals in the index
+	 */
+	public int size()
+	{
+		int size = 0;
+		for(int[] in : intervals)
+			size += in.length / 2;
+		return size;
+	}
+
+//Private Methods
+
+	//Finds the strongly connected components of the hierarchy (with an
+	//iterative version of Tarjan's algorithm), numbering them so that
+	//the component of each parent comes before those of its children
+	private int findComponents()
+	{
+		int n = classes.size();
+		component = new int[n];
+		int[] index = new int[n];
+		int[] lowLink = new int[n];
+		int[] next = new int[n];
+		Arrays.fill(index, -1);
+		int[] callStack = new int[n];
+		int[] sccStack = new int[n];
+		boolean[] onStack = new boolean[n];
+		int calls = 0;
+		int sccs = 0;
+		int counter = 0;
+		int count = 0;
+		boolean[] selfLoop = new boolean[n];
+		for(int start = 0; start < n; start++)
+		{
+			if(index[start] >= 0)
+				continue;
+			callStack[calls++] = start;
+			index[start] = lowLink[start] = counter++;
+			next[start] = parentStart[start];
+			sccStack[sccs++] = start;
+			onStack[start] = true;
+			while(calls > 0)
+			{
+				int v = callStack[calls - 1];
+				if(next[v] < parentStart[v + 1])
+				{
+					int w = parents[next[v]++];
+					if(w == v)
+						selfLoop[v] = true;
+					if(index[w] < 0)
+					{
+						index[w] = lowLink[w] = counter++;
+						next[w] = parentStart[w];
+						sccStack[sccs++] = w;
+						onStack[w] = true;
+						callStack[calls++] = w;
+					}
+					else if(onStack[w] && index[w] < lowLink[v])
+						lowLink[v] = index[w];
+					continue;
+				}
+				calls--;
+				if(calls > 0)
+				{
+					int u = callStack[calls - 1];
+					if(lowLink[v] < lowLink[u])
+						lowLink[u] = lowLink[v];
+				}
+				if(lowLink[v] == index[v])
+				{
+					int w;
+					do
+					{
+						w = sccStack[--sccs];
+						onStack[w] = false;
+						component[w] = count;
+					}
+					while(w != v);
+					count++;
+				}
+			}
+		}
+		//Store the classes of each component
+		memberStart = new int[count + 1];
+		for(int c = 0; c < n; c++)
+			memberStart[component[c] + 1]++;
+		for(int i = 0; i < count; i++)
+			memberStart[i + 1] += memberStart[i];
+		members = new int[n];
+		int[] fill = Arrays.copyOf(memberStart, count);
+		for(int c = 0; c < n; c++)
+			members[fill[component[c]]++] = c;
+		cyclic = new boolean[count];
+		for(int c = 0; c < n; c++)
+			if(selfLoop[c] || memberStart[component[c] + 1] - memberStart[component[c]] > 1)
+				cyclic[component[c]] = true;
+		return count;
+	}
+
+	//Numbers the components by a post-order traversal of a spanning forest of
+	//the condensed hierarchy, and computes the intervals of their descendants
+	private void labelComponents(int count)
+	{
+		//Build the children of each component (in the condensed hierarchy)
+		int[] childStart = new int[count + 1];
+		for(int c = 0; c < classes.size(); c++)
+			for(int k = parentStart[c]; k < parentStart[c + 1]; k++)
+				if(component[parents[k]] != component[c])
+					childStart[component[parents[k]] + 1]++;
+		for(int i = 0; i < count; i++)
+			childStart[i + 1] += childStart[i];
+		int[] children = new int[childStart[count]];
+		int[] fill = Arrays.copyOf(childStart, count);
+		boolean[] hasParent = new boolean[count];
+		for(int c = 0; c < classes.size(); c++)
+		{
+			for(int k = parentStart[c]; k < parentStart[c + 1]; k++)
+			{
+				if(component[parents[k]] != component[c])
+				{
+					children[fill[component[parents[k]]]++] = component[c];
+					hasParent[component[c]] = true;
+				}
+			}
+		}
+		//Number the components in post-order, starting from the roots
+		post = new int[count];
+		order = new int[count];
+		int[] low = new int[count];
+		int[] next = new int[count];
+		boolean[] visited = new boolean[count];
+		int[] stack = new int[count];
+		int number = 0;
+		for(int root = 0; root < count; root++)
+		{
+			if(hasParent[root])
+				continue;
+			int top = 0;
+			stack[top++] = root;
+			visited[root] = true;
+			low[root] = number;
+			next[root] = childStart[root];
+			while(top > 0)
+			{
+				int v = stack[top - 1];
+				if(next[v] < childStart[v + 1])
+				{
+					int w = children[next[v]++];
+					if(!visited[w])
+					{
+						visited[w] = true;
+						low[w] = number;
+						next[w] = childStart[w];
+						stack[top++] = w;
+					}
+					continue;
+				}
+				top--;
+				post[v] = number;
+				order[number++] = v;
+			}
+		}
+		//Compute the intervals of each component from those of its children
+		//(since children come after their parents, in reverse order)
+		intervals = new int[count][];
+		int[] buffer = new int[16];
+		for(int c = count - 1; c >= 0; c--)
+		{
+			int size = 2 * (childStart[c + 1] - childStart[c] + 1);
+			for(int k = childStart[c]; k < childStart[c + 1]; k++)
+				size += intervals[children[k]].length;
+			if(buffer.length < size)
+				buffer = new int[2 * size];
+			int length = 0;
+			buffer[length++] = low[c];
+			buffer[length++] = post[c];
+			for(int k = childStart[c]; k < childStart[c + 1]; k++)
+			{
+				int[] in = intervals[children[k]];
+				System.arraycopy(in, 0, buffer, length, in.length);
+				length += in.length;
+			}
+			intervals[c] = merge(buffer, length);
+		}
+	}
+
+	//Sorts a list of intervals by their start and merges those that overlap
+	//or are adjacent
+	private static int[] merge(int[] buffer, int length)
+	{
+		int n = length / 2;
+		long[] sorted = new long[n];
+		for(int i = 0; i < n; i++)
+			sorted[i] = ((long)buffer[2 * i] << 32) | (buffer[2 * i + 1] & 0xFFFFFFFFL);
+		Arrays.sort(sorted);
+		int[] merged = new int[length];
+		int size = 0;
+		for(int i = 0; i < n; i++)
+		{
+			int start = (int)(sorted[i] >>> 32);
+			int end = (int)sorted[i];
+			if(size > 0 && start <= merged[size - 1] + 1)
+			{
+				if(end > merged[size - 1])
+					merged[size - 1] = end;
+			}
+			else
+			{
+				merged[size++] = start;
+				merged[size++] = end;
+			}
+		}
+		return Arrays.copyOf(merged, size);
+	}
+}
@@ -0,0 +1,105 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Growable buffer of (child, parent, Relationship) triples, which parallel    *
+* transitive closure tasks can fill independently, and which can then be      *
+* merged into a RelationshipMap in order, so that results are reproducible.   *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import java.util.Arrays;
+
+public class RelationshipBuffer
+{
+
+//Attributes
+
+	private int[] children;
+	private int[] parents;
+	private Relationship[] relationships;
+	private int size;
+
+//Constructors
+
+	/**
+	 * Constructs a new empty RelationshipBuffer
+	 */
+	public RelationshipBuffer()
+	{
+		children = new int[16];
+		parents = new int[16];
+		relationships = new Relationship[16];
+		size = 0;
+	}
+
+//Public Methods
+
+	/**
+	 * Adds a new triple to the buffer
+	 * @param child: the index of the child class
+	 * @param parent: the index of the parent class
+	 * @param r: the relationship between the classes
+	 */
+	public void add(int child, int parent, Relationship r)
+	{
+		if(size == children.length)
+		{
+			int capacity = 2 * size;
+			children = Arrays.copyOf(children, capacity);
+			parents = Arrays.copyOf(parents, capacity);
+			relationships = Arrays.copyOf(relationships, capacity);
+		}
+		children[size] = child;
+		parents[size] = parent;
+		relationships[size] = r;
+		size++;
+	}
+
+	/**
+	 * @param index: the position of the triple in the buffer
+	 * @return the child class of the triple at the given position
+	 */
+	public int getChild(int index)
+	{
+		return children[index];
+	}
+
+	/**
+	 * @param index: the position of the triple in the buffer
+	 * @return the parent class of the triple at the given position
+	 */
+	public int getParent(int index)
+	{
+		return parents[index];
+	}
+
+	/**
+	 * @param index: the position of the triple in the buffer
+	 * @return the relationship of the triple at the given position
+	 */
+	public Relationship getRelationship(int index)
+	{
+		return relationships[index];
+	}
+
+	/**
+	 * @return the number of triples in the buffer
+	 */
+	public int size()
+	{
+		return size;
+	}
+}
@@ -20,12 +20,21 @@
 ******************************************************************************/
 package aml.ontology;
 
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
 
 import aml.AML;
+import aml.util.IndexFunction;
+import aml.util.IntIterator;
+import aml.util.IntTable2Set;
+import aml.util.ParallelExecutor;
+import aml.util.Table2List;
 import aml.util.Table2Set;
 import aml.util.Table3List;
 import aml.util.Table3Set;
@@ -36,18 +45,31 @@ public class RelationshipMap
 	
 //Attributes
 
+	//The minimum number of relationships extended by each task of the transitive closure
+	private static final int MIN_CHUNK = 1000;
+	//The maximum number of classes whose closure is memoized in lazy mode
+	private static final int CACHE_SIZE = 20000;
 	//Relationships between classes
 	//Hierarchical relations and property restrictions (with transitive closure)
 	private Table3List<Integer,Integer,Relationship> ancestorClasses; //Class -> Ancestor -> Relationship
 	private Table3List<Integer,Integer,Relationship> descendantClasses;	//Class -> Descendant -> Relationship
 	//Disjointness (direct only, no transitive closure)
-	private Table2Set<Integer,Integer> disjointMap; //Class -> Disjoint Classes
+	private IntTable2Set disjointMap; //Class -> Disjoint Classes
 	//List of high level classes
 	private HashSet<Integer> highLevelClasses;
+	//Reachability index of the 'is_a' hierarchy, which replaces its explicit
+	//closure in lazy mode (and is discarded when a relationship is added)
+	private ReachabilityIndex isAIndex;
+	//Whether the transitive closure is computed lazily, in which case the
+	//class relations above hold only direct relationships, and the closure
+	//of each class is computed on request and memoized in the caches below
+	private boolean lazy;
+	private LinkedHashMap<Integer,Table2List<Integer,Relationship>> ancestorCache; //Class -> Ancestor -> Relationship
+	private LinkedHashMap<Integer,Table2List<Integer,Relationship>> descendantCache; //Class -> Descendant -> Relationship
 	
 	//Relationships between individuals and classes
-	private Table2Set<Integer,Integer> instanceOfMap; //Individual -> Class 
-	private Table2Set<Integer,Integer> hasInstanceMap; //Class -> Individual
+	private IntTable2Set instanceOfMap; //Individual -> Class 
+	private IntTable2Set hasInstanceMap; //Class -> Individual
 
 	//Relationships between individuals
 	private Table3Set<Integer,Integer,Integer> activeRelation; //Source Individual -> Target Individual -> Property
@@ -55,19 +77,19 @@ public class RelationshipMap
 
 	//Relationships between properties
 	//Hierarchical and inverse relations
-	private Table2Set<Integer,Integer> subProp; //Property -> SubProperty
-	private Table2Set<Integer,Integer> superProp; //Property -> SuperProperty
-	private Table2Set<Integer,Integer> inverseProp; //Property -> InverseProperty
+	private IntTable2Set subProp; //Property -> SubProperty
+	private IntTable2Set superProp; //Property -> SuperProperty
+	private IntTable2Set inverseProp; //Property -> InverseProperty
 	//Transitivity relations (transitive properties will be mapped to themselves)
-	private Table2Set<Integer,Integer> transitiveOver; //Property1 -> Property2 over which 1 is transitive
+	private IntTable2Set transitiveOver; //Property1 -> Property2 over which 1 is transitive
 	//List of symmetric properties
 	private HashSet<Integer> symmetric;
 	//List of functional properties
 	private HashSet<Integer> functional;
 	
 	//Property domains and ranges (property to class or to String)
-	private Table2Set<Integer,Integer> domain; //Property -> Class
-	private Table2Set<Integer,Integer> objectRange; //Property -> Class
+	private IntTable2Set domain; //Property -> Class
+	private IntTable2Set objectRange; //Property -> Class
 	private Table2Set<Integer,String> dataRange; //Property -> String
 	
 //Constructors
@@ -79,19 +101,19 @@ public class RelationshipMap
 	{
 		descendantClasses = new Table3List<Integer,Integer,Relationship>();
 		ancestorClasses = new Table3List<Integer,Integer,Relationship>();
-		disjointMap = new Table2Set<Integer,Integer>();
-		instanceOfMap = new Table2Set<Integer,Integer>();
-		hasInstanceMap = new Table2Set<Integer,Integer>();
+		disjointMap = new IntTable2Set();
+		instanceOfMap = new IntTable2Set();
+		hasInstanceMap = new IntTable2Set();
 		activeRelation = new Table3Set<Integer,Integer,Integer>();		
 		passiveRelation = new Table3Set<Integer,Integer,Integer>();		
-		subProp = new Table2Set<Integer,Integer>();
-		superProp = new Table2Set<Integer,Integer>();
-		inverseProp = new Table2Set<Integer,Integer>();
-		transitiveOver = new Table2Set<Integer,Integer>();
+		subProp = new IntTable2Set();
+		superProp = new IntTable2Set();
+		inverseProp = new IntTable2Set();
+		transitiveOver = new IntTable2Set();
 		symmetric = new HashSet<Integer>();
 		functional = new HashSet<Integer>();
-		domain = new Table2Set<Integer,Integer>();
-		objectRange = new Table2Set<Integer,Integer>();
+		domain = new IntTable2Set();
+		objectRange = new IntTable2Set();
 		dataRange = new Table2Set<Integer,String>();
 	}
 	
@@ -125,6 +147,11 @@ public class RelationshipMap
 		//Then update the MultiMaps
 		descendantClasses.add(parent,child,r);
 		ancestorClasses.add(child,parent,r);
+		//And discard the reachability index and the memoized closure,
+		//which are no longer up to date
+		isAIndex = null;
+		if(lazy)
+			clearCaches();
 	}
 	
 	/**
@@ -320,7 +347,8 @@ public class RelationshipMap
 	 */
 	public boolean areRelatedClasses(int child, int parent)
 	{
-		return descendantClasses.contains(parent,child);
+		Table2List<Integer,Relationship> ancs = ancestorsOf(child);
+		return ancs != null && ancs.contains(parent);
 	}
 	
 	/**
@@ -377,8 +405,9 @@ public class RelationshipMap
 	 */
 	public Set<Integer> getAncestors(int classId)
 	{
-		if(ancestorClasses.contains(classId))
-			return ancestorClasses.keySet(classId);
+		Table2List<Integer,Relationship> ancs = ancestorsOf(classId);
+		if(ancs != null)
+			return ancs.keySet();
 		return new HashSet<Integer>();
 	}
 	
@@ -390,10 +419,11 @@ public class RelationshipMap
 	public Set<Integer> getAncestors(int classId, int distance)
 	{
 		HashSet<Integer> asc = new HashSet<Integer>();
-		if(!ancestorClasses.contains(classId))
+		Table2List<Integer,Relationship> ancs = ancestorsOf(classId);
+		if(ancs == null)
 			return asc;
-		for(Integer i : ancestorClasses.keySet(classId))
-			for(Relationship r : ancestorClasses.get(classId, i))
+		for(Integer i : ancs.keySet())
+			for(Relationship r : ancs.get(i))
 				if(r.getDistance() == distance)
 					asc.add(i);
 		return asc;
@@ -407,10 +437,11 @@ public class RelationshipMap
 	public Set<Integer> getAncestorsProperty(int classId, int prop)
 	{
 		HashSet<Integer> asc = new HashSet<Integer>();
-		if(!ancestorClasses.contains(classId))
+		Table2List<Integer,Relationship> ancs = ancestorsOf(classId);
+		if(ancs == null)
 			return asc;
-		for(Integer i : ancestorClasses.keySet(classId))
-			for(Relationship r : ancestorClasses.get(classId, i))
+		for(Integer i : ancs.keySet())
+			for(Relationship r : ancs.get(i))
 				if(r.getProperty() == prop)
 					asc.add(i);
 		return asc;
@@ -426,10 +457,11 @@ public class RelationshipMap
 	public Set<Integer> getAncestors(int classId, int distance, int prop)
 	{
 		HashSet<Integer> asc = new HashSet<Integer>();
-		if(!ancestorClasses.contains(classId))
+		Table2List<Integer,Relationship> ancs = ancestorsOf(classId);
+		if(ancs == null)
 			return asc;
-		for(Integer i : ancestorClasses.keySet(classId))
-			for(Relationship r : ancestorClasses.get(classId, i))
+		for(Integer i : ancs.keySet())
+			for(Relationship r : ancs.get(i))
 				if(r.getDistance() == distance && r.getProperty() == prop)
 					asc.add(i);
 		return asc;
@@ -524,8 +556,9 @@ public class RelationshipMap
 	 */
 	public Set<Integer> getDescendants(int classId)
 	{
-		if(descendantClasses.contains(classId))
-			return descendantClasses.keySet(classId);
+		Table2List<Integer,Relationship> descs = descendantsOf(classId, Integer.MAX_VALUE);
+		if(descs != null)
+			return descs.keySet();
 		return new HashSet<Integer>();
 	}
 	
@@ -537,10 +570,11 @@ public class RelationshipMap
 	public Set<Integer> getDescendants(int classId, int distance)
 	{
 		HashSet<Integer> desc = new HashSet<Integer>();
-		if(!descendantClasses.contains(classId))
+		Table2List<Integer,Relationship> descs = descendantsOf(classId, distance);
+		if(descs == null)
 			return desc;
-		for(Integer i : descendantClasses.keySet(classId))
-			for(Relationship r : descendantClasses.get(classId, i))
+		for(Integer i : descs.keySet())
+			for(Relationship r : descs.get(i))
 				if(r.getDistance() == distance)
 					desc.add(i);
 		return desc;
@@ -554,10 +588,11 @@ public class RelationshipMap
 	public Set<Integer> getDescendantsProperty(int classId, int prop)
 	{
 		HashSet<Integer> desc = new HashSet<Integer>();
-		if(!descendantClasses.contains(classId))
+		Table2List<Integer,Relationship> descs = descendantsOf(classId, Integer.MAX_VALUE);
+		if(descs == null)
 			return desc;
-		for(Integer i : descendantClasses.keySet(classId))
-			for(Relationship r : descendantClasses.get(classId, i))
+		for(Integer i : descs.keySet())
+			for(Relationship r : descs.get(i))
 				if(r.getProperty() == prop)
 					desc.add(i);
 		return desc;
@@ -573,10 +608,11 @@ public class RelationshipMap
 	public Set<Integer> getDescendants(int classId, int distance, int prop)
 	{
 		HashSet<Integer> desc = new HashSet<Integer>();
-		if(!descendantClasses.contains(classId))
+		Table2List<Integer,Relationship> descs = descendantsOf(classId, distance);
+		if(descs == null)
 			return desc;
-		for(Integer i : descendantClasses.keySet(classId))
-			for(Relationship r : descendantClasses.get(classId, i))
+		for(Integer i : descs.keySet())
+			for(Relationship r : descs.get(i))
 				if(r.getDistance() == distance && r.getProperty() == prop)
 					desc.add(i);
 		return desc;
@@ -609,7 +645,7 @@ public class RelationshipMap
 	public Set<Integer> getDisjointTransitive(int classId)
 	{
 		//Get the disjoint clauses for the class
-		Set<Integer> disj = getDisjoint(classId);
+		Set<Integer> disj = new HashSet<Integer>(getDisjoint(classId));
 		//Then get all superclasses of the class
 		Set<Integer> ancestors = getSuperClasses(classId,false);
 		//For each superclass
@@ -629,9 +665,10 @@ public class RelationshipMap
 	{
 		if(child == parent)
 			return 0;
-		if(!ancestorClasses.contains(child, parent))
+		Table2List<Integer,Relationship> ancs = ancestorsOf(child);
+		if(ancs == null || !ancs.contains(parent))
 			return -1;
-		Vector<Relationship> rels = ancestorClasses.get(child,parent);
+		Vector<Relationship> rels = ancs.get(parent);
 		int distance = rels.get(0).getDistance();
 		for(Relationship r : rels)
 			if(r.getDistance() < distance)
@@ -865,10 +902,11 @@ public class RelationshipMap
 	 */
 	public Relationship getRelationship(int child, int parent)
 	{
-		if(!ancestorClasses.contains(child, parent))
+		Table2List<Integer,Relationship> ancs = ancestorsOf(child);
+		if(ancs == null || !ancs.contains(parent))
 			return null;
-		Relationship rel = ancestorClasses.get(child).get(parent).get(0);
-		for(Relationship r : ancestorClasses.get(child).get(parent))
+		Relationship rel = ancs.get(parent).get(0);
+		for(Relationship r : ancs.get(parent))
 			if(r.compareTo(rel) > 0)
 				rel = r;
 		return rel;
@@ -881,7 +919,7 @@ public class RelationshipMap
 	 */
 	public Vector<Relationship> getRelationships(int child, int parent)
 	{
-		return ancestorClasses.get(child).get(parent);
+		return ancestorsOf(child).get(parent);
 	}
 	
 	/**
@@ -931,6 +969,8 @@ public class RelationshipMap
 	{
 		if(direct)
 			return getDescendants(classId,1,-1);
+		else if(isAIndex != null)
+			return isAIndex.getDescendants(classId);
 		else
 			return getDescendantsProperty(classId,-1);
 	}
@@ -956,6 +996,8 @@ public class RelationshipMap
 	{
 		if(direct)
 			return getAncestors(classId,1,-1);
+		else if(isAIndex != null)
+			return isAIndex.getAncestors(classId);
 		else
 			return getAncestorsProperty(classId,-1);
 	}
@@ -975,7 +1017,7 @@ public class RelationshipMap
 	/**
 	 * @return the table of transitive properties
 	 */
-	public Table2Set<Integer,Integer> getTransitiveProperties()
+	public IntTable2Set getTransitiveProperties()
 	{
 		return transitiveOver;
 	}
@@ -1066,9 +1108,12 @@ public class RelationshipMap
 	 */	
 	public boolean isSubclass(int child, int parent)
 	{
-		if(!descendantClasses.contains(parent,child))
+		if(isAIndex != null)
+			return isAIndex.isDescendant(child, parent);
+		Table2List<Integer,Relationship> ancs = ancestorsOf(child);
+		if(ancs == null || !ancs.contains(parent))
 			return false;
-		Vector<Relationship> rels = descendantClasses.get(parent,child);
+		Vector<Relationship> rels = ancs.get(parent);
 		for(Relationship r : rels)
 			if(r.getProperty() == -1)
 				return true;
@@ -1084,6 +1129,88 @@ public class RelationshipMap
 		return symmetric.contains(prop);
 	}
 	
+	/**
+	 * Sets the RelationshipMap to compute the transitive closure lazily,
+	 * for each class on the first request for its ancestors or descendants,
+	 * memoizing the closure of the most recently requested classes
+	 * (up to CACHE_SIZE classes), instead of computing it for all classes
+	 * The 'is_a' hierarchy is indexed instead of closed, so subsumption
+	 * queries are answered by the index, while the distances and property
+	 * restrictions of relationships are served by the memoized closure
+	 */
+	public void lazyClosure()
+	{
+		lazy = true;
+		clearCaches();
+		isAIndex = new ReachabilityIndex(getIsARelationships());
+	}
+	
+	/**
+	 * Reads the relationships of the entities of an Ontology from a snapshot,
+	 * adding them to the RelationshipMap
+	 * @param in: the SnapshotReader of the snapshot
+	 */
+	public void read(SnapshotReader in)
+	{
+		//Class relationships
+		int[] children = in.readIds();
+		int[] parents = in.readIds();
+		int[] distances = in.readInts();
+		int[] props = in.readIds();
+		byte[] rests = in.readBytes();
+		for(int i = 0; i < children.length; i++)
+			addClassRelationship(children[i], parents[i], distances[i], props[i], rests[i] != 0);
+		//Disjoint clauses (which were already checked when they were first added)
+		int[] keys = in.readIds();
+		int[] values = in.readIds();
+		for(int i = 0; i < keys.length; i++)
+		{
+			disjointMap.add(keys[i], values[i]);
+			disjointMap.add(values[i], keys[i]);
+		}
+		//Relationships between individuals and classes
+		keys = in.readIds();
+		values = in.readIds();
+		for(int i = 0; i < keys.length; i++)
+			addInstance(keys[i], values[i]);
+		//Relationships between individuals
+		keys = in.readIds();
+		values = in.readIds();
+		props = in.readIds();
+		for(int i = 0; i < keys.length; i++)
+			addIndividualRelationship(keys[i], values[i], props[i]);
+		//Relationships between properties
+		keys = in.readIds();
+		values = in.readIds();
+		for(int i = 0; i < keys.length; i++)
+			addSubProperty(keys[i], values[i]);
+		keys = in.readIds();
+		values = in.readIds();
+		for(int i = 0; i < keys.length; i++)
+			addInverseProp(keys[i], values[i]);
+		keys = in.readIds();
+		values = in.readIds();
+		for(int i = 0; i < keys.length; i++)
+			addTransitiveOver(keys[i], values[i]);
+		for(int p : in.readIds())
+			addSymmetric(p);
+		for(int p : in.readIds())
+			addFunctional(p);
+		//Property domains and ranges
+		keys = in.readIds();
+		values = in.readIds();
+		for(int i = 0; i < keys.length; i++)
+			addDomain(keys[i], values[i]);
+		keys = in.readIds();
+		values = in.readIds();
+		for(int i = 0; i < keys.length; i++)
+			addRange(keys[i], values[i]);
+		keys = in.readIds();
+		String[] types = in.readStrings();
+		for(int i = 0; i < keys.length; i++)
+			addRange(keys[i], types[i]);
+	}
+	
 	/**
 	 * @return the number of class relationships in the map
 	 */
@@ -1092,6 +1219,19 @@ public class RelationshipMap
 		return ancestorClasses.size();
 	}
 	
+	/**
+	 * Sets the class relations of the RelationshipMap as already closed
+	 * (e.g., because they were read from snapshots where they were closed)
+	 * so that the transitive closure doesn't need to be computed
+	 */
+	public void setClosed()
+	{
+		lazy = false;
+		ancestorCache = null;
+		descendantCache = null;
+		isAIndex = null;
+	}
+	
 	/**
 	 * Checks whether two individuals share a direct class assignment
 	 * @param ind1Id: the first individual to check
@@ -1101,10 +1241,10 @@ public class RelationshipMap
 	 */
 	public boolean shareClass(int ind1Id, int ind2Id)
 	{
-		if(instanceOfMap.get(ind1Id) == null || instanceOfMap.get(ind2Id) == null)
+		if(!instanceOfMap.contains(ind2Id))
 			return false;
-		for(int c : instanceOfMap.get(ind1Id))
-			if(instanceOfMap.get(ind2Id).contains(c))
+		for(IntIterator i = instanceOfMap.values(ind1Id); i.hasNext(); )
+			if(instanceOfMap.contains(ind2Id, i.next()))
 				return true;
 		return false;
 	}
@@ -1131,54 +1271,21 @@ public class RelationshipMap
 	
 	/**
 	 * Compute the transitive closure of the RelationshipMap
-	 * by adding inherited relationships (and their distances)
-	 * This is an implementation of the Semi-Naive Algorithm
+	 * by adding inherited relationships (and their minimal distances)
+	 * This is an implementation of the Semi-Naive Algorithm, where each
+	 * round only extends the relationships that are new (or that got
+	 * shorter) in the previous round, in parallel
 	 */
 	public void transitiveClosure()
 	{
+		lazy = false;
+		ancestorCache = null;
+		descendantCache = null;
+		//The explicit closure answers subsumption queries, so the 'is_a'
+		//hierarchy isn't indexed
+		isAIndex = null;
 		//Transitive closure for class relations
-		Set<Integer> t = descendantClasses.keySet();
-		int lastCount = 0;
-		for(int distance = 1; lastCount != descendantClasses.size(); distance++)
-		{
-			lastCount = descendantClasses.size();
-			for(Integer i : t)
-			{
-				Set<Integer> childs = getChildren(i);
-				childs.addAll(getEquivalences(i));
-				Set<Integer> pars = getAncestors(i,distance);
-				for(Integer j : pars)
-				{
-					Vector<Relationship> rel1 = getRelationships(i,j);
-					for(int k = 0; k < rel1.size(); k++)
-					{
-						Relationship r1 = rel1.get(k);
-						int p1 = r1.getProperty();
-						for(Integer h : childs)
-						{
-							Vector<Relationship> rel2 = getRelationships(h,i);
-							for(int l = 0; l < rel2.size(); l++)
-							{
-								Relationship r2 = rel2.get(l);
-								int p2 = r2.getProperty();
-								//We only do transitive closure if the property is the same (and transitive)
-								//for two relationships or one of the properties is 'is_a' (-1)
-								if(!(p1 == -1 || p2 == -1 || transitiveOver.contains(p2,p1)))
-									continue;
-								int dist = r1.getDistance() + r2.getDistance();
-								int prop;
-								if(p1 == p2 || p1 != -1)
-									prop = p1;
-								else
-									prop = p2;
-								boolean rest = r1.getRestriction() && r2.getRestriction();
-								addClassRelationship(h, j, dist, prop, rest);
-							}
-						}
-					}
-				}
-			}
-		}
+		close(ancestorClasses, descendantClasses, true);
 	}
 	
 	/**
@@ -1207,4 +1314,429 @@ public class RelationshipMap
 					return true;
 		return false;
 	}
+	
+	/**
+	 * Writes the relationships of the entities of an Ontology to a snapshot,
+	 * with the transitive closure of their class relationships
+	 * @param out: the SnapshotWriter of the snapshot
+	 * @param entities: the entities of the Ontology
+	 * @throws IOException
+	 */
+	public void write(SnapshotWriter out, Set<Integer> entities) throws IOException
+	{
+		//Class relationships
+		RelationshipBuffer buffer = new RelationshipBuffer();
+		for(Integer i : entities)
+		{
+			Table2List<Integer,Relationship> ancs = ancestorsOf(i);
+			if(ancs == null)
+				continue;
+			for(Integer j : ancs.keySet())
+				for(Relationship r : ancs.get(j))
+					buffer.add(i, j, r);
+		}
+		int n = buffer.size();
+		int[] children = new int[n];
+		int[] parents = new int[n];
+		int[] distances = new int[n];
+		int[] props = new int[n];
+		byte[] rests = new byte[n];
+		for(int k = 0; k < n; k++)
+		{
+			children[k] = buffer.getChild(k);
+			parents[k] = buffer.getParent(k);
+			distances[k] = buffer.getRelationship(k).getDistance();
+			props[k] = buffer.getRelationship(k).getProperty();
+			rests[k] = (byte)(buffer.getRelationship(k).getRestriction() ? 1 : 0);
+		}
+		out.writeIds(children, n);
+		out.writeIds(parents, n);
+		out.writeInts(distances, n);
+		out.writeIds(props, n);
+		out.writeBytes(rests, n);
+		//Disjoint clauses
+		writePairs(out, disjointMap, entities);
+		//Relationships between individuals and classes
+		writePairs(out, instanceOfMap, entities);
+		//Relationships between individuals
+		Vector<Integer> sources = new Vector<Integer>();
+		Vector<Integer> targets = new Vector<Integer>();
+		Vector<Integer> properties = new Vector<Integer>();
+		for(Integer i : activeRelation.keySet())
+		{
+			if(!entities.contains(i))
+				continue;
+			for(Integer j : activeRelation.keySet(i))
+			{
+				for(Integer p : activeRelation.get(i,j))
+				{
+					sources.add(i);
+					targets.add(j);
+					properties.add(p);
+				}
+			}
+		}
+		out.writeIds(sources);
+		out.writeIds(targets);
+		out.writeIds(properties);
+		//Relationships between properties
+		writePairs(out, superProp, entities);
+		writePairs(out, inverseProp, entities);
+		writePairs(out, transitiveOver, entities);
+		Vector<Integer> list = new Vector<Integer>();
+		for(Integer p : symmetric)
+			if(entities.contains(p))
+				list.add(p);
+		out.writeIds(list);
+		list = new Vector<Integer>();
+		for(Integer p : functional)
+			if(entities.contains(p))
+				list.add(p);
+		out.writeIds(list);
+		//Property domains and ranges
+		writePairs(out, domain, entities);
+		writePairs(out, objectRange, entities);
+		list = new Vector<Integer>();
+		Vector<String> types = new Vector<String>();
+		for(Integer p : dataRange.keySet())
+		{
+			if(!entities.contains(p))
+				continue;
+			for(String t : dataRange.get(p))
+			{
+				list.add(p);
+				types.add(t);
+			}
+		}
+		out.writeIds(list);
+		out.writeStrings(types);
+	}
+
+//Private Methods
+
+	//Adds a relationship between two classes unless an equal relationship
+	//with the same or shorter distance already exists (in which case it
+	//returns false), replacing an equal relationship with a longer distance
+	private boolean addMinimalRelationship(Table3List<Integer,Integer,Relationship> ancs,
+			Table3List<Integer,Integer,Relationship> descs, int child, int parent, Relationship r)
+	{
+		Vector<Relationship> rels = ancs.get(child,parent);
+		int index = -1;
+		if(rels != null)
+			index = rels.indexOf(r);
+		if(index < 0)
+		{
+			if(descs != null)
+				descs.add(parent,child,r);
+			ancs.add(child,parent,r);
+			return true;
+		}
+		if(rels.get(index).getDistance() <= r.getDistance())
+			return false;
+		rels.set(index, r);
+		if(descs != null)
+		{
+			Vector<Relationship> desc = descs.get(parent,child);
+			desc.set(desc.indexOf(r), r);
+		}
+		return true;
+	}
+
+	//Gets the ancestors of a class with their relationships (in lazy mode,
+	//by computing the closure of the classes above it and memoizing it)
+	private Table2List<Integer,Relationship> ancestorsOf(int classId)
+	{
+		if(!lazy)
+			return ancestorClasses.get(classId);
+		synchronized(ancestorCache)
+		{
+			if(ancestorCache.containsKey(classId))
+				return ancestorCache.get(classId);
+		}
+		//The closure of a class depends only on the relationships of the
+		//classes above it, so only those need to be closed
+		Table3List<Integer,Integer,Relationship> above = new Table3List<Integer,Integer,Relationship>();
+		HashSet<Integer> classes = new HashSet<Integer>();
+		Vector<Integer> toVisit = new Vector<Integer>();
+		classes.add(classId);
+		toVisit.add(classId);
+		while(!toVisit.isEmpty())
+		{
+			int i = toVisit.remove(toVisit.size() - 1);
+			if(!ancestorClasses.contains(i))
+				continue;
+			for(Integer j : ancestorClasses.keySet(i))
+			{
+				for(Relationship r : ancestorClasses.get(i,j))
+					above.add(i, j, r);
+				if(classes.add(j))
+					toVisit.add(j);
+			}
+		}
+		close(above, null, false);
+		//Since the closure of the classes above is also complete, it is
+		//memoized for all of them
+		synchronized(ancestorCache)
+		{
+			for(Integer i : classes)
+				if(!ancestorCache.containsKey(i))
+					ancestorCache.put(i, above.get(i));
+		}
+		return above.get(classId);
+	}
+
+	//Clears the memoized closure of the lazy mode
+	private void clearCaches()
+	{
+		ancestorCache = newCache();
+		descendantCache = newCache();
+	}
+
+	//Computes the transitive closure of the given class relations
+	private void close(final Table3List<Integer,Integer,Relationship> ancs,
+			Table3List<Integer,Integer,Relationship> descs, boolean parallel)
+	{
+		//Relationships are inherited by extending them with the relationships
+		//of distance 0 (equivalences) or 1 (direct children) below them, so
+		//these are listed first (Class -> Children or Equivalent Classes)
+		final IntTable2Set below = new IntTable2Set();
+		//The first round extends all existing relationships
+		RelationshipBuffer delta = new RelationshipBuffer();
+		for(Integer i : ancs.keySet())
+		{
+			for(Integer j : ancs.keySet(i))
+			{
+				for(Relationship r : ancs.get(i,j))
+				{
+					delta.add(i, j, r);
+					if(r.getDistance() <= 1)
+						below.add(j, i);
+				}
+			}
+		}
+		ParallelExecutor exec = AML.getInstance().getExecutor();
+		for(boolean first = true; delta.size() > 0; first = false)
+		{
+			//Compute the inherited relationships of each chunk of the
+			//delta in parallel (the map is only read during this step)
+			final RelationshipBuffer current = delta;
+			final boolean extendUp = !first;
+			final int chunk = Math.max(MIN_CHUNK, current.size() / (4 * exec.getParallelism()));
+			Vector<RelationshipBuffer> buffers;
+			if(!parallel || exec.getParallelism() == 1 || current.size() <= chunk)
+			{
+				buffers = new Vector<RelationshipBuffer>(1);
+				buffers.add(extend(ancs, current, 0, current.size(), below, extendUp));
+			}
+			else
+			{
+				Vector<Integer> starts = new Vector<Integer>();
+				for(int i = 0; i < current.size(); i += chunk)
+					starts.add(i);
+				buffers = exec.map(starts, new IndexFunction<RelationshipBuffer>()
+				{
+					@Override
+					public RelationshipBuffer compute(int start)
+					{
+						return extend(ancs, current, start, Math.min(start + chunk, current.size()), below, extendUp);
+					}
+				});
+			}
+			//Then merge them into the map in order, keeping the relationships
+			//that are new or shorter than existing ones as the next delta
+			delta = new RelationshipBuffer();
+			for(RelationshipBuffer b : buffers)
+			{
+				for(int k = 0; k < b.size(); k++)
+				{
+					int child = b.getChild(k);
+					int parent = b.getParent(k);
+					Relationship r = b.getRelationship(k);
+					if(addMinimalRelationship(ancs, descs, child, parent, r))
+					{
+						delta.add(child, parent, r);
+						if(r.getDistance() <= 1)
+							below.add(parent, child);
+					}
+				}
+			}
+		}
+	}
+
+	//Composes a relationship (lower) with the relationship above it (upper),
+	//returning null if they can't be composed
+	private Relationship compose(Relationship lower, Relationship upper)
+	{
+		int p1 = upper.getProperty();
+		int p2 = lower.getProperty();
+		//We only do transitive closure if the property is the same (and transitive)
+		//for two relationships or one of the properties is 'is_a' (-1)
+		if(!(p1 == -1 || p2 == -1 || transitiveOver.contains(p2,p1)))
+			return null;
+		int dist = upper.getDistance() + lower.getDistance();
+		int prop;
+		if(p1 == p2 || p1 != -1)
+			prop = p1;
+		else
+			prop = p2;
+		boolean rest = upper.getRestriction() && lower.getRestriction();
+		return new Relationship(dist, prop, rest);
+	}
+
+	//Gets the descendants of a class with their relationships (in lazy mode,
+	//from the closure of the classes below it up to the given distance,
+	//memoizing it if the distance is unbounded)
+	private Table2List<Integer,Relationship> descendantsOf(int classId, int maxDistance)
+	{
+		if(!lazy)
+			return descendantClasses.get(classId);
+		boolean memoize = maxDistance == Integer.MAX_VALUE;
+		if(memoize)
+		{
+			synchronized(descendantCache)
+			{
+				if(descendantCache.containsKey(classId))
+					return descendantCache.get(classId);
+			}
+		}
+		//Find the classes below the class up to the given distance (the
+		//distance of a relationship is that of a path of direct relationships)
+		HashMap<Integer,Integer> distances = new HashMap<Integer,Integer>();
+		Vector<Integer> toVisit = new Vector<Integer>();
+		distances.put(classId, 0);
+		toVisit.add(classId);
+		while(!toVisit.isEmpty())
+		{
+			int i = toVisit.remove(toVisit.size() - 1);
+			if(!descendantClasses.contains(i))
+				continue;
+			int dist = distances.get(i);
+			for(Integer j : descendantClasses.keySet(i))
+			{
+				for(Relationship r : descendantClasses.get(i,j))
+				{
+					int d = dist + r.getDistance();
+					if(d > maxDistance || d < 0)
+						continue;
+					Integer known = distances.get(j);
+					if(known == null || known > d)
+					{
+						distances.put(j, d);
+						toVisit.add(j);
+					}
+				}
+			}
+		}
+		//Then get their relationships with the class from their closure
+		Table2List<Integer,Relationship> descs = null;
+		for(Integer i : distances.keySet())
+		{
+			Table2List<Integer,Relationship> ancs = ancestorsOf(i);
+			if(ancs == null || !ancs.contains(classId))
+				continue;
+			if(descs == null)
+				descs = new Table2List<Integer,Relationship>();
+			for(Relationship r : ancs.get(classId))
+				descs.add(i, r);
+		}
+		if(memoize)
+		{
+			synchronized(descendantCache)
+			{
+				descendantCache.put(classId, descs);
+			}
+		}
+		return descs;
+	}
+
+	//Computes the relationships inherited from a range of the delta of the
+	//transitive closure: each relationship in the delta is extended with the
+	//relationships of distance 0 or 1 below it and, if upwards is true and
+	//it has distance 0 or 1 itself, with all the relationships above it
+	private RelationshipBuffer extend(Table3List<Integer,Integer,Relationship> ancs, RelationshipBuffer delta,
+			int from, int to, IntTable2Set below, boolean upwards)
+	{
+		RelationshipBuffer inherited = new RelationshipBuffer();
+		for(int k = from; k < to; k++)
+		{
+			int i = delta.getChild(k);
+			int j = delta.getParent(k);
+			Relationship r = delta.getRelationship(k);
+			if(below.contains(i))
+			{
+				for(IntIterator it = below.values(i); it.hasNext(); )
+				{
+					int h = it.next();
+					for(Relationship r2 : ancs.get(h,i))
+					{
+						if(r2.getDistance() > 1)
+							continue;
+						Relationship c = compose(r2, r);
+						if(c != null)
+							inherited.add(h, j, c);
+					}
+				}
+			}
+			if(upwards && r.getDistance() <= 1 && ancs.contains(j))
+			{
+				for(Integer l : ancs.keySet(j))
+				{
+					for(Relationship r1 : ancs.get(j,l))
+					{
+						Relationship c = compose(r, r1);
+						if(c != null)
+							inherited.add(i, l, c);
+					}
+				}
+			}
+		}
+		return inherited;
+	}
+
+	//Gets the 'is_a' relationships between classes (Class -> Superclasses)
+	private IntTable2Set getIsARelationships()
+	{
+		IntTable2Set isA = new IntTable2Set();
+		for(Integer i : ancestorClasses.keySet())
+			for(Integer j : ancestorClasses.keySet(i))
+				for(Relationship r : ancestorClasses.get(i,j))
+					if(r.getProperty() == -1)
+						isA.add(i, j);
+		return isA;
+	}
+
+	//Creates a cache that keeps only the CACHE_SIZE most recently used classes
+	private static LinkedHashMap<Integer,Table2List<Integer,Relationship>> newCache()
+	{
+		return new LinkedHashMap<Integer,Table2List<Integer,Relationship>>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer,Table2List<Integer,Relationship>> eldest)
+			{
+				return size() > CACHE_SIZE;
+			}
+		};
+	}
+
+	//Writes the pairs of a table whose key is one of the given entities
+	private static void writePairs(SnapshotWriter out, IntTable2Set table, Set<Integer> entities) throws IOException
+	{
+		Vector<Integer> keys = new Vector<Integer>();
+		Vector<Integer> values = new Vector<Integer>();
+		for(IntIterator i = table.keys(); i.hasNext(); )
+		{
+			int key = i.next();
+			if(!entities.contains(key))
+				continue;
+			for(IntIterator j = table.values(key); j.hasNext(); )
+			{
+				keys.add(key);
+				values.add(j.next());
+			}
+		}
+		out.writeIds(keys);
+		out.writeIds(values);
+	}
 }
\ No newline at end of file
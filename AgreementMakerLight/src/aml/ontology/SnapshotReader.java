@@ -0,0 +1,158 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Reader of the columns of an OntologySnapshot, which maps the snapshot file  *
+* into memory and reads each column in bulk. The URIs in the table of the     *
+* snapshot are added to the URIMap when it is opened, so that the local ids   *
+* of the entities in the columns are converted to their global indexes.       *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import aml.AML;
+import aml.settings.EntityType;
+
+public class SnapshotReader
+{
+
+//Attributes
+
+	//The contents of the snapshot
+	private ByteBuffer buffer;
+	//The global index of each entity, by local id
+	private int[] globalIds;
+
+//Constructors
+
+	/**
+	 * Opens a snapshot file, checking its header and adding the URIs of
+	 * its entities to the URIMap
+	 * @param file: the snapshot file to open
+	 * @throws IOException if the file is not a snapshot of the current version
+	 */
+	public SnapshotReader(File file) throws IOException
+	{
+		RandomAccessFile f = new RandomAccessFile(file, "r");
+		try
+		{
+			FileChannel channel = f.getChannel();
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		finally
+		{
+			//The mapping remains valid after the file is closed
+			f.close();
+		}
+		if(buffer.remaining() < 8 || buffer.getInt() != OntologySnapshot.MAGIC)
+			throw new IOException(file + " is not an ontology snapshot");
+		int version = buffer.getInt();
+		if(version != OntologySnapshot.VERSION)
+			throw new IOException("Snapshot " + file + " has version " + version +
+					" (expected " + OntologySnapshot.VERSION + ")");
+		String[] uris = readStrings();
+		byte[] types = readBytes();
+		EntityType[] t = EntityType.values();
+		URIMap uriMap = AML.getInstance().getURIMap();
+		globalIds = new int[uris.length];
+		for(int i = 0; i < uris.length; i++)
+			globalIds[i] = uriMap.addURI(uris[i], t[types[i]]);
+	}
+
+//Public Methods
+
+	/**
+	 * @return the next boolean in the snapshot
+	 */
+	public boolean readBoolean()
+	{
+		return buffer.get() != 0;
+	}
+
+	/**
+	 * @return the next column of bytes in the snapshot
+	 */
+	public byte[] readBytes()
+	{
+		byte[] values = new byte[buffer.getInt()];
+		buffer.get(values);
+		return values;
+	}
+
+	/**
+	 * @return the next column of doubles in the snapshot
+	 */
+	public double[] readDoubles()
+	{
+		double[] values = new double[buffer.getInt()];
+		buffer.asDoubleBuffer().get(values);
+		buffer.position(buffer.position() + 8 * values.length);
+		return values;
+	}
+
+	/**
+	 * @return the next column of entities in the snapshot, by their global indexes
+	 */
+	public int[] readIds()
+	{
+		int[] values = readInts();
+		for(int i = 0; i < values.length; i++)
+			if(values[i] >= 0)
+				values[i] = globalIds[values[i]];
+		return values;
+	}
+
+	/**
+	 * @return the next int in the snapshot
+	 */
+	public int readInt()
+	{
+		return buffer.getInt();
+	}
+
+	/**
+	 * @return the next column of ints in the snapshot
+	 */
+	public int[] readInts()
+	{
+		int[] values = new int[buffer.getInt()];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + 4 * values.length);
+		return values;
+	}
+
+	/**
+	 * @return the next column of strings in the snapshot
+	 */
+	public String[] readStrings()
+	{
+		int[] lengths = readInts();
+		String[] values = new String[lengths.length];
+		byte[] bytes = new byte[16];
+		for(int i = 0; i < values.length; i++)
+		{
+			if(bytes.length < lengths[i])
+				bytes = new byte[2 * lengths[i]];
+			buffer.get(bytes, 0, lengths[i]);
+			values[i] = new String(bytes, 0, lengths[i], OntologySnapshot.UTF8);
+		}
+		return values;
+	}
+}
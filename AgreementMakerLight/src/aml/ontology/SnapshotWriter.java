@@ -0,0 +1,236 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Writer of the columns of an OntologySnapshot. Entities are written by their *
+* local id (their position in the snapshot) so that the snapshot doesn't      *
+* depend on the global indexes of the URIMap, and the URIs of the entities    *
+* are written in a table before the columns, when the snapshot is saved.      *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+
+import aml.util.IntSet;
+
+public class SnapshotWriter
+{
+
+//Attributes
+
+	//The global ids of the entities in the snapshot (the local id of each
+	//entity is its position)
+	private IntSet ids;
+	//The columns written so far
+	private ByteArrayOutputStream bytes;
+	private DataOutputStream out;
+
+//Constructors
+
+	/**
+	 * Constructs a new empty SnapshotWriter
+	 */
+	public SnapshotWriter()
+	{
+		ids = new IntSet();
+		bytes = new ByteArrayOutputStream();
+		out = new DataOutputStream(bytes);
+	}
+
+//Public Methods
+
+	/**
+	 * @return the set of global ids of the entities written so far
+	 */
+	public IntSet getIds()
+	{
+		return ids;
+	}
+
+	/**
+	 * Saves the snapshot to a file, with the header and the URI table
+	 * followed by the columns
+	 * @param file: the file where to save the snapshot
+	 * @param uris: the URIMap with the URIs and types of the entities
+	 * @throws IOException
+	 */
+	public void save(File file, URIMap uris) throws IOException
+	{
+		File dir = file.getAbsoluteFile().getParentFile();
+		if(dir != null && !dir.exists())
+			dir.mkdirs();
+		//The snapshot is written to a temporary file and then renamed,
+		//so that an interrupted write doesn't leave a corrupt snapshot
+		File temp = new File(file.getPath() + ".tmp");
+		DataOutputStream stream = new DataOutputStream(new FileOutputStream(temp));
+		try
+		{
+			SnapshotWriter header = new SnapshotWriter();
+			header.writeInt(OntologySnapshot.MAGIC);
+			header.writeInt(OntologySnapshot.VERSION);
+			int n = ids.size();
+			String[] uri = new String[n];
+			byte[] types = new byte[n];
+			for(int i = 0; i < n; i++)
+			{
+				uri[i] = uris.getURI(ids.get(i));
+				types[i] = (byte)uris.getType(ids.get(i)).ordinal();
+			}
+			header.writeStrings(uri);
+			header.writeBytes(types, n);
+			header.out.flush();
+			header.bytes.writeTo(stream);
+			out.flush();
+			bytes.writeTo(stream);
+		}
+		finally
+		{
+			stream.close();
+		}
+		if(file.exists())
+			file.delete();
+		if(!temp.renameTo(file))
+			throw new IOException("Could not save snapshot " + file);
+	}
+
+	/**
+	 * Writes a boolean
+	 * @param b: the boolean to write
+	 * @throws IOException
+	 */
+	public void writeBoolean(boolean b) throws IOException
+	{
+		out.writeByte(b ? 1 : 0);
+	}
+
+	/**
+	 * Writes a column of bytes
+	 * @param values: the array with the bytes to write
+	 * @param n: the number of bytes to write
+	 * @throws IOException
+	 */
+	public void writeBytes(byte[] values, int n) throws IOException
+	{
+		out.writeInt(n);
+		out.write(values, 0, n);
+	}
+
+	/**
+	 * Writes a column of doubles
+	 * @param values: the array with the doubles to write
+	 * @param n: the number of doubles to write
+	 * @throws IOException
+	 */
+	public void writeDoubles(double[] values, int n) throws IOException
+	{
+		out.writeInt(n);
+		for(int i = 0; i < n; i++)
+			out.writeDouble(values[i]);
+	}
+
+	/**
+	 * Writes a column of entities, by their local ids
+	 * @param values: the array with the global ids of the entities to write
+	 * @param n: the number of entities to write
+	 * @throws IOException
+	 */
+	public void writeIds(int[] values, int n) throws IOException
+	{
+		out.writeInt(n);
+		for(int i = 0; i < n; i++)
+			out.writeInt(getLocalId(values[i]));
+	}
+
+	/**
+	 * Writes a column of entities, by their local ids
+	 * @param values: the global ids of the entities to write
+	 * @throws IOException
+	 */
+	public void writeIds(Collection<Integer> values) throws IOException
+	{
+		out.writeInt(values.size());
+		for(Integer i : values)
+			out.writeInt(getLocalId(i));
+	}
+
+	/**
+	 * Writes an int
+	 * @param i: the int to write
+	 * @throws IOException
+	 */
+	public void writeInt(int i) throws IOException
+	{
+		out.writeInt(i);
+	}
+
+	/**
+	 * Writes a column of ints
+	 * @param values: the array with the ints to write
+	 * @param n: the number of ints to write
+	 * @throws IOException
+	 */
+	public void writeInts(int[] values, int n) throws IOException
+	{
+		out.writeInt(n);
+		for(int i = 0; i < n; i++)
+			out.writeInt(values[i]);
+	}
+
+	/**
+	 * Writes a column of strings, as the lengths of their UTF-8 encodings
+	 * followed by the encodings
+	 * @param values: the strings to write
+	 * @throws IOException
+	 */
+	public void writeStrings(String[] values) throws IOException
+	{
+		byte[][] encoded = new byte[values.length][];
+		out.writeInt(values.length);
+		for(int i = 0; i < values.length; i++)
+		{
+			encoded[i] = values[i].getBytes(OntologySnapshot.UTF8);
+			out.writeInt(encoded[i].length);
+		}
+		for(byte[] b : encoded)
+			out.write(b);
+	}
+
+	/**
+	 * Writes a column of strings
+	 * @param values: the strings to write
+	 * @throws IOException
+	 */
+	public void writeStrings(Collection<String> values) throws IOException
+	{
+		writeStrings(values.toArray(new String[values.size()]));
+	}
+
+//Private Methods
+
+	//Gets the local id of an entity, adding it to the snapshot if it is new
+	//(negative ids, which stand for no entity, are kept as is)
+	private int getLocalId(int id)
+	{
+		if(id < 0)
+			return id;
+		ids.add(id);
+		return ids.position(id);
+	}
+}
@@ -0,0 +1,1244 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Loader of ontology files in RDF/XML, Turtle or OBO that streams their       *
+* triples into compact tables of ids (without building the OWL API model of   *
+* the ontology), and then fills in the Ontology, URIMap and RelationshipMap   *
+* with the same rules as the OWL API loader (though entities are indexed in   *
+* the order of the file, rather than that of the OWL API). Files with         *
+* constructs the loader can't handle (imports, SKOS, cardinality and data     *
+* restrictions, complements, enumerations, or nested restrictions) are        *
+* detected before anything is added, so they can be loaded with the OWL API.  *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Vector;
+
+import aml.settings.EntityType;
+import aml.settings.LexicalType;
+import aml.settings.SKOS;
+import aml.util.IntListMap;
+import aml.util.IntTable2Set;
+import aml.util.MapSorter;
+import aml.util.StringParser;
+
+public class StreamLoader implements TripleHandler
+{
+
+//Attributes
+
+	//The vocabularies
+	private static final String RDF = "http://www.w3.org/1999/02/22-rdf-syntax-ns#";
+	private static final String RDFS = "http://www.w3.org/2000/01/rdf-schema#";
+	private static final String OWL = "http://www.w3.org/2002/07/owl#";
+	private static final String XSD = "http://www.w3.org/2001/XMLSchema#";
+	private static final String LABEL = RDFS + "label";
+	//The OWL properties that the loader handles (or can safely ignore)
+	private static final HashSet<String> OWL_RESOURCE = new HashSet<String>(Arrays.asList(
+			"equivalentClass", "disjointWith", "onProperty", "someValuesFrom", "allValuesFrom",
+			"intersectionOf", "unionOf", "members", "inverseOf", "propertyChainAxiom",
+			"sameAs", "differentFrom", "distinctMembers", "equivalentProperty",
+			"propertyDisjointWith", "annotatedSource", "annotatedProperty", "annotatedTarget",
+			"sourceIndividual", "assertionProperty", "targetIndividual", "versionIRI",
+			"priorVersion", "backwardCompatibleWith", "incompatibleWith", "deprecated"));
+	private static final HashSet<String> OWL_LITERAL = new HashSet<String>(Arrays.asList(
+			"deprecated", "versionInfo", "annotatedTarget", "targetValue"));
+	//The annotation properties of the RDFS and OWL vocabularies
+	private static final HashSet<String> ANNOTATIONS = new HashSet<String>(Arrays.asList(
+			RDFS + "label", RDFS + "comment", RDFS + "seeAlso", RDFS + "isDefinedBy",
+			OWL + "deprecated", OWL + "versionInfo", OWL + "priorVersion",
+			OWL + "backwardCompatibleWith", OWL + "incompatibleWith"));
+	//The roles of the nodes in the ontology
+	private static final int CLASS = 1;
+	private static final int OBJECT = 2;
+	private static final int DATA = 4;
+	private static final int ANNOTATION = 8;
+	private static final int INDIVIDUAL = 16;
+	private static final int TRANSITIVE = 32;
+	private static final int SYMMETRIC = 64;
+	private static final int FUNCTIONAL = 128;
+	private static final int DATATYPE = 256;
+
+	//The Ontology to load and the global data structures
+	private Ontology o;
+	private URIMap uris;
+	private Lexicon lex;
+	private RelationshipMap rm;
+	//The nodes (URIs and blank nodes) of the file, by id
+	private HashMap<String,Integer> nodeIds;
+	private Vector<String> nodes;
+	//The roles of each node
+	private int[] roles;
+	//The resource triples, as the predicates and objects of each subject
+	private IntListMap predicates;
+	private IntListMap objects;
+	//The literal triples, as the predicates and literals of each subject
+	private IntListMap literalPredicates;
+	private IntListMap literals;
+	private Vector<String> values;
+	private Vector<String> languages;
+	private Vector<String> datatypes;
+	//The URI of the ontology
+	private String ontologyURI;
+	//The axioms of the ontology, as tables of node ids
+	private IntTable2Set superClasses;
+	private IntTable2Set equivalents;
+	private IntTable2Set disjoints;
+	private IntTable2Set instances;
+	private IntTable2Set domains;
+	private IntTable2Set ranges;
+	private IntTable2Set superProperties;
+	private IntTable2Set inverses;
+	private IntTable2Set chains;
+	//The entities of the ontology, by type
+	private Vector<Integer> classes;
+	private Vector<Integer> dataProperties;
+	private Vector<Integer> objectProperties;
+	private Vector<Integer> individuals;
+
+//Constructors
+
+	/**
+	 * Constructs a new StreamLoader for the given Ontology
+	 * @param o: the Ontology to load
+	 */
+	public StreamLoader(Ontology o)
+	{
+		this.o = o;
+		uris = o.uris;
+		lex = o.lex;
+		rm = o.rm;
+		nodeIds = new HashMap<String,Integer>();
+		nodes = new Vector<String>();
+		roles = new int[1024];
+		predicates = new IntListMap();
+		objects = new IntListMap();
+		literalPredicates = new IntListMap();
+		literals = new IntListMap();
+		values = new Vector<String>();
+		languages = new Vector<String>();
+		datatypes = new Vector<String>();
+	}
+
+//Public Methods
+
+	/**
+	 * Adds the entities, lexical entries and relationships read from the file
+	 * to the Ontology, URIMap and RelationshipMap (must be called only after
+	 * prepare(), which checks that the file can be streamed)
+	 */
+	public void commit()
+	{
+		o.isSKOS = false;
+		if(ontologyURI != null)
+			o.uri = ontologyURI;
+		addClasses();
+		addProperties();
+		addIndividuals();
+		addRelationships();
+	}
+
+	@Override
+	public void handleLiteral(String subject, String predicate, String value, String lang,
+			String datatype) throws UnsupportedConstructException
+	{
+		if(predicate.startsWith(OWL) && !OWL_LITERAL.contains(predicate.substring(OWL.length())))
+			throw new UnsupportedConstructException(predicate);
+		int s = getNode(subject);
+		literalPredicates.add(s, getNode(predicate));
+		literals.add(s, values.size());
+		values.add(value);
+		languages.add(lang);
+		datatypes.add(datatype);
+	}
+
+	@Override
+	public void handleResource(String subject, String predicate, String object)
+			throws UnsupportedConstructException
+	{
+		if(predicate.startsWith(OWL) && !OWL_RESOURCE.contains(predicate.substring(OWL.length())))
+			throw new UnsupportedConstructException(predicate);
+		int s = getNode(subject);
+		predicates.add(s, getNode(predicate));
+		objects.add(s, getNode(object));
+	}
+
+	/**
+	 * Determines the roles of the nodes of the file (classes, properties and
+	 * individuals) from their declarations and the axioms they occur in, and
+	 * checks that all class expressions can be handled
+	 * @throws UnsupportedConstructException if the file has a construct that
+	 * can't be streamed
+	 */
+	public void prepare() throws UnsupportedConstructException
+	{
+		roles = Arrays.copyOf(roles, nodes.size());
+		superClasses = new IntTable2Set();
+		equivalents = new IntTable2Set();
+		disjoints = new IntTable2Set();
+		instances = new IntTable2Set();
+		domains = new IntTable2Set();
+		ranges = new IntTable2Set();
+		superProperties = new IntTable2Set();
+		inverses = new IntTable2Set();
+		chains = new IntTable2Set();
+		//First, the declarations and class assertions
+		for(int i = 0; i < predicates.keyCount(); i++)
+		{
+			int s = predicates.getKey(i);
+			for(int j = 0; j < predicates.valueCount(i); j++)
+				if(getURI(predicates.getValue(i, j)).equals(RDF + "type"))
+					addType(s, objects.getValue(i, j));
+		}
+		//Then the axioms, which define the roles of undeclared entities
+		for(int i = 0; i < predicates.keyCount(); i++)
+		{
+			int s = predicates.getKey(i);
+			for(int j = 0; j < predicates.valueCount(i); j++)
+				addAxiom(s, getURI(predicates.getValue(i, j)), objects.getValue(i, j));
+		}
+		//Then the domains and ranges (which depend on the roles of the properties)
+		//and the property assertions of individuals
+		for(int s : domains.keySet())
+		{
+			if(!hasRole(s, OBJECT) && !hasRole(s, DATA))
+				continue;
+			for(int d : domains.get(s))
+				for(int c : checkDisjuncts(d))
+					roles[c] |= CLASS;
+		}
+		for(int s : ranges.keySet())
+		{
+			if(hasRole(s, OBJECT))
+			{
+				for(int r : ranges.get(s))
+					for(int c : checkDisjuncts(r))
+						roles[c] |= CLASS;
+			}
+			else if(hasRole(s, DATA))
+			{
+				for(int r : ranges.get(s))
+					if(isBlank(r))
+						throw new UnsupportedConstructException("data range expression");
+			}
+		}
+		for(int i = 0; i < predicates.keyCount(); i++)
+		{
+			int s = predicates.getKey(i);
+			if(isBlank(s))
+				continue;
+			for(int j = 0; j < predicates.valueCount(i); j++)
+			{
+				int obj = objects.getValue(i, j);
+				if(hasRole(predicates.getValue(i, j), OBJECT) && !isBlank(obj))
+				{
+					roles[s] |= INDIVIDUAL;
+					roles[obj] |= INDIVIDUAL;
+				}
+			}
+		}
+		for(int i = 0; i < literalPredicates.keyCount(); i++)
+		{
+			int s = literalPredicates.getKey(i);
+			if(isBlank(s))
+				continue;
+			for(int j = 0; j < literalPredicates.valueCount(i); j++)
+				if(hasRole(literalPredicates.getValue(i, j), DATA))
+					roles[s] |= INDIVIDUAL;
+		}
+		//SKOS thesauri are processed differently by the OWL API loader
+		Integer scheme = nodeIds.get(SKOS.CONCEPT_SCHEME.toIRI().toString());
+		Integer concept = nodeIds.get(SKOS.CONCEPT.toIRI().toString());
+		if(scheme != null && concept != null && hasRole(scheme, CLASS) && hasRole(concept, CLASS))
+			throw new UnsupportedConstructException("SKOS thesaurus");
+		//Finally, list the entities of each type
+		classes = new Vector<Integer>();
+		dataProperties = new Vector<Integer>();
+		objectProperties = new Vector<Integer>();
+		individuals = new Vector<Integer>();
+		for(int i = 0; i < nodes.size(); i++)
+		{
+			if(isBlank(i))
+				continue;
+			if(hasRole(i, CLASS))
+				classes.add(i);
+			if(hasRole(i, DATA))
+				dataProperties.add(i);
+			if(hasRole(i, OBJECT))
+				objectProperties.add(i);
+			if(hasRole(i, INDIVIDUAL))
+				individuals.add(i);
+		}
+	}
+
+	/**
+	 * Reads an ontology file in RDF/XML, Turtle or OBO for an Ontology by
+	 * streaming its triples, and prepares it to be committed to the Ontology
+	 * (the Ontology is left unchanged until then)
+	 * @param o: the Ontology to load
+	 * @param file: the ontology file
+	 * @return the prepared StreamLoader, or null if the file can't be streamed
+	 */
+	public static StreamLoader read(Ontology o, File file)
+	{
+		StreamLoader loader = new StreamLoader(o);
+		try
+		{
+			String name = file.getName().toLowerCase();
+			if(name.endsWith(".obo"))
+				new OBOReader(loader).read(file);
+			else if(name.endsWith(".ttl") || name.endsWith(".n3") ||
+					name.endsWith(".nt") || !isXML(file))
+				new TurtleReader(loader).read(file);
+			else
+				new RDFXMLReader(loader).read(file);
+			loader.prepare();
+		}
+		catch(UnsupportedConstructException e)
+		{
+			System.out.println(e.getMessage() + " in " + file.getName() + " - loading it with the OWL API");
+			return null;
+		}
+		catch(IOException e)
+		{
+			System.out.println("Could not stream " + file.getName() + " (" + e.getMessage() +
+					") - loading it with the OWL API");
+			return null;
+		}
+		return loader;
+	}
+
+//Private Methods
+
+	//Processes an axiom (a resource triple), adding it to the corresponding
+	//table and updating the roles of its nodes
+	private void addAxiom(int s, String p, int obj) throws UnsupportedConstructException
+	{
+		if(p.equals(RDFS + "subClassOf") || p.equals(OWL + "equivalentClass"))
+		{
+			if(isBlank(s))
+				throw new UnsupportedConstructException("general class axiom");
+			roles[s] |= CLASS;
+			checkClassExpression(obj);
+			if(p.equals(RDFS + "subClassOf"))
+				superClasses.add(s, obj);
+			else
+			{
+				equivalents.add(s, obj);
+				if(!isBlank(obj))
+					equivalents.add(obj, s);
+			}
+		}
+		else if(p.equals(OWL + "disjointWith"))
+		{
+			if(isBlank(s))
+				throw new UnsupportedConstructException("general class axiom");
+			roles[s] |= CLASS;
+			for(int c : checkDisjuncts(obj))
+				roles[c] |= CLASS;
+			disjoints.add(s, obj);
+			if(!isBlank(obj))
+				disjoints.add(obj, s);
+		}
+		else if(p.equals(OWL + "members"))
+		{
+			//Members of owl:AllDisjointClasses (other owl:All* axioms are ignored)
+			if(!isType(s, OWL + "AllDisjointClasses"))
+				return;
+			Vector<Integer> members = checkList(obj);
+			for(int c : members)
+			{
+				if(isBlank(c))
+					throw new UnsupportedConstructException("disjoint class expression");
+				roles[c] |= CLASS;
+			}
+			for(int c : members)
+				for(int d : members)
+					if(c != d)
+						disjoints.add(c, d);
+		}
+		else if(p.equals(OWL + "inverseOf"))
+		{
+			if(isBlank(s) || isBlank(obj))
+				throw new UnsupportedConstructException("inverse property expression");
+			roles[s] |= OBJECT;
+			roles[obj] |= OBJECT;
+			inverses.add(s, obj);
+			inverses.add(obj, s);
+		}
+		else if(p.equals(OWL + "propertyChainAxiom"))
+		{
+			Vector<Integer> chain = checkList(obj);
+			if(isBlank(s) || chain.size() < 2)
+				throw new UnsupportedConstructException("property chain");
+			roles[s] |= OBJECT;
+			for(int q : chain)
+			{
+				if(isBlank(q))
+					throw new UnsupportedConstructException("property chain");
+				roles[q] |= OBJECT;
+			}
+			//The OWL API loader relates the first and last properties of the chain
+			chains.add(chain.firstElement(), chain.lastElement());
+		}
+		else if(p.equals(RDFS + "subPropertyOf"))
+		{
+			if(isBlank(s) || isBlank(obj))
+				throw new UnsupportedConstructException("property expression");
+			superProperties.add(s, obj);
+		}
+		else if(p.equals(RDFS + "domain") && !isBlank(s))
+			domains.add(s, obj);
+		else if(p.equals(RDFS + "range") && !isBlank(s))
+			ranges.add(s, obj);
+		else if((p.equals(OWL + "sameAs") || p.equals(OWL + "differentFrom")) &&
+				!isBlank(s) && !isBlank(obj))
+		{
+			roles[s] |= INDIVIDUAL;
+			roles[obj] |= INDIVIDUAL;
+		}
+	}
+
+	//Adds the classes with their lexical entries, cross-references and
+	//obsolete flags
+	private void addClasses()
+	{
+		//The builder of the Lexicon (which normalizes the names in parallel)
+		LexiconBuilder builder = new LexiconBuilder(lex);
+		for(int c : classes)
+		{
+			String classUri = getURI(c);
+			if(classUri.endsWith("owl#Thing") || classUri.endsWith("owl:Thing"))
+				continue;
+			//Add it to the global list of URIs and to the Ontology
+			int id = addEntity(classUri, EntityType.CLASS);
+			//Get the local name from the URI and add it to the classNames map
+			String name = uris.getLocalName(id);
+			o.classNames.put(name, id);
+			//If the local name is not an alphanumeric code, add it to the lexicon
+			if(!StringParser.isNumericId(name))
+			{
+				LexicalType type = LexicalType.LOCAL_NAME;
+				builder.add(id, name, "en", type, "", type.getDefaultWeight());
+			}
+			//Now get the class's literal annotations
+			int pos = literalPredicates.position(c);
+			for(int j = 0; pos > -1 && j < literalPredicates.valueCount(pos); j++)
+			{
+				int p = literalPredicates.getValue(pos, j);
+				if(!isAnnotation(p))
+					continue;
+				String propUri = getURI(p);
+				int l = literals.getValue(pos, j);
+				//Labels and synonyms go to the Lexicon
+				LexicalType type = LexicalType.getLexicalType(propUri);
+				if(type != null)
+					builder.add(id, values.get(l), getLanguage(l, "en"), type, "", type.getDefaultWeight());
+				//xRefs go to the cross-reference table
+				else if(propUri.endsWith("hasDbXref"))
+				{
+					String xRef = values.get(l);
+					if(!xRef.startsWith("http"))
+						o.refs.add(id,xRef.replace(':','_'));
+				}
+				//Deprecated classes are flagged as obsolete
+				else if(propUri.endsWith("deprecated") && datatypes.get(l).equals(XSD + "boolean"))
+				{
+					String v = values.get(l).trim();
+					if(v.equals("true") || v.equals("1"))
+						o.obsolete.add(id);
+				}
+			}
+			//And the labels of the entities in its URI annotations
+			pos = predicates.position(c);
+			for(int j = 0; pos > -1 && j < predicates.valueCount(pos); j++)
+			{
+				int p = predicates.getValue(pos, j);
+				int obj = objects.getValue(pos, j);
+				if(!isAnnotation(p) || isBlank(obj))
+					continue;
+				LexicalType type = LexicalType.getLexicalType(getURI(p));
+				if(type == null)
+					continue;
+				int labels = literalPredicates.position(obj);
+				for(int k = 0; labels > -1 && k < literalPredicates.valueCount(labels); k++)
+				{
+					if(!getURI(literalPredicates.getValue(labels, k)).equals(LABEL))
+						continue;
+					int l = literals.getValue(labels, k);
+					builder.add(id, values.get(l), getLanguage(l, "en"), type, "", type.getDefaultWeight());
+				}
+			}
+		}
+		builder.close();
+	}
+
+	//Adds an entity to the URIMap and to the Ontology
+	private int addEntity(String uri, EntityType e)
+	{
+		int id = uris.addURI(uri, e);
+		o.entities.add(id);
+		o.entityTypes.add(e, id);
+		return id;
+	}
+
+	//Adds the individuals with their lexical entries and values
+	private void addIndividuals()
+	{
+		//The builder of the Lexicon (which normalizes the names in parallel)
+		LexiconBuilder builder = new LexiconBuilder(lex);
+		Map<String,Integer> langCounts = new LinkedHashMap<String,Integer>();
+		for(int i : individuals)
+		{
+			String indivUri = getURI(i);
+			//Add it to the global list of URIs and to the Ontology
+			int id = addEntity(indivUri, EntityType.INDIVIDUAL);
+			//Get the local name from the URI
+			String localName = getLocalName(indivUri);
+			//Get the label(s)
+			String lang = "";
+			int pos = literalPredicates.position(i);
+			for(int j = 0; pos > -1 && j < literalPredicates.valueCount(pos); j++)
+			{
+				if(!getURI(literalPredicates.getValue(pos, j)).equals(LABEL))
+					continue;
+				int l = literals.getValue(pos, j);
+				String name = values.get(l);
+				if(name.equals(localName) && StringParser.isNumericId(name))
+					continue;
+				lang = languages.get(l);
+				if(lang.equals(""))
+				{
+					if(langCounts.isEmpty())
+						lang = "en";
+					else
+					{
+						langCounts = MapSorter.sortDescending(langCounts);
+						lang = langCounts.keySet().iterator().next();
+					}
+				}
+				else
+				{
+					int count = 1;
+					if(langCounts.containsKey(lang))
+						count += langCounts.get(lang);
+					langCounts.put(lang, count);
+				}
+				LexicalType type = LexicalType.LABEL;
+				builder.add(id, name, lang, type, "", type.getDefaultWeight());
+			}
+			//If the local name is not an alphanumeric code, add it to the lexicon
+			//(assume it is in the most common label language)
+			if(!StringParser.isNumericId(localName))
+			{
+				if(lang.equals(""))
+				{
+					if(langCounts.isEmpty())
+						lang = "en";
+					else
+					{
+						langCounts = MapSorter.sortDescending(langCounts);
+						lang = langCounts.keySet().iterator().next();
+					}
+				}
+				LexicalType type = LexicalType.LOCAL_NAME;
+				builder.add(id, localName, lang, type, "", type.getDefaultWeight());
+			}
+			//Get the literal annotations of the Individual (except labels)
+			//and the values of its data properties (by property)
+			LinkedHashMap<Integer,Vector<String>> dataValues = new LinkedHashMap<Integer,Vector<String>>();
+			for(int j = 0; pos > -1 && j < literalPredicates.valueCount(pos); j++)
+			{
+				int p = literalPredicates.getValue(pos, j);
+				String propUri = getURI(p);
+				int l = literals.getValue(pos, j);
+				if(hasRole(p, DATA))
+				{
+					if(!dataValues.containsKey(p))
+						dataValues.put(p, new Vector<String>());
+					dataValues.get(p).add(values.get(l));
+					continue;
+				}
+				if(!isAnnotation(p) || propUri.equals(LABEL))
+					continue;
+				//Annotations with a LexicalType go to the Lexicon
+				LexicalType type = LexicalType.getLexicalType(propUri);
+				if(type != null)
+					builder.add(id, values.get(l), getLanguage(l, lang), type, "", type.getDefaultWeight());
+				//Otherwise, literal annotations go to the ValueMap
+				else
+				{
+					//We must first add the annotation property to the URIMap and Ontology
+					//(if it was already added, nothing happens)
+					int propId = addEntity(propUri, EntityType.ANNOTATION);
+					//Then add the value to the ValueMap
+					o.vMap.add(id, propId, values.get(l));
+				}
+			}
+			//Get the URI annotations of the Individual with a LexicalType
+			pos = predicates.position(i);
+			for(int j = 0; pos > -1 && j < predicates.valueCount(pos); j++)
+			{
+				int p = predicates.getValue(pos, j);
+				int obj = objects.getValue(pos, j);
+				String propUri = getURI(p);
+				if(!isAnnotation(p) || isBlank(obj) || propUri.equals(LABEL))
+					continue;
+				LexicalType type = LexicalType.getLexicalType(propUri);
+				if(type == null)
+					continue;
+				double weight = type.getDefaultWeight();
+				String name = getLocalName(getURI(obj));
+				if(!StringParser.isNumericId(name))
+					builder.add(id, name, lang, type, "", weight);
+				int labels = literalPredicates.position(obj);
+				for(int k = 0; labels > -1 && k < literalPredicates.valueCount(labels); k++)
+				{
+					if(!getURI(literalPredicates.getValue(labels, k)).equals(LABEL))
+						continue;
+					int l = literals.getValue(labels, k);
+					builder.add(id, values.get(l), getLanguage(l, lang), type, "", weight);
+				}
+			}
+			//Process the data property values
+			for(int p : dataValues.keySet())
+			{
+				String propUri = getURI(p);
+				int propIndex = uris.getIndex(propUri);
+				if(propIndex == -1)
+					continue;
+				//Data Properties with a LexicalType go to the Lexicon
+				LexicalType type = LexicalType.getLexicalType(propUri);
+				if(type != null)
+				{
+					for(String v : dataValues.get(p))
+						builder.add(id, v, "en", type, "", type.getDefaultWeight());
+				}
+				//Otherwise, they go to the ValueMap
+				else
+				{
+					for(String v : dataValues.get(p))
+						o.vMap.add(id, propIndex, v);
+				}
+				//FIX: Filling in missing types of individuals from data property restrictions
+				//(Sometimes ontologies fail to declare individual types)
+				if(rm.getIndividualClasses(id).isEmpty() && rm.getDomains(propIndex).size() == 1)
+					rm.addInstance(id, rm.getDomains(propIndex).iterator().next());
+			}
+		}
+		builder.close();
+	}
+
+	//Adds the data and object properties, with their lexical entries,
+	//characteristics, domains and ranges
+	private void addProperties()
+	{
+		for(int dp : dataProperties)
+		{
+			int id = addProperty(dp, EntityType.DATA);
+			//Add its domain(s) and range(s) to the RelationshipMap
+			if(domains.contains(dp))
+				for(int d : domains.get(dp))
+					for(int c : getDisjuncts(d))
+						rm.addDomain(id, uris.getIndex(getURI(c)));
+			if(ranges.contains(dp))
+				for(int r : ranges.get(dp))
+					rm.addRange(id, getURI(r));
+		}
+		for(int op : objectProperties)
+		{
+			int id = addProperty(op, EntityType.OBJECT);
+			//If the property is transitive and/or symmetric add it to the RelationshipMap
+			if(hasRole(op, TRANSITIVE))
+				rm.addTransitive(id);
+			if(hasRole(op, SYMMETRIC))
+				rm.addSymmetric(id);
+			if(hasRole(op, FUNCTIONAL))
+				rm.addFunctional(id);
+			//Add its domain(s) and range(s) to the RelationshipMap
+			if(domains.contains(op))
+				for(int d : domains.get(op))
+					for(int c : getDisjuncts(d))
+						rm.addDomain(id, uris.getIndex(getURI(c)));
+			if(ranges.contains(op))
+				for(int r : ranges.get(op))
+					for(int c : getDisjuncts(r))
+						rm.addRange(id, uris.getIndex(getURI(c)));
+		}
+		//Process "transitive over" relations, encoded as property chains
+		for(int p1 : chains.keySet())
+		{
+			for(int p2 : chains.get(p1))
+			{
+				int id1 = uris.getIndex(getURI(p1));
+				int id2 = uris.getIndex(getURI(p2));
+				if(o.entityTypes.contains(EntityType.OBJECT, id1) &&
+						o.entityTypes.contains(EntityType.OBJECT, id2))
+					rm.addTransitiveOver(id1, id2);
+			}
+		}
+	}
+
+	//Adds a data or object property with its labels and local name
+	//(and flags it as functional if it is a data property)
+	private int addProperty(int p, EntityType e)
+	{
+		String propUri = getURI(p);
+		int id = addEntity(propUri, e);
+		//Get the local name from the URI
+		String localName = getLocalName(propUri);
+		//Get the label(s)
+		String lang = "";
+		HashSet<String> labelLanguages = new HashSet<String>();
+		int pos = literalPredicates.position(p);
+		for(int j = 0; pos > -1 && j < literalPredicates.valueCount(pos); j++)
+		{
+			if(!getURI(literalPredicates.getValue(pos, j)).equals(LABEL))
+				continue;
+			int l = literals.getValue(pos, j);
+			lang = getLanguage(l, "en");
+			LexicalType type = LexicalType.LABEL;
+			lex.add(id, values.get(l), lang, type, "", type.getDefaultWeight());
+			labelLanguages.add(lang);
+		}
+		//If the local name is not an alphanumeric code, add it to the lexicon
+		//(assume it is in the same language as the label(s), if only one label
+		//language is declared; otherwise assume it is English)
+		if(!StringParser.isNumericId(localName))
+		{
+			LexicalType type = LexicalType.LOCAL_NAME;
+			if(labelLanguages.size() != 1)
+				lang = "en";
+			lex.add(id, localName, lang, type, "", type.getDefaultWeight());
+		}
+		if(e.equals(EntityType.DATA) && hasRole(p, FUNCTIONAL))
+			rm.addFunctional(id);
+		return id;
+	}
+
+	//Adds a relationship between a class and a class expression to the RelationshipMap
+	private void addRelationship(int child, int e, boolean sub, boolean inverse)
+	{
+		//If it is a class, process it here
+		if(!isBlank(e))
+		{
+			int parent = uris.getIndex(getURI(e));
+			if(parent < 0)
+				return;
+			if(sub)
+			{
+				if(inverse)
+					rm.addDirectSubclass(parent, child);
+				else
+					rm.addDirectSubclass(child, parent);
+				String name = o.getName(parent);
+				if(name.contains("Obsolete") || name.contains("obsolete") ||
+						name.contains("Retired") || name.contains ("retired") ||
+						name.contains("Deprecated") || name.contains("deprecated"))
+					o.obsolete.add(child);
+			}
+			else
+				rm.addEquivalentClass(child, parent);
+			return;
+		}
+		int list = getObject(e, OWL + "intersectionOf");
+		//If it is an intersection of classes, capture the implied subclass relationships
+		if(list > -1)
+		{
+			for(int c : getList(list))
+				addRelationship(child, c, true, false);
+			return;
+		}
+		list = getObject(e, OWL + "unionOf");
+		//If it is a union of classes, capture the implied subclass relationships
+		if(list > -1)
+		{
+			for(int c : getList(list))
+				addRelationship(child, c, true, true);
+			return;
+		}
+		//Otherwise it is a 'some values' or 'all values' object property restriction
+		int property = uris.getIndex(getURI(getObject(e, OWL + "onProperty")));
+		int some = getObject(e, OWL + "someValuesFrom");
+		int filler = some > -1 ? some : getObject(e, OWL + "allValuesFrom");
+		int parent = uris.getIndex(getURI(filler));
+		if(parent == -1 || property == -1)
+			return;
+		if(sub)
+		{
+			if(inverse)
+				rm.addClassRelationship(parent, child, property, false);
+			else
+				rm.addClassRelationship(child, parent, property, false);
+		}
+		else
+			rm.addEquivalence(child, parent, property, false);
+		if(some > -1)
+			o.objectSomeValues.add(property, child, parent);
+		else
+			o.objectAllValues.add(property, child, parent);
+	}
+
+	//Adds the relationships between classes, individuals and properties
+	private void addRelationships()
+	{
+		o.initDisjointTables();
+		//I - Relationships involving classes
+		for(int c : classes)
+		{
+			int child = uris.getIndex(getURI(c));
+			if(child == -1)
+				continue;
+			//Get the subclass and equivalence expressions to capture and add relationships
+			if(superClasses.contains(c))
+				for(int e : superClasses.get(c))
+					addRelationship(child, e, true, false);
+			if(equivalents.contains(c))
+				for(int e : equivalents.get(c))
+					addRelationship(child, e, false, false);
+			//Get the individuals that belong to the class
+			if(instances.contains(c))
+				for(int i : instances.get(c))
+					rm.addInstance(uris.getIndex(getURI(i)), child);
+			//Get the syntactic disjoints
+			if(disjoints.contains(c))
+			{
+				for(int d : disjoints.get(c))
+				{
+					for(int e : getDisjuncts(d))
+					{
+						int parent = uris.getIndex(getURI(e));
+						if(parent > -1)
+							rm.addDisjoint(child, parent);
+					}
+				}
+			}
+		}
+		//Finally process the semantically disjoint classes
+		o.processSemanticDisjoints();
+
+		//II - Relationships between named individuals
+		for(int i : individuals)
+		{
+			int namedIndivId = uris.getIndex(getURI(i));
+			if(namedIndivId == -1)
+				continue;
+			int pos = predicates.position(i);
+			if(pos < 0)
+				continue;
+			//Get the object properties of the individual and the related individuals
+			LinkedHashMap<Integer,Vector<Integer>> iProps = new LinkedHashMap<Integer,Vector<Integer>>();
+			for(int j = 0; j < predicates.valueCount(pos); j++)
+			{
+				int p = predicates.getValue(pos, j);
+				if(!hasRole(p, OBJECT))
+					continue;
+				if(!iProps.containsKey(p))
+					iProps.put(p, new Vector<Integer>());
+				iProps.get(p).add(objects.getValue(pos, j));
+			}
+			for(int p : iProps.keySet())
+			{
+				String propURI = getURI(p);
+				int propIndex = uris.getIndex(propURI);
+				if(propIndex == -1)
+					continue;
+				//FIX: Filling in missing types of individuals from object property restrictions
+				//(Sometimes ontologies fail to declare individual types)
+				if(rm.getIndividualClasses(namedIndivId).isEmpty() && rm.getDomains(propIndex).size() == 1)
+					rm.addInstance(namedIndivId, rm.getDomains(propIndex).iterator().next());
+				for(int r : iProps.get(p))
+				{
+					if(isBlank(r))
+						continue;
+					int namedRelIndivId = uris.getIndex(getURI(r));
+					rm.addIndividualRelationship(namedIndivId, namedRelIndivId, propIndex);
+					//If the individual is an alias of the related individual
+					//use the individual's lexical entries to extend those of
+					//the related individual
+					if(propURI.endsWith("isAliasOf"))
+					{
+						for(String name : lex.getNames(namedIndivId))
+						{
+							for(Provenance pr : lex.get(name, namedIndivId))
+							{
+								LexicalType t = pr.getType();
+								if(t.equals(LexicalType.LABEL) || t.equals(LexicalType.LOCAL_NAME))
+									t = LexicalType.EXACT_SYNONYM;
+								lex.add(namedRelIndivId,name,pr.getLanguage(),t,"",t.getDefaultWeight());
+							}
+						}
+					}
+					//FIX: Filling in missing types of individuals from object property restrictions
+					//(Sometimes ontologies fail to declare individual types)
+					if(rm.getIndividualClasses(namedRelIndivId).isEmpty() && rm.getObjectRanges(propIndex).size() == 1)
+						rm.addInstance(namedRelIndivId, rm.getObjectRanges(propIndex).iterator().next());
+				}
+			}
+			//FIX: Relationships between individuals encoded by AnnotationProperties
+			//(Sometimes ontologies fail to declare object properties)
+			for(int j = 0; j < predicates.valueCount(pos); j++)
+			{
+				int p = predicates.getValue(pos, j);
+				int obj = objects.getValue(pos, j);
+				if(!isAnnotation(p) || isBlank(obj))
+					continue;
+				String propUri = getURI(p);
+				//If the annotation doesn't have a LexicalType and is
+				//pointing to a URI rather than a literal, treat it as
+				//an object property
+				if(LexicalType.getLexicalType(propUri) != null)
+					continue;
+				//Check that the named individual is in the URIMap
+				int namedRelIndivId = uris.getIndex(getURI(obj));
+				if(namedRelIndivId == -1)
+					continue;
+				//Add the property to the URIMap and Ontology as an object property
+				int propId = addEntity(propUri, EntityType.OBJECT);
+				//And remove it as an annotation property
+				o.entityTypes.remove(EntityType.ANNOTATION, propId);
+				//Add its name to the Lexicon
+				lex.add(propId, getLocalName(propUri), "en", LexicalType.LOCAL_NAME,
+						"", LexicalType.LOCAL_NAME.getDefaultWeight());
+				//Add the relation to the RelationshipMap
+				rm.addIndividualRelationship(namedIndivId, namedRelIndivId, propId);
+			}
+		}
+
+		//III - Relationships between properties
+		for(int dp : dataProperties)
+			addSuperProperties(dp);
+		for(int op : objectProperties)
+		{
+			int propId = addSuperProperties(op);
+			if(propId == -1 || !inverses.contains(op))
+				continue;
+			for(int i : inverses.get(op))
+			{
+				int iId = uris.getIndex(getURI(i));
+				if(iId != -1)
+					rm.addInverseProp(propId,iId);
+			}
+		}
+	}
+
+	//Adds the super-properties of a property to the RelationshipMap,
+	//and returns the index of the property
+	private int addSuperProperties(int p)
+	{
+		int propId = uris.getIndex(getURI(p));
+		if(propId == -1 || !superProperties.contains(p))
+			return propId;
+		for(int s : superProperties.get(p))
+		{
+			int sId = uris.getIndex(getURI(s));
+			if(sId != -1)
+				rm.addSubProperty(propId,sId);
+		}
+		return propId;
+	}
+
+	//Processes a declaration or class assertion (an rdf:type triple)
+	private void addType(int s, int type) throws UnsupportedConstructException
+	{
+		String t = getURI(type);
+		if(t.equals(OWL + "Class") || t.equals(RDFS + "Class"))
+		{
+			if(!isBlank(s))
+				roles[s] |= CLASS;
+		}
+		else if(t.equals(OWL + "ObjectProperty") || t.equals(OWL + "InverseFunctionalProperty") ||
+				t.equals(OWL + "AsymmetricProperty") || t.equals(OWL + "ReflexiveProperty") ||
+				t.equals(OWL + "IrreflexiveProperty"))
+			roles[s] |= OBJECT;
+		else if(t.equals(OWL + "TransitiveProperty"))
+			roles[s] |= OBJECT | TRANSITIVE;
+		else if(t.equals(OWL + "SymmetricProperty"))
+			roles[s] |= OBJECT | SYMMETRIC;
+		else if(t.equals(OWL + "FunctionalProperty"))
+			roles[s] |= FUNCTIONAL;
+		else if(t.equals(OWL + "DatatypeProperty"))
+			roles[s] |= DATA;
+		else if(t.equals(OWL + "AnnotationProperty"))
+			roles[s] |= ANNOTATION;
+		else if(t.equals(OWL + "NamedIndividual"))
+			roles[s] |= INDIVIDUAL;
+		else if(t.equals(RDFS + "Datatype"))
+			roles[s] |= DATATYPE;
+		else if(t.equals(OWL + "Ontology"))
+		{
+			if(ontologyURI == null && !isBlank(s))
+				ontologyURI = getURI(s);
+		}
+		//Other types of the RDF, RDFS and OWL vocabularies (e.g. owl:Restriction,
+		//owl:Axiom, rdf:List) describe the syntax, except for owl:Thing
+		else if(!t.equals(OWL + "Thing") &&
+				(t.startsWith(RDF) || t.startsWith(RDFS) || t.startsWith(OWL)))
+			return;
+		//Otherwise, it is a class assertion
+		else
+		{
+			if(isBlank(type))
+				throw new UnsupportedConstructException("class assertion of a class expression");
+			roles[type] |= CLASS;
+			if(!isBlank(s))
+			{
+				roles[s] |= INDIVIDUAL;
+				instances.add(type, s);
+			}
+		}
+	}
+
+	//Checks that a class expression can be handled, and updates the roles of its nodes
+	private void checkClassExpression(int e) throws UnsupportedConstructException
+	{
+		if(!isBlank(e))
+		{
+			roles[e] |= CLASS;
+			return;
+		}
+		int pos = predicates.position(e);
+		if(pos < 0 || literalPredicates.position(e) > -1)
+			throw new UnsupportedConstructException("class expression");
+		int property = -1;
+		int filler = -1;
+		int list = -1;
+		for(int j = 0; j < predicates.valueCount(pos); j++)
+		{
+			String p = getURI(predicates.getValue(pos, j));
+			int obj = objects.getValue(pos, j);
+			if(p.equals(RDF + "type"))
+				continue;
+			else if(p.equals(OWL + "onProperty") && property == -1)
+				property = obj;
+			else if((p.equals(OWL + "someValuesFrom") || p.equals(OWL + "allValuesFrom")) && filler == -1)
+				filler = obj;
+			else if((p.equals(OWL + "intersectionOf") || p.equals(OWL + "unionOf")) && list == -1)
+				list = obj;
+			else
+				throw new UnsupportedConstructException("class expression with " + p);
+		}
+		if(list > -1 && property == -1 && filler == -1)
+		{
+			for(int c : checkList(list))
+				checkClassExpression(c);
+		}
+		else if(list == -1 && property > -1 && filler > -1)
+		{
+			//Only object restrictions on named properties and classes are supported
+			if(isBlank(property) || isBlank(filler))
+				throw new UnsupportedConstructException("nested restriction");
+			String f = getURI(filler);
+			if(hasRole(property, DATA) || hasRole(property, ANNOTATION) || hasRole(filler, DATATYPE) ||
+					f.startsWith(XSD) || f.equals(RDFS + "Literal") || f.startsWith(RDF))
+				throw new UnsupportedConstructException("data restriction");
+			roles[property] |= OBJECT;
+			roles[filler] |= CLASS;
+		}
+		else
+			throw new UnsupportedConstructException("class expression");
+	}
+
+	//Checks that a class expression is a class or a union of classes, and gets them
+	private Vector<Integer> checkDisjuncts(int e) throws UnsupportedConstructException
+	{
+		Vector<Integer> disjuncts = new Vector<Integer>();
+		if(!isBlank(e))
+			disjuncts.add(e);
+		else
+		{
+			int list = getObject(e, OWL + "unionOf");
+			if(list < 0)
+				throw new UnsupportedConstructException("class expression");
+			for(int c : checkList(list))
+			{
+				if(isBlank(c))
+					throw new UnsupportedConstructException("nested class expression");
+				disjuncts.add(c);
+			}
+		}
+		return disjuncts;
+	}
+
+	//Checks that an RDF list is well formed, and gets its nodes
+	private Vector<Integer> checkList(int list) throws UnsupportedConstructException
+	{
+		Vector<Integer> items = new Vector<Integer>();
+		HashSet<Integer> visited = new HashSet<Integer>();
+		while(!getURI(list).equals(RDF + "nil"))
+		{
+			int first = getObject(list, RDF + "first");
+			int rest = getObject(list, RDF + "rest");
+			if(!isBlank(list) || first < 0 || rest < 0 || !visited.add(list))
+				throw new UnsupportedConstructException("malformed list");
+			items.add(first);
+			list = rest;
+		}
+		return items;
+	}
+
+	//Gets the named classes of a class or a union of classes (checked by prepare())
+	private Vector<Integer> getDisjuncts(int e)
+	{
+		Vector<Integer> disjuncts = new Vector<Integer>();
+		if(isBlank(e))
+			disjuncts.addAll(getList(getObject(e, OWL + "unionOf")));
+		else
+			disjuncts.add(e);
+		return disjuncts;
+	}
+
+	//Gets the language of a literal, or the default language if it has none
+	private String getLanguage(int literal, String defaultLang)
+	{
+		String lang = languages.get(literal);
+		if(lang.equals(""))
+			return defaultLang;
+		return lang;
+	}
+
+	//Gets the nodes of an RDF list (checked by prepare())
+	private Vector<Integer> getList(int list)
+	{
+		Vector<Integer> items = new Vector<Integer>();
+		while(list > -1 && !getURI(list).equals(RDF + "nil"))
+		{
+			items.add(getObject(list, RDF + "first"));
+			list = getObject(list, RDF + "rest");
+		}
+		return items;
+	}
+
+	//Get the local name of an entity from its URI
+	private String getLocalName(String uri)
+	{
+		String newUri = uri;
+		if(newUri.contains("%") || newUri.contains("&"))
+		{
+			try
+			{
+				newUri = URLDecoder.decode(newUri,"UTF-8");
+			}
+			catch(UnsupportedEncodingException e)
+			{
+				//Do nothing
+			}
+		}
+		int index = newUri.indexOf("#") + 1;
+		if(index == 0)
+			index = newUri.lastIndexOf("/") + 1;
+		return newUri.substring(index);
+	}
+
+	//Gets the id of a node, adding it if it is new
+	private int getNode(String node)
+	{
+		Integer id = nodeIds.get(node);
+		if(id == null)
+		{
+			id = nodes.size();
+			nodeIds.put(node, id);
+			nodes.add(node);
+			if(id == roles.length)
+				roles = Arrays.copyOf(roles, 2 * id);
+		}
+		return id;
+	}
+
+	//Gets the object of the first triple of a subject with the given predicate
+	//(or -1 if there is no such triple)
+	private int getObject(int s, String p)
+	{
+		int pos = predicates.position(s);
+		for(int j = 0; pos > -1 && j < predicates.valueCount(pos); j++)
+			if(getURI(predicates.getValue(pos, j)).equals(p))
+				return objects.getValue(pos, j);
+		return -1;
+	}
+
+	//Gets the URI (or blank node) of a node
+	private String getURI(int node)
+	{
+		if(node < 0)
+			return "";
+		return nodes.get(node);
+	}
+
+	//Checks whether a node has a role
+	private boolean hasRole(int node, int role)
+	{
+		return (roles[node] & role) != 0;
+	}
+
+	//Checks whether a predicate is an annotation property (i.e., it isn't
+	//an object or data property, nor part of the RDF, RDFS or OWL syntax)
+	private boolean isAnnotation(int p)
+	{
+		if(hasRole(p, OBJECT) || hasRole(p, DATA))
+			return false;
+		String uri = getURI(p);
+		if(uri.startsWith(RDF) || uri.startsWith(RDFS) || uri.startsWith(OWL))
+			return ANNOTATIONS.contains(uri);
+		return true;
+	}
+
+	//Checks whether a node is a blank node
+	private boolean isBlank(int node)
+	{
+		return nodes.get(node).startsWith("_:");
+	}
+
+	//Checks whether a node has the given rdf:type
+	private boolean isType(int s, String type)
+	{
+		int pos = predicates.position(s);
+		for(int j = 0; pos > -1 && j < predicates.valueCount(pos); j++)
+			if(getURI(predicates.getValue(pos, j)).equals(RDF + "type") &&
+					getURI(objects.getValue(pos, j)).equals(type))
+				return true;
+		return false;
+	}
+
+	//Checks whether a file is in XML (rather than Turtle) from its first characters
+	private static boolean isXML(File file) throws IOException
+	{
+		FileInputStream in = new FileInputStream(file);
+		try
+		{
+			byte[] start = new byte[256];
+			int n = in.read(start);
+			String s = n > 0 ? new String(start, 0, n, OntologySnapshot.UTF8).trim() : "";
+			//Skip the byte order mark
+			if(s.startsWith("﻿"))
+				s = s.substring(1).trim();
+			return s.startsWith("<?") || s.startsWith("<!") || s.startsWith("<rdf:RDF");
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+}
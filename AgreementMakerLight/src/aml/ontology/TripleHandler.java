@@ -0,0 +1,46 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Receiver of the triples of an ontology file, as they are read by a          *
+* streaming reader (RDFXMLReader, TurtleReader or OBOReader). Blank nodes     *
+* are given as "_:" followed by their id.                                     *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+public interface TripleHandler
+{
+	/**
+	 * Handles a triple with a literal value
+	 * @param subject: the URI (or blank node) of the subject
+	 * @param predicate: the URI of the predicate
+	 * @param value: the lexical form of the literal
+	 * @param lang: the language tag of the literal ("" if it has none)
+	 * @param datatype: the URI of the datatype of the literal ("" if it has none)
+	 * @throws UnsupportedConstructException if the triple can't be streamed
+	 */
+	public void handleLiteral(String subject, String predicate, String value,
+			String lang, String datatype) throws UnsupportedConstructException;
+
+	/**
+	 * Handles a triple with a resource (URI or blank node) value
+	 * @param subject: the URI (or blank node) of the subject
+	 * @param predicate: the URI of the predicate
+	 * @param object: the URI (or blank node) of the object
+	 * @throws UnsupportedConstructException if the triple can't be streamed
+	 */
+	public void handleResource(String subject, String predicate, String object)
+			throws UnsupportedConstructException;
+}
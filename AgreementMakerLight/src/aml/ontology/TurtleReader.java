@@ -0,0 +1,546 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Streaming reader of Turtle (and N-Triples) ontology files, which passes     *
+* each triple to a TripleHandler as soon as it is parsed, without building a  *
+* model of the file.                                                          *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.util.HashMap;
+
+public class TurtleReader
+{
+
+//Attributes
+
+	//The vocabulary used by the Turtle syntax
+	private static final String RDF = "http://www.w3.org/1999/02/22-rdf-syntax-ns#";
+	private static final String XSD = "http://www.w3.org/2001/XMLSchema#";
+	//The characters that end a prefixed name
+	private static final String DELIMITERS = "<>\"'{}|^`,;()[]#";
+	//The handler of the triples
+	private TripleHandler handler;
+	//The file being read, and its buffer
+	private Reader in;
+	private char[] buffer;
+	private int position;
+	private int limit;
+	//The current line (for error messages)
+	private int line;
+	//The base URI and the prefixes declared so far
+	private String base;
+	private HashMap<String,String> prefixes;
+	//The number of anonymous blank nodes so far
+	private int blankNodes;
+
+//Constructors
+
+	/**
+	 * Constructs a new TurtleReader
+	 * @param handler: the TripleHandler that will receive the triples
+	 */
+	public TurtleReader(TripleHandler handler)
+	{
+		this.handler = handler;
+	}
+
+//Public Methods
+
+	/**
+	 * Reads a Turtle file, passing its triples to the handler
+	 * @param file: the Turtle file to read
+	 * @throws IOException if the file can't be read or isn't valid Turtle
+	 * @throws UnsupportedConstructException if the handler can't stream a triple
+	 */
+	public void read(File file) throws IOException, UnsupportedConstructException
+	{
+		in = new InputStreamReader(new FileInputStream(file), OntologySnapshot.UTF8);
+		buffer = new char[65536];
+		position = 0;
+		limit = 0;
+		line = 1;
+		base = file.toURI().toString();
+		prefixes = new HashMap<String,String>();
+		blankNodes = 0;
+		try
+		{
+			while(skipWhitespace() != -1)
+				readStatement();
+		}
+		finally
+		{
+			in.close();
+			in = null;
+			buffer = null;
+		}
+	}
+
+//Private Methods
+
+	//Throws an IOException for a syntax error at the current line
+	private IOException error(String message)
+	{
+		return new IOException("Turtle syntax error at line " + line + ": " + message);
+	}
+
+	//Reads the next character, checking that it is the expected one
+	private void expect(char c) throws IOException
+	{
+		int next = skipWhitespace();
+		if(next != c)
+			throw error("expected '" + c + "' but found " +
+					(next == -1 ? "end of file" : "'" + (char)next + "'"));
+		read();
+	}
+
+	//Checks whether a character ends a token
+	private boolean isDelimiter(int c)
+	{
+		return c == -1 || Character.isWhitespace(c) || DELIMITERS.indexOf(c) > -1;
+	}
+
+	//Gets a new blank node
+	private String newBlankNode()
+	{
+		return "_:a" + (++blankNodes);
+	}
+
+	//Gets the character at the given offset from the current position
+	//without reading it (or -1 at the end of the file)
+	private int peek(int offset) throws IOException
+	{
+		if(position + offset >= limit)
+		{
+			//Move the unread characters to the start of the buffer and fill the rest
+			System.arraycopy(buffer, position, buffer, 0, limit - position);
+			limit -= position;
+			position = 0;
+			while(limit <= offset)
+			{
+				int n = in.read(buffer, limit, buffer.length - limit);
+				if(n < 0)
+					return -1;
+				limit += n;
+			}
+		}
+		return buffer[position + offset];
+	}
+
+	//Reads the next character (or -1 at the end of the file)
+	private int read() throws IOException
+	{
+		int c = peek(0);
+		if(c == -1)
+			return -1;
+		position++;
+		if(c == '\n')
+			line++;
+		return c;
+	}
+
+	//Reads a blank node property list ("[" was already read)
+	private String readBlankNodePropertyList() throws IOException, UnsupportedConstructException
+	{
+		String node = newBlankNode();
+		if(skipWhitespace() != ']')
+			readPredicateObjectList(node);
+		expect(']');
+		return node;
+	}
+
+	//Reads a collection ("(" was already read), passing the triples of its
+	//list to the handler, and returns the first node of the list
+	private String readCollection() throws IOException, UnsupportedConstructException
+	{
+		String first = RDF + "nil";
+		String previous = null;
+		while(skipWhitespace() != ')')
+		{
+			String list = newBlankNode();
+			if(previous == null)
+				first = list;
+			else
+				handler.handleResource(previous, RDF + "rest", list);
+			readObject(list, RDF + "first");
+			previous = list;
+		}
+		read();
+		if(previous != null)
+			handler.handleResource(previous, RDF + "rest", RDF + "nil");
+		return first;
+	}
+
+	//Reads an escaped character ("\" was already read)
+	private char readEscape(boolean string) throws IOException
+	{
+		int c = read();
+		if(c == 'u' || c == 'U')
+		{
+			int length = c == 'u' ? 4 : 8;
+			StringBuilder hex = new StringBuilder();
+			for(int i = 0; i < length; i++)
+				hex.append((char)read());
+			try
+			{
+				int code = Integer.parseInt(hex.toString(), 16);
+				if(Character.isSupplementaryCodePoint(code))
+				{
+					//Return the high surrogate and push back the low surrogate
+					buffer[--position] = Character.lowSurrogate(code);
+					return Character.highSurrogate(code);
+				}
+				return (char)code;
+			}
+			catch(NumberFormatException e)
+			{
+				throw error("invalid escape \\" + (char)c + hex);
+			}
+		}
+		if(!string)
+			return (char)c;
+		switch(c)
+		{
+			case 't': return '\t';
+			case 'b': return '\b';
+			case 'n': return '\n';
+			case 'r': return '\r';
+			case 'f': return '\f';
+			case '"': return '"';
+			case '\'': return '\'';
+			case '\\': return '\\';
+			default: throw error("invalid escape \\" + (char)c);
+		}
+	}
+
+	//Reads an IRI ("<" was already read) and resolves it against the base
+	private String readIRI() throws IOException
+	{
+		StringBuilder iri = new StringBuilder();
+		int c;
+		while((c = read()) != '>')
+		{
+			if(c == -1 || c == '\n')
+				throw error("unterminated IRI");
+			if(c == '\\')
+				iri.append(readEscape(false));
+			else
+				iri.append((char)c);
+		}
+		return resolve(iri.toString());
+	}
+
+	//Reads a literal ("'" or '"' was already read) and its language or
+	//datatype, and passes its triple to the handler
+	private void readLiteral(String subject, String predicate, char quote)
+			throws IOException, UnsupportedConstructException
+	{
+		StringBuilder value = new StringBuilder();
+		boolean longString = peek(0) == quote && peek(1) == quote;
+		if(longString)
+		{
+			read();
+			read();
+		}
+		while(true)
+		{
+			int c = read();
+			if(c == -1)
+				throw error("unterminated string");
+			if(c == quote)
+			{
+				if(!longString)
+					break;
+				if(peek(0) == quote && peek(1) == quote && peek(2) != quote)
+				{
+					read();
+					read();
+					break;
+				}
+				value.append((char)c);
+			}
+			else if(c == '\\')
+				value.append(readEscape(true));
+			else if(!longString && (c == '\n' || c == '\r'))
+				throw error("unterminated string");
+			else
+				value.append((char)c);
+		}
+		String lang = "";
+		String datatype = "";
+		if(peek(0) == '@')
+		{
+			read();
+			lang = readName();
+		}
+		else if(peek(0) == '^' && peek(1) == '^')
+		{
+			read();
+			read();
+			datatype = readResource();
+		}
+		handler.handleLiteral(subject, predicate, value.toString(), lang, datatype);
+	}
+
+	//Reads a name (a prefixed name, keyword or language tag), up to
+	//the next delimiter or to a final '.'
+	private String readName() throws IOException
+	{
+		StringBuilder name = new StringBuilder();
+		while(true)
+		{
+			int c = peek(0);
+			if(c == '.' && isDelimiter(peek(1)))
+				break;
+			if(c == '\\')
+			{
+				read();
+				name.append(readEscape(false));
+			}
+			else if(isDelimiter(c))
+				break;
+			else
+				name.append((char)read());
+		}
+		return name.toString();
+	}
+
+	//Reads a number, and passes its triple to the handler
+	private void readNumber(String subject, String predicate)
+			throws IOException, UnsupportedConstructException
+	{
+		String number = readName();
+		String datatype;
+		if(number.indexOf('e') > -1 || number.indexOf('E') > -1)
+			datatype = XSD + "double";
+		else if(number.indexOf('.') > -1)
+			datatype = XSD + "decimal";
+		else
+			datatype = XSD + "integer";
+		handler.handleLiteral(subject, predicate, number, "", datatype);
+	}
+
+	//Reads an object and passes its triple to the handler
+	private void readObject(String subject, String predicate)
+			throws IOException, UnsupportedConstructException
+	{
+		int c = skipWhitespace();
+		if(c == '"' || c == '\'')
+		{
+			read();
+			readLiteral(subject, predicate, (char)c);
+		}
+		else if(Character.isDigit(c) || c == '+' || c == '-' ||
+				(c == '.' && Character.isDigit(peek(1))))
+			readNumber(subject, predicate);
+		else if(c == '[')
+		{
+			read();
+			handler.handleResource(subject, predicate, readBlankNodePropertyList());
+		}
+		else if(c == '(')
+		{
+			read();
+			handler.handleResource(subject, predicate, readCollection());
+		}
+		else if(c == '<' || c == '_')
+			handler.handleResource(subject, predicate, readResource());
+		else
+		{
+			String name = readName();
+			if(name.equals("true") || name.equals("false"))
+				handler.handleLiteral(subject, predicate, name, "", XSD + "boolean");
+			else
+				handler.handleResource(subject, predicate, resolvePrefixedName(name));
+		}
+	}
+
+	//Reads a predicate object list of a subject
+	private void readPredicateObjectList(String subject) throws IOException, UnsupportedConstructException
+	{
+		while(true)
+		{
+			String predicate;
+			skipWhitespace();
+			if(peek(0) == 'a' && isDelimiter(peek(1)))
+			{
+				read();
+				predicate = RDF + "type";
+			}
+			else
+				predicate = readResource();
+			readObject(subject, predicate);
+			while(skipWhitespace() == ',')
+			{
+				read();
+				readObject(subject, predicate);
+			}
+			if(skipWhitespace() != ';')
+				return;
+			//Skip repeated semicolons and check whether the list continues
+			while(skipWhitespace() == ';')
+				read();
+			int c = skipWhitespace();
+			if(c == '.' || c == ']' || c == -1)
+				return;
+		}
+	}
+
+	//Reads an IRI, prefixed name or blank node label
+	private String readResource() throws IOException
+	{
+		int c = skipWhitespace();
+		if(c == '<')
+		{
+			read();
+			return readIRI();
+		}
+		String name = readName();
+		if(name.startsWith("_:"))
+			return "_:n" + name.substring(2);
+		if(name.equals(""))
+			throw error("unexpected character '" + (char)c + "'");
+		return resolvePrefixedName(name);
+	}
+
+	//Reads a directive or a set of triples
+	private void readStatement() throws IOException, UnsupportedConstructException
+	{
+		int c = skipWhitespace();
+		//Turtle directives end with '.', while SPARQL directives don't
+		boolean turtle = c == '@';
+		if(turtle)
+			read();
+		String subject = null;
+		if(c == '[')
+		{
+			read();
+			subject = readBlankNodePropertyList();
+			//A blank node property list can be a statement by itself
+			if(skipWhitespace() == '.')
+			{
+				read();
+				return;
+			}
+		}
+		else if(c == '(')
+		{
+			read();
+			subject = readCollection();
+		}
+		else if(c == '<')
+		{
+			read();
+			subject = readIRI();
+		}
+		else
+		{
+			String name = readName();
+			//(prefixed names can't be mistaken for directives, as they have a ':')
+			if(name.equalsIgnoreCase("prefix"))
+			{
+				skipWhitespace();
+				String prefix = readName();
+				if(!prefix.endsWith(":"))
+					throw error("invalid prefix " + prefix);
+				expect('<');
+				prefixes.put(prefix.substring(0, prefix.length() - 1), readIRI());
+				if(turtle)
+					expect('.');
+				return;
+			}
+			if(name.equalsIgnoreCase("base"))
+			{
+				expect('<');
+				base = readIRI();
+				if(turtle)
+					expect('.');
+				return;
+			}
+			if(turtle)
+				throw error("unknown directive @" + name);
+			if(name.startsWith("_:"))
+				subject = "_:n" + name.substring(2);
+			else if(name.equals(""))
+				throw error("unexpected character '" + (char)c + "'");
+			else
+				subject = resolvePrefixedName(name);
+		}
+		readPredicateObjectList(subject);
+		expect('.');
+	}
+
+	//Resolves a (possibly relative) IRI against the base
+	private String resolve(String iri)
+	{
+		if(iri.indexOf(':') > 0)
+			return iri;
+		int hash = base.indexOf('#');
+		String b = hash > -1 ? base.substring(0, hash) : base;
+		if(iri.equals(""))
+			return b;
+		if(iri.startsWith("#"))
+			return b + iri;
+		try
+		{
+			return URI.create(b).resolve(iri).toString();
+		}
+		catch(IllegalArgumentException e)
+		{
+			return b + iri;
+		}
+	}
+
+	//Resolves a prefixed name into an IRI
+	private String resolvePrefixedName(String name) throws IOException
+	{
+		int colon = name.indexOf(':');
+		if(colon < 0)
+			throw error("invalid name " + name);
+		String namespace = prefixes.get(name.substring(0, colon));
+		if(namespace == null)
+			throw error("undeclared prefix " + name.substring(0, colon));
+		return namespace + name.substring(colon + 1);
+	}
+
+	//Skips whitespace and comments, and returns the next character
+	//without reading it (or -1 at the end of the file)
+	private int skipWhitespace() throws IOException
+	{
+		while(true)
+		{
+			int c = peek(0);
+			if(c == '#')
+			{
+				while(c != -1 && c != '\n')
+				{
+					read();
+					c = peek(0);
+				}
+			}
+			else if(c != -1 && Character.isWhitespace(c))
+				read();
+			else
+				return c;
+		}
+	}
+}
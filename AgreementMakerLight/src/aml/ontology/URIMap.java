@@ -13,13 +13,19 @@
 *                                                                             *
 *******************************************************************************
 * The global map of URIs, numeric indexes, and entity types in the opened     *
-* ontologies.                                                                 *
+* ontologies. As indexes are assigned sequentially, the URIs, local names     *
+* and types are stored in arrays by index, and the URIs are indexed in an     *
+* open addressing hash table. URIs are added under a lock, and each addition  *
+* publishes a new snapshot of the arrays through a volatile field, so that    *
+* the URIMap can be read without locking while other threads add to it.       *
 *                                                                             *
 * @author Daniel Faria                                                        *
 ******************************************************************************/
 package aml.ontology;
 
-import java.util.HashMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Set;
 
 import aml.settings.EntityType;
@@ -33,22 +39,23 @@ public class URIMap
 
 //Attributes
 	
-	//The numeric index (Integer) <-> URI (String) maps of ontology entities 
-	private HashMap<Integer,String> indexURI;
-	private HashMap<String,Integer> URIindex;
-	//The numeric index (Integer) -> EntityType map of ontology entities 
-	private HashMap<Integer,EntityType> indexType;
-	//The total number of stored URIs
-	private int size;
+	//The EntityTypes, by code (i.e., ordinal)
+	private static final EntityType[] TYPES = EntityType.values();
+	private static final byte CLASS = (byte)EntityType.CLASS.ordinal();
+	private static final byte INDIVIDUAL = (byte)EntityType.INDIVIDUAL.ordinal();
+	private static final byte ANNOTATION = (byte)EntityType.ANNOTATION.ordinal();
+	private static final byte DATA = (byte)EntityType.DATA.ordinal();
+	private static final byte OBJECT = (byte)EntityType.OBJECT.ordinal();
+	//The maximum fraction of used slots in the hash table before it is resized
+	private static final double LOAD_FACTOR = 0.5;
+	//The current snapshot of the URIMap
+	private volatile Data data;
 	
 //Constructors
 	
 	public URIMap()
 	{
-		indexURI = new HashMap<Integer,String>();
-		URIindex = new HashMap<String,Integer>();
-		indexType = new HashMap<Integer,EntityType>();
-		size = 0;
+		data = new Data(new String[1024], new String[1024], new byte[1024], new int[2048], 0);
 	}
 	
 //Public Methods
@@ -57,25 +64,38 @@ public class URIMap
 	 * @param uri: the URI to add to AML
 	 * @return the index of the added URI
 	 */
-	public int addURI(String uri, EntityType t)
+	public synchronized int addURI(String uri, EntityType t)
 	{
-		String newUri = uri;
-		if(URIindex.containsKey(newUri))
+		Data d = data;
+		int slot = find(d, uri);
+		int index = d.table[slot];
+		if(index > 0)
 		{
-			int index = URIindex.get(newUri);
-			if(!indexType.get(index).equals(t))
-				indexType.put(index,t);
+			d.types[index] = (byte)t.ordinal();
 			return index;
 		}
-		else
+		//The new entry is written past the size of the current snapshot,
+		//so readers of that snapshot ignore it until the new one is published
+		int size = d.size + 1;
+		String[] uris = d.uris;
+		String[] localNames = d.localNames;
+		byte[] types = d.types;
+		if(size == uris.length)
 		{
-			size++;
-			Integer i = new Integer(size);
-			indexURI.put(i,newUri);
-			URIindex.put(newUri,i);
-			indexType.put(i, t);
-			return size;
+			uris = Arrays.copyOf(uris, 2 * size);
+			localNames = Arrays.copyOf(localNames, 2 * size);
+			types = Arrays.copyOf(types, 2 * size);
 		}
+		uris[size] = uri;
+		localNames[size] = parseLocalName(uri);
+		types[size] = (byte)t.ordinal();
+		int[] table = d.table;
+		if(size > table.length * LOAD_FACTOR)
+			table = rehash(uris, size, 2 * table.length);
+		else
+			table[slot] = size;
+		data = new Data(uris, localNames, types, table, size);
+		return size;
 	}
 	
 	/**
@@ -84,8 +104,10 @@ public class URIMap
 	 */
 	public int getIndex(String uri)
 	{
-		if(URIindex.containsKey(uri))
-			return URIindex.get(uri);
+		Data d = data;
+		int index = d.table[find(d, uri)];
+		if(index > 0 && index <= d.size)
+			return index;
 		else
 			return -1;
 	}
@@ -95,7 +117,33 @@ public class URIMap
 	 */
 	public Set<Integer> getIndexes()
 	{
-		return indexURI.keySet();
+		return new AbstractSet<Integer>()
+		{
+			@Override
+			public boolean contains(Object o)
+			{
+				return o instanceof Integer && data.contains((Integer)o);
+			}
+			
+			@Override
+			public Iterator<Integer> iterator()
+			{
+				return new URIMapIterator<Integer>()
+				{
+					@Override
+					protected Integer get(Data d, int index)
+					{
+						return index;
+					}
+				};
+			}
+			
+			@Override
+			public int size()
+			{
+				return data.size;
+			}
+		};
 	}
 	
 	/**
@@ -104,13 +152,10 @@ public class URIMap
 	 */
 	public String getLocalName(int index)
 	{
-		String uri = indexURI.get(index);
-		if(uri == null)
+		Data d = data;
+		if(!d.contains(index))
 			return null;
-		int i = uri.indexOf("#") + 1;
-		if(i == 0)
-			i = uri.lastIndexOf("/") + 1;
-		return uri.substring(i);
+		return d.localNames[index];
 	}
 
 	/**
@@ -119,7 +164,10 @@ public class URIMap
 	 */
 	public EntityType getType(int index)
 	{
-		return indexType.get(index);
+		Data d = data;
+		if(!d.contains(index))
+			return null;
+		return TYPES[d.types[index]];
 	}
 	
 	/**
@@ -128,8 +176,9 @@ public class URIMap
 	 */
 	public String getURI(int index)
 	{
-		if(indexURI.containsKey(index))
-			return indexURI.get(index);
+		Data d = data;
+		if(d.contains(index))
+			return d.uris[index];
 		else
 			return null;
 	}
@@ -139,7 +188,33 @@ public class URIMap
 	 */
 	public Set<String> getURIS()
 	{
-		return URIindex.keySet();
+		return new AbstractSet<String>()
+		{
+			@Override
+			public boolean contains(Object o)
+			{
+				return o instanceof String && getIndex((String)o) > 0;
+			}
+			
+			@Override
+			public Iterator<String> iterator()
+			{
+				return new URIMapIterator<String>()
+				{
+					@Override
+					protected String get(Data d, int index)
+					{
+						return d.uris[index];
+					}
+				};
+			}
+			
+			@Override
+			public int size()
+			{
+				return data.size;
+			}
+		};
 	}
 	
 	/**
@@ -148,7 +223,8 @@ public class URIMap
 	 */
 	public boolean isClass(int index)
 	{
-		return indexType.get(index).equals(EntityType.CLASS);
+		Data d = data;
+		return d.contains(index) && d.types[index] == CLASS;
 	}
 	
 	/**
@@ -157,7 +233,8 @@ public class URIMap
 	 */
 	public boolean isIndividual(int index)
 	{
-		return indexType.get(index).equals(EntityType.INDIVIDUAL);
+		Data d = data;
+		return d.contains(index) && d.types[index] == INDIVIDUAL;
 	}	
 	
 	/**
@@ -166,9 +243,11 @@ public class URIMap
 	 */
 	public boolean isProperty(int index)
 	{
-		return indexType.get(index).equals(EntityType.ANNOTATION) ||
-				indexType.get(index).equals(EntityType.DATA) ||
-				indexType.get(index).equals(EntityType.OBJECT);
+		Data d = data;
+		if(!d.contains(index))
+			return false;
+		byte t = d.types[index];
+		return t == ANNOTATION || t == DATA || t == OBJECT;
 	}
 	
 	/**
@@ -176,6 +255,107 @@ public class URIMap
 	 */
 	public int size()
 	{
-		return indexURI.size();
+		return data.size;
+	}
+	
+//Private Methods
+	
+	//Finds the slot of a URI in the hash table of a snapshot, or the empty slot
+	//where it should be (slots with indexes added after the snapshot count as
+	//empty, since a URI in the snapshot can't be probed past them)
+	private static int find(Data d, String uri)
+	{
+		int[] t = d.table;
+		int mask = t.length - 1;
+		int slot = hash(uri) & mask;
+		while(t[slot] > 0 && t[slot] <= d.size && !d.uris[t[slot]].equals(uri))
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+	
+	//Gets the local name of a URI
+	private static String parseLocalName(String uri)
+	{
+		int i = uri.indexOf("#") + 1;
+		if(i == 0)
+			i = uri.lastIndexOf("/") + 1;
+		return uri.substring(i);
+	}
+	
+	//Builds a new hash table of the given length with the first size URIs
+	private static int[] rehash(String[] uris, int size, int length)
+	{
+		int[] t = new int[length];
+		int mask = t.length - 1;
+		for(int index = 1; index <= size; index++)
+		{
+			int slot = hash(uris[index]) & mask;
+			while(t[slot] > 0)
+				slot = (slot + 1) & mask;
+			t[slot] = index;
+		}
+		return t;
+	}
+	
+	//Mixes the bits of the hash code of a URI (URIs tend to differ only at the end)
+	private static int hash(String uri)
+	{
+		int h = uri.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+	
+	//A snapshot of the URIMap: the URI, local name and EntityType code of each
+	//numeric index (indexes start at 1, so position 0 is unused), the hash table
+	//of URIs, with the index of each URI (0 if the slot is empty), and the total
+	//number of stored URIs
+	private static class Data
+	{
+		private final String[] uris;
+		private final String[] localNames;
+		private final byte[] types;
+		private final int[] table;
+		private final int size;
+		
+		private Data(String[] uris, String[] localNames, byte[] types, int[] table, int size)
+		{
+			this.uris = uris;
+			this.localNames = localNames;
+			this.types = types;
+			this.table = table;
+			this.size = size;
+		}
+		
+		//Checks whether an index is in the snapshot
+		private boolean contains(int index)
+		{
+			return index > 0 && index <= size;
+		}
+	}
+	
+	//Iterator over the indexes in a snapshot of the URIMap, in ascending order
+	private abstract class URIMapIterator<T> implements Iterator<T>
+	{
+		private Data d = data;
+		private int next = 1;
+		
+		@Override
+		public boolean hasNext()
+		{
+			return next <= d.size;
+		}
+		
+		@Override
+		public T next()
+		{
+			return get(d, next++);
+		}
+		
+		@Override
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+		
+		protected abstract T get(Data d, int index);
 	}
-}
\ No newline at end of file
+}
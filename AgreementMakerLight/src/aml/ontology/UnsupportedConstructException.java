@@ -0,0 +1,30 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* An Exception thrown by the StreamLoader when an ontology file has a         *
+* construct it can't stream, so that it is loaded with the OWL API.           *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+public class UnsupportedConstructException extends Exception
+{
+	private static final long serialVersionUID = 4318562817339142551L;
+
+	public UnsupportedConstructException(String message)
+	{
+		super("Unsupported construct: " + message);
+	}
+}
@@ -13,7 +13,8 @@
 *                                                                             *
 *******************************************************************************
 * The lexicon of words in an Ontology, which is derived from its Lexicon and  *
-* used by the WordMatcher.                                                    *
+* used by the WordMatcher. It listens to the additions to the Lexicon and     *
+* updates the words and word counts of the affected entities incrementally.   *
 *                                                                             *
 * @author Daniel Faria                                                        *
 ******************************************************************************/
@@ -22,6 +23,8 @@ package aml.ontology;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
 import aml.settings.EntityType;
 import aml.settings.LexicalType;
@@ -29,13 +32,11 @@ import aml.util.StopList;
 import aml.util.Table2Set;
 import aml.util.Table2Map;
 
-public class WordLexicon
+public class WordLexicon implements LexiconListener
 {
 
 //Attributes
 
-	//The maximum size of class blocks
-	private final int MAX_BLOCK_SIZE = 10000;
 	//A link to the original Lexicon
 	private Lexicon lex;
 	//The list of stop words to ignore when building this WordLexicon
@@ -43,22 +44,28 @@ public class WordLexicon
 	//The EntityType and language to use when building this WordLexicon
 	private EntityType type;
 	private String language;
-	//The map of words (String) to entities (Integer) divided in blocks
-	private Table2Set<String,Integer>[] wordEntities;
 	//The map of entities (Integer) to words (String) with weights (Double)
 	private Table2Map<Integer,String,Double> entityWords;
+	//The map of entities (Integer) to the names (String) whose words were counted
+	private Table2Set<Integer,String> entityNames;
 	//The map of names (String) to words (String)
 	private Table2Set<String,String> nameWords;
+	//The map of word (String) frequencies (Integer)
+	private HashMap<String,Integer> wordFreqs;
+	//Auxiliary count of words entered into the WordLexicon
+	private int total;
 	//The map of word (String) evidence contents (Double)
-	private HashMap<String,Double> wordECs;
+	private final ConcurrentHashMap<String,Double> wordECs = new ConcurrentHashMap<String,Double>();
 	//The map of entities (Integer) to total evidence contents (Double), which are
 	//the sum of evidence contents of all their words (multiplied by frequency)
-	private HashMap<Integer,Double> entitiesECs;
+	private final ConcurrentHashMap<Integer,Double> entitiesECs = new ConcurrentHashMap<Integer,Double>();
 	//The map of name (String) evidence contents (Double), which is the sum
 	//of evidence contents of all its words (multiplied by frequency)
-	private HashMap<String,Double> nameECs;
-	//Auxiliary count of words entered into the WordLexicon
-	private int total;
+	private final ConcurrentHashMap<String,Double> nameECs = new ConcurrentHashMap<String,Double>();
+	//Whether the WordLexicon changed since the evidence contents were computed
+	//(as they depend on the total word count, the evidence contents are not
+	//updated with each change, but rather computed on demand after it)
+	private volatile boolean changed;
 	
 //Constructors
 
@@ -91,12 +98,14 @@ public class WordLexicon
 	
 //Public Methods
 
-	/**
-	 * @return the number of blocks in the WordLexicon
-	 */
-	public int blockCount()
+	@Override
+	public void entryAdded(int id, String name, EntityType e)
 	{
-		return wordEntities.length;
+		//The corrected weights of all names of the entity may change with
+		//the new entry (even if it is of another language), so all its
+		//words are updated
+		if(e.equals(type))
+			update(id);
 	}
 	
 	/**
@@ -105,9 +114,18 @@ public class WordLexicon
 	 */
 	public double getEntityEC(int index)
 	{
-		if(entitiesECs.containsKey(index))
-			return entitiesECs.get(index);
-		return -1.0;
+		checkChanges();
+		Double ec = entitiesECs.get(index);
+		if(ec == null)
+		{
+			if(!entityWords.contains(index))
+				return -1.0;
+			ec = 0.0;
+			for(String w : entityWords.keySet(index))
+				ec += getWordEC(w) * getWordWeight(w, index);
+			entitiesECs.put(index, ec);
+		}
+		return ec;
 	}
 	
 	/**
@@ -132,9 +150,18 @@ public class WordLexicon
 	 */
 	public double getNameEC(String n)
 	{
-		if(nameECs.containsKey(n))
-			return nameECs.get(n);
-		return -1.0;
+		checkChanges();
+		Double ec = nameECs.get(n);
+		if(ec == null)
+		{
+			if(!nameWords.contains(n))
+				return -1.0;
+			ec = 0.0;
+			for(String w : nameWords.get(n))
+				ec += getWordEC(w);
+			nameECs.put(n, ec);
+		}
+		return ec;
 	}
 	
 	/**
@@ -181,9 +208,17 @@ public class WordLexicon
 	 */
 	public double getWordEC(String w)
 	{
-		if(wordECs.containsKey(w))
-			return wordECs.get(w);
-		return -1.0;
+		checkChanges();
+		Double ec = wordECs.get(w);
+		if(ec == null)
+		{
+			Integer freq = wordFreqs.get(w);
+			if(freq == null)
+				return -1.0;
+			ec = 1 - (Math.log(freq) / Math.log(total));
+			wordECs.put(w, ec);
+		}
+		return ec;
 	}
 
 	/**
@@ -206,14 +241,6 @@ public class WordLexicon
 		return new HashSet<String>(nameWords.get(name));
 	}
 	
-	/**
-	 * @return the table of words for a given block of classes
-	 */
-	public Table2Set<String,Integer> getWordTable(int block)
-	{
-		return wordEntities[block];
-	}
-	
 	/**
 	 * @param word: the word to search in the WordLexicon
 	 * @param classId: the class to search in the WordLexicon
@@ -228,99 +255,127 @@ public class WordLexicon
 	
 //Private methods
 	
+	//Clears the evidence contents if the WordLexicon changed since
+	//they were computed
+	private void checkChanges()
+	{
+		if(changed)
+			clearECs();
+	}
+	
+	private synchronized void clearECs()
+	{
+		if(!changed)
+			return;
+		wordECs.clear();
+		entitiesECs.clear();
+		nameECs.clear();
+		changed = false;
+	}
+	
 	//Builds the WordLexicon from the original Lexicon
-	@SuppressWarnings("unchecked")
 	private void init()
 	{
 		//Initialize the data structures
 		stopSet = StopList.read();
-		int size = (int)Math.ceil(1.0*lex.entityCount(type)/MAX_BLOCK_SIZE);
-		wordEntities = new Table2Set[size];
-		for(int i = 0; i < wordEntities.length; i++)
-			wordEntities[i] = new Table2Set<String,Integer>();
 		entityWords = new Table2Map<Integer,String,Double>();
+		entityNames = new Table2Set<Integer,String>();
 		nameWords = new Table2Set<String,String>();
-		wordECs = new HashMap<String,Double>();
-		entitiesECs = new HashMap<Integer,Double>();
-		nameECs = new HashMap<String,Double>();
+		wordFreqs = new HashMap<String,Integer>();
 		total = 0;
-		//Get the classes from the Lexicon
-		Set<Integer> entities = lex.getEntities(type);
-		//For each entity
-		for(Integer e: entities)
+		//Add the words of each entity of the Lexicon
+		for(Integer e: lex.getEntities(type))
+			update(e);
+		//And listen to the Lexicon for new entries
+		lex.addListener(this);
+	}
+	
+	//Gets the words in a name (in order and with repetitions)
+	private Vector<String> split(String name)
+	{
+		Vector<String> words = new Vector<String>();
+		for(String w : name.split(" "))
 		{
-			//Get all names 
-			Set<String> names;
-			if(language.equals(""))
-				names = lex.getNames(e);
-			else
-				names = lex.getNamesWithLanguage(e, language);
-			if(names == null)
+			String word = w.replaceAll("[()]", "");
+			if(stopSet.contains(word) || word.length() < 2 || !word.matches(".*[a-zA-Z].*"))
 				continue;
-			//And add the words for each name 
-			for(String n: names)
-				if(!lex.getTypes(n,e).contains(LexicalType.FORMULA))
-					addWords(n, e);
+			words.add(word);
 		}
-		//Compute the maximum EC
-		double max = Math.log(total);
-		//Compute and store the normalized EC for
-		//each word in the WordLexicon
-		for(String w : wordECs.keySet())
+		return words;
+	}
+	
+	//Updates the word counts with the words of a name
+	private void count(String name, int increment)
+	{
+		for(String w : split(name))
 		{
-			double ec = 1 - (Math.log(wordECs.get(w)) / max);
-			wordECs.put(w, ec);
+			Integer freq = wordFreqs.get(w);
+			if(freq == null)
+				freq = 0;
+			freq += increment;
+			if(freq > 0)
+				wordFreqs.put(w, freq);
+			else
+				wordFreqs.remove(w);
+			total += increment;
 		}
-		//The total EC for each class
-		for(Integer i : entityWords.keySet())
+	}
+	
+	//Updates the words of an entity from the Lexicon
+	private void update(int id)
+	{
+		//Get all names
+		Set<String> names;
+		if(language.equals(""))
+			names = lex.getNames(id);
+		else
+			names = lex.getNamesWithLanguage(id, language);
+		//Count the words of the names that weren't counted for the entity
+		HashSet<String> counted = new HashSet<String>();
+		for(String n : names)
 		{
-			double ec = 0.0;
-			for(String w : entityWords.keySet(i))
-				ec += wordECs.get(w) * getWordWeight(w, i);
-			entitiesECs.put(i, ec);
+			if(lex.getTypes(n,id).contains(LexicalType.FORMULA))
+				continue;
+			counted.add(n);
+			if(entityNames.contains(id, n))
+				continue;
+			entityNames.add(id, n);
+			for(String w : split(n))
+				nameWords.add(n, w);
+			count(n, 1);
 		}
-		//And the total EC for each name
-		for(String n : nameWords.keySet())
+		//And discount those of names that should no longer be counted
+		//(i.e., names that became formulas)
+		if(entityNames.contains(id))
 		{
-			double ec = 0.0;
-			for(String w : nameWords.get(n))
-				ec += wordECs.get(w);
-			nameECs.put(n, ec);
+			for(String n : new HashSet<String>(entityNames.get(id)))
+			{
+				if(counted.contains(n))
+					continue;
+				entityNames.remove(id, n);
+				count(n, -1);
+			}
 		}
-	}
-			
-	//Adds all words for a given name and classId
-	private void addWords(String name, int classId)
-	{
-		String[] words = name.split(" ");
-		for(String w : words)
+		//Then recompute the weights of the words for the entity, as the corrected
+		//weights of its names depend on how many names it has
+		entityWords.remove(id);
+		for(String n : names)
 		{
-			String word = w.replaceAll("[()]", "");
-			if(stopSet.contains(word) || word.length() < 2 || !word.matches(".*[a-zA-Z].*"))
+			if(!counted.contains(n))
 				continue;
-			//Get the current block number (as determined by the number of classes already loaded)
-			int block = entityWords.keySet().size()/MAX_BLOCK_SIZE;
-			//Add the block-word-class triple
-			wordEntities[block].add(word,classId);
-			//Update the current weight of the word for the classId
-			Double weight = entityWords.get(classId,word);
-			if(weight == null)
-				weight = lex.getCorrectedWeight(name, classId);
-			else
-				weight += lex.getCorrectedWeight(name, classId);
-			//Add the class-word-weight triple
-			entityWords.add(classId, word, weight);
-			//Add the name-word pair
-			nameWords.add(name, word);
-			//Update the word frequency
-			Double freq = wordECs.get(word);
-			if(freq == null)
-				freq = 1.0;
-			else
-				freq++;
-			wordECs.put(word,freq);
-			//Update the total;
-			total++;
+			double correctedWeight = lex.getCorrectedWeight(n, id);
+			for(String word : split(n))
+			{
+				//Update the current weight of the word for the entity
+				Double weight = entityWords.get(id,word);
+				if(weight == null)
+					weight = correctedWeight;
+				else
+					weight += correctedWeight;
+				//Add the entity-word-weight triple
+				entityWords.add(id, word, weight);
+			}
 		}
+		changed = true;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,293 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Sparse matrix export of a WordLexicon, with the weights of the words of     *
+* each entity in compressed sparse row (CSR) form and the weights of the      *
+* entities of each word in compressed sparse column form, plus the evidence   *
+* contents of the words and entities. The words are numbered through a        *
+* vocabulary that can be shared with other WordMatrices, so that the          *
+* matrices of two WordLexicons can be multiplied column by column.            *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Set;
+
+public class WordMatrix
+{
+
+//Attributes
+
+	//The entities (rows), in ascending order
+	private int[] entities;
+	//The total EC of each entity (row)
+	private double[] entityECs;
+	//The words (columns) and weights of each row, sorted by word, stored
+	//from rowStart[row] (inclusive) to rowStart[row+1] (exclusive)
+	private int[] rowStart;
+	private int[] rowWords;
+	private double[] rowWeights;
+	//The rows and weights of each word, sorted by row, stored from
+	//wordStart[word] (inclusive) to wordStart[word+1] (exclusive)
+	private int[] wordStart;
+	private int[] wordRows;
+	private double[] wordWeights;
+	//The EC of each word (-1.0 for words not in the WordLexicon)
+	private double[] wordECs;
+	//The maximum weight of each word for any entity
+	private double[] maxWeights;
+
+//Constructors
+
+	/**
+	 * Exports a WordLexicon to a new WordMatrix
+	 * @param wLex: the WordLexicon to export
+	 * @param vocabulary: the map of words to their column indexes, which
+	 * can be shared by the WordMatrices that are to be multiplied
+	 * @param addWords: whether to add words that are not in the vocabulary
+	 * to it (otherwise those words are left out of the WordMatrix)
+	 */
+	public WordMatrix(WordLexicon wLex, HashMap<String,Integer> vocabulary, boolean addWords)
+	{
+		Set<Integer> ids = wLex.getEntities();
+		entities = new int[ids.size()];
+		int r = 0;
+		for(Integer i : ids)
+			entities[r++] = i;
+		Arrays.sort(entities);
+		entityECs = new double[entities.length];
+		rowStart = new int[entities.length + 1];
+		//Build the rows, with the words of each entity sorted by column
+		int[] words = new int[16];
+		double[] weights = new double[16];
+		int size = 0;
+		for(r = 0; r < entities.length; r++)
+		{
+			entityECs[r] = wLex.getEntityEC(entities[r]);
+			rowStart[r] = size;
+			for(String w : wLex.getWords(entities[r]))
+			{
+				Integer word = vocabulary.get(w);
+				if(word == null)
+				{
+					if(!addWords)
+						continue;
+					word = vocabulary.size();
+					vocabulary.put(w, word);
+				}
+				if(size == words.length)
+				{
+					words = Arrays.copyOf(words, 2 * size);
+					weights = Arrays.copyOf(weights, 2 * size);
+				}
+				words[size] = word;
+				weights[size] = wLex.getWordWeight(w, entities[r]);
+				size++;
+			}
+			sortRow(words, weights, rowStart[r], size);
+		}
+		rowStart[entities.length] = size;
+		rowWords = Arrays.copyOf(words, size);
+		rowWeights = Arrays.copyOf(weights, size);
+		//Get the ECs of the words in the vocabulary
+		wordECs = new double[vocabulary.size()];
+		Arrays.fill(wordECs, -1.0);
+		for(String w : vocabulary.keySet())
+		{
+			double ec = wLex.getWordEC(w);
+			if(ec >= 0)
+				wordECs[vocabulary.get(w)] = ec;
+		}
+		//Transpose the rows into columns (by counting sort, so that
+		//the rows of each column are in ascending order)
+		wordStart = new int[wordECs.length + 1];
+		for(int k = 0; k < size; k++)
+			wordStart[rowWords[k] + 1]++;
+		for(int w = 0; w < wordECs.length; w++)
+			wordStart[w + 1] += wordStart[w];
+		int[] next = Arrays.copyOf(wordStart, wordECs.length);
+		wordRows = new int[size];
+		wordWeights = new double[size];
+		maxWeights = new double[wordECs.length];
+		for(r = 0; r < entities.length; r++)
+		{
+			for(int k = rowStart[r]; k < rowStart[r + 1]; k++)
+			{
+				int w = rowWords[k];
+				wordRows[next[w]] = r;
+				wordWeights[next[w]] = rowWeights[k];
+				next[w]++;
+				if(rowWeights[k] > maxWeights[w])
+					maxWeights[w] = rowWeights[k];
+			}
+		}
+	}
+
+//Public Methods
+
+	/**
+	 * @return the number of entities (rows) in the WordMatrix
+	 */
+	public int entityCount()
+	{
+		return entities.length;
+	}
+
+	/**
+	 * @param word: the column of the word
+	 * @return the end (exclusive) of the entries of the word
+	 */
+	public int getColumnEnd(int word)
+	{
+		if(word >= wordECs.length)
+			return 0;
+		return wordStart[word + 1];
+	}
+
+	/**
+	 * @param entry: the position of an entry of a column
+	 * @return the row of the entry
+	 */
+	public int getColumnRow(int entry)
+	{
+		return wordRows[entry];
+	}
+
+	/**
+	 * @param word: the column of the word
+	 * @return the start of the entries of the word
+	 */
+	public int getColumnStart(int word)
+	{
+		if(word >= wordECs.length)
+			return 0;
+		return wordStart[word];
+	}
+
+	/**
+	 * @param entry: the position of an entry of a column
+	 * @return the weight of the entry
+	 */
+	public double getColumnWeight(int entry)
+	{
+		return wordWeights[entry];
+	}
+
+	/**
+	 * @param row: the row to get
+	 * @return the entity of the given row
+	 */
+	public int getEntity(int row)
+	{
+		return entities[row];
+	}
+
+	/**
+	 * @param row: the row to get
+	 * @return the EC of the entity of the given row
+	 */
+	public double getEntityEC(int row)
+	{
+		return entityECs[row];
+	}
+
+	/**
+	 * @param word: the column of the word
+	 * @return the maximum weight of the word for any entity
+	 */
+	public double getMaxWeight(int word)
+	{
+		if(word >= wordECs.length)
+			return 0.0;
+		return maxWeights[word];
+	}
+
+	/**
+	 * @param row: the row to get
+	 * @return the end (exclusive) of the entries of the row
+	 */
+	public int getRowEnd(int row)
+	{
+		return rowStart[row + 1];
+	}
+
+	/**
+	 * @param row: the row to get
+	 * @return the start of the entries of the row
+	 */
+	public int getRowStart(int row)
+	{
+		return rowStart[row];
+	}
+
+	/**
+	 * @param entry: the position of an entry of a row
+	 * @return the weight of the entry
+	 */
+	public double getRowWeight(int entry)
+	{
+		return rowWeights[entry];
+	}
+
+	/**
+	 * @param entry: the position of an entry of a row
+	 * @return the word (column) of the entry
+	 */
+	public int getRowWord(int entry)
+	{
+		return rowWords[entry];
+	}
+
+	/**
+	 * @param word: the column of the word
+	 * @return the EC of the word, or -1.0 if the word is not in the WordMatrix
+	 */
+	public double getWordEC(int word)
+	{
+		if(word >= wordECs.length)
+			return -1.0;
+		return wordECs[word];
+	}
+
+	/**
+	 * @return the number of non-zero entries in the WordMatrix
+	 */
+	public int size()
+	{
+		return rowWords.length;
+	}
+
+//Private Methods
+
+	//Sorts the entries of a row by word (rows are short, so by insertion)
+	private static void sortRow(int[] words, double[] weights, int from, int to)
+	{
+		for(int i = from + 1; i < to; i++)
+		{
+			int w = words[i];
+			double v = weights[i];
+			int j = i - 1;
+			for(; j >= from && words[j] > w; j--)
+			{
+				words[j + 1] = words[j];
+				weights[j + 1] = weights[j];
+			}
+			words[j + 1] = w;
+			weights[j + 1] = v;
+		}
+	}
+}
\ No newline at end of file
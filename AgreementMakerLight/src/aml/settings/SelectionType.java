@@ -24,7 +24,8 @@ public enum SelectionType
 {
    	STRICT ("Strict"),
    	PERMISSIVE ("Permissive"),
-   	HYBRID ("Hybrid");
+   	HYBRID ("Hybrid"),
+   	OPTIMAL ("Optimal");
 	    	
    	final String value;
     	
@@ -16,6 +16,9 @@
 *                                                                             *
 *******************************************************************************
 * ISub String similarity measure.                                             *
+* The computation works over reusable (thread-local) character buffers, and   *
+* can stop early when it is given a minimum similarity that can no longer be  *
+* reached.                                                                    *
 *                                                                             *
 * @author Giorgos Stoilos (adapted and modified by Daniel Faria)              *
 ******************************************************************************/
@@ -24,6 +27,18 @@ package aml.util;
 public class ISub
 {
 	
+//Attributes
+	
+	//The reusable character buffers of each thread
+	private static final ThreadLocal<char[][]> BUFFERS = new ThreadLocal<char[][]>()
+	{
+		@Override
+		protected char[][] initialValue()
+		{
+			return new char[][]{new char[64], new char[64]};
+		}
+	};
+	
 //Constructors
 	
 	private ISub(){}
@@ -38,20 +53,44 @@ public class ISub
 	 */
 	public static double stringSimilarity(String st1, String st2)
 	{
-		String s1 = st1, s2 = st2;
-		if(s1 == null || s2 == null)
+		return stringSimilarity(st1, st2, 0.0);
+	}
+	
+	/**
+	 * Computes the similarity between two Strings, stopping as soon as
+	 * the minimum similarity can no longer be reached
+	 * @param st1: the first string to compare
+	 * @param st2: the second string to compare
+	 * @param min: the minimum similarity of interest
+	 * @return the ISub similarity between st1 and st2 if it is at least
+	 * min, or 0 otherwise
+	 */
+	public static double stringSimilarity(String st1, String st2, double min)
+	{
+		if(st1 == null || st2 == null)
 			return 0;
-		int L1 = s1.length(), L2 = s2.length();
+		int L1 = st1.length(), L2 = st2.length();
 		if(L1 == 0 || L2 == 0)
 			return 0;
-		int l1, l2;
+		double prefix = commonPrefix(st1, st2);
+		char[][] buffers = BUFFERS.get();
+		if(buffers[0].length < L1)
+			buffers[0] = new char[Math.max(L1, 2 * buffers[0].length)];
+		if(buffers[1].length < L2)
+			buffers[1] = new char[Math.max(L2, 2 * buffers[1].length)];
+		char[] s1 = buffers[0], s2 = buffers[1];
+		st1.getChars(0, L1, s1, 0);
+		st2.getChars(0, L2, s2, 0);
+		int l1 = L1, l2 = L2;
 		double common = 0;
 		int best = 2;
-		while (s1.length() > 0 && s2.length() > 0 && best != 0)
+		while (l1 > 0 && l2 > 0 && best != 0)
 		{
+			//The similarity increases with the length of the common substrings,
+			//so it is bounded by the one we would get if all that is left matched
+			if(min > 0 && similarity(L1, L2, common + Math.min(l1, l2), prefix) < min)
+				return 0;
 			best = 0;
-			l1 = s1.length();
-			l2 = s2.length();
 			int i = 0, j = 0;
 			int startS1 = 0, endS1 = 0;
 			int startS2 = 0, endS2 = 0;
@@ -62,12 +101,12 @@ public class ISub
 				while (l2 - j > best)
 				{
 					int k = i;
-					while(j < l2 && s1.charAt(k) != s2.charAt(j))
+					while(j < l2 && s1[k] != s2[j])
 						j++;
 					if(j != l2)
 					{
 						p = j;
-						for(j++, k ++; (j < l2) && (k < l1) && (s1.charAt(k) == s2.charAt(j)); j++, k++);
+						for(j++, k ++; (j < l2) && (k < l1) && (s1[k] == s2[j]); j++, k++);
 						if(k - i > best)
 						{
 							best = k - i;
@@ -79,40 +118,47 @@ public class ISub
 					}
 				}
 			}
-			char[] newString = new char[s1.length() - (endS1 - startS1)];
-			j = 0;
-			for(i = 0; i < s1.length(); i++)
-			{
-				if(i >= startS1 && i < endS1)
-					continue;
-				newString[j++] = s1.charAt(i);
-			}
-			s1 = new String(newString);
-			newString = new char[s2.length() - (endS2 - startS2)];
-			j = 0;
-			for(i = 0; i < s2.length(); i++)
-			{
-				if(i >= startS2 && i < endS2)
-					continue;
-				newString[j++] = s2.charAt(i);
-			}
-			s2 = new String(newString);
+			//Remove the common substring from both buffers
+			System.arraycopy(s1, endS1, s1, startS1, l1 - endS1);
+			l1 -= endS1 - startS1;
+			System.arraycopy(s2, endS2, s2, startS2, l2 - endS2);
+			l2 -= endS2 - startS2;
 			if(best > 2)
 				common += best;
 			else
 				best = 0;
 		}
+		double result = similarity(L1, L2, common, prefix);
+		if(result < min)
+			return 0;
+		return result;
+	}
+
+//Private Methods
+	
+	//Computes the length of the common prefix of two Strings (up to 4)
+	private static double commonPrefix(String s1, String s2)
+	{
+		int i, n = Math.min(s1.length(), s2.length());
+		for(i = 0; i < n; i++)
+			if(s1.charAt(i) != s2.charAt(i))
+				break;
+		return Math.min(4, i);
+	}
+	
+	//Computes the ISub similarity given the lengths of the Strings, the
+	//total length of their common substrings and their common prefix
+	private static double similarity(int L1, int L2, double common, double prefix)
+	{
 		double commonality = 0;
 		double scaledCommon = (double) (2 * common) / (L1 + L2);
 		commonality = scaledCommon;
-		double winklerImprovement = winklerImprovement(st1, st2, commonality);
+		double winklerImprovement = winklerImprovement(prefix, commonality);
 		double dissimilarity = 0;
 		double rest1 = L1 - common;
 		double rest2 = L2 - common;
-		double unmatchedS1 = Math.max(rest1, 0);
-		double unmatchedS2 = Math.max(rest2, 0);
-		unmatchedS1 = rest1 / L1;
-		unmatchedS2 = rest2 / L2;
+		double unmatchedS1 = rest1 / L1;
+		double unmatchedS2 = rest2 / L2;
 		double suma = unmatchedS1 + unmatchedS2;
 		double product = unmatchedS1 * unmatchedS2;
 		double p = 0.6;
@@ -125,16 +171,9 @@ public class ISub
 			result = 0;
 		return result;
 	}
-
-//Private Methods
 	
-	private static double winklerImprovement(String s1, String s2, double commonality)
+	private static double winklerImprovement(double commonPrefixLength, double commonality)
 	{
-		int i, n = Math.min(s1.length(), s2.length());
-		for(i = 0; i < n; i++)
-			if(s1.charAt(i) != s2.charAt(i))
-				break;
-		double commonPrefixLength = Math.min(4, i);
 		double winkler = commonPrefixLength * 0.1 * (1 - commonality);
 		return winkler;
 	}
@@ -0,0 +1,39 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* SimilarityKernel for the ISub String similarity measure, which uses the     *
+* minimum similarity of interest to stop the computation early.               *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.util;
+
+public class ISubKernel implements SimilarityKernel
+{
+
+//Public Methods
+
+	@Override
+	public double similarity(String s, String t)
+	{
+		return ISub.stringSimilarity(s, t);
+	}
+
+	@Override
+	public void similarity(String s, String[] targets, int from, int to, double min, double[] results)
+	{
+		for(int i = from; i < to; i++)
+			results[i] = ISub.stringSimilarity(s, targets[i], min);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,376 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Table of pairs of primitive int keys to double values, with the same API    *
+* as a Table2Map<Integer,Integer,Double> but without boxing or HashMap entry  *
+* overhead. The second level keys of each first level key are kept in an      *
+* IntSet, with their values in an array aligned with the IntSet positions.    *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.Vector;
+
+public class IntIntDoubleTable
+{
+
+//Attributes
+	
+	//The first level keys, and the second level keys and
+	//values of each (by the position of the first level key)
+	private IntSet keys;
+	private IntSet[] keysB;
+	private double[][] values;
+	private int size;
+	
+//Constructors
+
+	/**
+	 * Constructs a new empty Table
+	 */
+	public IntIntDoubleTable()
+	{
+		keys = new IntSet();
+		keysB = new IntSet[4];
+		values = new double[4][];
+		size = 0;
+	}
+	
+	/**
+	 * Constructs a new Table that is a copy of
+	 * the given Table
+	 * @param m: the Table to copy
+	 */
+	public IntIntDoubleTable(IntIntDoubleTable m)
+	{
+		keys = new IntSet(m.keys);
+		keysB = new IntSet[m.keysB.length];
+		values = new double[m.values.length][];
+		for(int i = 0; i < keys.size(); i++)
+		{
+			keysB[i] = new IntSet(m.keysB[i]);
+			values[i] = Arrays.copyOf(m.values[i], m.values[i].length);
+		}
+		size = m.size;
+	}
+
+//Public Methods
+	
+	/**
+	 * Adds the value for the given keys to the Table
+	 * If there is already a value for the given keys, the
+	 * value will be replaced
+	 * @param keyA: the first level key to add to the Table
+	 * @param keyB: the second level key to add to the Table
+	 * @param valueC: the value for the pair of keys to add to the Table
+	 */
+	public void add(int keyA, int keyB, double valueC)
+	{
+		int pos = keys.position(keyA);
+		if(pos < 0)
+		{
+			keys.add(keyA);
+			pos = keys.size() - 1;
+			if(pos == keysB.length)
+			{
+				keysB = Arrays.copyOf(keysB, 2 * pos);
+				values = Arrays.copyOf(values, 2 * pos);
+			}
+			keysB[pos] = new IntSet();
+			values[pos] = new double[4];
+		}
+		int p = keysB[pos].position(keyB);
+		if(p < 0)
+		{
+			keysB[pos].add(keyB);
+			p = keysB[pos].size() - 1;
+			if(p == values[pos].length)
+				values[pos] = Arrays.copyOf(values[pos], 2 * p);
+			size++;
+		}
+		values[pos][p] = valueC;
+	}
+	
+	/**
+	 * Adds the value for the given keys to the Table
+	 * unless there is already a value for the given keys
+	 * @param keyA: the first level key to add to the Table
+	 * @param keyB: the second level key to add to the Table
+	 * @param valueC: the value for the pair of keys to add to the Table
+	 */
+	public void addIgnore(int keyA, int keyB, double valueC)
+	{
+		if(!contains(keyA, keyB))
+			add(keyA, keyB, valueC);
+	}
+	
+	/**
+	 * Adds the value for the given keys to the Table
+	 * If there is already a value for the given keys, the
+	 * new value will replace the previous value only if it
+	 * is greater
+	 * @param keyA: the first level key to add to the Table
+	 * @param keyB: the second level key to add to the Table
+	 * @param valueC: the value for the pair of keys to add to the Table
+	 */
+	public void addUpgrade(int keyA, int keyB, double valueC)
+	{
+		if(!contains(keyA, keyB) || get(keyA, keyB) < valueC)
+			add(keyA, keyB, valueC);
+	}
+	
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @return whether the Table contains the first level keyA
+	 */
+	public boolean contains(int keyA)
+	{
+		return keys.contains(keyA);
+	}
+
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @param keyB: the second level key to search in the Table
+	 * @return whether the Table contains an entry with the two keys
+	 */
+	public boolean contains(int keyA, int keyB)
+	{
+		int pos = keys.position(keyA);
+		return pos > -1 && keysB[pos].contains(keyB);
+	}
+	
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @param keyB: the second level key to search in the Table
+	 * @param valueC: the value to search in the Table
+	 * @return whether the Table contains an entry with the two keys
+	 * and the given value
+	 */
+	public boolean contains(int keyA, int keyB, double valueC)
+	{
+		return contains(keyA, keyB) && get(keyA, keyB) == valueC;
+	}
+
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @return the number of entries with keyA
+	 */
+	public int entryCount(int keyA)
+	{
+		int pos = keys.position(keyA);
+		if(pos < 0)
+			return 0;
+		return keysB[pos].size();
+	}
+	
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @param valueC: the value to search in the Table
+	 * @return the number of entries with keyA that have valueC
+	 */
+	public int entryCount(int keyA, double valueC)
+	{
+		int pos = keys.position(keyA);
+		if(pos < 0)
+			return 0;
+		int count = 0;
+		for(int p = 0; p < keysB[pos].size(); p++)
+			if(values[pos][p] == valueC)
+				count++;
+		return count;
+	}
+	
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @return a new HashMap with all entries for keyA, or null
+	 * if keyA is not in the Table
+	 */
+	public HashMap<Integer,Double> get(int keyA)
+	{
+		int pos = keys.position(keyA);
+		if(pos < 0)
+			return null;
+		HashMap<Integer,Double> mapsA = new HashMap<Integer,Double>();
+		for(int p = 0; p < keysB[pos].size(); p++)
+			mapsA.put(keysB[pos].get(p), values[pos][p]);
+		return mapsA;
+	}
+	
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @param keyB: the second level key to search in the Table
+	 * @return the value for the entry with the two keys or 0.0
+	 * if no such entry exists
+	 */	
+	public double get(int keyA, int keyB)
+	{
+		int pos = keys.position(keyA);
+		if(pos < 0)
+			return 0.0;
+		int p = keysB[pos].position(keyB);
+		if(p < 0)
+			return 0.0;
+		return values[pos][p];
+	}
+	
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @return the second level key with the maximum value in entries
+	 * with keyA, or -1 if there are no entries with keyA
+	 */
+	public int getKeyMaximum(int keyA)
+	{
+		int pos = keys.position(keyA);
+		if(pos < 0 || keysB[pos].size() == 0)
+			return -1;
+		int max = 0;
+		for(int p = 1; p < keysB[pos].size(); p++)
+			if(values[pos][p] > values[pos][max])
+				max = p;
+		return keysB[pos].get(max);
+	}
+	
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @param valueC: the value to search in the Table
+	 * @return the list of second level keys in entries with keyA and valueC
+	 */	
+	public Vector<Integer> getMatchingKeys(int keyA, double valueC)
+	{
+		Vector<Integer> matching = new Vector<Integer>(0,1);
+		int pos = keys.position(keyA);
+		if(pos < 0)
+			return matching;
+		for(int p = 0; p < keysB[pos].size(); p++)
+			if(values[pos][p] == valueC)
+				matching.add(keysB[pos].get(p));
+		return matching;
+	}
+	
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @return the maximum value in entries with keyA, or
+	 * 0.0 if there are no entries with keyA
+	 */
+	public double getMaximumValue(int keyA)
+	{
+		int pos = keys.position(keyA);
+		if(pos < 0 || keysB[pos].size() == 0)
+			return 0.0;
+		double max = values[pos][0];
+		for(int p = 1; p < keysB[pos].size(); p++)
+			if(values[pos][p] > max)
+				max = values[pos][p];
+		return max;
+	}
+	
+	/**
+	 * @return the set of first level keys in the Table
+	 */
+	public Set<Integer> keySet()
+	{
+		return keys.asSet();
+	}
+	
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @return the set of second level keys in all entries with keyA
+	 */
+	public Set<Integer> keySet(int keyA)
+	{
+		int pos = keys.position(keyA);
+		if(pos < 0)
+			return null;
+		return keysB[pos].asSet();
+	}
+	
+	/**
+	 * @return the number of first level keys in the Table
+	 */
+	public int keyCount()
+	{
+		return keys.size();
+	}
+	
+	/**
+	 * @return an iterator over the first level keys in the Table
+	 */
+	public IntIterator keys()
+	{
+		return keys.iterator();
+	}
+	
+	/**
+	 * @param keyA: the first level key to search in the Table
+	 * @return an iterator over the second level keys in all entries
+	 * with keyA (which is empty if keyA is not in the Table)
+	 */
+	public IntIterator keys(int keyA)
+	{
+		int pos = keys.position(keyA);
+		if(pos < 0)
+			return new IntSet().iterator();
+		return keysB[pos].iterator();
+	}
+	
+	/**
+	 * Removes all entries for the given first level key
+	 * @param keyA: the key to remove from the Table
+	 */
+	public void remove(int keyA)
+	{
+		int pos = keys.position(keyA);
+		if(pos < 0)
+			return;
+		size -= keysB[pos].size();
+		//The last key is moved to the position of the removed key
+		keys.remove(keyA);
+		int last = keys.size();
+		keysB[pos] = keysB[last];
+		values[pos] = values[last];
+		keysB[last] = null;
+		values[last] = null;
+	}
+	
+	/**
+	 * Removes the entry for the given key pair
+	 * @param keyA: the first level key to search in the Table
+	 * @param keyB: the second level key to remove from the Table
+	 */
+	public void remove(int keyA, int keyB)
+	{
+		int pos = keys.position(keyA);
+		if(pos < 0)
+			return;
+		int p = keysB[pos].position(keyB);
+		if(p < 0)
+			return;
+		//The last entry is moved to the position of the removed entry
+		keysB[pos].remove(keyB);
+		values[pos][p] = values[pos][keysB[pos].size()];
+		size--;
+	}
+	
+	/**
+	 * @return the total number of entries in the Table
+	 */
+	public int size()
+	{
+		return size;
+	}
+}
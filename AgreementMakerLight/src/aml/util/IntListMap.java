@@ -0,0 +1,200 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Map of primitive int keys to growable lists of int values, which avoids     *
+* boxing in large indexes. Keys are kept in insertion order, and can be       *
+* accessed by position (from 0 to keyCount()-1) as well as by key.            *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.util;
+
+import java.util.Arrays;
+
+public class IntListMap
+{
+
+//Attributes
+
+	//The maximum fraction of used slots in the hash table before it is resized
+	private static final double LOAD_FACTOR = 0.5;
+	//The keys, in insertion order
+	private int[] keys;
+	//The values of each key and their number
+	private int[][] values;
+	private int[] valueCounts;
+	private int keyCount;
+	private int size;
+	//The hash table with the position of each key plus one (0 if the slot is empty)
+	private int[] table;
+
+//Constructors
+
+	/**
+	 * Constructs a new empty IntListMap
+	 */
+	public IntListMap()
+	{
+		keys = new int[16];
+		values = new int[16][];
+		valueCounts = new int[16];
+		table = new int[32];
+		keyCount = 0;
+		size = 0;
+	}
+
+	/**
+	 * Constructs a new IntListMap that is a copy of the given IntListMap
+	 * @param m: the IntListMap to copy
+	 */
+	public IntListMap(IntListMap m)
+	{
+		keys = Arrays.copyOf(m.keys, m.keys.length);
+		values = new int[m.values.length][];
+		for(int i = 0; i < m.keyCount; i++)
+			values[i] = Arrays.copyOf(m.values[i], m.values[i].length);
+		valueCounts = Arrays.copyOf(m.valueCounts, m.valueCounts.length);
+		table = Arrays.copyOf(m.table, m.table.length);
+		keyCount = m.keyCount;
+		size = m.size;
+	}
+
+//Public Methods
+
+	/**
+	 * Adds a value to the list of the given key
+	 * @param key: the key to add
+	 * @param value: the value to add to the list of the key
+	 */
+	public void add(int key, int value)
+	{
+		int slot = find(key);
+		int pos = table[slot] - 1;
+		if(pos < 0)
+		{
+			if(keyCount == keys.length)
+			{
+				keys = Arrays.copyOf(keys, 2 * keyCount);
+				values = Arrays.copyOf(values, 2 * keyCount);
+				valueCounts = Arrays.copyOf(valueCounts, 2 * keyCount);
+			}
+			pos = keyCount++;
+			keys[pos] = key;
+			values[pos] = new int[2];
+			table[slot] = pos + 1;
+			if(keyCount > table.length * LOAD_FACTOR)
+				resize();
+		}
+		else if(valueCounts[pos] == values[pos].length)
+			values[pos] = Arrays.copyOf(values[pos], 2 * valueCounts[pos]);
+		values[pos][valueCounts[pos]++] = value;
+		size++;
+	}
+
+	/**
+	 * @param key: the key to search in the map
+	 * @return whether the map contains the key
+	 */
+	public boolean contains(int key)
+	{
+		return table[find(key)] > 0;
+	}
+
+	/**
+	 * @param position: the position of the key (in insertion order)
+	 * @return the key at the given position
+	 */
+	public int getKey(int position)
+	{
+		return keys[position];
+	}
+
+	/**
+	 * @param position: the position of the key (in insertion order)
+	 * @param index: the index of the value in the list of the key
+	 * @return the value at the given index of the list of the key
+	 */
+	public int getValue(int position, int index)
+	{
+		return values[position][index];
+	}
+
+	/**
+	 * @return the number of keys in the map
+	 */
+	public int keyCount()
+	{
+		return keyCount;
+	}
+
+	/**
+	 * @param key: the key to search in the map
+	 * @return the position of the key (in insertion order), or -1
+	 * if the key is not in the map
+	 */
+	public int position(int key)
+	{
+		return table[find(key)] - 1;
+	}
+
+	/**
+	 * @return the total number of values in the map
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @param position: the position of the key (in insertion order)
+	 * @return the number of values in the list of the key
+	 */
+	public int valueCount(int position)
+	{
+		return valueCounts[position];
+	}
+
+//Private Methods
+
+	//Finds the slot of a key in the hash table, or the empty slot where it should be
+	private int find(int key)
+	{
+		int mask = table.length - 1;
+		int slot = hash(key) & mask;
+		while(table[slot] > 0 && keys[table[slot] - 1] != key)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	//Doubles the size of the hash table
+	private void resize()
+	{
+		table = new int[2 * table.length];
+		int mask = table.length - 1;
+		for(int pos = 0; pos < keyCount; pos++)
+		{
+			int slot = hash(keys[pos]) & mask;
+			while(table[slot] > 0)
+				slot = (slot + 1) & mask;
+			table[slot] = pos + 1;
+		}
+	}
+
+	//Mixes the bits of a key (to spread consecutive keys)
+	private static int hash(int key)
+	{
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
\ No newline at end of file
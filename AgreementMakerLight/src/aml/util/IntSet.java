@@ -0,0 +1,282 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Open addressing hash set of primitive int values. Values are kept in        *
+* insertion order, except that removing a value moves the last value to its   *
+* position. The set can be iterated without boxing through an IntIterator,    *
+* or viewed as a read-only Set<Integer>.                                      *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.util;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Set;
+
+public class IntSet
+{
+
+//Attributes
+
+	//The maximum fraction of used slots in the hash table before it is resized
+	private static final double LOAD_FACTOR = 0.5;
+	//The values, in insertion order
+	private int[] values;
+	private int size;
+	//The hash table with the position of each value plus one (0 if the slot is empty)
+	private int[] table;
+
+//Constructors
+
+	/**
+	 * Constructs a new empty IntSet
+	 */
+	public IntSet()
+	{
+		values = new int[4];
+		table = new int[8];
+		size = 0;
+	}
+	
+	/**
+	 * Constructs a new IntSet that is a copy of the given IntSet
+	 * @param s: the IntSet to copy
+	 */
+	public IntSet(IntSet s)
+	{
+		values = Arrays.copyOf(s.values, s.values.length);
+		table = Arrays.copyOf(s.table, s.table.length);
+		size = s.size;
+	}
+
+//Public Methods
+
+	/**
+	 * Adds a value to the IntSet
+	 * @param value: the value to add
+	 * @return whether the value was added (i.e., was not already in the IntSet)
+	 */
+	public boolean add(int value)
+	{
+		int slot = find(value);
+		if(table[slot] > 0)
+			return false;
+		if(size == values.length)
+			values = Arrays.copyOf(values, 2 * size);
+		values[size++] = value;
+		table[slot] = size;
+		if(size > table.length * LOAD_FACTOR)
+			resize();
+		return true;
+	}
+	
+	/**
+	 * @return a read-only view of this IntSet as a Set of Integers
+	 */
+	public Set<Integer> asSet()
+	{
+		return new SetView();
+	}
+	
+	/**
+	 * @param value: the value to search in the IntSet
+	 * @return whether the IntSet contains the value
+	 */
+	public boolean contains(int value)
+	{
+		return table[find(value)] > 0;
+	}
+	
+	/**
+	 * @param position: the position of the value to get
+	 * @return the value at the given position
+	 */
+	public int get(int position)
+	{
+		return values[position];
+	}
+	
+	/**
+	 * @return an iterator over the values in the IntSet
+	 */
+	public IntIterator iterator()
+	{
+		return new IntIterator()
+		{
+			private int next = 0;
+			
+			@Override
+			public boolean hasNext()
+			{
+				return next < size;
+			}
+			
+			@Override
+			public int next()
+			{
+				return values[next++];
+			}
+		};
+	}
+	
+	/**
+	 * @param value: the value to search in the IntSet
+	 * @return the position of the value, or -1 if it is not in the IntSet
+	 */
+	public int position(int value)
+	{
+		return table[find(value)] - 1;
+	}
+	
+	/**
+	 * Removes a value from the IntSet, moving the last value
+	 * in the IntSet to its position
+	 * @param value: the value to remove
+	 * @return whether the value was removed (i.e., was in the IntSet)
+	 */
+	public boolean remove(int value)
+	{
+		int slot = find(value);
+		int pos = table[slot] - 1;
+		if(pos < 0)
+			return false;
+		delete(slot);
+		size--;
+		if(pos < size)
+		{
+			values[pos] = values[size];
+			table[find(values[pos])] = pos + 1;
+		}
+		return true;
+	}
+	
+	/**
+	 * @return the number of values in the IntSet
+	 */
+	public int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * @return the values in the IntSet, in iteration order
+	 */
+	public int[] toArray()
+	{
+		return Arrays.copyOf(values, size);
+	}
+
+//Private Methods
+
+	//Empties a slot of the hash table, shifting back the slots that follow
+	//it so that all values remain reachable from their home slot
+	private void delete(int slot)
+	{
+		int mask = table.length - 1;
+		int free = slot;
+		int next = slot;
+		while(true)
+		{
+			next = (next + 1) & mask;
+			if(table[next] == 0)
+				break;
+			int home = hash(values[table[next] - 1]) & mask;
+			//The value can be moved to the free slot unless its home slot
+			//lies (cyclically) between the free slot and its current slot
+			if((next > free && (home <= free || home > next)) ||
+					(next < free && home <= free && home > next))
+			{
+				table[free] = table[next];
+				free = next;
+			}
+		}
+		table[free] = 0;
+	}
+	
+	//Finds the slot of a value in the hash table, or the empty slot where it should be
+	private int find(int value)
+	{
+		int mask = table.length - 1;
+		int slot = hash(value) & mask;
+		while(table[slot] > 0 && values[table[slot] - 1] != value)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+	
+	//Doubles the size of the hash table
+	private void resize()
+	{
+		table = new int[2 * table.length];
+		int mask = table.length - 1;
+		for(int pos = 0; pos < size; pos++)
+		{
+			int slot = hash(values[pos]) & mask;
+			while(table[slot] > 0)
+				slot = (slot + 1) & mask;
+			table[slot] = pos + 1;
+		}
+	}
+	
+	//Mixes the bits of a value (to spread consecutive values)
+	private static int hash(int value)
+	{
+		int h = value * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+	
+	//Read-only view of the IntSet
+	private class SetView extends AbstractSet<Integer>
+	{
+		@Override
+		public boolean contains(Object o)
+		{
+			return o instanceof Integer && IntSet.this.contains((Integer)o);
+		}
+		
+		@Override
+		public Iterator<Integer> iterator()
+		{
+			return new Iterator<Integer>()
+			{
+				private int next = 0;
+				
+				@Override
+				public boolean hasNext()
+				{
+					return next < size;
+				}
+				
+				@Override
+				public Integer next()
+				{
+					return values[next++];
+				}
+				
+				@Override
+				public void remove()
+				{
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+		
+		@Override
+		public int size()
+		{
+			return size;
+		}
+	}
+}
@@ -0,0 +1,213 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Table of primitive int keys to sets of int values, with the same API as a   *
+* Table2Set<Integer,Integer> but without boxing or HashMap entry overhead.    *
+* The sets returned by get() and keySet() are read-only views of the Table.   *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+
+public class IntTable2Set
+{
+
+//Attributes
+	
+	//The keys and the set of values of each key (by the position of the key)
+	private IntSet keys;
+	private IntSet[] values;
+	private int size;
+	
+//Constructors
+
+	/**
+	 * Constructs a new empty Table
+	 */
+	public IntTable2Set()
+	{
+		keys = new IntSet();
+		values = new IntSet[4];
+		size = 0;
+	}
+	
+	/**
+	 * Constructs a new Table that is a copy of
+	 * the given Table
+	 * @param m: the Table to copy
+	 */
+	public IntTable2Set(IntTable2Set m)
+	{
+		keys = new IntSet(m.keys);
+		values = new IntSet[m.values.length];
+		for(int i = 0; i < keys.size(); i++)
+			values[i] = new IntSet(m.values[i]);
+		size = m.size;
+	}
+
+//Public Methods
+	
+	/**
+	 * Adds the value for the given key to the Table
+	 * @param key: the key to add to the Table
+	 * @param value: the value to add to the Table
+	 */
+	public void add(int key, int value)
+	{
+		int pos = keys.position(key);
+		if(pos < 0)
+		{
+			keys.add(key);
+			pos = keys.size() - 1;
+			if(pos == values.length)
+				values = Arrays.copyOf(values, 2 * pos);
+			values[pos] = new IntSet();
+		}
+		if(values[pos].add(value))
+			size++;
+	}
+	
+	/**
+	 * Adds the values for the given key to the Table
+	 * @param key: the key to add to the Table
+	 * @param values: the values to add to the Table
+	 */
+	public void addAll(int key, Collection<Integer> values)
+	{
+		for(Integer val : values)
+			add(key, val);
+	}
+
+	/**
+	 * @param key: the key to search in the Table
+	 * @return whether the Table contains the key
+	 */
+	public boolean contains(int key)
+	{
+		return keys.contains(key);
+	}
+
+	/**
+	 * @param key: the key to search in the Table
+	 * @param value: the value to search in the Table
+	 * @return whether the Table contains an entry with the key and value
+	 */
+	public boolean contains(int key, int value)
+	{
+		int pos = keys.position(key);
+		return pos > -1 && values[pos].contains(value);
+	}
+	
+	/**
+	 * @param key: the key to search in the Table
+	 * @return the number of entries with key
+	 */
+	public int entryCount(int key)
+	{
+		int pos = keys.position(key);
+		if(pos < 0)
+			return 0;
+		return values[pos].size();
+	}
+	
+	/**
+	 * @param key: the key to search in the Table
+	 * @return the set of all entries for key, or null if
+	 * the key is not in the Table
+	 */
+	public Set<Integer> get(int key)
+	{
+		int pos = keys.position(key);
+		if(pos < 0)
+			return null;
+		return values[pos].asSet();
+	}
+	
+	/**
+	 * @return the set of keys in the Table
+	 */
+	public Set<Integer> keySet()
+	{
+		return keys.asSet();
+	}
+	
+	/**
+	 * @return the number of keys in the Table
+	 */
+	public int keyCount()
+	{
+		return keys.size();
+	}
+	
+	/**
+	 * @return an iterator over the keys in the Table
+	 */
+	public IntIterator keys()
+	{
+		return keys.iterator();
+	}
+	
+	/**
+	 * Removes all values for the given key
+	 * @param key: the key to remove from the Table
+	 */
+	public void remove(int key)
+	{
+		int pos = keys.position(key);
+		if(pos < 0)
+			return;
+		size -= values[pos].size();
+		//The last key is moved to the position of the removed key
+		keys.remove(key);
+		values[pos] = values[keys.size()];
+		values[keys.size()] = null;
+	}
+	
+	/**
+	 * Removes the given value for the given key
+	 * @param key: the key to search in the Table
+	 * @param value: the value to remove from the Table
+	 */
+	public void remove(int key, int value)
+	{
+		int pos = keys.position(key);
+		if(pos > -1 && values[pos].remove(value))
+			size--;
+	}
+	
+	/**
+	 * @return the total number of entries in the Table
+	 */
+	public int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * @param key: the key to search in the Table
+	 * @return an iterator over the values for key (which
+	 * is empty if the key is not in the Table)
+	 */
+	public IntIterator values(int key)
+	{
+		int pos = keys.position(key);
+		if(pos < 0)
+			return new IntSet().iterator();
+		return values[pos].iterator();
+	}
+}
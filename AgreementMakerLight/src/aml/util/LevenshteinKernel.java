@@ -0,0 +1,192 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* SimilarityKernel for the Levenshtein (edit distance) String similarity      *
+* measure, normalized by the length of the longest String (as in the          *
+* simmetrics implementation previously used by AML). The distance is          *
+* computed with Myers' bit-parallel algorithm when one of the Strings fits in *
+* a 64-bit word, and with the classic dynamic programming algorithm           *
+* otherwise.                                                                  *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.util;
+
+import java.util.Arrays;
+
+public class LevenshteinKernel implements SimilarityKernel
+{
+
+//Attributes
+
+	//The maximum length of a pattern for the bit-parallel algorithm
+	private static final int WORD = 64;
+	//The reusable buffers of each thread
+	private static final ThreadLocal<Buffers> BUFFERS = new ThreadLocal<Buffers>()
+	{
+		@Override
+		protected Buffers initialValue()
+		{
+			return new Buffers();
+		}
+	};
+
+//Public Methods
+
+	@Override
+	public double similarity(String s, String t)
+	{
+		return similarity(BUFFERS.get(), s, t, false);
+	}
+
+	@Override
+	public void similarity(String s, String[] targets, int from, int to, double min, double[] results)
+	{
+		Buffers b = BUFFERS.get();
+		boolean compiled = s.length() > 0 && s.length() <= WORD;
+		if(compiled)
+			b.compile(s);
+		for(int i = from; i < to; i++)
+			results[i] = similarity(b, s, targets[i], compiled);
+	}
+
+//Private Methods
+
+	//Computes the similarity between two Strings, reusing the compiled
+	//pattern of the first String if it is already in the buffers
+	private static double similarity(Buffers b, String s, String t, boolean compiled)
+	{
+		int l1 = s.length(), l2 = t.length();
+		int dist;
+		if(l1 == 0)
+			dist = l2;
+		else if(l2 == 0)
+			dist = l1;
+		else if(compiled)
+			dist = b.distance(t);
+		else if(l1 <= WORD)
+		{
+			b.compile(s);
+			dist = b.distance(t);
+		}
+		else if(l2 <= WORD)
+		{
+			b.compile(t);
+			dist = b.distance(s);
+		}
+		else
+			dist = b.dynamicDistance(s, t);
+		float maxLen = l1;
+		if(maxLen < l2)
+			maxLen = l2;
+		if(maxLen == 0)
+			return 1.0f;
+		return 1.0f - dist / maxLen;
+	}
+
+	//The per-thread buffers: the bit masks of the pattern characters, kept in
+	//an open addressing table, and the rows for the dynamic programming algorithm
+	private static class Buffers
+	{
+		private static final int SIZE = 128;
+		private char[] keys = new char[SIZE];
+		private long[] masks = new long[SIZE];
+		private int length;
+		private int[] previous = new int[WORD + 1];
+		private int[] current = new int[WORD + 1];
+
+		//Computes the bit masks of the characters in a pattern (of up to 64 characters)
+		private void compile(String pattern)
+		{
+			Arrays.fill(masks, 0L);
+			length = pattern.length();
+			for(int i = 0; i < length; i++)
+			{
+				char c = pattern.charAt(i);
+				int h = c & (SIZE - 1);
+				while(masks[h] != 0 && keys[h] != c)
+					h = (h + 1) & (SIZE - 1);
+				keys[h] = c;
+				masks[h] |= 1L << i;
+			}
+		}
+
+		//Gets the bit mask of a character in the compiled pattern
+		private long mask(char c)
+		{
+			int h = c & (SIZE - 1);
+			while(masks[h] != 0)
+			{
+				if(keys[h] == c)
+					return masks[h];
+				h = (h + 1) & (SIZE - 1);
+			}
+			return 0L;
+		}
+
+		//Computes the edit distance between the compiled pattern and a text
+		private int distance(String text)
+		{
+			long pv = -1L;
+			long mv = 0L;
+			long last = 1L << (length - 1);
+			int score = length;
+			for(int j = 0; j < text.length(); j++)
+			{
+				long eq = mask(text.charAt(j));
+				long xv = eq | mv;
+				long xh = (((eq & pv) + pv) ^ pv) | eq;
+				long ph = mv | ~(xh | pv);
+				long mh = pv & xh;
+				if((ph & last) != 0)
+					score++;
+				else if((mh & last) != 0)
+					score--;
+				ph = (ph << 1) | 1L;
+				mh = mh << 1;
+				pv = mh | ~(xv | ph);
+				mv = ph & xv;
+			}
+			return score;
+		}
+
+		//Computes the edit distance between two Strings by dynamic programming
+		private int dynamicDistance(String s, String t)
+		{
+			int l2 = t.length();
+			if(previous.length <= l2)
+			{
+				previous = new int[l2 + 1];
+				current = new int[l2 + 1];
+			}
+			for(int j = 0; j <= l2; j++)
+				previous[j] = j;
+			for(int i = 1; i <= s.length(); i++)
+			{
+				current[0] = i;
+				char c = s.charAt(i - 1);
+				for(int j = 1; j <= l2; j++)
+				{
+					int cost = c == t.charAt(j - 1) ? 0 : 1;
+					current[j] = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1),
+							previous[j - 1] + cost);
+				}
+				int[] aux = previous;
+				previous = current;
+				current = aux;
+			}
+			return previous[l2];
+		}
+	}
+}
\ No newline at end of file
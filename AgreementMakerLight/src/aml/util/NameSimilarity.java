@@ -80,8 +80,10 @@ public class NameSimilarity
 		
 		//Compute the Jaccard word similarity between the properties
 		double wordSim = Similarity.jaccard(sWords,tWords)*0.9;
-		//and the String similarity
-		double simString = ISub.stringSimilarity(n1,n2)*0.9;
+		//and the String similarity (which is skipped if it can't bring
+		//the combined similarity up to the threshold)
+		double min = Math.max((1 - (1-thresh) / (1-wordSim)) / 0.9 - 0.000001, 0.0);
+		double simString = ISub.stringSimilarity(n1,n2,min)*0.9;
 		//Combine the two
 		double sim = 1 - ((1-wordSim) * (1-simString));
 		if(wn != null)
@@ -0,0 +1,29 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+* A function that computes the similarity between a source and a target       *
+* entity, to be evaluated in parallel by the ParallelExecutor.                *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.util;
+
+public interface PairFunction
+{
+	/**
+	 * @param sourceId: the index of the source entity
+	 * @param targetId: the index of the target entity
+	 * @return the similarity between the source and target entities
+	 */
+	public double compute(int sourceId, int targetId);
+}
@@ -0,0 +1,264 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+* Shared fork/join execution service for the parallel matchers and filters.   *
+* Tables of entity pairs are streamed in blocks of flat primitive arrays,     *
+* which are split recursively into chunks that are scored by the pool, and    *
+* then added to the Alignment in their original order, so that results are    *
+* reproducible regardless of the number of threads. If a task fails, its      *
+* exception is rethrown to the caller, so that no results are silently lost.  *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.util;
+
+import java.util.Collection;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import aml.match.Alignment;
+
+public class ParallelExecutor
+{
+
+//Attributes
+
+	//The maximum number of pairs scored by a single task
+	private static final int CHUNK_SIZE = 256;
+	//The maximum number of pairs held in memory at a time
+	private static final int BLOCK_SIZE = 65536;
+	//The fork/join pool
+	private ForkJoinPool pool;
+
+//Constructors
+
+	/**
+	 * Constructs a new ParallelExecutor with the given parallelism
+	 * @param threads: the number of threads to use
+	 */
+	public ParallelExecutor(int threads)
+	{
+		pool = new ForkJoinPool(Math.max(1, threads));
+	}
+
+//Public Methods
+
+	/**
+	 * @return the maximum number of pairs scored in a single block
+	 */
+	public int getBlockSize()
+	{
+		return BLOCK_SIZE;
+	}
+
+	/**
+	 * @return the number of threads used by this ParallelExecutor
+	 */
+	public int getParallelism()
+	{
+		return pool.getParallelism();
+	}
+
+	/**
+	 * Computes the given function for each index in the collection, in parallel
+	 * @param ids: the collection of indexes for which to compute the function
+	 * @param f: the function to compute
+	 * @return the list of results, in the iteration order of the collection
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Vector<T> map(Collection<Integer> ids, IndexFunction<T> f)
+	{
+		int[] indexes = new int[ids.size()];
+		int n = 0;
+		for(Integer i : ids)
+			indexes[n++] = i;
+		Object[] results = new Object[n];
+		pool.invoke(new IndexTask<T>(indexes, results, 0, n, f));
+		Vector<T> list = new Vector<T>(n);
+		for(Object o : results)
+			list.add((T)o);
+		return list;
+	}
+
+	/**
+	 * Computes the similarity of each pair in the table, in parallel
+	 * @param toMap: the table of source and target entities to map
+	 * @param f: the similarity function
+	 * @param thresh: the minimum similarity for a pair to be added to the Alignment
+	 * @return the Alignment with the pairs that have similarity above the threshold
+	 */
+	public Alignment map(IntTable2Set toMap, PairFunction f, double thresh)
+	{
+		Alignment a = new Alignment();
+		map(toMap, f, thresh, a);
+		return a;
+	}
+
+	/**
+	 * Computes the similarity of each pair in the table, in parallel, and adds
+	 * those above the threshold to the given Alignment
+	 * @param toMap: the table of source and target entities to map
+	 * @param f: the similarity function
+	 * @param thresh: the minimum similarity for a pair to be added to the Alignment
+	 * @param a: the Alignment to which the pairs will be added
+	 */
+	public void map(IntTable2Set toMap, PairFunction f, double thresh, Alignment a)
+	{
+		if(toMap.keyCount() == 0)
+			return;
+		int size = Math.max(1, Math.min(BLOCK_SIZE, toMap.size()));
+		int[] sources = new int[size];
+		int[] targets = new int[size];
+		double[] sims = new double[size];
+		int n = 0;
+		for(IntIterator keys = toMap.keys(); keys.hasNext(); )
+		{
+			int i = keys.next();
+			for(IntIterator values = toMap.values(i); values.hasNext(); )
+			{
+				sources[n] = i;
+				targets[n] = values.next();
+				n++;
+				if(n == size)
+				{
+					mapBlock(sources, targets, sims, n, f, thresh, a);
+					n = 0;
+				}
+			}
+		}
+		if(n > 0)
+			mapBlock(sources, targets, sims, n, f, thresh, a);
+	}
+
+	/**
+	 * Starts computing the given function for each index in the collection, in
+	 * parallel, without waiting for the results (so that the caller can go on
+	 * with other work in the meantime)
+	 * @param ids: the collection of indexes for which to compute the function
+	 * @param f: the function to compute
+	 * @return the task that computes the list of results, in the iteration order
+	 * of the collection, which can be joined once the results are needed
+	 */
+	public <T> ForkJoinTask<Vector<T>> submit(final Collection<Integer> ids, final IndexFunction<T> f)
+	{
+		return pool.submit(new Callable<Vector<T>>()
+		{
+			@Override
+			public Vector<T> call()
+			{
+				return map(ids, f);
+			}
+		});
+	}
+
+	/**
+	 * Shuts down this ParallelExecutor once all running tasks have finished
+	 */
+	public void shutdown()
+	{
+		pool.shutdown();
+	}
+
+//Private Methods
+
+	//Scores a block of pairs and adds those above the threshold to the Alignment
+	private void mapBlock(int[] sources, int[] targets, double[] sims, int n,
+			PairFunction f, double thresh, Alignment a)
+	{
+		if(n <= CHUNK_SIZE || pool.getParallelism() == 1)
+			for(int k = 0; k < n; k++)
+				sims[k] = f.compute(sources[k], targets[k]);
+		else
+			pool.invoke(new PairTask(sources, targets, sims, 0, n, f));
+		for(int k = 0; k < n; k++)
+			if(sims[k] >= thresh)
+				a.add(sources[k], targets[k], sims[k]);
+	}
+
+	//Recursive task for scoring a range of pairs
+	private static class PairTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		private int[] sources;
+		private int[] targets;
+		private double[] sims;
+		private int start;
+		private int end;
+		private PairFunction f;
+
+		PairTask(int[] s, int[] t, double[] sim, int st, int e, PairFunction func)
+		{
+			sources = s;
+			targets = t;
+			sims = sim;
+			start = st;
+			end = e;
+			f = func;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if(end - start <= CHUNK_SIZE)
+			{
+				for(int k = start; k < end; k++)
+					sims[k] = f.compute(sources[k], targets[k]);
+			}
+			else
+			{
+				int mid = (start + end) >>> 1;
+				invokeAll(new PairTask(sources, targets, sims, start, mid, f),
+						new PairTask(sources, targets, sims, mid, end, f));
+			}
+		}
+	}
+
+	//Recursive task for computing a range of index results
+	private static class IndexTask<T> extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		private int[] indexes;
+		private Object[] results;
+		private int start;
+		private int end;
+		private IndexFunction<T> f;
+
+		IndexTask(int[] ids, Object[] res, int st, int e, IndexFunction<T> func)
+		{
+			indexes = ids;
+			results = res;
+			start = st;
+			end = e;
+			f = func;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if(end - start <= 1)
+			{
+				for(int k = start; k < end; k++)
+					results[k] = f.compute(indexes[k]);
+			}
+			else
+			{
+				int mid = (start + end) >>> 1;
+				invokeAll(new IndexTask<T>(indexes, results, start, mid, f),
+						new IndexTask<T>(indexes, results, mid, end, f));
+			}
+		}
+	}
+}
@@ -0,0 +1,111 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* SimilarityKernel for the q-gram String similarity measure, which compares   *
+* the multisets of character trigrams of two Strings padded with two '#'      *
+* characters at each end (as in the simmetrics implementation previously      *
+* used by AML). Trigrams are encoded as longs and compared by sorting them.   *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.util;
+
+import java.util.Arrays;
+
+public class QGramKernel implements SimilarityKernel
+{
+
+//Attributes
+
+	//The padding character
+	private static final char PAD = '#';
+	//The reusable buffers of each thread
+	private static final ThreadLocal<long[][]> BUFFERS = new ThreadLocal<long[][]>()
+	{
+		@Override
+		protected long[][] initialValue()
+		{
+			return new long[][]{new long[64], new long[64]};
+		}
+	};
+
+//Public Methods
+
+	@Override
+	public double similarity(String s, String t)
+	{
+		long[][] buffers = BUFFERS.get();
+		int n1 = grams(s, buffers, 0);
+		return similarity(buffers, n1, t);
+	}
+
+	@Override
+	public void similarity(String s, String[] targets, int from, int to, double min, double[] results)
+	{
+		long[][] buffers = BUFFERS.get();
+		int n1 = grams(s, buffers, 0);
+		for(int i = from; i < to; i++)
+			results[i] = similarity(buffers, n1, targets[i]);
+	}
+
+//Private Methods
+
+	//Computes the similarity between the (already encoded) source
+	//trigrams in the first buffer and the trigrams of a target String
+	private static float similarity(long[][] buffers, int n1, String t)
+	{
+		int n2 = grams(t, buffers, 1);
+		long[] g1 = buffers[0];
+		long[] g2 = buffers[1];
+		//Count the trigrams the two multisets have in common
+		int common = 0;
+		int i = 0, j = 0;
+		while(i < n1 && j < n2)
+		{
+			if(g1[i] == g2[j])
+			{
+				common++;
+				i++;
+				j++;
+			}
+			else if(g1[i] < g2[j])
+				i++;
+			else
+				j++;
+		}
+		int total = n1 + n2;
+		int difference = total - 2 * common;
+		return ((float)total - (float)difference) / (float)total;
+	}
+
+	//Encodes the padded trigrams of a String into the given buffer, sorted
+	private static int grams(String s, long[][] buffers, int buffer)
+	{
+		int l = s.length();
+		int n = l + 2;
+		if(buffers[buffer].length < n)
+			buffers[buffer] = new long[Math.max(n, 2 * buffers[buffer].length)];
+		long[] g = buffers[buffer];
+		long c0 = PAD, c1 = PAD;
+		for(int i = 0; i < n; i++)
+		{
+			long c2 = i < l ? s.charAt(i) : PAD;
+			g[i] = (c0 << 32) | (c1 << 16) | c2;
+			c0 = c1;
+			c1 = c2;
+		}
+		Arrays.sort(g, 0, n);
+		return n;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,47 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* String similarity measure that can score a source String against a batch    *
+* of target Strings, so that any work that depends only on the source (e.g.   *
+* pattern bit masks or n-gram tables) is done only once per batch.            *
+* Implementations must be stateless (or use thread-local buffers) so that a   *
+* single instance can be shared by all threads.                               *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.util;
+
+public interface SimilarityKernel
+{
+	/**
+	 * Computes the similarity between two Strings
+	 * @param s: the first String to compare
+	 * @param t: the second String to compare
+	 * @return the similarity between s and t, in [0.0,1.0]
+	 */
+	public double similarity(String s, String t);
+
+	/**
+	 * Computes the similarity between a source String and a range of target Strings
+	 * @param s: the source String to compare
+	 * @param targets: the array of target Strings to compare
+	 * @param from: the index of the first target String to compare (inclusive)
+	 * @param to: the index of the last target String to compare (exclusive)
+	 * @param min: the minimum similarity of interest (kernels may return 0.0 for
+	 * the target Strings whose similarity is below it)
+	 * @param results: the array where the similarity of each target String will be
+	 * stored, at the same index as in the targets array
+	 */
+	public void similarity(String s, String[] targets, int from, int to, double min, double[] results);
+}
\ No newline at end of file
@@ -0,0 +1,86 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Registry of the available SimilarityKernels, by name. The kernels for the   *
+* StringSimMeasures are registered under their labels, and new kernels can    *
+* be registered at runtime and then used by the StringMatcher.                *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.util;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import aml.settings.StringSimMeasure;
+
+public class SimilarityKernels
+{
+
+//Attributes
+
+	//The registered kernels, by name
+	private static final ConcurrentHashMap<String,SimilarityKernel> KERNELS =
+			new ConcurrentHashMap<String,SimilarityKernel>();
+	static
+	{
+		KERNELS.put(StringSimMeasure.ISUB.toString(), new ISubKernel());
+		KERNELS.put(StringSimMeasure.EDIT.toString(), new LevenshteinKernel());
+		KERNELS.put(StringSimMeasure.JW.toString(), new JaroWinklerKernel());
+		KERNELS.put(StringSimMeasure.QGRAM.toString(), new QGramKernel());
+	}
+
+//Constructors
+
+	private SimilarityKernels(){}
+
+//Public Methods
+
+	/**
+	 * @param m: the StringSimMeasure to get
+	 * @return the SimilarityKernel for the given StringSimMeasure
+	 */
+	public static SimilarityKernel get(StringSimMeasure m)
+	{
+		return KERNELS.get(m.toString());
+	}
+
+	/**
+	 * @param name: the name of the SimilarityKernel to get
+	 * @return the SimilarityKernel registered under the given name
+	 * or null if there is no such kernel
+	 */
+	public static SimilarityKernel get(String name)
+	{
+		return KERNELS.get(name);
+	}
+
+	/**
+	 * @return the names of the registered SimilarityKernels
+	 */
+	public static Set<String> getNames()
+	{
+		return KERNELS.keySet();
+	}
+
+	/**
+	 * Registers a SimilarityKernel (replacing any kernel with the same name)
+	 * @param name: the name under which to register the kernel
+	 * @param k: the SimilarityKernel to register
+	 */
+	public static void register(String name, SimilarityKernel k)
+	{
+		KERNELS.put(name, k);
+	}
+}
\ No newline at end of file
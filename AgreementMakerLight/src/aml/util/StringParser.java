@@ -24,9 +24,49 @@
 ******************************************************************************/
 package aml.util;
 
+import java.util.regex.Pattern;
+
 public class StringParser
 {
 
+//Attributes
+
+	//The patterns used to detect formulas
+	private static final Pattern THREE_LETTERS = Pattern.compile(".*[a-zA-Z]{3,}.*");
+	private static final Pattern LOWER_UPPER = Pattern.compile("[a-z]+[A-Z]+");
+	private static final Pattern THREE_LETTERS_SYMBOLS = Pattern.compile("[a-zA-Z]{3}[^a-zA-Z]+");
+	private static final Pattern THREE_LETTERS_NUMBER = Pattern.compile("[a-zA-Z]{3}[ _][0-9]{1,3}");
+	private static final Pattern UPPER_DIGITS_DASHES = Pattern.compile("[A-Z0-9/\\\\-]+");
+	private static final Pattern UPPER = Pattern.compile("[A-Z]+");
+	private static final Pattern DIGIT_DASH_WORD = Pattern.compile("[0-9]{1,2}'?-[a-zA-Z]{3,}.*");
+	private static final Pattern INNER_DIGIT_DASH_WORD = Pattern.compile(".*[ ,\\-][0-9]{1,2}'?\\)?-[a-zA-Z]{3,}.*");
+	//The patterns used to detect numeric or alpha-numeric identifiers
+	private static final Pattern[] NUMERIC_IDS = {
+		//just digits
+		Pattern.compile("[0-9]*"),
+		//digits with an intervening separator
+		Pattern.compile("[0-9]+[_:\\.\\-][0-9]+"),
+		//a single letter
+		Pattern.compile("[a-zA-Z]{1}"),
+		//a single letter followed by digits
+		Pattern.compile("[a-zA-Z]{1}[0-9]{1,3}"),
+		//OBO Foundry style (e.g., "GO:000001")
+		Pattern.compile("[a-zA-Z]{2,}[_:][0-9\\.]{4,}"),
+		//akin to OBO Foundry style (e.g., "C_A00001")
+		Pattern.compile("[a-zA-Z]+[_:]?[a-zA-Z]?[0-9\\.]{5,}"),
+		//simple letters-dash-numbers-dash-numbers pattern
+		Pattern.compile("[a-zA-Z]{1,3}-[0-9]{3,}-[0-9]{3,}"),
+		//specific letters-and-numbers separated by dashes pattern
+		Pattern.compile("[a-z0-9]{8}-[a-z0-9]{4}-[a-z0-9]{4}-[a-z0-9]{4}-[a-z0-9]{12}"),
+		//another specific letters-and-numbers separated by dashes pattern
+		Pattern.compile("sid-[a-zA-Z0-9]{4,}-[a-zA-Z0-9]{4,}-[a-zA-Z0-9]{4,}-[a-zA-Z0-9]{4,}-[a-zA-Z0-9]{4,}")};
+	//The patterns used in normalization
+	private static final Pattern WHITE_SPACE = Pattern.compile("\\s");
+	private static final Pattern NAME_SYMBOLS = Pattern.compile(" *[^a-zA-Z0-9'()ÁÀÂÄÉÈÊËÍÌÎÏÓÒÔÖÚÙÛÜÇÑáàâãäéèêëíìîïóòôõöúùûüçñ] *");
+	private static final Pattern PROPERTY_SYMBOLS = Pattern.compile(" *[^a-zA-Z0-9'()] *");
+	private static final Pattern MULTIPLE_SPACES = Pattern.compile(" {2,}");
+	private static final Pattern CASE_CHANGE = Pattern.compile(".*[a-z][A-Z].*");
+
 //Constructors
 	
 	private StringParser(){}
@@ -42,19 +82,19 @@ public class StringParser
 		//A name is a formula if:
 		return
 			//It doesn't contain at least 3 contiguous letters
-			!name.matches(".*[a-zA-Z]{3,}.*") ||
+			!THREE_LETTERS.matcher(name).matches() ||
 			//It is composed by a block of lower case letters followed by only upper case letters
-			name.matches("[a-z]+[A-Z]+") ||
+			LOWER_UPPER.matcher(name).matches() ||
 			//It is composed by a block of 3 contiguous letters followed by only non-letters
 			//except if the non-letters consist of a separator followed by only 1-3 digits
-			(name.matches("[a-zA-Z]{3}[^a-zA-Z]+") && !name.matches("[a-zA-Z]{3}[ _][0-9]{1,3}")) ||
+			(THREE_LETTERS_SYMBOLS.matcher(name).matches() && !THREE_LETTERS_NUMBER.matcher(name).matches()) ||
 			//It contains only upper case letters, numbers and dashes but not just upper case letters 
-			(name.matches("[A-Z0-9/\\\\-]+") && !name.matches("[A-Z]+")) ||
+			(UPPER_DIGITS_DASHES.matcher(name).matches() && !UPPER.matcher(name).matches()) ||
 			//It starts with a digit-dash-word sequence
-			name.matches("[0-9]{1,2}'?-[a-zA-Z]{3,}.*") ||
+			DIGIT_DASH_WORD.matcher(name).matches() ||
 			//or contains a digit-dash-word sequence preceded by a space, comma or dash
 			//with possibly a bracket or apostrophe in between
-			name.matches(".*[ ,\\-][0-9]{1,2}'?\\)?-[a-zA-Z]{3,}.*");
+			INNER_DIGIT_DASH_WORD.matcher(name).matches();
 	}
 	
 	/**
@@ -63,24 +103,10 @@ public class StringParser
 	 */
 	public static boolean isNumericId(String name)
 	{
-		//just digits
-		return name.matches("[0-9]*")
-			//digits with an intervening separator
-			|| name.matches("[0-9]+[_:\\.\\-][0-9]+")
-			//a single letter
-			|| name.matches("[a-zA-Z]{1}")
-			//a single letter followed by digits
-			|| name.matches("[a-zA-Z]{1}[0-9]{1,3}")
-			//OBO Foundry style (e.g., "GO:000001")
-			|| name.matches("[a-zA-Z]{2,}[_:][0-9\\.]{4,}")
-			//akin to OBO Foundry style (e.g., "C_A00001")
-			|| name.matches("[a-zA-Z]+[_:]?[a-zA-Z]?[0-9\\.]{5,}")
-			//simple letters-dash-numbers-dash-numbers pattern
-			|| name.matches("[a-zA-Z]{1,3}-[0-9]{3,}-[0-9]{3,}")
-			//specific letters-and-numbers separated by dashes pattern
-			|| name.matches("[a-z0-9]{8}-[a-z0-9]{4}-[a-z0-9]{4}-[a-z0-9]{4}-[a-z0-9]{12}")
-			//another specific letters-and-numbers separated by dashes pattern
-			|| name.matches("sid-[a-zA-Z0-9]{4,}-[a-zA-Z0-9]{4,}-[a-zA-Z0-9]{4,}-[a-zA-Z0-9]{4,}-[a-zA-Z0-9]{4,}");
+		for(Pattern p : NUMERIC_IDS)
+			if(p.matcher(name).matches())
+				return true;
+		return false;
 	}
 
 	/**
@@ -94,7 +120,7 @@ public class StringParser
 		String parsed = formula;
 		parsed = parsed.toLowerCase();
 		parsed = parsed.replace("_"," ");
-		parsed = parsed.replaceAll("\\s"," ");
+		parsed = WHITE_SPACE.matcher(parsed).replaceAll(" ");
 		//The only exception is that if a formula closes brackets
 		//before opening brackets (which happens in NCI) we correct
 		//it by opening brackets at the start
@@ -120,10 +146,10 @@ public class StringParser
 		
 		//Then replace all non-word characters with white spaces
 		//except for apostrophes and brackets
-		parsed = parsed.replaceAll(" *[^a-zA-Z0-9'()ÁÀÂÄÉÈÊËÍÌÎÏÓÒÔÖÚÙÛÜÇÑáàâãäéèêëíìîïóòôõöúùûüçñ] *"," ");
+		parsed = NAME_SYMBOLS.matcher(parsed).replaceAll(" ");
 		
 		//Then remove multiple, leading and trailing spaces
-		parsed = parsed.replaceAll(" {2,}"," ");
+		parsed = MULTIPLE_SPACES.matcher(parsed).replaceAll(" ");
 		parsed = parsed.trim();
 		
 		//Then normalize the case changes and return the result
@@ -142,13 +168,13 @@ public class StringParser
 		parsed = parsed.replace("&apos;","'");
 		parsed = parsed.replace("&nbsp;"," ");
 		//Remove dashes
-		parsed = parsed.replaceAll("-","");
+		parsed = parsed.replace("-","");
 		//Then replace all other non-word characters with white spaces
 		//except for apostrophes and brackets
-		parsed = parsed.replaceAll(" *[^a-zA-Z0-9'()] *"," ");
+		parsed = PROPERTY_SYMBOLS.matcher(parsed).replaceAll(" ");
 		
 		//Then remove multiple, leading and trailing spaces
-		parsed = parsed.replaceAll(" {2,}"," ");
+		parsed = MULTIPLE_SPACES.matcher(parsed).replaceAll(" ");
 		parsed = parsed.trim();
 		
 		//Then normalize the case changes and return the result
@@ -161,7 +187,7 @@ public class StringParser
 	private static String normalizeCaseChanges(String name, boolean allChanges)
 	{
 		//If the name contains no within word case changes
-		if(!name.matches(".*[a-z][A-Z].*"))
+		if(!CASE_CHANGE.matcher(name).matches())
 			//Just convert it to lower case and return it
 			return name.toLowerCase();
 		//Otherwise initialize the String to return
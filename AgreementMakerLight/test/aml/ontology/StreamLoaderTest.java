@@ -0,0 +1,166 @@
+/******************************************************************************
+* Copyright 2013-2016 LASIGE                                                  *
+*                                                                             *
+* Licensed under the Apache License, Version 2.0 (the "License"); you may     *
+* not use this file except in compliance with the License. You may obtain a   *
+* copy of the License at http://www.apache.org/licenses/LICENSE-2.0           *
+*                                                                             *
+* Unless required by applicable law or agreed to in writing, software         *
+* distributed under the License is distributed on an "AS IS" BASIS,           *
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.    *
+* See the License for the specific language governing permissions and         *
+* limitations under the License.                                              *
+*                                                                             *
+*******************************************************************************
+* Regression test of the StreamLoader against the OWL API loader: the sample  *
+* ontologies are opened through both paths, and the contents of the URIMap,   *
+* the Lexicons and the RelationshipMap (listed by entity URI) must be the     *
+* same.                                                                       *
+*                                                                             *
+* @author Daniel Faria                                                        *
+******************************************************************************/
+package aml.ontology;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.Vector;
+
+import org.junit.After;
+import org.junit.Test;
+
+import aml.AML;
+import aml.settings.EntityType;
+
+public class StreamLoaderTest
+{
+
+//Attributes
+
+	//The sample ontologies
+	private static final String ANATOMY = "store/anatomy/";
+	private static final File MOUSE = new File(ANATOMY + "mouse.owl");
+	private static final File HUMAN = new File(ANATOMY + "human.owl");
+
+//Public Methods
+
+	@After
+	public void tearDown()
+	{
+		AML aml = AML.getInstance();
+		aml.closeOntologies();
+		aml.setStreaming(false);
+	}
+
+	@Test
+	public void testStreamed()
+	{
+		AML aml = AML.getInstance();
+		aml.setStreaming(true);
+		assertNotNull(StreamLoader.read(new Ontology(), MOUSE));
+		assertNotNull(StreamLoader.read(new Ontology(), HUMAN));
+	}
+
+	@Test
+	public void testAnatomy() throws Exception
+	{
+		Vector<String> parsed = load(false);
+		Vector<String> streamed = load(true);
+		//Compare line by line first, so that a failure shows the first difference
+		for(int i = 0; i < parsed.size() && i < streamed.size(); i++)
+			assertEquals(parsed.get(i), streamed.get(i));
+		assertEquals(parsed.size(), streamed.size());
+	}
+
+//Private Methods
+
+	//Opens the sample ontologies with or without streaming and lists the
+	//contents of the URIMap, Lexicons and RelationshipMap (by URI, since
+	//the entity indexes follow the order in which each loader reads them)
+	private static Vector<String> load(boolean streaming) throws Exception
+	{
+		AML aml = AML.getInstance();
+		aml.setStreaming(streaming);
+		aml.openOntologies(MOUSE.toURI(), HUMAN.toURI());
+		URIMap uris = aml.getURIMap();
+		Vector<String> contents = new Vector<String>();
+		for(int i : uris.getIndexes())
+			contents.add("URI " + uris.getURI(i) + " " + uris.getType(i) + " " + uris.getLocalName(i));
+		listLexicon(aml.getSource(), uris, contents);
+		listLexicon(aml.getTarget(), uris, contents);
+		listRelationships(aml.getRelationshipMap(), uris, contents);
+		Collections.sort(contents);
+		return contents;
+	}
+
+	//Lists the names of each entity in the Lexicon of an Ontology, with their provenances
+	private static void listLexicon(Ontology o, URIMap uris, Vector<String> contents)
+	{
+		Lexicon lex = o.getLexicon();
+		for(EntityType e : EntityType.values())
+		{
+			contents.add("ENTITIES " + o.getURI() + " " + e + " " + uris(uris, o.getEntities(e)));
+			for(int i : lex.getEntities(e))
+				for(String n : lex.getNames(i))
+					for(Provenance p : lex.get(n, i))
+						contents.add("NAME " + e + " " + uris.getURI(i) + " " + n + " " + p.getType() +
+								" " + p.getSource() + " " + p.getLanguage() + " " + p.getWeight());
+		}
+	}
+
+	//Lists the relationships of each entity in the RelationshipMap
+	private static void listRelationships(RelationshipMap rm, URIMap uris, Vector<String> contents)
+	{
+		for(int i : uris.getIndexes())
+		{
+			String uri = uris.getURI(i);
+			for(int j : rm.getAncestors(i))
+			{
+				TreeSet<String> rels = new TreeSet<String>();
+				for(Relationship r : rm.getRelationships(i, j))
+					rels.add(r.getDistance() + " " + uri(uris, r.getProperty()) + " " + r.getRestriction());
+				contents.add("ANCESTOR " + uri + " " + uris.getURI(j) + " " + rels);
+			}
+			add(contents, "DISJOINT " + uri, uris(uris, rm.getDisjoint(i)));
+			add(contents, "CLASSES " + uri, uris(uris, rm.getIndividualClasses(i)));
+			for(int j : rm.getIndividualActiveRelations(i))
+				add(contents, "RELATION " + uri + " " + uris.getURI(j), uris(uris, rm.getIndividualProperties(i, j)));
+			add(contents, "SUPERPROPERTIES " + uri, uris(uris, rm.getSuperProperties(i)));
+			add(contents, "INVERSES " + uri, uris(uris, rm.getInverseProperties(i)));
+			add(contents, "DOMAINS " + uri, uris(uris, rm.getDomains(i)));
+			add(contents, "RANGES " + uri, uris(uris, rm.getObjectRanges(i)));
+			add(contents, "DATA RANGES " + uri, new TreeSet<String>(rm.getDataRanges(i)));
+			if(rm.getTransitiveProperties().contains(i))
+				add(contents, "TRANSITIVE OVER " + uri, uris(uris, rm.getTransitiveProperties().get(i)));
+			contents.add("PROPERTY " + uri + " " + rm.isFunctional(i) + " " + rm.isSymmetric(i));
+		}
+	}
+
+	//Lists a set under a key, if it isn't empty
+	private static void add(Vector<String> contents, String key, TreeSet<String> set)
+	{
+		if(!set.isEmpty())
+			contents.add(key + " " + set);
+	}
+
+	//Gets the URI of an entity (or 'is_a' for the subclass relation)
+	private static String uri(URIMap uris, int index)
+	{
+		if(index == -1)
+			return "is_a";
+		return uris.getURI(index);
+	}
+
+	//Gets the (sorted) URIs of a set of entities
+	private static TreeSet<String> uris(URIMap uris, Set<Integer> indexes)
+	{
+		TreeSet<String> set = new TreeSet<String>();
+		for(int i : indexes)
+			set.add(uri(uris, i));
+		return set;
+	}
+}